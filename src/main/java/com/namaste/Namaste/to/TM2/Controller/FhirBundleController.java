@@ -1,13 +1,20 @@
 package com.namaste.Namaste.to.TM2.Controller;
 
+import com.namaste.Namaste.to.TM2.Service.BulkAnnotationService;
+import com.namaste.Namaste.to.TM2.Service.CodeSystemLookupService;
 import com.namaste.Namaste.to.TM2.Service.TerminologyFhirService;
+import com.namaste.Namaste.to.TM2.Service.TerminologyNotLoadedException;
+import com.namaste.Namaste.to.TM2.config.RequestDeadline;
+import jakarta.servlet.http.HttpServletRequest;
 import org.hl7.fhir.r4.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Date;
 import java.util.List;
@@ -23,24 +30,33 @@ public class FhirBundleController {
 
     private static final Logger log = LoggerFactory.getLogger(FhirBundleController.class);
     private final TerminologyFhirService terminologyFhirService;
+    private final CodeSystemLookupService codeSystemLookupService;
+    private final BulkAnnotationService bulkAnnotationService;
 
     // FHIR R4 Content Type
     private static final String FHIR_JSON_CONTENT_TYPE = "application/fhir+json;fhirVersion=4.0";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
 
-    public FhirBundleController(TerminologyFhirService terminologyFhirService) {
+    public FhirBundleController(TerminologyFhirService terminologyFhirService,
+                                CodeSystemLookupService codeSystemLookupService,
+                                BulkAnnotationService bulkAnnotationService) {
         this.terminologyFhirService = terminologyFhirService;
+        this.codeSystemLookupService = codeSystemLookupService;
+        this.bulkAnnotationService = bulkAnnotationService;
     }
 
     /**
      * MAIN FEATURE 1: FHIR-COMPLIANT Search by Code
      * Searches in both tm2_code and code fields, returns FHIR Parameters
+     * ?version= pins the lookup to a retained dataset version (see /versions)
      */
     @GetMapping(value = "/search/code/{codeValue}", produces = FHIR_JSON_CONTENT_TYPE)
-    public ResponseEntity<String> searchByCode(@PathVariable String codeValue) {
+    public ResponseEntity<String> searchByCode(@PathVariable String codeValue,
+                                               @RequestParam(required = false) Long version) {
         log.info("FHIR search by code: {}", codeValue);
 
         try {
-            Parameters parameters = terminologyFhirService.createSearchByCodeResult(codeValue);
+            Parameters parameters = terminologyFhirService.createSearchByCodeResult(codeValue, version);
             addFhirMetadata(parameters);
             String fhirJson = terminologyFhirService.toJson(parameters);
             return createFhirResponse(fhirJson);
@@ -55,11 +71,12 @@ public class FhirBundleController {
      * Searches only in tm2_code field, returns FHIR Parameters
      */
     @GetMapping(value = "/search/tm2code/{codeValue}", produces = FHIR_JSON_CONTENT_TYPE)
-    public ResponseEntity<String> searchByTm2Code(@PathVariable String codeValue) {
+    public ResponseEntity<String> searchByTm2Code(@PathVariable String codeValue,
+                                                  @RequestParam(required = false) Long version) {
         log.info("FHIR search by TM2 code: {}", codeValue);
 
         try {
-            Parameters parameters = terminologyFhirService.createSearchByCodeResult(codeValue);
+            Parameters parameters = terminologyFhirService.createSearchByCodeResult(codeValue, version);
             addFhirMetadata(parameters);
             String fhirJson = terminologyFhirService.toJson(parameters);
             return createFhirResponse(fhirJson);
@@ -74,11 +91,12 @@ public class FhirBundleController {
      * Searches only in code field, returns FHIR Parameters
      */
     @GetMapping(value = "/search/codeonly/{codeValue}", produces = FHIR_JSON_CONTENT_TYPE)
-    public ResponseEntity<String> searchByCodeOnly(@PathVariable String codeValue) {
+    public ResponseEntity<String> searchByCodeOnly(@PathVariable String codeValue,
+                                                   @RequestParam(required = false) Long version) {
         log.info("FHIR search by code only: {}", codeValue);
 
         try {
-            Parameters parameters = terminologyFhirService.createSearchByCodeResult(codeValue);
+            Parameters parameters = terminologyFhirService.createSearchByCodeResult(codeValue, version);
             addFhirMetadata(parameters);
             String fhirJson = terminologyFhirService.toJson(parameters);
             return createFhirResponse(fhirJson);
@@ -88,20 +106,60 @@ public class FhirBundleController {
         }
     }
 
+    /**
+     * FHIR-COMPLIANT Search by Title
+     * Matches code_title regardless of diacritics and romanization scheme (Vāta, vaata, vaatham)
+     */
+    @GetMapping(value = "/search/title", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> searchByTitle(@RequestParam String name) {
+        log.info("FHIR search by title: {}", name);
+
+        try {
+            Parameters parameters = terminologyFhirService.createSearchByTitleResult(name);
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR title search", e);
+            return createFhirErrorResponse("Title search failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR-COMPLIANT list of dataset versions: the current one and those retained for pinned reads
+     */
+    @GetMapping(value = "/versions", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> versions() {
+        try {
+            Parameters parameters = terminologyFhirService.createVersionsResult();
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error listing terminology versions", e);
+            return createFhirErrorResponse("Version listing failed", e.getMessage());
+        }
+    }
+
     /**
      * MAIN FEATURE 2: FHIR-COMPLIANT Search by Symptoms (GET - comma-separated)
      * Searches in both code_description and tm2_definition fields, finds highest match,
      * then returns detailed results for that match's TM2 code
      * Supports: ?query=fever,headache,nausea or ?query=fever headache nausea
+     * Disease groups are ranked by relevance; page with &offset=20&count=20
+     * &facets=true adds type and confidence-band counts over all matches
      */
     @GetMapping(value = "/search/symptoms", produces = FHIR_JSON_CONTENT_TYPE)
-    public ResponseEntity<String> searchBySymptoms(@RequestParam String query) {
-        log.info("FHIR search by symptoms: {}", query);
+    public ResponseEntity<String> searchBySymptoms(@RequestParam String query,
+                                                   @RequestParam(required = false) Integer offset,
+                                                   @RequestParam(required = false) Integer count,
+                                                   @RequestParam(defaultValue = "false") boolean facets) {
+        log.info("FHIR search by symptoms: {} offset={} count={}", query, offset, count);
 
         try {
             // Parse symptoms from comma-separated or space-separated string
             List<String> symptoms = parseSymptoms(query);
-            Parameters parameters = terminologyFhirService.createSearchBySymptomsResult(symptoms);
+            Parameters parameters = terminologyFhirService.createSearchBySymptomsResult(symptoms, offset, count, facets);
             addFhirMetadata(parameters);
             String fhirJson = terminologyFhirService.toJson(parameters);
             return createFhirResponse(fhirJson);
@@ -114,10 +172,13 @@ public class FhirBundleController {
     /**
      * MAIN FEATURE 2B: FHIR-COMPLIANT Search by Symptoms (POST - JSON array)
      * Accepts a JSON array of symptoms for more complex queries
-     * Body: {"symptoms": ["fever", "headache", "nausea"]}
+     * Body: {"symptoms": ["fever", "headache", "nausea"]}, paged with ?offset=&count=, counted with ?facets=true
      */
     @PostMapping(value = "/search/symptoms", produces = FHIR_JSON_CONTENT_TYPE, consumes = "application/json")
-    public ResponseEntity<String> searchBySymptomsPost(@RequestBody java.util.Map<String, List<String>> requestBody) {
+    public ResponseEntity<String> searchBySymptomsPost(@RequestBody java.util.Map<String, List<String>> requestBody,
+                                                       @RequestParam(required = false) Integer offset,
+                                                       @RequestParam(required = false) Integer count,
+                                                       @RequestParam(defaultValue = "false") boolean facets) {
         log.info("FHIR POST search by symptoms: {}", requestBody);
 
         try {
@@ -126,7 +187,7 @@ public class FhirBundleController {
                 return createFhirErrorResponse("Invalid request", "symptoms array is required");
             }
 
-            Parameters parameters = terminologyFhirService.createSearchBySymptomsResult(symptoms);
+            Parameters parameters = terminologyFhirService.createSearchBySymptomsResult(symptoms, offset, count, facets);
             addFhirMetadata(parameters);
             String fhirJson = terminologyFhirService.toJson(parameters);
             return createFhirResponse(fhirJson);
@@ -136,6 +197,266 @@ public class FhirBundleController {
         }
     }
 
+    /**
+     * FHIR-COMPLIANT Cross-system translation (Ayurveda <-> Siddha <-> Unani)
+     * Answers "what is the Siddha equivalent of this Ayurveda code?" through the shared TM2 code
+     * Example: ?code=AAA-1&target=siddha
+     */
+    @GetMapping(value = "/translate", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> translate(@RequestParam String code, @RequestParam String target) {
+        log.info("FHIR translate {} to {}", code, target);
+
+        try {
+            Parameters parameters = terminologyFhirService.createTranslateResult(code, target);
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR translate", e);
+            return createFhirErrorResponse("Translation failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR-COMPLIANT Batch cross-system translation
+     * Body: {"target": "siddha", "codes": ["AAA-1", "AAB-2"]}
+     */
+    @PostMapping(value = "/translate", produces = FHIR_JSON_CONTENT_TYPE, consumes = "application/json")
+    public ResponseEntity<String> translateBatch(@RequestBody java.util.Map<String, Object> requestBody) {
+        log.info("FHIR batch translate request");
+
+        try {
+            Object target = requestBody.get("target");
+            Object codes = requestBody.get("codes");
+            if (!(target instanceof String) || !(codes instanceof List<?> codeList) || codeList.isEmpty()) {
+                return createFhirErrorResponse("Invalid request", "target and a non-empty codes array are required");
+            }
+
+            List<String> codeValues = codeList.stream()
+                    .map(String::valueOf)
+                    .collect(java.util.stream.Collectors.toList());
+            Parameters parameters = terminologyFhirService.createBatchTranslateResult(codeValues, (String) target);
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR batch translate", e);
+            return createFhirErrorResponse("Batch translation failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR ValueSet $expand for the implicit value sets (pick-lists)
+     * url: http://terminology.hl7.org.in/ValueSet/namaste | namaste-{type} | tm2
+     * Example: ?url=http://terminology.hl7.org.in/ValueSet/namaste-ayurveda&filter=jwara&count=20&offset=0
+     */
+    @GetMapping(value = "/ValueSet/$expand", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> expandValueSet(@RequestParam String url,
+                                                 @RequestParam(required = false) String filter,
+                                                 @RequestParam(required = false) Integer offset,
+                                                 @RequestParam(required = false) Integer count) {
+        log.info("FHIR ValueSet $expand: {} filter={}", url, filter);
+        return expand(url, filter, offset, count);
+    }
+
+    /**
+     * FHIR ValueSet/{id}/$expand for the implicit value sets (namaste, namaste-{type}, tm2)
+     */
+    @GetMapping(value = "/ValueSet/{id}/$expand", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> expandValueSetById(@PathVariable String id,
+                                                     @RequestParam(required = false) String filter,
+                                                     @RequestParam(required = false) Integer offset,
+                                                     @RequestParam(required = false) Integer count) {
+        log.info("FHIR ValueSet/{}/$expand filter={}", id, filter);
+        return expand(id, filter, offset, count);
+    }
+
+    private ResponseEntity<String> expand(String valueSet, String filter, Integer offset, Integer count) {
+        try {
+            ValueSet expansion = terminologyFhirService.createValueSetExpansion(valueSet, filter, offset, count);
+            addFhirMetadata(expansion);
+            String fhirJson = terminologyFhirService.toJson(expansion);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR ValueSet $expand", e);
+            return createFhirErrorResponse("ValueSet expansion failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR CodeSystem $validate-code
+     * Example: ?url=http://terminology.hl7.org.in/CodeSystem/namaste&code=AAA-1&display=...
+     */
+    @GetMapping(value = "/CodeSystem/$validate-code", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> validateCode(@RequestParam(required = false) String url,
+                                               @RequestParam String code,
+                                               @RequestParam(required = false) String display) {
+        log.info("FHIR $validate-code: {}|{}", url, code);
+
+        try {
+            Parameters parameters = terminologyFhirService.createValidateCodeResult(url, code, display);
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR $validate-code", e);
+            return createFhirErrorResponse("Code validation failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR CodeSystem $lookup
+     * Example: ?system=http://id.who.int/icd/release/11/tm2&code=SM2Z
+     */
+    @GetMapping(value = "/CodeSystem/$lookup", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> lookup(@RequestParam(required = false) String system, @RequestParam String code) {
+        log.info("FHIR $lookup: {}|{}", system, code);
+
+        try {
+            Parameters parameters = terminologyFhirService.createLookupResult(system, code);
+            if (parameters == null) {
+                return createFhirErrorResponse("Code not found", "Unknown code '" + code + "'" + (system != null ? " in " + system : ""));
+            }
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR $lookup", e);
+            return createFhirErrorResponse("Code lookup failed", e.getMessage());
+        }
+    }
+
+    /**
+     * Batch $validate-code for EMR validation pipelines
+     * Request and response are streamed, so thousands of codes can be checked per call
+     * Body: {"system": "http://terminology.hl7.org.in/CodeSystem/namaste", "codes": ["AAA-1", {"code": "AAB-2", "display": "..."}]}
+     * "system" must precede "codes"; a body that is not a JSON object is a 400 OperationOutcome, while an error
+     * found after results started streaming ends the response with an "error" OperationOutcome
+     */
+    @PostMapping(value = "/CodeSystem/$validate-code/batch", produces = "application/json", consumes = "application/json")
+    public ResponseEntity<?> validateCodeBatch(HttpServletRequest request) {
+        log.info("FHIR batch $validate-code request");
+
+        CodeSystemLookupService.BatchRequest batch;
+        try {
+            batch = codeSystemLookupService.openBatch(request.getInputStream());
+        } catch (Exception e) {
+            log.warn("Rejected batch $validate-code request: {}", e.getMessage());
+            return createFhirErrorResponse("Batch code validation failed", e.getMessage());
+        }
+        StreamingResponseBody body = outputStream -> codeSystemLookupService.validateBatch(batch, outputStream);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * FHIR-COMPLIANT Clinical note annotation
+     * Scans free text once and returns matched spans with offsets and candidate NAMASTE/TM2 codes
+     * Body: {"text": "Patient presents with jwara and kasa since 3 days"}
+     */
+    @PostMapping(value = "/annotate", produces = FHIR_JSON_CONTENT_TYPE, consumes = "application/json")
+    public ResponseEntity<String> annotate(@RequestBody java.util.Map<String, String> requestBody) {
+        String text = requestBody.get("text");
+        log.info("FHIR annotate request ({} chars)", text != null ? text.length() : 0);
+
+        try {
+            if (text == null || text.isBlank()) {
+                return createFhirErrorResponse("Invalid request", "text is required");
+            }
+            Parameters parameters = terminologyFhirService.createAnnotationResult(text);
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR annotate", e);
+            return createFhirErrorResponse("Annotation failed", e);
+        }
+    }
+
+    /**
+     * FHIR-COMPLIANT auto-complete over traditional medicine titles
+     * e.g. ?term=jwa&limit=10&facets=true; facets adds type and confidence-band counts over all matches
+     */
+    @GetMapping(value = "/autocomplete", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> autoComplete(@RequestParam String term,
+                                               @RequestParam(defaultValue = "10") int limit,
+                                               @RequestParam(defaultValue = "false") boolean facets) {
+        log.info("FHIR auto-complete for: {} facets={}", term, facets);
+
+        try {
+            Parameters parameters = terminologyFhirService.createAutoCompleteResult(term, Math.max(1, Math.min(limit, 50)), facets);
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR auto-complete", e);
+            return createFhirErrorResponse("Auto-complete failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR-COMPLIANT "Did you mean" spelling suggestions
+     * Bounded edit-distance corrections for transliterated terms, e.g. ?term=jvara
+     */
+    @GetMapping(value = "/suggest", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> suggest(@RequestParam String term,
+                                          @RequestParam(defaultValue = "5") int limit) {
+        log.info("FHIR spelling suggestions for: {}", term);
+
+        try {
+            Parameters parameters = terminologyFhirService.createSuggestionResult(term, Math.max(1, Math.min(limit, 20)));
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR suggest", e);
+            return createFhirErrorResponse("Suggestion failed", e.getMessage());
+        }
+    }
+
+    /**
+     * FHIR-COMPLIANT combined filter over type, confidence band (high/medium/low), TM2 chapter and symptoms
+     * e.g. ?type=siddha&confidence=high&symptoms=fever; answered from in-memory bitmaps
+     */
+    @GetMapping(value = "/filter", produces = FHIR_JSON_CONTENT_TYPE)
+    public ResponseEntity<String> filterCodes(@RequestParam(required = false) String type,
+                                              @RequestParam(required = false) String confidence,
+                                              @RequestParam(required = false) String chapter,
+                                              @RequestParam(required = false) String symptoms,
+                                              @RequestParam(defaultValue = "20") int limit) {
+        log.info("FHIR filter: type={} confidence={} chapter={} symptoms={}", type, confidence, chapter, symptoms);
+
+        try {
+            List<String> symptomList = symptoms != null && !symptoms.isBlank() ? parseSymptoms(symptoms) : List.of();
+            Parameters parameters = terminologyFhirService.createFilterResult(type, confidence, chapter, symptomList,
+                    Math.max(0, Math.min(limit, 100)));
+            addFhirMetadata(parameters);
+            String fhirJson = terminologyFhirService.toJson(parameters);
+            return createFhirResponse(fhirJson);
+        } catch (Exception e) {
+            log.error("Error in FHIR filter", e);
+            return createFhirErrorResponse("Filter failed", e);
+        }
+    }
+
+    /**
+     * Bulk annotation for backfilling historical records
+     * NDJSON in, NDJSON out: one {"id": "...", "text": "..."} per line, results in input order,
+     * last line is a {"summary": {...}} with records per second
+     * Answers 503 before streaming while the annotator is not loaded
+     */
+    @PostMapping(value = "/annotate/bulk", produces = NDJSON_CONTENT_TYPE, consumes = NDJSON_CONTENT_TYPE)
+    public ResponseEntity<?> annotateBulk(HttpServletRequest request) {
+        log.info("FHIR bulk annotate request");
+
+        if (!bulkAnnotationService.isReady()) {
+            return createFhirErrorResponse("Bulk annotation failed",
+                    new TerminologyNotLoadedException("Clinical note annotator is not loaded yet, retry shortly"));
+        }
+
+        StreamingResponseBody body = outputStream -> bulkAnnotationService.annotate(request.getInputStream(), outputStream);
+        return ResponseEntity.ok().contentType(MediaType.valueOf(NDJSON_CONTENT_TYPE)).body(body);
+    }
+
     /**
      * Helper method to parse symptoms from various formats
      */
@@ -165,7 +486,25 @@ public class FhirBundleController {
         return ResponseEntity.ok().headers(headers).body(fhirJson);
     }
 
+    /**
+     * As createFhirErrorResponse(message, details), but an index that is not loaded yet is a 503 to retry
+     */
+    private ResponseEntity<String> createFhirErrorResponse(String message, Exception e) {
+        if (e instanceof TerminologyNotLoadedException) {
+            return createFhirErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, OperationOutcome.IssueType.TRANSIENT, message, e.getMessage());
+        }
+        return createFhirErrorResponse(message, e.getMessage());
+    }
+
     private ResponseEntity<String> createFhirErrorResponse(String message, String details) {
+        // Whichever stage gave up first, a request past its deadline is reported as a timeout
+        boolean timedOut = RequestDeadline.current().map(RequestDeadline::isExpired).orElse(false);
+        return createFhirErrorResponse(timedOut ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_REQUEST,
+                timedOut ? OperationOutcome.IssueType.TIMEOUT : OperationOutcome.IssueType.PROCESSING, message, details);
+    }
+
+    private ResponseEntity<String> createFhirErrorResponse(HttpStatus status, OperationOutcome.IssueType issueType,
+                                                           String message, String details) {
         try {
             OperationOutcome errorOutcome = new OperationOutcome();
             errorOutcome.setId("error-" + System.currentTimeMillis());
@@ -174,7 +513,7 @@ public class FhirBundleController {
             OperationOutcome.OperationOutcomeIssueComponent errorIssue =
                     new OperationOutcome.OperationOutcomeIssueComponent();
             errorIssue.setSeverity(OperationOutcome.IssueSeverity.ERROR);
-            errorIssue.setCode(OperationOutcome.IssueType.PROCESSING);
+            errorIssue.setCode(issueType);
             errorIssue.setDiagnostics("Error: " + message + ". Details: " + details);
             errorOutcome.addIssue(errorIssue);
 
@@ -183,11 +522,14 @@ public class FhirBundleController {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.valueOf(FHIR_JSON_CONTENT_TYPE));
             headers.add("X-FHIR-Version", "4.0.1");
+            if (status == HttpStatus.SERVICE_UNAVAILABLE) {
+                headers.add("Retry-After", "1");
+            }
 
-            return ResponseEntity.badRequest().headers(headers).body(fhirJson);
+            return ResponseEntity.status(status).headers(headers).body(fhirJson);
         } catch (Exception e) {
             // Fallback to minimal FHIR error
-            return ResponseEntity.badRequest()
+            return ResponseEntity.status(status)
                     .contentType(MediaType.valueOf(FHIR_JSON_CONTENT_TYPE))
                     .body("{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"error\",\"code\":\"processing\",\"diagnostics\":\"" + message + "\"}]}");
         }
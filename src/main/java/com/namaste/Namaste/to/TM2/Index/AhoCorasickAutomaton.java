@@ -0,0 +1,241 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton for whole-word, case-insensitive dictionary matching
+ * Text is scanned once: letters/digits are lower-cased, every run of other characters is read as a single space,
+ * and reported offsets always refer to the original text
+ * Immutable once built
+ */
+public class AhoCorasickAutomaton {
+
+    /**
+     * Receives each whole-word match: [start, end) in the original text and the pattern id
+     */
+    @FunctionalInterface
+    public interface MatchHandler {
+        void onMatch(int start, int end, int patternId);
+    }
+
+    private static final int ROOT = 0;
+
+    // Transitions: (state << 32 | char) -> next state, open addressing
+    private final long[] transitionKeys;
+    private final int[] transitionTargets;
+    private final int transitionMask;
+    private final int[] failure;
+    // First pattern ending at the state, or -1; further patterns through the output link chain
+    private final int[] patternAt;
+    private final int[] outputLink;
+    private final int[] patternLength;
+    private final int[] nextPatternAtState;
+
+    private AhoCorasickAutomaton(long[] transitionKeys, int[] transitionTargets, int[] failure, int[] patternAt,
+                                 int[] outputLink, int[] patternLength, int[] nextPatternAtState) {
+        this.transitionKeys = transitionKeys;
+        this.transitionTargets = transitionTargets;
+        this.transitionMask = transitionKeys.length - 1;
+        this.failure = failure;
+        this.patternAt = patternAt;
+        this.outputLink = outputLink;
+        this.patternLength = patternLength;
+        this.nextPatternAtState = nextPatternAtState;
+    }
+
+    /**
+     * Normalize a pattern the same way text is read during a scan
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Build from patterns; pattern ids are list positions. Patterns must already be normalized.
+     */
+    public static AhoCorasickAutomaton build(List<String> patterns) {
+        int maxStates = 1;
+        for (String pattern : patterns) {
+            maxStates += pattern.length();
+        }
+        int capacity = Integer.highestOneBit(Math.max(16, maxStates * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, -1L);
+        int[] targets = new int[capacity];
+        int mask = capacity - 1;
+
+        int[] patternAt = new int[maxStates];
+        Arrays.fill(patternAt, -1);
+        int[] patternLength = new int[patterns.size()];
+        int[] nextPatternAtState = new int[patterns.size()];
+        int states = 1;
+
+        // Trie
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            patternLength[id] = pattern.length();
+            if (pattern.isEmpty()) {
+                nextPatternAtState[id] = -1;
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                long key = key(state, pattern.charAt(i));
+                int slot = slot(keys, mask, key);
+                if (keys[slot] == -1L) {
+                    keys[slot] = key;
+                    targets[slot] = states++;
+                }
+                state = targets[slot];
+            }
+            nextPatternAtState[id] = patternAt[state];
+            patternAt[state] = id;
+        }
+
+        // Failure and output links, breadth first
+        int[] failure = new int[states];
+        int[] outputLink = new int[states];
+        Arrays.fill(outputLink, -1);
+        int[][] children = childrenByState(keys, targets, states);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < children[ROOT].length; i += 2) {
+            failure[children[ROOT][i + 1]] = ROOT;
+            queue.add(children[ROOT][i + 1]);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < children[state].length; i += 2) {
+                char c = (char) children[state][i];
+                int child = children[state][i + 1];
+                int fallback = failure[state];
+                int next;
+                while ((next = lookup(keys, targets, mask, fallback, c)) < 0 && fallback != ROOT) {
+                    fallback = failure[fallback];
+                }
+                failure[child] = next >= 0 ? next : ROOT;
+                int failState = failure[child];
+                outputLink[child] = patternAt[failState] >= 0 ? failState : outputLink[failState];
+                queue.add(child);
+            }
+        }
+
+        return new AhoCorasickAutomaton(keys, targets, failure, Arrays.copyOf(patternAt, states), outputLink,
+                patternLength, nextPatternAtState);
+    }
+
+    /**
+     * Report every whole-word pattern occurrence in the text
+     */
+    public void scan(String text, MatchHandler handler) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        // Original offset of every character fed to the automaton
+        int[] fedOffsets = new int[text.length() + 1];
+        int fed = 0;
+        int state = ROOT;
+        boolean lastWasSpace = true;
+
+        for (int i = 0; i < text.length(); i++) {
+            char original = text.charAt(i);
+            char c;
+            if (Character.isLetterOrDigit(original)) {
+                c = Character.toLowerCase(original);
+                lastWasSpace = false;
+            } else {
+                if (lastWasSpace) {
+                    continue;
+                }
+                c = ' ';
+                lastWasSpace = true;
+            }
+            fedOffsets[fed++] = i;
+
+            int next;
+            while ((next = lookup(transitionKeys, transitionTargets, transitionMask, state, c)) < 0 && state != ROOT) {
+                state = failure[state];
+            }
+            state = Math.max(next, ROOT);
+
+            // A whole-word match must end before a non-word character
+            boolean endsWord = c != ' ' && (i + 1 == text.length() || !Character.isLetterOrDigit(text.charAt(i + 1)));
+            if (!endsWord) {
+                continue;
+            }
+            for (int output = patternAt[state] >= 0 ? state : outputLink[state]; output >= 0; output = outputLink[output]) {
+                for (int id = patternAt[output]; id >= 0; id = nextPatternAtState[id]) {
+                    int startFed = fed - patternLength[id];
+                    // ...and start at the beginning of a word
+                    if (startFed == 0 || !Character.isLetterOrDigit(text.charAt(fedOffsets[startFed - 1]))) {
+                        handler.onMatch(fedOffsets[startFed], i + 1, id);
+                    }
+                }
+            }
+        }
+    }
+
+    public int getStateCount() {
+        return failure.length;
+    }
+
+    private static long key(int state, char c) {
+        return ((long) state << 32) | c;
+    }
+
+    private static int slot(long[] keys, int mask, long key) {
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (keys[slot] != -1L && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int lookup(long[] keys, int[] targets, int mask, int state, char c) {
+        int slot = slot(keys, mask, key(state, c));
+        return keys[slot] == -1L ? -1 : targets[slot];
+    }
+
+    /**
+     * Flattened (char, child) pairs per state, for the breadth-first pass
+     */
+    private static int[][] childrenByState(long[] keys, int[] targets, int states) {
+        int[] counts = new int[states];
+        for (long key : keys) {
+            if (key != -1L) {
+                counts[(int) (key >>> 32)]++;
+            }
+        }
+        int[][] children = new int[states][];
+        for (int state = 0; state < states; state++) {
+            children[state] = new int[counts[state] * 2];
+            counts[state] = 0;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != -1L) {
+                int state = (int) (keys[slot] >>> 32);
+                children[state][counts[state]++] = (char) keys[slot];
+                children[state][counts[state]++] = targets[slot];
+            }
+        }
+        return children;
+    }
+}
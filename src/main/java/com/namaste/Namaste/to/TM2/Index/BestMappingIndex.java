@@ -0,0 +1,263 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * Best mapping per type for every TM2 code and the top record per code, as row numbers of a record table
+ * tm2_code -> best row per type above MIN_CONFIDENCE (highest confidence first), code -> highest-confidence row
+ * Equal confidence goes to the lower row and a missing confidence ranks below any score, so the answer does not
+ * depend on scan order. Building and updating apply the same per-key rule: an update recomputes only the keys
+ * its rows touch, from the rows-per-key postings kept for that purpose
+ */
+public final class BestMappingIndex {
+
+    public static final double MIN_CONFIDENCE = 0.6;
+    public static final int NONE = -1;
+    private static final int[] NO_ROWS = new int[0];
+
+    // Every row with a given tm2_code / code, ascending
+    private final OverlayMap<String, int[]> rowsByTm2Code;
+    private final OverlayMap<String, int[]> rowsByCode;
+    private final OverlayMap<String, int[]> bestRowsByTm2Code;
+    private final OverlayMap<String, Integer> topRowByCode;
+
+    private BestMappingIndex(OverlayMap<String, int[]> rowsByTm2Code, OverlayMap<String, int[]> rowsByCode,
+                             OverlayMap<String, int[]> bestRowsByTm2Code, OverlayMap<String, Integer> topRowByCode) {
+        this.rowsByTm2Code = rowsByTm2Code;
+        this.rowsByCode = rowsByCode;
+        this.bestRowsByTm2Code = bestRowsByTm2Code;
+        this.topRowByCode = topRowByCode;
+    }
+
+    /**
+     * An index over tables that were built elsewhere (a persisted TerminologyIndexFile); they must not change
+     */
+    static BestMappingIndex of(Map<String, int[]> rowsByTm2Code, Map<String, int[]> rowsByCode,
+                               Map<String, int[]> bestRowsByTm2Code, Map<String, Integer> topRowByCode) {
+        return new BestMappingIndex(OverlayMap.of(rowsByTm2Code), OverlayMap.of(rowsByCode),
+                OverlayMap.of(bestRowsByTm2Code), OverlayMap.of(topRowByCode));
+    }
+
+    public static BestMappingIndex build(IntFunction<NamasteCode> recordAt, int size) {
+        Map<String, List<Integer>> tm2Postings = new HashMap<>();
+        Map<String, List<Integer>> codePostings = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            NamasteCode record = recordAt.apply(row);
+            if (record.getTm2Code() != null) {
+                tm2Postings.computeIfAbsent(record.getTm2Code(), key -> new ArrayList<>()).add(row);
+            }
+            if (record.getCode() != null) {
+                codePostings.computeIfAbsent(record.getCode(), key -> new ArrayList<>()).add(row);
+            }
+        }
+
+        Map<String, int[]> rowsByTm2Code = new HashMap<>();
+        Map<String, int[]> bestRowsByTm2Code = new HashMap<>();
+        tm2Postings.forEach((tm2Code, rows) -> {
+            int[] postings = toArray(rows);
+            rowsByTm2Code.put(tm2Code, postings);
+            int[] best = bestPerType(postings, recordAt);
+            if (best.length > 0) {
+                bestRowsByTm2Code.put(tm2Code, best);
+            }
+        });
+        Map<String, int[]> rowsByCode = new HashMap<>();
+        Map<String, Integer> topRowByCode = new HashMap<>();
+        codePostings.forEach((code, rows) -> {
+            int[] postings = toArray(rows);
+            rowsByCode.put(code, postings);
+            topRowByCode.put(code, topRow(postings, recordAt));
+        });
+        return new BestMappingIndex(OverlayMap.of(rowsByTm2Code), OverlayMap.of(rowsByCode),
+                OverlayMap.of(bestRowsByTm2Code), OverlayMap.of(topRowByCode));
+    }
+
+    /**
+     * This index after the given rows were replaced or appended; this index is left untouched
+     * before reads the table this index was built on, after the new one; rows at or past previousSize are new
+     */
+    public BestMappingIndex withChangedRows(int[] rows, int previousSize,
+                                            IntFunction<NamasteCode> before, IntFunction<NamasteCode> after) {
+        Map<String, int[]> tm2Postings = new HashMap<>();
+        Map<String, int[]> codePostings = new HashMap<>();
+        for (int row : rows) {
+            NamasteCode previous = row < previousSize ? before.apply(row) : null;
+            NamasteCode updated = after.apply(row);
+            move(rowsByTm2Code, tm2Postings, row, previous != null ? previous.getTm2Code() : null, updated.getTm2Code());
+            move(rowsByCode, codePostings, row, previous != null ? previous.getCode() : null, updated.getCode());
+        }
+
+        Map<String, int[]> changedBest = new HashMap<>();
+        tm2Postings.forEach((tm2Code, postings) -> {
+            int[] best = bestPerType(postings, after);
+            changedBest.put(tm2Code, best.length > 0 ? best : null);
+        });
+        Map<String, Integer> changedTop = new HashMap<>();
+        codePostings.forEach((code, postings) -> changedTop.put(code, postings.length > 0 ? topRow(postings, after) : null));
+        tm2Postings.replaceAll((tm2Code, postings) -> postings.length > 0 ? postings : null);
+        codePostings.replaceAll((code, postings) -> postings.length > 0 ? postings : null);
+
+        return new BestMappingIndex(rowsByTm2Code.with(tm2Postings), rowsByCode.with(codePostings),
+                bestRowsByTm2Code.with(changedBest), topRowByCode.with(changedTop));
+    }
+
+    /**
+     * Highest-confidence row for a traditional medicine code, or NONE
+     */
+    public int topRow(String code) {
+        Integer row = topRowByCode.get(code);
+        return row != null ? row : NONE;
+    }
+
+    /**
+     * Best row per type for a TM2 code, highest confidence first
+     */
+    public int[] bestRows(String tm2Code) {
+        return bestRowsByTm2Code.getOrDefault(tm2Code, NO_ROWS).clone();
+    }
+
+    /**
+     * Best mapping per type for the TM2 code behind the given value
+     * The value is first resolved as a traditional medicine code; that record is kept for its own type
+     * even below the confidence threshold. Otherwise the value is treated as a tm2_code.
+     */
+    public List<NamasteCode> bestMappingsForCode(String codeValue, IntFunction<NamasteCode> recordAt) {
+        int pinnedRow = topRow(codeValue);
+        NamasteCode pinned = pinnedRow != NONE ? recordAt.apply(pinnedRow) : null;
+        String tm2Code = codeValue;
+        if (pinned != null && pinned.getTm2Code() != null) {
+            tm2Code = pinned.getTm2Code().trim();
+        }
+
+        Map<String, NamasteCode> finalCodes = new LinkedHashMap<>();
+        if (pinned != null) {
+            finalCodes.put(pinned.getType(), pinned);
+        }
+        for (int row : bestRowsByTm2Code.getOrDefault(tm2Code, NO_ROWS)) {
+            NamasteCode best = recordAt.apply(row);
+            finalCodes.putIfAbsent(best.getType(), best);
+        }
+        return new ArrayList<>(finalCodes.values());
+    }
+
+    /**
+     * code -> top record, materialized for indexes that need the whole table
+     */
+    public Map<String, NamasteCode> topByCode(IntFunction<NamasteCode> recordAt) {
+        Map<String, NamasteCode> topByCode = new HashMap<>();
+        topRowByCode.forEach((code, row) -> topByCode.put(code, recordAt.apply(row)));
+        return topByCode;
+    }
+
+    /**
+     * tm2_code -> best record per type, materialized for indexes that need the whole table
+     */
+    public Map<String, List<NamasteCode>> bestByTm2Code(IntFunction<NamasteCode> recordAt) {
+        Map<String, List<NamasteCode>> bestByTm2Code = new HashMap<>();
+        bestRowsByTm2Code.forEach((tm2Code, rows) -> {
+            List<NamasteCode> bests = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                bests.add(recordAt.apply(row));
+            }
+            bestByTm2Code.put(tm2Code, List.copyOf(bests));
+        });
+        return bestByTm2Code;
+    }
+
+    OverlayMap<String, int[]> rowsByTm2Code() {
+        return rowsByTm2Code;
+    }
+
+    OverlayMap<String, int[]> rowsByCode() {
+        return rowsByCode;
+    }
+
+    OverlayMap<String, int[]> bestRowsByTm2Code() {
+        return bestRowsByTm2Code;
+    }
+
+    OverlayMap<String, Integer> topRowByCode() {
+        return topRowByCode;
+    }
+
+    /**
+     * Higher confidence first (missing last), then the lower row
+     */
+    private static Comparator<Integer> bestFirst(IntFunction<NamasteCode> recordAt) {
+        return Comparator.comparing((Integer row) -> recordAt.apply(row).getConfidenceScore(),
+                        Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparingInt(row -> row);
+    }
+
+    private static int topRow(int[] rows, IntFunction<NamasteCode> recordAt) {
+        Comparator<Integer> order = bestFirst(recordAt);
+        int top = rows[0];
+        for (int i = 1; i < rows.length; i++) {
+            if (order.compare(rows[i], top) < 0) {
+                top = rows[i];
+            }
+        }
+        return top;
+    }
+
+    private static int[] bestPerType(int[] rows, IntFunction<NamasteCode> recordAt) {
+        Comparator<Integer> order = bestFirst(recordAt);
+        Map<String, Integer> bestByType = new HashMap<>();
+        for (int row : rows) {
+            NamasteCode record = recordAt.apply(row);
+            if (record.getConfidenceScore() == null || record.getConfidenceScore() <= MIN_CONFIDENCE) {
+                continue;
+            }
+            bestByType.merge(String.valueOf(record.getType()), row,
+                    (current, candidate) -> order.compare(candidate, current) < 0 ? candidate : current);
+        }
+        return bestByType.values().stream().sorted(order).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Move a row from the postings of its old key to those of its new key, collecting every touched key
+     * (an unchanged key is still touched: the record's confidence or type may have changed)
+     */
+    private static void move(OverlayMap<String, int[]> current, Map<String, int[]> changed, int row,
+                             String oldKey, String newKey) {
+        if (oldKey != null) {
+            int[] rows = changed.containsKey(oldKey) ? changed.get(oldKey) : current.getOrDefault(oldKey, NO_ROWS);
+            changed.put(oldKey, oldKey.equals(newKey) ? rows : without(rows, row));
+        }
+        if (newKey != null && !newKey.equals(oldKey)) {
+            int[] rows = changed.containsKey(newKey) ? changed.get(newKey) : current.getOrDefault(newKey, NO_ROWS);
+            changed.put(newKey, withRow(rows, row));
+        }
+    }
+
+    private static int[] withRow(int[] rows, int row) {
+        int position = Arrays.binarySearch(rows, row);
+        if (position >= 0) {
+            return rows;
+        }
+        int insertAt = -position - 1;
+        int[] result = new int[rows.length + 1];
+        System.arraycopy(rows, 0, result, 0, insertAt);
+        result[insertAt] = row;
+        System.arraycopy(rows, insertAt, result, insertAt + 1, rows.length - insertAt);
+        return result;
+    }
+
+    private static int[] without(int[] rows, int row) {
+        int position = Arrays.binarySearch(rows, row);
+        if (position < 0) {
+            return rows;
+        }
+        int[] result = new int[rows.length - 1];
+        System.arraycopy(rows, 0, result, 0, position);
+        System.arraycopy(rows, position + 1, result, position, rows.length - position - 1);
+        return result;
+    }
+
+    private static int[] toArray(List<Integer> rows) {
+        return rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
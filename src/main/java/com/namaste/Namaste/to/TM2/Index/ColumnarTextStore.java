@@ -0,0 +1,236 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Off-heap columnar copy of terminology records
+ * Every text field is a UTF-8 column in a direct buffer; fields that repeat across the rows of one TM2 code
+ * (tm2_code, tm2_title, tm2_definition, link, type) are dictionary-encoded so each distinct value is stored once.
+ * The heap only holds the buffer handles, so a retained dataset version costs the GC almost nothing;
+ * values are decoded on access, a whole record only when a response asks for it
+ * Immutable and safe for concurrent readers (all buffer reads are absolute)
+ */
+public class ColumnarTextStore {
+
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private final int rows;
+    private final EnumMap<Column, TextColumn> columns;
+    private final DoubleBuffer confidence;
+    private final BitSet confidenceNull;
+
+    private ColumnarTextStore(int rows, EnumMap<Column, TextColumn> columns, DoubleBuffer confidence, BitSet confidenceNull) {
+        this.rows = rows;
+        this.columns = columns;
+        this.confidence = confidence;
+        this.confidenceNull = confidenceNull;
+    }
+
+    public static ColumnarTextStore of(List<NamasteCode> records) {
+        EnumMap<Column, TextColumn> columns = new EnumMap<>(Column.class);
+        for (Column column : Column.values()) {
+            List<String> values = new ArrayList<>(records.size());
+            for (NamasteCode record : records) {
+                values.add(column.getter.apply(record));
+            }
+            columns.put(column, column.dictionary ? DictionaryColumn.of(values) : StringColumn.of(values));
+        }
+
+        DoubleBuffer confidence = ByteBuffer.allocateDirect(Math.max(1, records.size()) * Double.BYTES).order(ORDER).asDoubleBuffer();
+        BitSet confidenceNull = new BitSet(records.size());
+        for (int row = 0; row < records.size(); row++) {
+            Double score = records.get(row).getConfidenceScore();
+            if (score == null) {
+                confidenceNull.set(row);
+            } else {
+                confidence.put(row, score);
+            }
+        }
+        return new ColumnarTextStore(records.size(), columns, confidence, confidenceNull);
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * One decoded field of one row
+     */
+    public String get(int row, Column column) {
+        checkRow(row);
+        return columns.get(column).get(row);
+    }
+
+    public Double getConfidenceScore(int row) {
+        checkRow(row);
+        return confidenceNull.get(row) ? null : confidence.get(row);
+    }
+
+    /**
+     * Decode a whole row into a new record
+     */
+    public NamasteCode record(int row) {
+        checkRow(row);
+        return new NamasteCode(get(row, Column.ID), get(row, Column.TM2_CODE), get(row, Column.TM2_LINK),
+                get(row, Column.CODE), get(row, Column.TM2_TITLE), get(row, Column.TM2_DEFINITION),
+                get(row, Column.CODE_TITLE), get(row, Column.CODE_DESCRIPTION), getConfidenceScore(row),
+                get(row, Column.TYPE));
+    }
+
+    /**
+     * Direct memory held by the columns
+     */
+    public long getOffHeapBytes() {
+        long bytes = (long) confidence.capacity() * Double.BYTES;
+        for (TextColumn column : columns.values()) {
+            bytes += column.offHeapBytes();
+        }
+        return bytes;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows);
+        }
+    }
+
+    /**
+     * Stored fields; dictionary columns keep each distinct value once
+     */
+    public enum Column {
+        ID(NamasteCode::getId, false),
+        TM2_CODE(NamasteCode::getTm2Code, true),
+        TM2_LINK(NamasteCode::getTm2Link, true),
+        CODE(NamasteCode::getCode, false),
+        TM2_TITLE(NamasteCode::getTm2Title, true),
+        TM2_DEFINITION(NamasteCode::getTm2Definition, true),
+        CODE_TITLE(NamasteCode::getCodeTitle, false),
+        CODE_DESCRIPTION(NamasteCode::getCodeDescription, false),
+        TYPE(NamasteCode::getType, true);
+
+        private final Function<NamasteCode, String> getter;
+        private final boolean dictionary;
+
+        Column(Function<NamasteCode, String> getter, boolean dictionary) {
+            this.getter = getter;
+            this.dictionary = dictionary;
+        }
+    }
+
+    private interface TextColumn {
+        String get(int row);
+
+        long offHeapBytes();
+    }
+
+    /**
+     * UTF-8 bytes of all values back to back, with an offset per value (value i spans offsets[i]..offsets[i + 1])
+     */
+    private static final class StringColumn implements TextColumn {
+        private final ByteBuffer bytes;
+        private final IntBuffer offsets;
+        private final BitSet nulls;
+
+        private StringColumn(ByteBuffer bytes, IntBuffer offsets, BitSet nulls) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+            this.nulls = nulls;
+        }
+
+        private static StringColumn of(List<String> values) {
+            byte[][] encoded = new byte[values.size()][];
+            BitSet nulls = new BitSet(values.size());
+            int total = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                String value = values.get(i);
+                if (value == null) {
+                    nulls.set(i);
+                    encoded[i] = new byte[0];
+                } else {
+                    encoded[i] = value.getBytes(StandardCharsets.UTF_8);
+                }
+                total += encoded[i].length;
+            }
+
+            ByteBuffer bytes = ByteBuffer.allocateDirect(Math.max(1, total));
+            IntBuffer offsets = ByteBuffer.allocateDirect((encoded.length + 1) * Integer.BYTES).order(ORDER).asIntBuffer();
+            int position = 0;
+            for (int i = 0; i < encoded.length; i++) {
+                offsets.put(i, position);
+                bytes.put(position, encoded[i]);
+                position += encoded[i].length;
+            }
+            offsets.put(encoded.length, position);
+            return new StringColumn(bytes, offsets, nulls);
+        }
+
+        @Override
+        public String get(int index) {
+            if (nulls.get(index)) {
+                return null;
+            }
+            int start = offsets.get(index);
+            byte[] value = new byte[offsets.get(index + 1) - start];
+            bytes.get(start, value);
+            return new String(value, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public long offHeapBytes() {
+            return bytes.capacity() + (long) offsets.capacity() * Integer.BYTES;
+        }
+    }
+
+    /**
+     * Distinct values in a StringColumn plus one value id per row (-1 for null)
+     */
+    private static final class DictionaryColumn implements TextColumn {
+        private final StringColumn dictionary;
+        private final IntBuffer ids;
+
+        private DictionaryColumn(StringColumn dictionary, IntBuffer ids) {
+            this.dictionary = dictionary;
+            this.ids = ids;
+        }
+
+        private static DictionaryColumn of(List<String> values) {
+            Map<String, Integer> idByValue = new HashMap<>();
+            List<String> distinct = new ArrayList<>();
+            IntBuffer ids = ByteBuffer.allocateDirect(Math.max(1, values.size()) * Integer.BYTES).order(ORDER).asIntBuffer();
+            for (int row = 0; row < values.size(); row++) {
+                String value = values.get(row);
+                if (value == null) {
+                    ids.put(row, -1);
+                    continue;
+                }
+                Integer id = idByValue.get(value);
+                if (id == null) {
+                    id = distinct.size();
+                    idByValue.put(value, id);
+                    distinct.add(value);
+                }
+                ids.put(row, id);
+            }
+            return new DictionaryColumn(StringColumn.of(distinct), ids);
+        }
+
+        @Override
+        public String get(int row) {
+            int id = ids.get(row);
+            return id < 0 ? null : dictionary.get(id);
+        }
+
+        @Override
+        public long offHeapBytes() {
+            return dictionary.offHeapBytes() + (long) ids.capacity() * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+
+import java.util.*;
+
+/**
+ * Precomputed join index for cross-system translation: code -> tm2_code -> best code in the target type
+ * Codes, TM2 codes and types are interned into dense int ids, so every join step is a primitive array read
+ * Immutable once built
+ */
+public class CrossSystemJoinIndex {
+
+    private static final int NONE = -1;
+
+    private final StringIdDictionary codeIds;
+    private final StringIdDictionary tm2CodeIds;
+    private final StringIdDictionary typeIds;
+    private final NamasteCode[] records;
+    // codeId -> record index of the highest-confidence record for that code
+    private final int[] topRecordByCode;
+    // codeId -> tm2Id
+    private final int[] tm2ByCode;
+    // typeId -> tm2Id -> record index of the best mapping of that type
+    private final int[][] bestRecordByType;
+
+    private CrossSystemJoinIndex(StringIdDictionary codeIds, StringIdDictionary tm2CodeIds, StringIdDictionary typeIds,
+                                 NamasteCode[] records, int[] topRecordByCode, int[] tm2ByCode, int[][] bestRecordByType) {
+        this.codeIds = codeIds;
+        this.tm2CodeIds = tm2CodeIds;
+        this.typeIds = typeIds;
+        this.records = records;
+        this.topRecordByCode = topRecordByCode;
+        this.tm2ByCode = tm2ByCode;
+        this.bestRecordByType = bestRecordByType;
+    }
+
+    /**
+     * Build from the materialized best mappings (tm2_code -> best per type) and the top record per code
+     */
+    public static CrossSystemJoinIndex build(Map<String, NamasteCode> topByCode,
+                                             Map<String, List<NamasteCode>> bestByTm2Code) {
+        StringIdDictionary codeIds = new StringIdDictionary(topByCode.size());
+        StringIdDictionary tm2CodeIds = new StringIdDictionary(bestByTm2Code.size());
+        StringIdDictionary typeIds = new StringIdDictionary(4);
+        List<NamasteCode> records = new ArrayList<>();
+
+        bestByTm2Code.keySet().forEach(tm2CodeIds::intern);
+        for (List<NamasteCode> bests : bestByTm2Code.values()) {
+            for (NamasteCode best : bests) {
+                typeIds.intern(normalizeType(best.getType()));
+            }
+        }
+
+        int[][] bestRecordByType = new int[typeIds.size()][tm2CodeIds.size()];
+        for (int[] row : bestRecordByType) {
+            Arrays.fill(row, NONE);
+        }
+        for (Map.Entry<String, List<NamasteCode>> entry : bestByTm2Code.entrySet()) {
+            int tm2Id = tm2CodeIds.idOf(entry.getKey());
+            for (NamasteCode best : entry.getValue()) {
+                int typeId = typeIds.idOf(normalizeType(best.getType()));
+                if (bestRecordByType[typeId][tm2Id] == NONE) {
+                    bestRecordByType[typeId][tm2Id] = records.size();
+                    records.add(best);
+                }
+            }
+        }
+
+        int[] topRecordByCode = new int[topByCode.size()];
+        int[] tm2ByCode = new int[topByCode.size()];
+        for (Map.Entry<String, NamasteCode> entry : topByCode.entrySet()) {
+            int codeId = codeIds.intern(entry.getKey());
+            NamasteCode top = entry.getValue();
+            topRecordByCode[codeId] = records.size();
+            records.add(top);
+            tm2ByCode[codeId] = top.getTm2Code() != null ? tm2CodeIds.idOf(top.getTm2Code().trim()) : NONE;
+        }
+
+        return new CrossSystemJoinIndex(codeIds, tm2CodeIds, typeIds, records.toArray(new NamasteCode[0]),
+                topRecordByCode, tm2ByCode, bestRecordByType);
+    }
+
+    /**
+     * Record of the source code, or null when the code is unknown
+     */
+    public NamasteCode sourceRecord(String code) {
+        int codeId = codeIds.idOf(code);
+        return codeId == NONE ? null : records[topRecordByCode[codeId]];
+    }
+
+    /**
+     * Best record of the target type sharing the source code's TM2 code, or null
+     * A source already of the target type translates to itself
+     */
+    public NamasteCode translate(String code, String targetType) {
+        int codeId = codeIds.idOf(code);
+        int typeId = typeIds.idOf(normalizeType(targetType));
+        if (codeId == NONE || typeId == NONE) {
+            return null;
+        }
+
+        NamasteCode source = records[topRecordByCode[codeId]];
+        if (typeId == typeIds.idOf(normalizeType(source.getType()))) {
+            return source;
+        }
+
+        int tm2Id = tm2ByCode[codeId];
+        if (tm2Id == NONE) {
+            return null;
+        }
+        int recordIndex = bestRecordByType[typeId][tm2Id];
+        return recordIndex == NONE ? null : records[recordIndex];
+    }
+
+    public boolean isKnownType(String type) {
+        return typeIds.idOf(normalizeType(type)) != NONE;
+    }
+
+    public List<String> getTypes() {
+        List<String> types = new ArrayList<>(typeIds.size());
+        for (int id = 0; id < typeIds.size(); id++) {
+            types.add(typeIds.valueOf(id));
+        }
+        return types;
+    }
+
+    public int getCodeCount() {
+        return codeIds.size();
+    }
+
+    public int getTm2CodeCount() {
+        return tm2CodeIds.size();
+    }
+
+    private static String normalizeType(String type) {
+        return type != null ? type.trim().toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -0,0 +1,121 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalization and phonetic keys for romanized Ayurveda, Siddha and Unani terms
+ * normalize: NFKD, diacritics stripped, lower-cased, punctuation collapsed to single spaces (Vāta -> vata)
+ * phoneticKey: per word, romanization variants folded (w/v, aspirates, ch/c, sh/s, z/j, q/k, long vowels,
+ * Tamil "-am" endings, anusvara before consonants), then vowels after the first letter dropped and repeated
+ * consonants collapsed, so jvara, jwara and jwaram, or atisara and athisaram, share a key
+ */
+public final class IndicPhoneticKey {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Longest first so "ksh" and "chh" win over "sh" and "ch"
+    private static final String[][] VARIANT_RULES = {
+            {"ksh", "ks"}, {"chh", "c"}, {"ch", "c"}, {"sh", "s"},
+            {"kh", "k"}, {"gh", "g"}, {"jh", "j"}, {"th", "t"}, {"dh", "d"}, {"ph", "f"}, {"bh", "b"},
+            {"w", "v"}, {"z", "j"}, {"q", "k"}, {"x", "ks"},
+            {"aa", "a"}, {"ee", "i"}, {"ii", "i"}, {"oo", "u"}, {"uu", "u"}
+    };
+
+    private IndicPhoneticKey() {
+    }
+
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFKD)).replaceAll("");
+        StringBuilder normalized = new StringBuilder(folded.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(c);
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Phonetic key of a phrase: the keys of its normalized words, space separated
+     */
+    public static String phoneticKey(String value) {
+        String normalized = normalize(value);
+        if (normalized.isEmpty()) {
+            return "";
+        }
+        StringBuilder key = new StringBuilder(normalized.length());
+        for (String word : normalized.split(" ")) {
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(wordKey(word));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Phonetic key of one already normalized word
+     */
+    public static String wordKey(String word) {
+        String folded = word;
+        // Tamil nominative ending: jwaram / jwara, athisaram / atisara
+        if (folded.length() > 4 && folded.endsWith("am")) {
+            folded = folded.substring(0, folded.length() - 2);
+        }
+        folded = applyVariantRules(folded);
+
+        StringBuilder key = new StringBuilder(folded.length());
+        char last = 0;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            // Anusvara spelled m or n before a consonant
+            if (c == 'm' && i + 1 < folded.length() && !isVowel(folded.charAt(i + 1)) && folded.charAt(i + 1) != 'm') {
+                c = 'n';
+            }
+            if (i > 0 && isVowel(c)) {
+                last = c;
+                continue;
+            }
+            if (c != last) {
+                key.append(c);
+            }
+            last = c;
+        }
+        return key.toString();
+    }
+
+    private static String applyVariantRules(String word) {
+        StringBuilder result = new StringBuilder(word.length());
+        int i = 0;
+        outer:
+        while (i < word.length()) {
+            for (String[] rule : VARIANT_RULES) {
+                if (word.startsWith(rule[0], i)) {
+                    result.append(rule[1]);
+                    i += rule[0].length();
+                    continue outer;
+                }
+            }
+            result.append(word.charAt(i));
+            i++;
+        }
+        return result.toString();
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
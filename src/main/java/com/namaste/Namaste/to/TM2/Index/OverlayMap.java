@@ -0,0 +1,76 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map made of a shared base and a small overlay of changed entries
+ * with() copies only the overlay, so a version that differs by a few keys costs O(changes) rather than
+ * O(size); a null value in the overlay hides the base entry. Callers fold the overlay into a new base
+ * once it grows (see overlaySize)
+ */
+public final class OverlayMap<K, V> {
+
+    private final Map<K, V> base;
+    private final Map<K, V> overlay;
+
+    private OverlayMap(Map<K, V> base, Map<K, V> overlay) {
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Wrap a fully built map; it must not be modified afterwards
+     */
+    public static <K, V> OverlayMap<K, V> of(Map<K, V> base) {
+        return new OverlayMap<>(base, Map.of());
+    }
+
+    public V get(K key) {
+        if (overlay.containsKey(key)) {
+            return overlay.get(key);
+        }
+        return base.get(key);
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * A new map with the changes applied on top of this one; a null value removes the key
+     */
+    public OverlayMap<K, V> with(Map<K, V> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Map<K, V> newOverlay = new HashMap<>(overlay);
+        newOverlay.putAll(changes);
+        return new OverlayMap<>(base, newOverlay);
+    }
+
+    /**
+     * Every live entry once, overlay values taking precedence
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        base.forEach((key, value) -> {
+            if (!overlay.containsKey(key)) {
+                action.accept(key, value);
+            }
+        });
+        overlay.forEach((key, value) -> {
+            if (value != null) {
+                action.accept(key, value);
+            }
+        });
+    }
+
+    /**
+     * Entries changed since the base was built
+     */
+    public int overlaySize() {
+        return overlay.size();
+    }
+}
@@ -0,0 +1,49 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+/**
+ * Float kernels used by similarity scoring
+ * Runs on the JDK Vector API when the jdk.incubator.vector module is resolved (--add-modules
+ * jdk.incubator.vector), otherwise on plain loops; VectorSimilarityKernels is only loaded on the SIMD path
+ */
+public final class SimilarityKernels {
+
+    private static final boolean VECTORIZED = detectVectorSupport();
+
+    private SimilarityKernels() {
+    }
+
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * y[i] += a * x[i] for i < length
+     */
+    public static void axpy(float a, float[] x, float[] y, int length) {
+        if (VECTORIZED) {
+            VectorSimilarityKernels.axpy(a, x, y, length);
+        } else {
+            scalarAxpy(a, x, y, length);
+        }
+    }
+
+    private static void scalarAxpy(float a, float[] x, float[] y, int length) {
+        for (int i = 0; i < length; i++) {
+            y[i] += a * x[i];
+        }
+    }
+
+    private static boolean detectVectorSupport() {
+        if (Boolean.getBoolean("terminology.vector.disabled")
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            float[] probe = {1f, 2f};
+            VectorSimilarityKernels.axpy(2f, probe, probe, probe.length);
+            return probe[0] == 3f && probe[1] == 6f;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing dictionary that assigns dense int ids to strings
+ * Ids start at 0 and follow insertion order, so they can index plain arrays
+ * Not thread-safe while being built; safe for concurrent reads once published
+ */
+public class StringIdDictionary {
+
+    public static final int NOT_FOUND = -1;
+
+    private String[] slots;
+    private int[] slotIds;
+    private String[] values;
+    private int size;
+
+    public StringIdDictionary(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        this.slots = new String[capacity];
+        this.slotIds = new int[capacity];
+        this.values = new String[Math.max(16, expectedSize)];
+    }
+
+    /**
+     * Id of the value, adding it when absent
+     */
+    public int intern(String value) {
+        int slot = findSlot(slots, value);
+        if (slots[slot] != null) {
+            return slotIds[slot];
+        }
+
+        int id = size++;
+        if (id == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[id] = value;
+        slots[slot] = value;
+        slotIds[slot] = id;
+
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Id of the value, or NOT_FOUND
+     */
+    public int idOf(String value) {
+        if (value == null) {
+            return NOT_FOUND;
+        }
+        int slot = findSlot(slots, value);
+        return slots[slot] != null ? slotIds[slot] : NOT_FOUND;
+    }
+
+    public String valueOf(int id) {
+        return values[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void rehash() {
+        String[] newSlots = new String[slots.length * 2];
+        int[] newSlotIds = new int[newSlots.length];
+        for (int id = 0; id < size; id++) {
+            int slot = findSlot(newSlots, values[id]);
+            newSlots[slot] = values[id];
+            newSlotIds[slot] = id;
+        }
+        slots = newSlots;
+        slotIds = newSlotIds;
+    }
+
+    private static int findSlot(String[] table, String value) {
+        int mask = table.length - 1;
+        int h = value.hashCode();
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (table[slot] != null && !table[slot].equals(value)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
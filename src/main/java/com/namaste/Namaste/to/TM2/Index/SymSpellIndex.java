@@ -0,0 +1,271 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.*;
+
+/**
+ * SymSpell spelling-correction index (symmetric delete)
+ * Every vocabulary word's prefix is indexed under all its deletes up to maxEditDistance. A lookup generates the
+ * deletes of the input's prefix and only verifies the words sharing one of them, so the cost depends on the
+ * input length and edit distance, not on the vocabulary size.
+ * Deletes are stored as 64-bit hashes with posting lists in flat arrays; hash collisions only add candidates,
+ * which the Damerau-Levenshtein check then rejects.
+ * Immutable once built
+ */
+public class SymSpellIndex {
+
+    private final String[] words;
+    private final int[] frequencies;
+    private final Map<String, Integer> wordIds;
+    private final int maxEditDistance;
+    private final int prefixLength;
+
+    // Open addressing: delete hash -> head of its posting list
+    private final long[] deleteKeys;
+    private final int[] deleteHeads;
+    private final int deleteMask;
+    // Posting lists: word id and next posting, -1 terminated
+    private final int[] postingWords;
+    private final int[] postingNext;
+
+    private SymSpellIndex(String[] words, int[] frequencies, Map<String, Integer> wordIds, int maxEditDistance,
+                          int prefixLength, long[] deleteKeys, int[] deleteHeads, int[] postingWords, int[] postingNext) {
+        this.words = words;
+        this.frequencies = frequencies;
+        this.wordIds = wordIds;
+        this.maxEditDistance = maxEditDistance;
+        this.prefixLength = prefixLength;
+        this.deleteKeys = deleteKeys;
+        this.deleteHeads = deleteHeads;
+        this.deleteMask = deleteKeys.length - 1;
+        this.postingWords = postingWords;
+        this.postingNext = postingNext;
+    }
+
+    /**
+     * Build from lower-cased words and their corpus frequencies
+     */
+    public static SymSpellIndex build(Map<String, Integer> vocabulary, int maxEditDistance, int prefixLength) {
+        String[] words = vocabulary.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        int[] frequencies = new int[words.length];
+        Map<String, Integer> wordIds = new HashMap<>(words.length * 2);
+        for (int id = 0; id < words.length; id++) {
+            frequencies[id] = vocabulary.get(words[id]);
+            wordIds.put(words[id], id);
+        }
+
+        // Collect (hash, word) pairs first so the table can be sized exactly
+        long[] pairHashes = new long[Math.max(16, words.length * 8)];
+        int[] pairWords = new int[pairHashes.length];
+        int pairs = 0;
+        for (int id = 0; id < words.length; id++) {
+            for (String delete : deletes(prefix(words[id], prefixLength), maxEditDistance)) {
+                if (pairs == pairHashes.length) {
+                    pairHashes = Arrays.copyOf(pairHashes, pairs * 2);
+                    pairWords = Arrays.copyOf(pairWords, pairs * 2);
+                }
+                pairHashes[pairs] = hash(delete);
+                pairWords[pairs] = id;
+                pairs++;
+            }
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, pairs * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        boolean[] used = new boolean[capacity];
+        int[] postingWords = new int[pairs];
+        int[] postingNext = new int[pairs];
+        int mask = capacity - 1;
+        for (int i = 0; i < pairs; i++) {
+            int slot = mix(pairHashes[i]) & mask;
+            while (used[slot] && keys[slot] != pairHashes[i]) {
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = pairHashes[i];
+            postingWords[i] = pairWords[i];
+            postingNext[i] = heads[slot];
+            heads[slot] = i;
+        }
+        return new SymSpellIndex(words, frequencies, wordIds, maxEditDistance, prefixLength, keys, heads,
+                postingWords, postingNext);
+    }
+
+    public boolean contains(String word) {
+        return wordIds.containsKey(word);
+    }
+
+    /**
+     * Vocabulary words within maxDistance of the input (capped at the build distance),
+     * closest first, then most frequent, then alphabetical
+     */
+    public List<Suggestion> lookup(String input, int maxDistance, int limit) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (input == null || input.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        int distanceBound = Math.min(maxDistance, maxEditDistance);
+        Integer exact = wordIds.get(input);
+        if (exact != null) {
+            suggestions.add(new Suggestion(input, 0, frequencies[exact]));
+            if (distanceBound == 0 || limit == 1) {
+                return suggestions;
+            }
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        if (exact != null) {
+            seen.add(exact);
+        }
+        for (String delete : deletes(prefix(input, prefixLength), distanceBound)) {
+            for (int posting = head(hash(delete)); posting >= 0; posting = postingNext[posting]) {
+                int id = postingWords[posting];
+                if (!seen.add(id)) {
+                    continue;
+                }
+                String candidate = words[id];
+                if (Math.abs(candidate.length() - input.length()) > distanceBound) {
+                    continue;
+                }
+                int distance = boundedDistance(input, candidate, distanceBound);
+                if (distance >= 0) {
+                    suggestions.add(new Suggestion(candidate, distance, frequencies[id]));
+                }
+            }
+        }
+
+        suggestions.sort(Comparator.comparingInt(Suggestion::getDistance)
+                .thenComparing(Comparator.comparingInt(Suggestion::getFrequency).reversed())
+                .thenComparing(Suggestion::getTerm));
+        return suggestions.size() > limit ? new ArrayList<>(suggestions.subList(0, limit)) : suggestions;
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    public int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    private int head(long hash) {
+        int slot = mix(hash) & deleteMask;
+        while (deleteHeads[slot] >= 0) {
+            if (deleteKeys[slot] == hash) {
+                return deleteHeads[slot];
+            }
+            slot = (slot + 1) & deleteMask;
+        }
+        return -1;
+    }
+
+    private static String prefix(String word, int prefixLength) {
+        return word.length() > prefixLength ? word.substring(0, prefixLength) : word;
+    }
+
+    /**
+     * The word itself and every string obtained by deleting up to maxDeletes characters
+     */
+    private static Set<String> deletes(String word, int maxDeletes) {
+        Set<String> result = new HashSet<>();
+        result.add(word);
+        List<String> frontier = List.of(word);
+        for (int depth = 0; depth < maxDeletes; depth++) {
+            List<String> next = new ArrayList<>();
+            for (String value : frontier) {
+                if (value.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < value.length(); i++) {
+                    String deleted = value.substring(0, i) + value.substring(i + 1);
+                    if (result.add(deleted)) {
+                        next.add(deleted);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance (Damerau-Levenshtein with adjacent transpositions), or -1 above maxDistance
+     */
+    static int boundedDistance(String a, String b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > maxDistance) {
+            return -1;
+        }
+        int[] previousPrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > maxDistance) {
+                return -1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[m] <= maxDistance ? previous[m] : -1;
+    }
+
+    // FNV-1a 64
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static int mix(long hash) {
+        return (int) ((hash * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    /**
+     * A vocabulary word close to the input
+     */
+    public static class Suggestion {
+        private final String term;
+        private final int distance;
+        private final int frequency;
+
+        public Suggestion(String term, int distance, int frequency) {
+            this.term = term;
+            this.distance = distance;
+            this.frequency = frequency;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        public int getFrequency() {
+            return frequency;
+        }
+    }
+}
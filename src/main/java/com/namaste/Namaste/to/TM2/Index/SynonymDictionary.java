@@ -0,0 +1,133 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.*;
+
+/**
+ * Weighted synonym groups compiled to one expansion list per term
+ * Line format: head: synonym, synonym=0.7, ... (head weighs 1.0, synonyms 0.8 unless given)
+ * Expanding any member yields the union of its groups: itself at 1.0, every other member at the lower of
+ * the two members' weights, strongest first. Lookups are a single hash probe. Immutable once built
+ */
+public class SynonymDictionary {
+
+    public static final double DEFAULT_SYNONYM_WEIGHT = 0.8;
+
+    private final Map<String, List<WeightedTerm>> expansions;
+
+    private SynonymDictionary(Map<String, List<WeightedTerm>> expansions) {
+        this.expansions = expansions;
+    }
+
+    public static SynonymDictionary empty() {
+        return new SynonymDictionary(Map.of());
+    }
+
+    /**
+     * Parse dictionary lines; blank lines and # comments are skipped
+     */
+    public static SynonymDictionary parse(List<String> lines) {
+        List<Map<String, Double>> groups = new ArrayList<>();
+        for (int lineNumber = 1; lineNumber <= lines.size(); lineNumber++) {
+            String line = lines.get(lineNumber - 1).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected 'head: synonym, ...'");
+            }
+            Map<String, Double> group = new LinkedHashMap<>();
+            group.put(normalize(line.substring(0, colon)), 1.0);
+            for (String entry : line.substring(colon + 1).split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                int equals = entry.lastIndexOf('=');
+                String term = normalize(equals >= 0 ? entry.substring(0, equals) : entry);
+                double weight = DEFAULT_SYNONYM_WEIGHT;
+                if (equals >= 0) {
+                    try {
+                        weight = Double.parseDouble(entry.substring(equals + 1).trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Line " + lineNumber + ": invalid weight in '" + entry.trim() + "'");
+                    }
+                }
+                if (!term.isEmpty()) {
+                    group.merge(term, Math.max(0.0, Math.min(1.0, weight)), Math::max);
+                }
+            }
+            groups.add(group);
+        }
+        return compile(groups);
+    }
+
+    private static SynonymDictionary compile(List<Map<String, Double>> groups) {
+        Map<String, Map<String, Double>> merged = new HashMap<>();
+        for (Map<String, Double> group : groups) {
+            for (Map.Entry<String, Double> member : group.entrySet()) {
+                Map<String, Double> expansion = merged.computeIfAbsent(member.getKey(), key -> new HashMap<>());
+                for (Map.Entry<String, Double> other : group.entrySet()) {
+                    double weight = other.getKey().equals(member.getKey())
+                            ? 1.0
+                            : Math.min(member.getValue(), other.getValue());
+                    expansion.merge(other.getKey(), weight, Math::max);
+                }
+            }
+        }
+
+        Map<String, List<WeightedTerm>> expansions = new HashMap<>();
+        merged.forEach((term, expansion) -> {
+            List<WeightedTerm> weighted = new ArrayList<>();
+            expansion.forEach((other, weight) -> weighted.add(new WeightedTerm(other, weight)));
+            weighted.sort(Comparator.comparingDouble(WeightedTerm::getWeight).reversed().thenComparing(WeightedTerm::getTerm));
+            expansions.put(term, List.copyOf(weighted));
+        });
+        return new SynonymDictionary(expansions);
+    }
+
+    /**
+     * The term and its weighted synonyms; an unknown term expands to itself
+     */
+    public List<WeightedTerm> expand(String term) {
+        String normalized = normalize(term);
+        List<WeightedTerm> expansion = expansions.get(normalized);
+        return expansion != null ? expansion : List.of(new WeightedTerm(normalized, 1.0));
+    }
+
+    public boolean contains(String term) {
+        return expansions.containsKey(normalize(term));
+    }
+
+    public Set<String> getTerms() {
+        return Collections.unmodifiableSet(expansions.keySet());
+    }
+
+    public int size() {
+        return expansions.size();
+    }
+
+    private static String normalize(String term) {
+        return term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A search term and how much a match on it counts relative to the literal query term
+     */
+    public static class WeightedTerm {
+        private final String term;
+        private final double weight;
+
+        public WeightedTerm(String term, double weight) {
+            this.term = term;
+            this.weight = weight;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.*;
+
+/**
+ * Document frequency per token over the searchable text fields
+ * Used to estimate how many documents a symptom matches before querying, so the most selective
+ * symptom can be evaluated first. Matching is substring based, so a word is estimated by the total
+ * frequency of all tokens it prefixes (an upper bound for whole and leading-part matches).
+ * Immutable once built
+ */
+public class TermFrequencyStatistics {
+
+    private final String[] tokens;
+    // cumulativeFrequency[i] = sum of document frequencies of tokens[0..i)
+    private final long[] cumulativeFrequency;
+    private final int documentCount;
+
+    private TermFrequencyStatistics(String[] tokens, long[] cumulativeFrequency, int documentCount) {
+        this.tokens = tokens;
+        this.cumulativeFrequency = cumulativeFrequency;
+        this.documentCount = documentCount;
+    }
+
+    /**
+     * Build from the text of each document; every inner collection is one document's fields
+     */
+    public static TermFrequencyStatistics build(Collection<? extends Collection<String>> documents) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        Set<String> documentTokens = new HashSet<>();
+        for (Collection<String> fields : documents) {
+            documentTokens.clear();
+            for (String field : fields) {
+                documentTokens.addAll(TextTokenizer.tokenize(field));
+            }
+            for (String token : documentTokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+        }
+
+        String[] tokens = frequencies.keySet().toArray(new String[0]);
+        Arrays.sort(tokens);
+        long[] cumulative = new long[tokens.length + 1];
+        for (int i = 0; i < tokens.length; i++) {
+            cumulative[i + 1] = cumulative[i] + frequencies.get(tokens[i]);
+        }
+        return new TermFrequencyStatistics(tokens, cumulative, documents.size());
+    }
+
+    /**
+     * Estimated number of documents containing the term: the least frequent of its words, capped at the
+     * document count. A term without any word characters is estimated to match everything.
+     */
+    public long estimateDocumentFrequency(String term) {
+        long estimate = documentCount;
+        for (String word : TextTokenizer.tokenize(term)) {
+            estimate = Math.min(estimate, prefixFrequency(word));
+        }
+        return estimate;
+    }
+
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    public int getTokenCount() {
+        return tokens.length;
+    }
+
+    private long prefixFrequency(String prefix) {
+        int from = lowerBound(prefix);
+        // Every token starting with the prefix sorts before prefix followed by Character.MAX_VALUE
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        return cumulativeFrequency[to] - cumulativeFrequency[from];
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
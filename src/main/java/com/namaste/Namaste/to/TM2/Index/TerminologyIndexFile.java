@@ -0,0 +1,486 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary image of the terminology records and their best-mapping postings, read in place from a
+ * memory-mapped file
+ * Layout (big-endian): a fixed header (magic, format, dataset version, counts, CRC32 of the body), a
+ * deduplicated string table sorted by UTF-8 bytes (offsets + bytes), one string-id column per text field,
+ * one confidence column, then tables keyed by string id: row of each id, top row of each code, and the rows /
+ * best rows of each code and tm2_code as offset + row postings
+ * Reading checks the header and checksum and decodes nothing else: a key is found by binary search in the
+ * sorted string table and a record is decoded only when it is asked for
+ */
+public final class TerminologyIndexFile {
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x4E544958; // "NTIX"
+    private static final int HEADER_BYTES = 48;
+    private static final int NULL_STRING = -1;
+    private static final int NO_ROW = -1;
+    private static final long NULL_CONFIDENCE = 0x7ff8_0000_0000_0001L;
+
+    private static final List<Function<NamasteCode, String>> FIELD_GETTERS = List.of(
+            NamasteCode::getId, NamasteCode::getTm2Code, NamasteCode::getTm2Link, NamasteCode::getCode,
+            NamasteCode::getTm2Title, NamasteCode::getTm2Definition, NamasteCode::getCodeTitle,
+            NamasteCode::getCodeDescription, NamasteCode::getType);
+
+    private TerminologyIndexFile() {
+    }
+
+    /**
+     * Write the records and the best-mapping index built over them (rows are positions in records) to a
+     * temporary file next to the target and move it into place atomically, so a reader mapping the target
+     * never sees a partially written image
+     */
+    public static void write(Path target, long datasetVersion, List<NamasteCode> records,
+                             BestMappingIndex bestMappings) throws IOException {
+        Set<String> distinct = new HashSet<>();
+        for (NamasteCode record : records) {
+            for (Function<NamasteCode, String> getter : FIELD_GETTERS) {
+                String value = getter.apply(record);
+                if (value != null) {
+                    distinct.add(value);
+                }
+            }
+        }
+        Map<String, byte[]> encoded = new HashMap<>();
+        for (String value : distinct) {
+            encoded.put(value, value.getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> sorted = new ArrayList<>(distinct);
+        sorted.sort((a, b) -> Arrays.compareUnsigned(encoded.get(a), encoded.get(b)));
+        List<byte[]> strings = new ArrayList<>(sorted.size());
+        Map<String, Integer> stringIds = new HashMap<>();
+        int stringBytes = 0;
+        for (String value : sorted) {
+            stringIds.put(value, strings.size());
+            strings.add(encoded.get(value));
+            stringBytes += encoded.get(value).length;
+        }
+
+        int stringCount = strings.size();
+        int[] rowById = filled(stringCount);
+        int[] topRowByCode = filled(stringCount);
+        int[][] codeRows = new int[stringCount][];
+        int[][] tm2Rows = new int[stringCount][];
+        int[][] bestRows = new int[stringCount][];
+        for (int row = 0; row < records.size(); row++) {
+            String id = records.get(row).getId();
+            if (id != null) {
+                rowById[stringIds.get(id)] = row;
+            }
+        }
+        bestMappings.topRowByCode().forEach((code, row) -> topRowByCode[stringIds.get(code)] = row);
+        bestMappings.rowsByCode().forEach((code, rows) -> codeRows[stringIds.get(code)] = rows);
+        bestMappings.rowsByTm2Code().forEach((tm2Code, rows) -> tm2Rows[stringIds.get(tm2Code)] = rows);
+        bestMappings.bestRowsByTm2Code().forEach((tm2Code, rows) -> bestRows[stringIds.get(tm2Code)] = rows);
+
+        Layout layout = new Layout(records.size(), stringCount, stringBytes,
+                count(codeRows), count(tm2Rows), count(bestRows));
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(layout.totalBytes));
+        buffer.position(HEADER_BYTES);
+        int offset = 0;
+        for (byte[] bytes : strings) {
+            buffer.putInt(offset);
+            offset += bytes.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] bytes : strings) {
+            buffer.put(bytes);
+        }
+        for (Function<NamasteCode, String> getter : FIELD_GETTERS) {
+            for (NamasteCode record : records) {
+                String value = getter.apply(record);
+                buffer.putInt(value == null ? NULL_STRING : stringIds.get(value));
+            }
+        }
+        for (NamasteCode record : records) {
+            buffer.putLong(record.getConfidenceScore() != null
+                    ? Double.doubleToLongBits(record.getConfidenceScore())
+                    : NULL_CONFIDENCE);
+        }
+        putInts(buffer, rowById);
+        putInts(buffer, topRowByCode);
+        putPostings(buffer, codeRows);
+        putPostings(buffer, tm2Rows);
+        putPostings(buffer, bestRows);
+
+        int bodyBytes = buffer.position() - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyBytes);
+        buffer.putInt(0, MAGIC)
+                .putInt(4, FORMAT_VERSION)
+                .putLong(8, datasetVersion)
+                .putInt(16, records.size())
+                .putInt(20, stringCount)
+                .putInt(24, stringBytes)
+                .putInt(28, layout.codeRowCount)
+                .putInt(32, layout.tm2RowCount)
+                .putInt(36, layout.bestRowCount)
+                .putInt(40, (int) crc.getValue());
+        buffer.rewind();
+
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map the file read-only and check it; records and postings stay in the mapped pages
+     * Throws IOException when the file is not a complete image of a supported format
+     */
+    public static Contents read(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a terminology index file: " + source + " (" + size + " bytes)");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return open(mapped, source);
+        }
+    }
+
+    private static Contents open(ByteBuffer buffer, Path source) throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a terminology index file: " + source);
+        }
+        int format = buffer.getInt(4);
+        if (format != FORMAT_VERSION) {
+            throw new IOException("Unsupported terminology index format " + format + " in " + source
+                    + " (expected " + FORMAT_VERSION + ")");
+        }
+        long datasetVersion = buffer.getLong(8);
+        Layout layout = new Layout(buffer.getInt(16), buffer.getInt(20), buffer.getInt(24),
+                buffer.getInt(28), buffer.getInt(32), buffer.getInt(36));
+        if (!layout.isValid() || layout.totalBytes != buffer.capacity()) {
+            throw new IOException("Truncated terminology index file: " + source);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(HEADER_BYTES));
+        if ((int) crc.getValue() != buffer.getInt(40)) {
+            throw new IOException("Checksum mismatch in terminology index file: " + source);
+        }
+        return new Contents(buffer, datasetVersion, layout);
+    }
+
+    private static int[] filled(int length) {
+        int[] values = new int[length];
+        Arrays.fill(values, NO_ROW);
+        return values;
+    }
+
+    private static int count(int[][] postings) {
+        int count = 0;
+        for (int[] rows : postings) {
+            count += rows != null ? rows.length : 0;
+        }
+        return count;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values) {
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+    }
+
+    private static void putPostings(ByteBuffer buffer, int[][] postings) {
+        int offset = 0;
+        for (int[] rows : postings) {
+            buffer.putInt(offset);
+            offset += rows != null ? rows.length : 0;
+        }
+        buffer.putInt(offset);
+        for (int[] rows : postings) {
+            if (rows != null) {
+                putInts(buffer, rows);
+            }
+        }
+    }
+
+    /**
+     * Section offsets, derived from the header counts
+     */
+    private static final class Layout {
+        private final int recordCount;
+        private final int stringCount;
+        private final int stringBytes;
+        private final int codeRowCount;
+        private final int tm2RowCount;
+        private final int bestRowCount;
+        private final long stringOffsets;
+        private final long stringData;
+        private final long columns;
+        private final long confidence;
+        private final long rowById;
+        private final long topRowByCode;
+        private final long codePostings;
+        private final long tm2Postings;
+        private final long bestPostings;
+        private final long totalBytes;
+
+        private Layout(int recordCount, int stringCount, int stringBytes, int codeRowCount, int tm2RowCount, int bestRowCount) {
+            this.recordCount = recordCount;
+            this.stringCount = stringCount;
+            this.stringBytes = stringBytes;
+            this.codeRowCount = codeRowCount;
+            this.tm2RowCount = tm2RowCount;
+            this.bestRowCount = bestRowCount;
+            stringOffsets = HEADER_BYTES;
+            stringData = stringOffsets + ((long) stringCount + 1) * Integer.BYTES;
+            columns = stringData + stringBytes;
+            confidence = columns + (long) FIELD_GETTERS.size() * recordCount * Integer.BYTES;
+            rowById = confidence + (long) recordCount * Long.BYTES;
+            topRowByCode = rowById + (long) stringCount * Integer.BYTES;
+            codePostings = topRowByCode + (long) stringCount * Integer.BYTES;
+            tm2Postings = codePostings + ((long) stringCount + 1 + codeRowCount) * Integer.BYTES;
+            bestPostings = tm2Postings + ((long) stringCount + 1 + tm2RowCount) * Integer.BYTES;
+            totalBytes = bestPostings + ((long) stringCount + 1 + bestRowCount) * Integer.BYTES;
+        }
+
+        private boolean isValid() {
+            return recordCount >= 0 && stringCount >= 0 && stringBytes >= 0
+                    && codeRowCount >= 0 && tm2RowCount >= 0 && bestRowCount >= 0;
+        }
+    }
+
+    /**
+     * A checked, mapped artifact: the dataset version it was written at, records decoded per row, and the
+     * id and best-mapping tables as read-only map views over the mapped pages
+     * Safe for concurrent readers (all buffer reads are absolute)
+     */
+    public static final class Contents {
+        private final ByteBuffer buffer;
+        private final long datasetVersion;
+        private final Layout layout;
+
+        private Contents(ByteBuffer buffer, long datasetVersion, Layout layout) {
+            this.buffer = buffer;
+            this.datasetVersion = datasetVersion;
+            this.layout = layout;
+        }
+
+        public long getDatasetVersion() {
+            return datasetVersion;
+        }
+
+        public int size() {
+            return layout.recordCount;
+        }
+
+        public long getMappedBytes() {
+            return layout.totalBytes;
+        }
+
+        /**
+         * Decode one record
+         */
+        public NamasteCode record(int row) {
+            if (row < 0 || row >= layout.recordCount) {
+                throw new IndexOutOfBoundsException("Row " + row + " of " + layout.recordCount);
+            }
+            String[] values = new String[FIELD_GETTERS.size()];
+            for (int field = 0; field < values.length; field++) {
+                int id = intAt(layout.columns, field * layout.recordCount + row);
+                values[field] = id == NULL_STRING ? null : string(id);
+            }
+            long bits = buffer.getLong(Math.toIntExact(layout.confidence + (long) row * Long.BYTES));
+            Double confidenceScore = bits == NULL_CONFIDENCE ? null : Double.longBitsToDouble(bits);
+            return new NamasteCode(values[0], values[1], values[2], values[3], values[4], values[5],
+                    values[6], values[7], confidenceScore, values[8]);
+        }
+
+        /**
+         * All records in row order, each decoded on access
+         */
+        public List<NamasteCode> getRecords() {
+            return new AbstractList<>() {
+                @Override
+                public NamasteCode get(int row) {
+                    return record(row);
+                }
+
+                @Override
+                public int size() {
+                    return layout.recordCount;
+                }
+            };
+        }
+
+        /**
+         * id -> row
+         */
+        public Map<String, Integer> rowById() {
+            return new RowView(layout.rowById);
+        }
+
+        /**
+         * The best-mapping index the file was written with, reading its tables from the mapped pages
+         */
+        public BestMappingIndex bestMappings() {
+            return BestMappingIndex.of(new PostingsView(layout.tm2Postings),
+                    new PostingsView(layout.codePostings),
+                    new PostingsView(layout.bestPostings),
+                    new RowView(layout.topRowByCode));
+        }
+
+        private int intAt(long sectionStart, long index) {
+            return buffer.getInt(Math.toIntExact(sectionStart + index * Integer.BYTES));
+        }
+
+        private String string(int id) {
+            int start = intAt(layout.stringOffsets, id);
+            int length = intAt(layout.stringOffsets, id + 1) - start;
+            byte[] bytes = new byte[length];
+            buffer.get(Math.toIntExact(layout.stringData + start), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Id of a string by binary search over the sorted table, or -1
+         */
+        private int stringId(Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            byte[] target = ((String) key).getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = layout.stringCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int order = compareTo(mid, target);
+                if (order < 0) {
+                    low = mid + 1;
+                } else if (order > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        private int compareTo(int id, byte[] target) {
+            int start = intAt(layout.stringOffsets, id);
+            int length = intAt(layout.stringOffsets, id + 1) - start;
+            int base = Math.toIntExact(layout.stringData + start);
+            for (int i = 0; i < Math.min(length, target.length); i++) {
+                int order = Integer.compare(buffer.get(base + i) & 0xff, target[i] & 0xff);
+                if (order != 0) {
+                    return order;
+                }
+            }
+            return Integer.compare(length, target.length);
+        }
+
+        /**
+         * string -> row, for keys whose row is set
+         */
+        private final class RowView extends AbstractMap<String, Integer> {
+            private final long start;
+
+            private RowView(long start) {
+                this.start = start;
+            }
+
+            @Override
+            public Integer get(Object key) {
+                int id = stringId(key);
+                int row = id >= 0 ? intAt(start, id) : NO_ROW;
+                return row != NO_ROW ? row : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Set<Entry<String, Integer>> entrySet() {
+                List<Entry<String, Integer>> entries = new ArrayList<>();
+                for (int id = 0; id < layout.stringCount; id++) {
+                    int row = intAt(start, id);
+                    if (row != NO_ROW) {
+                        entries.add(new SimpleImmutableEntry<>(string(id), row));
+                    }
+                }
+                return new LinkedHashSet<>(entries);
+            }
+        }
+
+        /**
+         * string -> rows, for keys with at least one row
+         */
+        private final class PostingsView extends AbstractMap<String, int[]> {
+            private final long offsets;
+            private final long rows;
+
+            private PostingsView(long offsets) {
+                this.offsets = offsets;
+                this.rows = offsets + ((long) layout.stringCount + 1) * Integer.BYTES;
+            }
+
+            @Override
+            public int[] get(Object key) {
+                int id = stringId(key);
+                return id >= 0 ? rowsOf(id) : null;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return get(key) != null;
+            }
+
+            @Override
+            public Set<Entry<String, int[]>> entrySet() {
+                List<Entry<String, int[]>> entries = new ArrayList<>();
+                for (int id = 0; id < layout.stringCount; id++) {
+                    int[] postings = rowsOf(id);
+                    if (postings != null) {
+                        entries.add(new SimpleImmutableEntry<>(string(id), postings));
+                    }
+                }
+                return new LinkedHashSet<>(entries);
+            }
+
+            private int[] rowsOf(int id) {
+                int from = intAt(offsets, id);
+                int to = intAt(offsets, id + 1);
+                if (from == to) {
+                    return null;
+                }
+                int[] postings = new int[to - from];
+                for (int i = 0; i < postings.length; i++) {
+                    postings[i] = intAt(rows, from + i);
+                }
+                return postings;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lower-cases text and splits it into letter/digit runs
+ * Shared by the in-memory indexes so they agree on what a term is
+ */
+public final class TextTokenizer {
+
+    private TextTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        forEachToken(text, (token, start, end) -> tokens.add(token));
+        return tokens;
+    }
+
+    /**
+     * Visit each lower-cased token with its [start, end) character offsets in the original text
+     */
+    public static void forEachToken(String text, TokenConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT), start, i);
+                start = -1;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface TokenConsumer {
+        void accept(String token, int start, int end);
+    }
+}
@@ -0,0 +1,178 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.*;
+
+/**
+ * L2-normalized TF-IDF vectors for a fixed document set, stored as sparse rows (CSR)
+ * Term weight is log(1 + tf) * log(1 + N / df); rows hold term ids in ascending order
+ * Scoring merges each candidate row with the sorted query terms into one column per query term, then
+ * accumulates query weight * column with SimilarityKernels.axpy, so the inner loop runs over candidates in SIMD lanes
+ * Immutable once built
+ */
+public class TfIdfIndex {
+
+    private final StringIdDictionary termIds;
+    private final float[] idf;
+    private final int[] rowStart;
+    private final int[] rowTerms;
+    private final float[] rowWeights;
+    private final float maxIdf;
+
+    private TfIdfIndex(StringIdDictionary termIds, float[] idf, int[] rowStart, int[] rowTerms, float[] rowWeights) {
+        this.termIds = termIds;
+        this.idf = idf;
+        this.rowStart = rowStart;
+        this.rowTerms = rowTerms;
+        this.rowWeights = rowWeights;
+        float max = 0f;
+        for (float value : idf) {
+            max = Math.max(max, value);
+        }
+        this.maxIdf = max;
+    }
+
+    /**
+     * Build from per-document term frequencies (fractional frequencies allowed for field weighting)
+     */
+    public static TfIdfIndex build(List<Map<String, Float>> documents) {
+        StringIdDictionary termIds = new StringIdDictionary(1024);
+        int[] documentFrequency = new int[1024];
+        int entries = 0;
+        for (Map<String, Float> document : documents) {
+            for (String term : document.keySet()) {
+                int id = termIds.intern(term);
+                if (id == documentFrequency.length) {
+                    documentFrequency = Arrays.copyOf(documentFrequency, id * 2);
+                }
+                documentFrequency[id]++;
+            }
+            entries += document.size();
+        }
+
+        float[] idf = new float[termIds.size()];
+        for (int id = 0; id < idf.length; id++) {
+            idf[id] = (float) Math.log(1.0 + (double) documents.size() / documentFrequency[id]);
+        }
+
+        int[] rowStart = new int[documents.size() + 1];
+        int[] rowTerms = new int[entries];
+        float[] rowWeights = new float[entries];
+        int position = 0;
+        for (int row = 0; row < documents.size(); row++) {
+            rowStart[row] = position;
+            int rowEnd = position;
+            for (String term : documents.get(row).keySet()) {
+                rowTerms[rowEnd++] = termIds.idOf(term);
+            }
+            Arrays.sort(rowTerms, position, rowEnd);
+
+            double norm = 0.0;
+            for (int i = position; i < rowEnd; i++) {
+                float tf = documents.get(row).get(termIds.valueOf(rowTerms[i]));
+                rowWeights[i] = (float) Math.log1p(tf) * idf[rowTerms[i]];
+                norm += (double) rowWeights[i] * rowWeights[i];
+            }
+            float scale = norm > 0 ? (float) (1.0 / Math.sqrt(norm)) : 0f;
+            for (int i = position; i < rowEnd; i++) {
+                rowWeights[i] *= scale;
+            }
+            position = rowEnd;
+        }
+        rowStart[documents.size()] = position;
+        return new TfIdfIndex(termIds, idf, rowStart, rowTerms, rowWeights);
+    }
+
+    /**
+     * Normalized query vector; each term's weight multiplies its idf
+     * Terms missing from the corpus count toward the norm at the highest idf, so they lower every score alike
+     */
+    public QueryVector query(Map<String, Float> termWeights) {
+        List<Integer> ids = new ArrayList<>(termWeights.size());
+        List<Float> weights = new ArrayList<>(termWeights.size());
+        double norm = 0.0;
+        for (Map.Entry<String, Float> entry : termWeights.entrySet()) {
+            int id = termIds.idOf(entry.getKey());
+            float weight = entry.getValue() * (id == StringIdDictionary.NOT_FOUND ? maxIdf : idf[id]);
+            norm += (double) weight * weight;
+            if (id != StringIdDictionary.NOT_FOUND && weight > 0f) {
+                ids.add(id);
+                weights.add(weight);
+            }
+        }
+
+        float scale = norm > 0 ? (float) (1.0 / Math.sqrt(norm)) : 0f;
+        Integer[] order = new Integer[ids.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(ids::get));
+        int[] queryTerms = new int[order.length];
+        float[] queryWeights = new float[order.length];
+        for (int i = 0; i < order.length; i++) {
+            queryTerms[i] = ids.get(order[i]);
+            queryWeights[i] = weights.get(order[i]) * scale;
+        }
+        return new QueryVector(queryTerms, queryWeights);
+    }
+
+    /**
+     * Cosine similarity of the query with each candidate row, written to scores[0..rows.length)
+     */
+    public void score(QueryVector query, int[] rows, float[] scores) {
+        int count = rows.length;
+        int queryTerms = query.terms.length;
+        Arrays.fill(scores, 0, count, 0f);
+        if (queryTerms == 0 || count == 0) {
+            return;
+        }
+
+        // Gather: one merge of each row with the (sorted) query terms fills a column per query term
+        float[][] columns = new float[queryTerms][count];
+        for (int c = 0; c < count; c++) {
+            int i = rowStart[rows[c]];
+            int end = rowStart[rows[c] + 1];
+            int q = 0;
+            while (i < end && q < queryTerms) {
+                int term = rowTerms[i];
+                if (term < query.terms[q]) {
+                    i++;
+                } else if (term > query.terms[q]) {
+                    q++;
+                } else {
+                    columns[q][c] = rowWeights[i];
+                    i++;
+                    q++;
+                }
+            }
+        }
+
+        for (int q = 0; q < queryTerms; q++) {
+            SimilarityKernels.axpy(query.weights[q], columns[q], scores, count);
+        }
+    }
+
+    public int getDocumentCount() {
+        return rowStart.length - 1;
+    }
+
+    public int getTermCount() {
+        return termIds.size();
+    }
+
+    /**
+     * A normalized sparse query: term ids and weights
+     */
+    public static class QueryVector {
+        private final int[] terms;
+        private final float[] weights;
+
+        private QueryVector(int[] terms, float[] weights) {
+            this.terms = terms;
+            this.weights = weights;
+        }
+
+        public boolean isEmpty() {
+            return terms.length == 0;
+        }
+    }
+}
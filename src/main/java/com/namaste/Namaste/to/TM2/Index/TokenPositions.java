@@ -0,0 +1,126 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.*;
+
+/**
+ * Token positions of one text field, stored at index time so matches can be located without re-scanning
+ * Distinct tokens are kept sorted with a posting list of token ordinals each; every ordinal knows its
+ * character offsets and distinct-token id. A term matches when its words occur at consecutive ordinals,
+ * the last word as a token prefix (fever -> feverish), like the substring semantics of the search
+ * Immutable once built
+ */
+public class TokenPositions {
+
+    private static final TokenPositions EMPTY = new TokenPositions(new String[0], new int[]{0}, new int[0],
+            new int[0], new int[0], new int[0]);
+
+    private final String[] sortedTokens;
+    private final int[] postingStart;
+    private final int[] postingOrdinals;
+    private final int[] ordinalTokenIds;
+    private final int[] ordinalStart;
+    private final int[] ordinalEnd;
+
+    private TokenPositions(String[] sortedTokens, int[] postingStart, int[] postingOrdinals,
+                           int[] ordinalTokenIds, int[] ordinalStart, int[] ordinalEnd) {
+        this.sortedTokens = sortedTokens;
+        this.postingStart = postingStart;
+        this.postingOrdinals = postingOrdinals;
+        this.ordinalTokenIds = ordinalTokenIds;
+        this.ordinalStart = ordinalStart;
+        this.ordinalEnd = ordinalEnd;
+    }
+
+    public static TokenPositions of(String text) {
+        List<String> tokens = new ArrayList<>();
+        List<int[]> offsets = new ArrayList<>();
+        TextTokenizer.forEachToken(text, (token, start, end) -> {
+            tokens.add(token);
+            offsets.add(new int[]{start, end});
+        });
+        if (tokens.isEmpty()) {
+            return EMPTY;
+        }
+
+        String[] sortedTokens = new TreeSet<>(tokens).toArray(new String[0]);
+        int ordinals = tokens.size();
+        int[] ordinalTokenIds = new int[ordinals];
+        int[] ordinalStart = new int[ordinals];
+        int[] ordinalEnd = new int[ordinals];
+        int[] postingStart = new int[sortedTokens.length + 1];
+        for (int ordinal = 0; ordinal < ordinals; ordinal++) {
+            ordinalTokenIds[ordinal] = Arrays.binarySearch(sortedTokens, tokens.get(ordinal));
+            ordinalStart[ordinal] = offsets.get(ordinal)[0];
+            ordinalEnd[ordinal] = offsets.get(ordinal)[1];
+            postingStart[ordinalTokenIds[ordinal] + 1]++;
+        }
+        for (int id = 0; id < sortedTokens.length; id++) {
+            postingStart[id + 1] += postingStart[id];
+        }
+        int[] postingOrdinals = new int[ordinals];
+        int[] fill = Arrays.copyOf(postingStart, sortedTokens.length);
+        for (int ordinal = 0; ordinal < ordinals; ordinal++) {
+            postingOrdinals[fill[ordinalTokenIds[ordinal]]++] = ordinal;
+        }
+        return new TokenPositions(sortedTokens, postingStart, postingOrdinals, ordinalTokenIds, ordinalStart, ordinalEnd);
+    }
+
+    /**
+     * Report the [start, end) character span of every occurrence of the (lower-case) term
+     */
+    public void findSpans(String term, SpanConsumer consumer) {
+        List<String> words = TextTokenizer.tokenize(term);
+        if (words.isEmpty() || sortedTokens.length == 0) {
+            return;
+        }
+        String last = words.get(words.size() - 1);
+
+        if (words.size() == 1) {
+            // Every distinct token starting with the word: a contiguous range of the sorted tokens
+            for (int id = lowerBound(last); id < sortedTokens.length && sortedTokens[id].startsWith(last); id++) {
+                for (int p = postingStart[id]; p < postingStart[id + 1]; p++) {
+                    int ordinal = postingOrdinals[p];
+                    consumer.accept(ordinalStart[ordinal], prefixEnd(ordinal, last));
+                }
+            }
+            return;
+        }
+
+        int[] wordIds = new int[words.size() - 1];
+        for (int i = 0; i < wordIds.length; i++) {
+            wordIds[i] = Arrays.binarySearch(sortedTokens, words.get(i));
+            if (wordIds[i] < 0) {
+                return;
+            }
+        }
+        int lastOffset = words.size() - 1;
+        for (int p = postingStart[wordIds[0]]; p < postingStart[wordIds[0] + 1]; p++) {
+            int first = postingOrdinals[p];
+            int lastOrdinal = first + lastOffset;
+            if (lastOrdinal >= ordinalTokenIds.length) {
+                break;
+            }
+            boolean consecutive = true;
+            for (int i = 1; i < wordIds.length && consecutive; i++) {
+                consecutive = ordinalTokenIds[first + i] == wordIds[i];
+            }
+            if (consecutive && sortedTokens[ordinalTokenIds[lastOrdinal]].startsWith(last)) {
+                consumer.accept(ordinalStart[first], prefixEnd(lastOrdinal, last));
+            }
+        }
+    }
+
+    private int prefixEnd(int ordinal, String prefix) {
+        return Math.min(ordinalEnd[ordinal], ordinalStart[ordinal] + prefix.length());
+    }
+
+    private int lowerBound(String token) {
+        int found = Arrays.binarySearch(sortedTokens, token);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    @FunctionalInterface
+    public interface SpanConsumer {
+        void accept(int start, int end);
+    }
+}
@@ -0,0 +1,144 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import java.util.*;
+
+/**
+ * Sorted concept list of one implicit value set with a token-prefix index for $expand filters
+ * Concepts are ordered by display, so a page is a contiguous slice of the match positions
+ * Immutable once built
+ */
+public class ValueSetExpansionIndex {
+
+    private final String system;
+    private final String[] codes;
+    private final String[] displays;
+    // Sorted distinct tokens of display + code, and the ascending concept positions containing each token
+    private final String[] terms;
+    private final int[][] postings;
+
+    private ValueSetExpansionIndex(String system, String[] codes, String[] displays, String[] terms, int[][] postings) {
+        this.system = system;
+        this.codes = codes;
+        this.displays = displays;
+        this.terms = terms;
+        this.postings = postings;
+    }
+
+    /**
+     * Build from code -> display pairs
+     */
+    public static ValueSetExpansionIndex build(String system, Map<String, String> displayByCode) {
+        List<Map.Entry<String, String>> concepts = new ArrayList<>(displayByCode.entrySet());
+        concepts.sort(Comparator
+                .comparing((Map.Entry<String, String> concept) -> concept.getValue() != null ? concept.getValue() : "",
+                        String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Map.Entry::getKey));
+
+        String[] codes = new String[concepts.size()];
+        String[] displays = new String[concepts.size()];
+        TreeMap<String, List<Integer>> termPositions = new TreeMap<>();
+
+        for (int position = 0; position < concepts.size(); position++) {
+            codes[position] = concepts.get(position).getKey();
+            displays[position] = concepts.get(position).getValue();
+
+            Set<String> conceptTerms = new HashSet<>(TextTokenizer.tokenize(displays[position]));
+            conceptTerms.addAll(TextTokenizer.tokenize(codes[position]));
+            for (String term : conceptTerms) {
+                termPositions.computeIfAbsent(term, key -> new ArrayList<>()).add(position);
+            }
+        }
+
+        String[] terms = termPositions.keySet().toArray(new String[0]);
+        int[][] postings = new int[terms.length][];
+        int i = 0;
+        for (List<Integer> positions : termPositions.values()) {
+            postings[i++] = positions.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new ValueSetExpansionIndex(system, codes, displays, terms, postings);
+    }
+
+    /**
+     * Concept positions matching the filter, ascending (= display order)
+     * Every filter word must be a prefix of some token of the concept's display or code
+     */
+    public int[] match(String filter) {
+        List<String> words = TextTokenizer.tokenize(filter);
+        if (words.isEmpty()) {
+            int[] all = new int[codes.length];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        long[] matches = null;
+        for (String word : words) {
+            long[] wordMatches = new long[(codes.length + 63) / 64];
+            int from = lowerBound(word);
+            for (int t = from; t < terms.length && terms[t].startsWith(word); t++) {
+                for (int position : postings[t]) {
+                    wordMatches[position >>> 6] |= 1L << position;
+                }
+            }
+
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                boolean any = false;
+                for (int w = 0; w < matches.length; w++) {
+                    matches[w] &= wordMatches[w];
+                    any |= matches[w] != 0;
+                }
+                if (!any) {
+                    return new int[0];
+                }
+            }
+        }
+
+        int count = 0;
+        for (long word : matches) {
+            count += Long.bitCount(word);
+        }
+        int[] positions = new int[count];
+        int next = 0;
+        for (int w = 0; w < matches.length; w++) {
+            long word = matches[w];
+            while (word != 0) {
+                positions[next++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return positions;
+    }
+
+    public String getSystem() {
+        return system;
+    }
+
+    public String codeAt(int position) {
+        return codes[position];
+    }
+
+    public String displayAt(int position) {
+        return displays[position];
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    private int lowerBound(String word) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].compareTo(word) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
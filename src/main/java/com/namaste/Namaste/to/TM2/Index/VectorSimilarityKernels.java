@@ -0,0 +1,29 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the SimilarityKernels loops; full vectors over the bulk, scalar tail
+ */
+final class VectorSimilarityKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorSimilarityKernels() {
+    }
+
+    static void axpy(float a, float[] x, float[] y, int length) {
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        FloatVector va = FloatVector.broadcast(SPECIES, a);
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector vx = FloatVector.fromArray(SPECIES, x, i);
+            FloatVector vy = FloatVector.fromArray(SPECIES, y, i);
+            vx.fma(va, vy).intoArray(y, i);
+        }
+        for (; i < length; i++) {
+            y[i] += a * x[i];
+        }
+    }
+}
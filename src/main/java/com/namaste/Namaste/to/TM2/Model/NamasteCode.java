@@ -4,28 +4,44 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
+/**
+ * Compound indexes follow the hot queries: equality on tm2_code / code / type, sorted by confidence_score desc
+ * (they also replace single-field indexes on those prefixes). The *_ci indexes use the case-insensitive
+ * collation (en, strength 2) and only serve queries that declare the same collation
+ */
 @Document(collection = "tm2_mappings")
+@CompoundIndexes({
+        @CompoundIndex(name = "tm2_code_confidence", def = "{'tm2_code': 1, 'confidence_score': -1}"),
+        @CompoundIndex(name = "code_confidence", def = "{'code': 1, 'confidence_score': -1}"),
+        @CompoundIndex(name = "type_confidence", def = "{'type': 1, 'confidence_score': -1}"),
+        @CompoundIndex(name = "code_ci", def = "{'code': 1, 'confidence_score': -1}",
+                collation = NamasteCode.CASE_INSENSITIVE_COLLATION),
+        @CompoundIndex(name = "code_title_ci", def = "{'code_title': 1, 'confidence_score': -1}",
+                collation = NamasteCode.CASE_INSENSITIVE_COLLATION)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class NamasteCode {
 
+    public static final String CASE_INSENSITIVE_COLLATION = "{ 'locale': 'en', 'strength': 2 }";
+
     @Id
     private String id;
 
     @Field("tm2_code")
-    @Indexed
     private String tm2Code;
 
     @Field("tm2_link")
     private String tm2Link;
 
     @Field("code")
-    @Indexed
     private String code;
 
     @Field("tm2_title")
@@ -43,10 +59,10 @@ public class NamasteCode {
     private String codeDescription;
 
     @Field("confidence_score")
+    @Indexed
     private Double confidenceScore;
 
     @Field("type")
-    @Indexed
     private String type;
 
     // Helper methods for backward compatibility with FHIR service
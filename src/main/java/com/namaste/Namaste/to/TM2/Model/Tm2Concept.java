@@ -0,0 +1,31 @@
+package com.namaste.Namaste.to.TM2.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * A TM2 concept stored once and referenced from tm2_mappings through tm2_code
+ * Mapping documents that agree with their concept no longer embed tm2_title, tm2_definition and tm2_link
+ */
+@Document(collection = "tm2_concepts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Tm2Concept {
+
+    @Id
+    private String tm2Code;
+
+    @Field("tm2_title")
+    private String tm2Title;
+
+    @Field("tm2_definition")
+    private String tm2Definition;
+
+    @Field("tm2_link")
+    private String tm2Link;
+}
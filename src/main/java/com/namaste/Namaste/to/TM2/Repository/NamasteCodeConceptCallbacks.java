@@ -0,0 +1,36 @@
+package com.namaste.Namaste.to.TM2.Repository;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Service.Tm2ConceptTable;
+import org.bson.Document;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Joins tm2_mappings documents with their TM2 concept on every read and strips concept fields on every write
+ * Runs for repository methods, MongoTemplate finds and aggregations alike, so callers keep seeing
+ * complete NamasteCode records
+ */
+@Component
+public class NamasteCodeConceptCallbacks implements AfterConvertCallback<NamasteCode>, BeforeSaveCallback<NamasteCode> {
+
+    private final Tm2ConceptTable conceptTable;
+
+    public NamasteCodeConceptCallbacks(@Lazy Tm2ConceptTable conceptTable) {
+        this.conceptTable = conceptTable;
+    }
+
+    @Override
+    public NamasteCode onAfterConvert(NamasteCode entity, Document document, String collection) {
+        conceptTable.hydrate(entity, document);
+        return entity;
+    }
+
+    @Override
+    public NamasteCode onBeforeSave(NamasteCode entity, Document document, String collection) {
+        conceptTable.strip(entity, document);
+        return entity;
+    }
+}
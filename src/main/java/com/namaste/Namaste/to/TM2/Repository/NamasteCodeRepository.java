@@ -1,6 +1,7 @@
 package com.namaste.Namaste.to.TM2.Repository;
 
 import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.springframework.data.mongodb.core.annotation.Collation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -37,20 +38,6 @@ public interface NamasteCodeRepository extends MongoRepository<NamasteCode, Stri
     @Query(value = "{'code': ?0}", sort = "{'confidence_score': -1}")
     Optional<List<NamasteCode>> findByCodeOnly(@Param("codeValue") String codeValue);
 
-    /**
-     * Search by symptoms/description - checks all 4 text fields
-     * code_description, tm2_definition, tm2_title, code_title
-     * Uses case-insensitive regex matching for fuzzy search
-     * This is the second main search feature requested
-     */
-    @Query("{'$or': [" +
-            "{'code_description': {$regex: ?0, $options: 'i'}}, " +
-            "{'tm2_definition': {$regex: ?0, $options: 'i'}}, " +
-            "{'tm2_title': {$regex: ?0, $options: 'i'}}, " +
-            "{'code_title': {$regex: ?0, $options: 'i'}}" +
-            "]}")
-    List<NamasteCode> findBySymptoms(@Param("symptomQuery") String symptomQuery);
-
     /**
      * Multi-symptom search with AND logic is now available via findByAllSymptoms() method
      * from NamasteCodeRepositoryCustom interface
@@ -62,6 +49,14 @@ public interface NamasteCodeRepository extends MongoRepository<NamasteCode, Stri
     // Find by traditional medicine name (code_title)
     Optional<NamasteCode> findByCodeTitle(String codeTitle);
 
+    // Exact name ignoring case, best mapping first (served by the code_title_ci collation index)
+    @Collation(NamasteCode.CASE_INSENSITIVE_COLLATION)
+    Optional<NamasteCode> findFirstByCodeTitleOrderByConfidenceScoreDesc(String codeTitle);
+
+    // Exact code ignoring case, best mapping first (served by the code_ci collation index)
+    @Collation(NamasteCode.CASE_INSENSITIVE_COLLATION)
+    Optional<NamasteCode> findFirstByCodeOrderByConfidenceScoreDesc(String code);
+
     // Auto-complete search (case-insensitive, contains)
     @Query("{'code_title': {$regex: ?0, $options: 'i'}}")
     List<NamasteCode> findByCodeTitleContainingIgnoreCase(@Param("query") String query);
@@ -84,15 +79,6 @@ public interface NamasteCodeRepository extends MongoRepository<NamasteCode, Stri
     // Get codes with TM2 mapping
     List<NamasteCode> findByTm2CodeIsNotNull();
 
-    // Advanced search across multiple fields
-    @Query("{'$or': [" +
-            "{'code_title': {$regex: ?0, $options: 'i'}}, " +
-            "{'code_description': {$regex: ?0, $options: 'i'}}, " +
-            "{'code': {$regex: ?0, $options: 'i'}}, " +
-            "{'tm2_title': {$regex: ?0, $options: 'i'}}" +
-            "]}")
-    List<NamasteCode> findByAdvancedSearch(@Param("query") String query);
-
     // Find high confidence mappings (>= 0.8)
     @Query("{'confidence_score': {$gte: 0.8}}")
     List<NamasteCode> findHighConfidenceMappings();
@@ -111,4 +97,7 @@ public interface NamasteCodeRepository extends MongoRepository<NamasteCode, Stri
      */
     Optional<NamasteCode> findTopByCodeOrderByConfidenceScoreDesc(String code);
 
+    // Highest-confidence mapping of an exact TM2 code
+    Optional<NamasteCode> findTopByTm2CodeOrderByConfidenceScoreDesc(String tm2Code);
+
 }
\ No newline at end of file
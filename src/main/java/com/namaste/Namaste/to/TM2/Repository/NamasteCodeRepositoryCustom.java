@@ -2,6 +2,7 @@ package com.namaste.Namaste.to.TM2.Repository;
 
 import com.namaste.Namaste.to.TM2.Model.NamasteCode;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -9,10 +10,28 @@ import java.util.List;
  */
 public interface NamasteCodeRepositoryCustom {
 
+    /**
+     * Search by symptoms/description - checks all 4 text fields
+     * code_description, tm2_definition, tm2_title, code_title
+     * Uses case-insensitive regex matching for fuzzy search; the query is used as a regex as given
+     */
+    List<NamasteCode> findBySymptoms(String symptomQuery);
+
     /**
      * Search by multiple symptoms with AND logic
      * Documents must match ALL provided symptoms in either code_description or tm2_definition fields
      * Uses MongoDB aggregation for dynamic N-symptom matching
      */
     List<NamasteCode> findByAllSymptoms(List<String> symptoms);
-}
\ No newline at end of file
+
+    /**
+     * Advanced search across code_title, code_description, code and tm2_title (case-insensitive regex)
+     */
+    List<NamasteCode> findByAdvancedSearch(String query);
+
+    /**
+     * Replace the whole collection with the given records in one step
+     * Readers see either the old or the new collection, never a mix of both
+     */
+    void replaceAll(Collection<NamasteCode> records);
+}
@@ -1,14 +1,26 @@
 package com.namaste.Namaste.to.TM2.Repository;
 
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.RenameCollectionOptions;
+import com.namaste.Namaste.to.TM2.Index.TermFrequencyStatistics;
 import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Model.Tm2Concept;
+import com.namaste.Namaste.to.TM2.Service.TerminologyChangedEvent;
+import com.namaste.Namaste.to.TM2.Service.Tm2ConceptTable;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
 
 /**
  * Custom repository implementation for advanced symptom search operations
@@ -16,9 +28,26 @@ import java.util.List;
 @Repository
 public class NamasteCodeRepositoryImpl implements NamasteCodeRepositoryCustom {
 
+    private static final Logger log = LoggerFactory.getLogger(NamasteCodeRepositoryImpl.class);
+    private static final String STAGING_SUFFIX = "_staging";
+
     @Autowired
     private MongoTemplate mongoTemplate;
 
+    @Autowired
+    @Lazy
+    private Tm2ConceptTable conceptTable;
+
+    private volatile TermFrequencyStatistics termStatistics;
+
+    /**
+     * Search by one symptom pattern in the 4 text fields, including fields only stored on the TM2 concept
+     */
+    @Override
+    public List<NamasteCode> findBySymptoms(String symptomQuery) {
+        return mongoTemplate.find(new Query(symptomPatternCriteria(symptomQuery)), NamasteCode.class);
+    }
+
     /**
      * Search by multiple symptoms with AND logic using optimized MongoDB query
      * Documents must match ALL provided symptoms in any of the 4 text fields:
@@ -47,6 +76,11 @@ public class NamasteCodeRepositoryImpl implements NamasteCodeRepositoryCustom {
      * ]}
      * ]
      * }
+     * <p>
+     * Once term statistics are loaded the clauses are not sent together: symptoms are ordered by estimated
+     * document frequency, the rarest is evaluated alone for candidate ids, and every further symptom is only
+     * evaluated on those candidates ({_id: {$in: candidates}}). The plan stops as soon as no candidate is left,
+     * so "pain, fever, rare-term" costs about as much as "rare-term".
      */
     @Override
     public List<NamasteCode> findByAllSymptoms(List<String> symptoms) {
@@ -54,48 +88,161 @@ public class NamasteCodeRepositoryImpl implements NamasteCodeRepositoryCustom {
             return new ArrayList<>();
         }
 
-        // Filter out very short symptoms and escape regex characters
         List<String> validSymptoms = symptoms.stream()
-                .map(symptom -> escapeRegexSpecialChars(symptom.trim()))
+                .map(String::trim)
                 .collect(java.util.stream.Collectors.toList());
 
         if (validSymptoms.isEmpty()) {
             return new ArrayList<>();
         }
 
-        // Build AND criteria for all symptoms
-        List<Criteria> allSymptomsCriteria = new ArrayList<>();
-
-        for (String symptom : validSymptoms) {
-            // Each symptom must match in at least one of the 4 text fields
-            Criteria codeDescCriteria = Criteria.where("code_description").regex(symptom, "i");
-            Criteria tm2DefCriteria = Criteria.where("tm2_definition").regex(symptom, "i");
-            Criteria tm2TitleCriteria = Criteria.where("tm2_title").regex(symptom, "i");
-            Criteria codeTitleCriteria = Criteria.where("code_title").regex(symptom, "i");
-
-            // This symptom criteria (must match in at least one of the 4 fields)
-            Criteria thisSymptomCriteria = new Criteria().orOperator(
-                    codeDescCriteria,
-                    tm2DefCriteria,
-                    tm2TitleCriteria,
-                    codeTitleCriteria
-            );
-            allSymptomsCriteria.add(thisSymptomCriteria);
+        TermFrequencyStatistics statistics = termStatistics;
+        if (statistics == null || validSymptoms.size() == 1) {
+            // No statistics yet (or nothing to plan): one query with every symptom
+            return mongoTemplate.find(new Query(allSymptomsCriteria(validSymptoms)), NamasteCode.class);
+        }
+
+        // Most selective symptom first; each later symptom is only evaluated on the surviving candidates
+        List<String> plan = new ArrayList<>(validSymptoms);
+        Map<String, Long> estimates = new HashMap<>();
+        for (String symptom : plan) {
+            estimates.put(symptom, statistics.estimateDocumentFrequency(symptom));
+        }
+        plan.sort(Comparator.comparingLong(estimates::get));
+        log.debug("Symptom plan (estimated document frequency): {}", estimates);
+
+        List<String> candidateIds = null;
+        for (int step = 0; step < plan.size(); step++) {
+            Criteria criteria = symptomCriteria(plan.get(step));
+            if (candidateIds != null) {
+                criteria = new Criteria().andOperator(Criteria.where("_id").in(candidateIds), criteria);
+            }
+            Query query = new Query(criteria);
+
+            if (step == plan.size() - 1) {
+                return mongoTemplate.find(query, NamasteCode.class);
+            }
+
+            query.fields().include("_id");
+            candidateIds = mongoTemplate.find(query, NamasteCode.class).stream()
+                    .map(NamasteCode::getId)
+                    .collect(java.util.stream.Collectors.toList());
+            if (candidateIds.isEmpty()) {
+                log.debug("Symptom plan stopped after '{}': no candidates left", plan.get(step));
+                return new ArrayList<>();
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Advanced search across code_title, code_description, code and tm2_title
+     */
+    @Override
+    public List<NamasteCode> findByAdvancedSearch(String query) {
+        List<Criteria> fields = new ArrayList<>(List.of(
+                Criteria.where("code_title").regex(query, "i"),
+                Criteria.where("code_description").regex(query, "i"),
+                Criteria.where("code").regex(query, "i"),
+                Criteria.where("tm2_title").regex(query, "i")));
+        addConceptCriteria(fields, "tm2_title", query, Tm2Concept::getTm2Title);
+        return mongoTemplate.find(new Query(new Criteria().orOperator(fields.toArray(new Criteria[0]))), NamasteCode.class);
+    }
+
+    /**
+     * Load the records into a staging collection with the same indexes, then rename it over tm2_mappings
+     * renameCollection with dropTarget swaps the collection atomically, so a failure part way leaves the
+     * live collection untouched and readers never see a partially restored dataset
+     */
+    @Override
+    public void replaceAll(Collection<NamasteCode> records) {
+        String collection = mongoTemplate.getCollectionName(NamasteCode.class);
+        String staging = collection + STAGING_SUFFIX;
+        mongoTemplate.dropCollection(staging);
+        MongoCollection<Document> stagingCollection = mongoTemplate.createCollection(staging);
+
+        List<Document> indexes = new ArrayList<>();
+        for (Document index : mongoTemplate.getCollection(collection).listIndexes()) {
+            if (!"_id_".equals(index.getString("name"))) {
+                index.remove("v");
+                index.remove("ns");
+                indexes.add(index);
+            }
+        }
+        if (!indexes.isEmpty()) {
+            mongoTemplate.getDb().runCommand(new Document("createIndexes", staging).append("indexes", indexes));
+        }
+        if (!records.isEmpty()) {
+            mongoTemplate.insert(records, staging);
+        }
+        stagingCollection.renameCollection(new MongoNamespace(mongoTemplate.getDb().getName(), collection),
+                new RenameCollectionOptions().dropTarget(true));
+        log.info("Replaced {} with {} records", collection, records.size());
+    }
+
+    /**
+     * Refresh the document-frequency statistics on full reloads
+     * Single-record updates are not applied: the statistics only order the plan, they never filter results
+     */
+    @EventListener
+    public void onTerminologyChanged(TerminologyChangedEvent event) {
+        if (!event.isFullReload()) {
+            return;
+        }
+        List<List<String>> documents = new ArrayList<>(event.getCodes().size());
+        for (NamasteCode code : event.getCodes()) {
+            documents.add(Arrays.asList(code.getCodeDescription(), code.getTm2Definition(),
+                    code.getTm2Title(), code.getCodeTitle()));
         }
+        termStatistics = TermFrequencyStatistics.build(documents);
+        log.info("Symptom term statistics rebuilt: {} tokens over {} documents",
+                termStatistics.getTokenCount(), termStatistics.getDocumentCount());
+    }
 
-        // Create the final query with AND logic
-        Query query = new Query();
-        if (allSymptomsCriteria.size() == 1) {
-            // Single symptom case
-            query.addCriteria(allSymptomsCriteria.get(0));
-        } else {
-            // Multiple symptoms - ALL must match (AND logic)
-            Criteria finalCriteria = new Criteria().andOperator(allSymptomsCriteria.toArray(new Criteria[0]));
-            query.addCriteria(finalCriteria);
+    /**
+     * All symptoms in a single $and, in the order given
+     */
+    private Criteria allSymptomsCriteria(List<String> symptoms) {
+        if (symptoms.size() == 1) {
+            return symptomCriteria(symptoms.get(0));
         }
+        Criteria[] criteria = symptoms.stream().map(this::symptomCriteria).toArray(Criteria[]::new);
+        return new Criteria().andOperator(criteria);
+    }
 
-        // Execute the query
-        return mongoTemplate.find(query, NamasteCode.class);
+    /**
+     * One symptom must match in at least one of the 4 text fields
+     */
+    private Criteria symptomCriteria(String symptom) {
+        return symptomPatternCriteria(escapeRegexSpecialChars(symptom));
+    }
+
+    /**
+     * A case-insensitive regex must match in at least one of the 4 text fields
+     */
+    private Criteria symptomPatternCriteria(String pattern) {
+        List<Criteria> fields = new ArrayList<>(List.of(
+                Criteria.where("code_description").regex(pattern, "i"),
+                Criteria.where("tm2_definition").regex(pattern, "i"),
+                Criteria.where("tm2_title").regex(pattern, "i"),
+                Criteria.where("code_title").regex(pattern, "i")));
+        addConceptCriteria(fields, "tm2_definition", pattern, Tm2Concept::getTm2Definition);
+        addConceptCriteria(fields, "tm2_title", pattern, Tm2Concept::getTm2Title);
+        return new Criteria().orOperator(fields.toArray(new Criteria[0]));
+    }
+
+    /**
+     * Mappings that no longer embed a concept field match through their tm2_code when the concept matches;
+     * the concepts are matched in memory, so MongoDB only sees an $in on an indexed field
+     */
+    private void addConceptCriteria(List<Criteria> fields, String field, String pattern, Function<Tm2Concept, String> conceptField) {
+        if (!conceptTable.isNormalized()) {
+            return;
+        }
+        List<String> tm2Codes = conceptTable.tm2CodesMatching(pattern, conceptField);
+        if (!tm2Codes.isEmpty()) {
+            fields.add(Criteria.where(field).exists(false).and("tm2_code").in(tm2Codes));
+        }
     }
 
     /**
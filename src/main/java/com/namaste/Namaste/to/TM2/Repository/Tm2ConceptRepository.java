@@ -0,0 +1,9 @@
+package com.namaste.Namaste.to.TM2.Repository;
+
+import com.namaste.Namaste.to.TM2.Model.Tm2Concept;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface Tm2ConceptRepository extends MongoRepository<Tm2Concept, String> {
+}
@@ -2,6 +2,7 @@ package com.namaste.Namaste.to.TM2.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.namaste.Namaste.to.TM2.config.AbhaConfig;
+import com.namaste.Namaste.to.TM2.config.RequestDeadline;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
@@ -13,6 +14,7 @@ import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @Slf4j
@@ -45,7 +47,7 @@ public class AbhaApiService {
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + abhaConfig.getAuthToken())
                 .retrieve()
                 .bodyToMono(String.class)
-                .timeout(Duration.ofSeconds(abhaConfig.getConnectionTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getConnectionTimeoutSeconds()))
                 .doOnSuccess(cert -> {
                     log.info("Successfully retrieved ABHA certificate");
                     encryptionService.setAbhaCertificate(cert);
@@ -61,7 +63,7 @@ public class AbhaApiService {
                 .header("healthId", healthId)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to check Health ID existence", error));
     }
 
@@ -73,7 +75,7 @@ public class AbhaApiService {
                 .header("healthId", healthId)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to search by Health ID", error));
     }
 
@@ -89,7 +91,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to generate Aadhaar OTP", error));
     }
 
@@ -106,7 +108,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to verify Aadhaar OTP", error));
     }
 
@@ -123,7 +125,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to generate Mobile OTP", error));
     }
 
@@ -140,7 +142,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to verify Mobile OTP", error));
     }
 
@@ -160,7 +162,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to create Health ID", error));
     }
 
@@ -177,7 +179,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to initiate authentication", error));
     }
 
@@ -194,7 +196,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to confirm Aadhaar OTP authentication", error));
     }
 
@@ -211,7 +213,7 @@ public class AbhaApiService {
                 .bodyValue(request)
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to confirm Mobile OTP authentication", error));
     }
 
@@ -223,7 +225,7 @@ public class AbhaApiService {
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + abhaConfig.getAuthToken())
                 .retrieve()
                 .bodyToMono(MAP_TYPE_REF)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to get profile", error));
     }
 
@@ -235,10 +237,26 @@ public class AbhaApiService {
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + abhaConfig.getAuthToken())
                 .retrieve()
                 .bodyToMono(byte[].class)
-                .timeout(Duration.ofSeconds(abhaConfig.getReadTimeoutSeconds()))
+                .transform(call -> withDeadline(call, abhaConfig.getReadTimeoutSeconds()))
                 .doOnError(error -> log.error("Failed to get QR code", error));
     }
 
+    // Configured timeout shortened to the request deadline; calls made from a later stage of a reactive
+    // chain find the deadline in the Reactor context. The timeout cancels the HTTP exchange
+    private <T> Mono<T> withDeadline(Mono<T> call, int timeoutSeconds) {
+        return Mono.deferContextual(context -> {
+            Duration timeout = Duration.ofSeconds(timeoutSeconds);
+            Optional<RequestDeadline> deadline = RequestDeadline.current(context);
+            if (deadline.isPresent()) {
+                if (deadline.get().isExpired()) {
+                    return Mono.<T>error(deadline.get().exceeded());
+                }
+                timeout = deadline.get().within(timeout);
+            }
+            return call.timeout(timeout);
+        }).contextWrite(RequestDeadline.propagate());
+    }
+
     // Generic API call method for handling errors
     private <T> Mono<T> handleApiCall(Mono<T> apiCall, String operation) {
         return apiCall
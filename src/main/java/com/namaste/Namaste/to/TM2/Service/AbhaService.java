@@ -8,6 +8,7 @@ import com.namaste.Namaste.to.TM2.Repository.AbhaUserRepository;
 import com.namaste.Namaste.to.TM2.Request.AbhaLoginRequest;
 import com.namaste.Namaste.to.TM2.Request.AbhaRegistrationRequest;
 import com.namaste.Namaste.to.TM2.Response.AbhaResponse;
+import com.namaste.Namaste.to.TM2.config.RequestDeadline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -168,7 +169,9 @@ public class AbhaService {
                                 }
                             });
                 })
-                .onErrorReturn(AbhaResponse.error("Registration failed", "SYSTEM_ERROR"));
+                .onErrorReturn(AbhaResponse.error("Registration failed", "SYSTEM_ERROR"))
+                // The follow-up ABHA call runs on a client thread; carry the request deadline to it
+                .contextWrite(RequestDeadline.propagate());
     }
 
     // Login with Health ID
@@ -197,7 +200,8 @@ public class AbhaService {
                                 }
                             });
                 })
-                .onErrorReturn(AbhaResponse.error("Login initiation failed", "SYSTEM_ERROR"));
+                .onErrorReturn(AbhaResponse.error("Login initiation failed", "SYSTEM_ERROR"))
+                .contextWrite(RequestDeadline.propagate());
     }
 
     // Verify OTP for login
@@ -236,7 +240,8 @@ public class AbhaService {
                                 return AbhaResponse.success(profile);
                             });
                 })
-                .onErrorReturn(AbhaResponse.error("Login verification failed", "SYSTEM_ERROR"));
+                .onErrorReturn(AbhaResponse.error("Login verification failed", "SYSTEM_ERROR"))
+                .contextWrite(RequestDeadline.propagate());
     }
 
     // Get user profile
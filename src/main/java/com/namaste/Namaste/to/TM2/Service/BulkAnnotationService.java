@@ -0,0 +1,223 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streaming NDJSON bulk annotation for backfilling historical encounter notes
+ * Input lines are read one at a time and annotated on a bounded worker pool. At most maxInFlight records
+ * are read ahead of the oldest unfinished one, so a slow consumer or slow workers throttle the reader
+ * (backpressure) and neither the request nor the response is ever buffered whole.
+ * Results are written in input order, followed by one summary line with the throughput.
+ */
+@Service
+public class BulkAnnotationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkAnnotationService.class);
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ClinicalNoteAnnotator clinicalNoteAnnotator;
+    private final ObjectMapper objectMapper;
+    private final TerminologyIndexConfig indexConfig;
+    private final ExecutorService workers;
+    private final Counter recordCounter;
+    private final DistributionSummary throughputSummary;
+
+    public BulkAnnotationService(ClinicalNoteAnnotator clinicalNoteAnnotator,
+                                 ObjectMapper objectMapper,
+                                 TerminologyIndexConfig indexConfig,
+                                 MeterRegistry meterRegistry) {
+        this.clinicalNoteAnnotator = clinicalNoteAnnotator;
+        this.objectMapper = objectMapper;
+        this.indexConfig = indexConfig;
+
+        int workerCount = indexConfig.getBulkAnnotationWorkers() > 0
+                ? indexConfig.getBulkAnnotationWorkers()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-annotation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.recordCounter = Counter.builder("terminology.bulk.annotation.records")
+                .description("Records annotated by the bulk NDJSON endpoint")
+                .register(meterRegistry);
+        this.throughputSummary = DistributionSummary.builder("terminology.bulk.annotation.throughput")
+                .description("Records per second of completed bulk annotation requests")
+                .baseUnit("records/s")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Whether the annotator is loaded; callers check this before starting a stream
+     */
+    public boolean isReady() {
+        return clinicalNoteAnnotator.isReady();
+    }
+
+    /**
+     * Annotate NDJSON records: {"id": "...", "text": "..."} per line
+     * Output per line: {"id": "...", "annotations": [...]} or {"line": n, "error": "..."}
+     * Records that cannot be annotated (including an annotator that is not loaded) become error lines
+     * and are counted in the summary, never empty annotation lists
+     */
+    public void annotate(InputStream requestBody, OutputStream responseBody) throws IOException {
+        long start = System.nanoTime();
+        int maxInFlight = Math.max(1, indexConfig.getBulkAnnotationMaxInFlight());
+        ArrayDeque<PendingRecord> inFlight = new ArrayDeque<>(maxInFlight);
+        long records = 0;
+        long errors = 0;
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(requestBody, StandardCharsets.UTF_8));
+        OutputStream output = new BufferedOutputStream(responseBody, 64 * 1024);
+        try {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String record = line;
+                long recordLine = lineNumber;
+                inFlight.add(new PendingRecord(recordLine, workers.submit(() -> annotateLine(record, recordLine))));
+
+                // Emit everything already finished; block on the oldest once the window is full
+                while (!inFlight.isEmpty() && (inFlight.peek().result.isDone() || inFlight.size() >= maxInFlight)) {
+                    if (!inFlight.peek().result.isDone()) {
+                        output.flush();
+                    }
+                    errors += writeResult(output, inFlight.poll());
+                    records++;
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                errors += writeResult(output, inFlight.poll());
+                records++;
+            }
+
+            double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+            double recordsPerSecond = records / elapsedSeconds;
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("records", records);
+            summary.put("errors", errors);
+            summary.put("elapsedMs", Math.round(elapsedSeconds * 1000));
+            summary.put("recordsPerSecond", Math.round(recordsPerSecond * 10) / 10.0);
+            output.write(objectMapper.writeValueAsBytes(Map.of("summary", summary)));
+            output.write(NEWLINE);
+            output.flush();
+
+            throughputSummary.record(recordsPerSecond);
+            log.info("Bulk annotation finished: {} records, {} errors, {} records/s", records, errors,
+                    Math.round(recordsPerSecond));
+        } finally {
+            // Client went away or the stream failed: stop the remaining work
+            inFlight.forEach(pending -> pending.result.cancel(true));
+        }
+    }
+
+    private RecordResult annotateLine(String line, long lineNumber) throws IOException {
+        JsonNode record;
+        try {
+            record = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            return errorLine(lineNumber, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        JsonNode text = record.get("text");
+        if (text == null || !text.isTextual()) {
+            return errorLine(lineNumber, "text is required");
+        }
+
+        List<Map<String, Object>> annotations = new ArrayList<>();
+        for (ClinicalNoteAnnotator.Annotation annotation : clinicalNoteAnnotator.annotate(text.asText())) {
+            List<Map<String, Object>> candidates = new ArrayList<>();
+            for (ClinicalNoteAnnotator.Candidate candidate : annotation.getCandidates()) {
+                Map<String, Object> candidateJson = new LinkedHashMap<>();
+                candidateJson.put("system", candidate.getSystem());
+                candidateJson.put("code", candidate.getCode());
+                candidateJson.put("display", candidate.getDisplay());
+                candidates.add(candidateJson);
+            }
+            Map<String, Object> annotationJson = new LinkedHashMap<>();
+            annotationJson.put("start", annotation.getStart());
+            annotationJson.put("end", annotation.getEnd());
+            annotationJson.put("text", annotation.getText());
+            annotationJson.put("kinds", annotation.getKinds());
+            annotationJson.put("candidates", candidates);
+            annotations.add(annotationJson);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("id", record.has("id") ? record.get("id") : lineNumber);
+        result.put("annotations", annotations);
+        return new RecordResult(objectMapper.writeValueAsString(result), false);
+    }
+
+    private RecordResult errorLine(long lineNumber, String error) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("line", lineNumber);
+        result.put("error", error);
+        return new RecordResult(objectMapper.writeValueAsString(result), true);
+    }
+
+    /**
+     * Write one finished result line; returns 1 when it is an error line
+     */
+    private int writeResult(OutputStream output, PendingRecord pending) throws IOException {
+        RecordResult result;
+        try {
+            result = pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Bulk annotation interrupted");
+        } catch (ExecutionException e) {
+            result = errorLine(pending.lineNumber, String.valueOf(e.getCause().getMessage()));
+        }
+        output.write(result.json.getBytes(StandardCharsets.UTF_8));
+        output.write(NEWLINE);
+        recordCounter.increment();
+        return result.error ? 1 : 0;
+    }
+
+    private static final class PendingRecord {
+        private final long lineNumber;
+        private final Future<RecordResult> result;
+
+        private PendingRecord(long lineNumber, Future<RecordResult> result) {
+            this.lineNumber = lineNumber;
+            this.result = result;
+        }
+    }
+
+    private static final class RecordResult {
+        private final String json;
+        private final boolean error;
+
+        private RecordResult(String json, boolean error) {
+            this.json = json;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.AhoCorasickAutomaton;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Free-text clinical note annotator
+ * All code_title, tm2_title and curated symptom terms are compiled into one Aho-Corasick automaton,
+ * so a whole note is scanned in a single linear pass. The automaton is built into every terminology
+ * snapshot before it is published.
+ */
+@Service
+public class ClinicalNoteAnnotator implements TerminologyIndexContributor<ClinicalNoteAnnotator.AnnotatorState> {
+
+    private static final Logger log = LoggerFactory.getLogger(ClinicalNoteAnnotator.class);
+    private static final Comparator<NamasteCode> BY_CONFIDENCE_DESC = Comparator.comparing(
+            NamasteCode::getConfidenceScore, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    public static final String KIND_NAMASTE_TITLE = "namaste-title";
+    public static final String KIND_TM2_TITLE = "tm2-title";
+    public static final String KIND_SYMPTOM = "symptom";
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final TerminologyIndexConfig indexConfig;
+    private final ResourceLoader resourceLoader;
+
+    // Read from the resource on the first build only
+    private volatile List<String> symptomTerms;
+
+    public ClinicalNoteAnnotator(TerminologyIndexLoader terminologyIndexLoader,
+                                 TerminologyIndexConfig indexConfig,
+                                 ResourceLoader resourceLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.indexConfig = indexConfig;
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public AnnotatorState buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        AnnotatorState newState = buildState(snapshot.getRecords(), symptomTerms());
+        log.info("Rebuilt clinical note annotator: {} terms, {} automaton states in {} ms",
+                newState.terms.size(), newState.automaton.getStateCount(), System.currentTimeMillis() - start);
+        return newState;
+    }
+
+    /**
+     * Annotate a note: leftmost-longest, non-overlapping matches with their candidate codes
+     * Throws TerminologyNotLoadedException until the automaton is built, so an empty result always means
+     * the note mentions no known term
+     */
+    public List<Annotation> annotate(String text) {
+        AnnotatorState current = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        if (current == null) {
+            throw new TerminologyNotLoadedException("Clinical note annotator is not loaded yet, retry shortly");
+        }
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+
+        List<int[]> matches = new ArrayList<>();
+        current.automaton.scan(text, (start, end, termId) -> matches.add(new int[]{start, end, termId}));
+        matches.sort(Comparator.<int[]>comparingInt(match -> match[0]).thenComparingInt(match -> -match[1]));
+
+        List<Annotation> annotations = new ArrayList<>();
+        int coveredUntil = 0;
+        for (int[] match : matches) {
+            if (match[0] < coveredUntil) {
+                continue;
+            }
+            TermEntry term = current.terms.get(match[2]);
+            annotations.add(new Annotation(match[0], match[1], text.substring(match[0], match[1]),
+                    term.term, List.copyOf(term.kinds), term.candidates));
+            coveredUntil = match[1];
+        }
+        return annotations;
+    }
+
+    public boolean isReady() {
+        return terminologyIndexLoader.getCurrentSnapshot().index(this) != null;
+    }
+
+    private AnnotatorState buildState(Collection<NamasteCode> records, List<String> symptomTerms) {
+        int maxCandidates = indexConfig.getAnnotationMaxCandidates();
+        Map<String, TermBuilder> builders = new LinkedHashMap<>();
+
+        for (NamasteCode record : records) {
+            addTerm(builders, record.getCodeTitle(), KIND_NAMASTE_TITLE).records.add(record);
+            addTerm(builders, record.getTm2Title(), KIND_TM2_TITLE).records.add(record);
+        }
+
+        // Symptom term -> records mentioning it, found by scanning every record once with a symptom-only automaton
+        List<String> normalizedSymptoms = new ArrayList<>();
+        for (String symptom : symptomTerms) {
+            String normalized = AhoCorasickAutomaton.normalize(symptom);
+            if (!normalized.isEmpty() && !normalizedSymptoms.contains(normalized)) {
+                normalizedSymptoms.add(normalized);
+                addTerm(builders, symptom, KIND_SYMPTOM);
+            }
+        }
+        AhoCorasickAutomaton symptomAutomaton = AhoCorasickAutomaton.build(normalizedSymptoms);
+        for (NamasteCode record : records) {
+            Set<Integer> mentioned = new HashSet<>();
+            AhoCorasickAutomaton.MatchHandler collect = (start, end, id) -> mentioned.add(id);
+            symptomAutomaton.scan(record.getCodeDescription(), collect);
+            symptomAutomaton.scan(record.getTm2Definition(), collect);
+            symptomAutomaton.scan(record.getCodeTitle(), collect);
+            symptomAutomaton.scan(record.getTm2Title(), collect);
+            for (int id : mentioned) {
+                builders.get(normalizedSymptoms.get(id)).records.add(record);
+            }
+        }
+        builders.values().removeIf(builder -> builder.term.isEmpty());
+
+        List<String> patterns = new ArrayList<>(builders.keySet());
+        List<TermEntry> terms = new ArrayList<>(patterns.size());
+        for (TermBuilder builder : builders.values()) {
+            terms.add(new TermEntry(builder.term, builder.kinds, toCandidates(builder, maxCandidates)));
+        }
+        return new AnnotatorState(AhoCorasickAutomaton.build(patterns), terms);
+    }
+
+    private static TermBuilder addTerm(Map<String, TermBuilder> builders, String term, String kind) {
+        String normalized = AhoCorasickAutomaton.normalize(term);
+        TermBuilder builder = builders.computeIfAbsent(normalized, TermBuilder::new);
+        builder.kinds.add(kind);
+        return builder;
+    }
+
+    /**
+     * Highest-confidence records first; each contributes its NAMASTE code and its TM2 code
+     */
+    private static List<Candidate> toCandidates(TermBuilder builder, int maxCandidates) {
+        List<NamasteCode> records = new ArrayList<>(builder.records);
+        records.sort(BY_CONFIDENCE_DESC);
+
+        Map<String, Candidate> candidates = new LinkedHashMap<>();
+        for (NamasteCode record : records) {
+            if (candidates.size() >= maxCandidates) {
+                break;
+            }
+            if (record.getCode() != null) {
+                candidates.putIfAbsent("N|" + record.getCode(), new Candidate(ValueSetExpansionService.NAMASTE_SYSTEM,
+                        record.getCode(), record.getCodeTitle(), record.getType(), record.getConfidenceScore()));
+            }
+            if (record.getTm2Code() != null && candidates.size() < maxCandidates) {
+                candidates.putIfAbsent("T|" + record.getTm2Code(), new Candidate(ValueSetExpansionService.TM2_SYSTEM,
+                        record.getTm2Code(), record.getTm2Title(), null, null));
+            }
+        }
+        return List.copyOf(candidates.values());
+    }
+
+    private List<String> symptomTerms() {
+        List<String> loaded = symptomTerms;
+        if (loaded == null) {
+            loaded = List.copyOf(loadSymptomTerms());
+            symptomTerms = loaded;
+        }
+        return loaded;
+    }
+
+    private List<String> loadSymptomTerms() {
+        List<String> terms = new ArrayList<>();
+        Resource resource = resourceLoader.getResource(indexConfig.getSymptomTermsLocation());
+        if (!resource.exists()) {
+            log.warn("Symptom term list not found at {}", indexConfig.getSymptomTermsLocation());
+            return terms;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String term = line.trim();
+                if (!term.isEmpty() && !term.startsWith("#")) {
+                    terms.add(term);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to read symptom term list {}", indexConfig.getSymptomTermsLocation(), e);
+        }
+        return terms;
+    }
+
+    private static final class TermBuilder {
+        private final String term;
+        private final Set<String> kinds = new LinkedHashSet<>();
+        private final Set<NamasteCode> records = new LinkedHashSet<>();
+
+        private TermBuilder(String term) {
+            this.term = term;
+        }
+    }
+
+    private static final class TermEntry {
+        private final String term;
+        private final Set<String> kinds;
+        private final List<Candidate> candidates;
+
+        private TermEntry(String term, Set<String> kinds, List<Candidate> candidates) {
+            this.term = term;
+            this.kinds = kinds;
+            this.candidates = candidates;
+        }
+    }
+
+    static final class AnnotatorState {
+        private final AhoCorasickAutomaton automaton;
+        private final List<TermEntry> terms;
+
+        private AnnotatorState(AhoCorasickAutomaton automaton, List<TermEntry> terms) {
+            this.automaton = automaton;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * One matched span in a note
+     */
+    public static class Annotation {
+        private final int start;
+        private final int end;
+        private final String text;
+        private final String matchedTerm;
+        private final List<String> kinds;
+        private final List<Candidate> candidates;
+
+        public Annotation(int start, int end, String text, String matchedTerm, List<String> kinds, List<Candidate> candidates) {
+            this.start = start;
+            this.end = end;
+            this.text = text;
+            this.matchedTerm = matchedTerm;
+            this.kinds = kinds;
+            this.candidates = candidates;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getMatchedTerm() {
+            return matchedTerm;
+        }
+
+        public List<String> getKinds() {
+            return kinds;
+        }
+
+        public List<Candidate> getCandidates() {
+            return candidates;
+        }
+    }
+
+    /**
+     * A NAMASTE or TM2 code suggested for a matched span
+     */
+    public static class Candidate {
+        private final String system;
+        private final String code;
+        private final String display;
+        private final String type;
+        private final Double confidenceScore;
+
+        public Candidate(String system, String code, String display, String type, Double confidenceScore) {
+            this.system = system;
+            this.code = code;
+            this.display = display;
+            this.type = type;
+            this.confidenceScore = confidenceScore;
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getDisplay() {
+            return display;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public Double getConfidenceScore() {
+            return confidenceScore;
+        }
+    }
+}
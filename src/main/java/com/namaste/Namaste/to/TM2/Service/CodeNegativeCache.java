@@ -0,0 +1,124 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.BloomFilter;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+
+/**
+ * Bloom-filter negative cache over all known code and tm2_code values
+ * A lookup for a value that is definitely not in the terminology is answered without a MongoDB round trip
+ * The filters are built into every terminology snapshot, so a saved record is known as soon as its version is
+ * published; until the first load completes every value is reported as "maybe known"
+ * Values are stored exactly as MongoDB compares them, so callers must probe with the same value they query
+ */
+@Service
+public class CodeNegativeCache implements TerminologyIndexContributor<CodeNegativeCache.CodeFilters> {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeNegativeCache.class);
+    private final TerminologyIndexConfig indexConfig;
+    private final MeterRegistry meterRegistry;
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public CodeNegativeCache(TerminologyIndexConfig indexConfig, MeterRegistry meterRegistry,
+                             TerminologyIndexLoader terminologyIndexLoader) {
+        this.indexConfig = indexConfig;
+        this.meterRegistry = meterRegistry;
+        this.terminologyIndexLoader = terminologyIndexLoader;
+    }
+
+    @Override
+    public CodeFilters buildIndex(TerminologySnapshot snapshot) {
+        if (!indexConfig.isBloomEnabled()) {
+            return null;
+        }
+        long capacity = Math.max(indexConfig.getBloomMinCapacity(), snapshot.size() * 2L);
+        CodeFilters filters = new CodeFilters(BloomFilter.create(capacity, indexConfig.getBloomFalsePositiveRate()),
+                BloomFilter.create(capacity, indexConfig.getBloomFalsePositiveRate()));
+        for (NamasteCode code : snapshot.getRecords()) {
+            filters.add(code);
+        }
+        log.info("Rebuilt code Bloom filters: {} bits, {} hash functions",
+                filters.codes.getBitCount(), filters.codes.getHashFunctions());
+        return filters;
+    }
+
+    /**
+     * Saved codes are added to the same filters: a pinned reader of the previous version can only see more
+     * "maybe known" answers, never a wrong "unknown"
+     */
+    @Override
+    public CodeFilters updateIndex(CodeFilters filters, TerminologySnapshot snapshot, Collection<NamasteCode> savedRecords) {
+        for (NamasteCode code : savedRecords) {
+            filters.add(code);
+        }
+        return filters;
+    }
+
+    /**
+     * True only when the value is neither a known code nor a known tm2_code
+     */
+    public boolean isDefinitelyUnknown(String value) {
+        CodeFilters filters = filters();
+        return filters != null && !filters.codes.mightContain(value) && !filters.tm2Codes.mightContain(value);
+    }
+
+    /**
+     * True only when the value is definitely not a known code
+     */
+    public boolean isDefinitelyUnknownCode(String value) {
+        CodeFilters filters = filters();
+        return filters != null && !filters.codes.mightContain(value);
+    }
+
+    /**
+     * True only when the value is definitely not a known tm2_code
+     */
+    public boolean isDefinitelyUnknownTm2Code(String value) {
+        CodeFilters filters = filters();
+        return filters != null && !filters.tm2Codes.mightContain(value);
+    }
+
+    /**
+     * Count a lookup that was answered by the filter instead of MongoDB
+     */
+    public void recordShortCircuit(String operation) {
+        shortCircuitCounter(operation).increment();
+    }
+
+    private Counter shortCircuitCounter(String operation) {
+        return Counter.builder("terminology.lookup.short.circuited")
+                .description("Code lookups answered as definite misses by the Bloom filter")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private CodeFilters filters() {
+        return terminologyIndexLoader.getCurrentSnapshot().index(this);
+    }
+
+    static final class CodeFilters {
+        private final BloomFilter codes;
+        private final BloomFilter tm2Codes;
+
+        CodeFilters(BloomFilter codes, BloomFilter tm2Codes) {
+            this.codes = codes;
+            this.tm2Codes = tm2Codes;
+        }
+
+        void add(NamasteCode code) {
+            if (code.getCode() != null) {
+                codes.put(code.getCode());
+            }
+            if (code.getTm2Code() != null) {
+                tm2Codes.put(code.getTm2Code());
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CodeSystem $validate-code and $lookup backed by in-memory code tables
+ * Membership checks are single HashMap reads; the batch form parses and writes JSON as a stream
+ * so thousands of codes are validated without materializing the request or the response
+ * Until the tables are built (startup, or a failed initial load) codes are looked up in MongoDB instead,
+ * so a real code is never reported unknown just because the index is not ready
+ */
+@Service
+public class CodeSystemLookupService implements TerminologyIndexContributor<CodeSystemLookupService.CodeTables> {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeSystemLookupService.class);
+    private static final Comparator<NamasteCode> BY_CONFIDENCE = Comparator.comparing(
+            NamasteCode::getConfidenceScore, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final NamasteCodeRepository namasteCodeRepository;
+    private final JsonFactory jsonFactory;
+
+    public CodeSystemLookupService(TerminologyIndexLoader terminologyIndexLoader, NamasteCodeRepository namasteCodeRepository,
+                                   ObjectMapper objectMapper) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.namasteCodeRepository = namasteCodeRepository;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    @Override
+    public CodeTables buildIndex(TerminologySnapshot snapshot) {
+        Map<String, NamasteCode> namasteByCode = new HashMap<>();
+        Map<String, NamasteCode> tm2ByCode = new HashMap<>();
+        for (NamasteCode record : snapshot.getRecords()) {
+            // Keep the highest-confidence record per code so display/definition match searchByCode
+            if (record.getCode() != null) {
+                namasteByCode.merge(record.getCode(), record, (a, b) -> BY_CONFIDENCE.compare(a, b) >= 0 ? a : b);
+            }
+            if (record.getTm2Code() != null) {
+                tm2ByCode.merge(record.getTm2Code(), record, (a, b) -> BY_CONFIDENCE.compare(a, b) >= 0 ? a : b);
+            }
+        }
+        log.info("Rebuilt code tables: {} NAMASTE codes, {} TM2 codes", namasteByCode.size(), tm2ByCode.size());
+        return new CodeTables(namasteByCode, tm2ByCode);
+    }
+
+    /**
+     * $validate-code: is the code in the code system, and does the display match when given
+     * A null system checks NAMASTE first, then TM2
+     */
+    public ValidationResult validateCode(String system, String code, String display) {
+        if (code == null || code.isBlank()) {
+            return new ValidationResult(system, code, false, null, "code is required");
+        }
+        String trimmedCode = code.trim();
+        if (system != null && !isKnownSystem(system)) {
+            return new ValidationResult(system, trimmedCode, false, null, "Unknown code system: " + system);
+        }
+
+        Concept concept = find(system, trimmedCode);
+        if (concept == null) {
+            return new ValidationResult(system, trimmedCode, false, null,
+                    "Unknown code '" + trimmedCode + "'" + (system != null ? " in " + system : ""));
+        }
+        if (display != null && !display.isBlank() && !display.trim().equalsIgnoreCase(concept.getDisplay())) {
+            return new ValidationResult(concept.getSystem(), trimmedCode, false, concept.getDisplay(),
+                    "Display '" + display + "' does not match '" + concept.getDisplay() + "'");
+        }
+        return new ValidationResult(concept.getSystem(), trimmedCode, true, concept.getDisplay(), null);
+    }
+
+    /**
+     * $lookup: details of one concept, or null when unknown
+     */
+    public Concept lookup(String system, String code) {
+        if (code == null || (system != null && !isKnownSystem(system))) {
+            return null;
+        }
+        return find(system, code.trim());
+    }
+
+    /**
+     * Start a batch $validate-code: checks that the body opens a JSON object before any response is written,
+     * so a malformed body can still be rejected with a 400
+     */
+    public BatchRequest openBatch(InputStream requestBody) throws IOException {
+        JsonParser parser = jsonFactory.createParser(requestBody);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+        } catch (IOException | RuntimeException e) {
+            parser.close();
+            throw e;
+        }
+        return new BatchRequest(parser);
+    }
+
+    /**
+     * Batch $validate-code
+     * Request:  {"system": "...", "codes": ["A", {"system": "...", "code": "B", "display": "..."}]}
+     * Response: {"results": [{"code": "A", "valid": true, "display": "..."}, ...], "total": n, "valid": m}
+     * The request is read in one pass, so a top-level "system" must come before "codes"; one that follows
+     * is rejected. The status is already sent once results stream, so an error past that point (a malformed
+     * body, a late "system") ends the response with the results so far and an "error" OperationOutcome
+     */
+    public void validateBatch(BatchRequest request, OutputStream responseBody) throws IOException {
+        long start = System.currentTimeMillis();
+        int total = 0;
+        int valid = 0;
+
+        try (request; JsonGenerator generator = jsonFactory.createGenerator(responseBody, JsonEncoding.UTF8)) {
+            JsonParser parser = request.parser;
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("results");
+
+            String defaultSystem = null;
+            boolean codesSeen = false;
+            String error = null;
+            try {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("system".equals(field)) {
+                        if (codesSeen) {
+                            throw new IllegalArgumentException("\"system\" must come before \"codes\"");
+                        }
+                        defaultSystem = parser.getValueAsString();
+                    } else if ("codes".equals(field) && value == JsonToken.START_ARRAY) {
+                        codesSeen = true;
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            ValidationResult result = parser.currentToken() == JsonToken.START_OBJECT
+                                    ? validateItem(parser, defaultSystem)
+                                    : validateCode(defaultSystem, parser.getValueAsString(), null);
+                            writeResult(generator, result);
+                            total++;
+                            if (result.isValid()) {
+                                valid++;
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                log.warn("Batch validation stopped after {} codes: {}", total, e.getMessage());
+                error = e instanceof JsonProcessingException json ? json.getOriginalMessage() : e.getMessage();
+            }
+
+            generator.writeEndArray();
+            generator.writeNumberField("total", total);
+            generator.writeNumberField("valid", valid);
+            if (error != null) {
+                writeError(generator, error);
+            }
+            generator.writeEndObject();
+        }
+        log.info("Batch validated {} codes ({} valid) in {} ms", total, valid, System.currentTimeMillis() - start);
+    }
+
+    private ValidationResult validateItem(JsonParser parser, String defaultSystem) throws IOException {
+        String system = defaultSystem;
+        String code = null;
+        String display = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "system" -> system = parser.getValueAsString();
+                case "code" -> code = parser.getValueAsString();
+                case "display" -> display = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+        return validateCode(system, code, display);
+    }
+
+    private void writeResult(JsonGenerator generator, ValidationResult result) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("code", result.getCode());
+        generator.writeBooleanField("valid", result.isValid());
+        if (result.getDisplay() != null) {
+            generator.writeStringField("display", result.getDisplay());
+        }
+        if (result.getMessage() != null) {
+            generator.writeStringField("message", result.getMessage());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeError(JsonGenerator generator, String diagnostics) throws IOException {
+        generator.writeObjectFieldStart("error");
+        generator.writeStringField("resourceType", "OperationOutcome");
+        generator.writeArrayFieldStart("issue");
+        generator.writeStartObject();
+        generator.writeStringField("severity", "error");
+        generator.writeStringField("code", "structure");
+        generator.writeStringField("diagnostics", diagnostics);
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private Concept find(String system, String code) {
+        CodeTables tables = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        if (tables == null) {
+            log.debug("Code tables not loaded, looking up {} in MongoDB", code);
+            tables = CodeTables.fromRepository(namasteCodeRepository, system, code);
+        }
+        if (system == null || ValueSetExpansionService.NAMASTE_SYSTEM.equals(system)) {
+            NamasteCode record = tables.namasteByCode.get(code);
+            if (record != null) {
+                return new Concept(ValueSetExpansionService.NAMASTE_SYSTEM, record.getCode(), record.getCodeTitle(),
+                        record.getCodeDescription(), record);
+            }
+        }
+        if (system == null || ValueSetExpansionService.TM2_SYSTEM.equals(system)) {
+            NamasteCode record = tables.tm2ByCode.get(code);
+            if (record != null) {
+                return new Concept(ValueSetExpansionService.TM2_SYSTEM, record.getTm2Code(), record.getTm2Title(),
+                        record.getTm2Definition(), record);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKnownSystem(String system) {
+        return ValueSetExpansionService.NAMASTE_SYSTEM.equals(system) || ValueSetExpansionService.TM2_SYSTEM.equals(system);
+    }
+
+    static final class CodeTables {
+        private final Map<String, NamasteCode> namasteByCode;
+        private final Map<String, NamasteCode> tm2ByCode;
+
+        private CodeTables(Map<String, NamasteCode> namasteByCode, Map<String, NamasteCode> tm2ByCode) {
+            this.namasteByCode = namasteByCode;
+            this.tm2ByCode = tm2ByCode;
+        }
+
+        /**
+         * The one code's entries read from MongoDB, with the same best-confidence choice as buildIndex
+         */
+        private static CodeTables fromRepository(NamasteCodeRepository repository, String system, String code) {
+            Map<String, NamasteCode> namasteByCode = new HashMap<>();
+            Map<String, NamasteCode> tm2ByCode = new HashMap<>();
+            if (system == null || ValueSetExpansionService.NAMASTE_SYSTEM.equals(system)) {
+                repository.findTopByCodeOrderByConfidenceScoreDesc(code).ifPresent(record -> namasteByCode.put(code, record));
+            }
+            if (namasteByCode.isEmpty() && (system == null || ValueSetExpansionService.TM2_SYSTEM.equals(system))) {
+                repository.findTopByTm2CodeOrderByConfidenceScoreDesc(code).ifPresent(record -> tm2ByCode.put(code, record));
+            }
+            return new CodeTables(namasteByCode, tm2ByCode);
+        }
+    }
+
+    /**
+     * A batch request whose body has been checked to open a JSON object
+     */
+    public static final class BatchRequest implements Closeable {
+        private final JsonParser parser;
+
+        private BatchRequest(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    /**
+     * Outcome of one $validate-code check
+     */
+    public static class ValidationResult {
+        private final String system;
+        private final String code;
+        private final boolean valid;
+        private final String display;
+        private final String message;
+
+        public ValidationResult(String system, String code, boolean valid, String display, String message) {
+            this.system = system;
+            this.code = code;
+            this.valid = valid;
+            this.display = display;
+            this.message = message;
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public String getDisplay() {
+            return display;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * A concept found by $lookup
+     */
+    public static class Concept {
+        private final String system;
+        private final String code;
+        private final String display;
+        private final String definition;
+        private final NamasteCode record;
+
+        public Concept(String system, String code, String display, String definition, NamasteCode record) {
+            this.system = system;
+            this.code = code;
+            this.display = display;
+            this.definition = definition;
+            this.record = record;
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getDisplay() {
+            return display;
+        }
+
+        public String getDefinition() {
+            return definition;
+        }
+
+        public NamasteCode getRecord() {
+            return record;
+        }
+    }
+}
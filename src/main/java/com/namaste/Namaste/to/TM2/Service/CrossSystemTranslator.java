@@ -0,0 +1,129 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.CrossSystemJoinIndex;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Direct cross-system translation (Ayurveda <-> Siddha <-> Unani) through the TM2 join index
+ * The index is built from the best-mapping table of every terminology snapshot
+ */
+@Service
+public class CrossSystemTranslator implements TerminologyIndexContributor<CrossSystemJoinIndex> {
+
+    private static final Logger log = LoggerFactory.getLogger(CrossSystemTranslator.class);
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final NamasteTerminologyService terminologyService;
+
+    public CrossSystemTranslator(TerminologyIndexLoader terminologyIndexLoader,
+                                 NamasteTerminologyService terminologyService) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.terminologyService = terminologyService;
+    }
+
+    @Override
+    public CrossSystemJoinIndex buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        CrossSystemJoinIndex newIndex = CrossSystemJoinIndex.build(
+                snapshot.getBestMappings().topByCode(snapshot::record),
+                snapshot.getBestMappings().bestByTm2Code(snapshot::record));
+        log.info("Rebuilt cross-system join index: {} codes, {} TM2 codes, types {} in {} ms",
+                newIndex.getCodeCount(), newIndex.getTm2CodeCount(), newIndex.getTypes(),
+                System.currentTimeMillis() - start);
+        return newIndex;
+    }
+
+    /**
+     * Translate one code into the target system
+     */
+    public Translation translate(String code, String targetType) {
+        String trimmedCode = code != null ? code.trim() : "";
+        CrossSystemJoinIndex index = terminologyIndexLoader.getCurrentSnapshot().index(this);
+
+        if (index != null) {
+            return new Translation(trimmedCode, targetType,
+                    index.sourceRecord(trimmedCode), index.translate(trimmedCode, targetType));
+        }
+
+        // Index not built yet: same answer via the search path
+        log.debug("Join index not loaded, translating {} via searchByCode", trimmedCode);
+        NamasteCode source = null;
+        NamasteCode target = null;
+        for (NamasteCode mapping : terminologyService.searchByCode(trimmedCode)) {
+            if (trimmedCode.equals(mapping.getCode())) {
+                source = mapping;
+            }
+            if (mapping.getType() != null && mapping.getType().equalsIgnoreCase(targetType)) {
+                target = mapping;
+            }
+        }
+        return new Translation(trimmedCode, targetType, source, target);
+    }
+
+    /**
+     * Translate many codes into the same target system
+     */
+    public List<Translation> translateAll(List<String> codes, String targetType) {
+        List<Translation> translations = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            translations.add(translate(code, targetType));
+        }
+        return translations;
+    }
+
+    /**
+     * Whether the target system is known; always true until the index is loaded
+     */
+    public boolean isKnownType(String targetType) {
+        CrossSystemJoinIndex index = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        return index == null || index.isKnownType(targetType);
+    }
+
+    public List<String> getKnownTypes() {
+        CrossSystemJoinIndex index = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        return index != null ? index.getTypes() : List.of();
+    }
+
+    /**
+     * One source code and its equivalent in the target system
+     */
+    public static class Translation {
+        private final String sourceCode;
+        private final String targetType;
+        private final NamasteCode source;
+        private final NamasteCode target;
+
+        public Translation(String sourceCode, String targetType, NamasteCode source, NamasteCode target) {
+            this.sourceCode = sourceCode;
+            this.targetType = targetType != null ? targetType.toLowerCase(Locale.ROOT) : null;
+            this.source = source;
+            this.target = target;
+        }
+
+        public String getSourceCode() {
+            return sourceCode;
+        }
+
+        public String getTargetType() {
+            return targetType;
+        }
+
+        public NamasteCode getSource() {
+            return source;
+        }
+
+        public NamasteCode getTarget() {
+            return target;
+        }
+
+        public boolean isFound() {
+            return target != null;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.SynonymDictionary;
+import com.namaste.Namaste.to.TM2.Index.TokenPositions;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Highlight spans of matched symptom terms in code_description and tm2_definition
+ * Token positions of both fields are stored per record at index time; spans are read off the stored
+ * positions of the query terms instead of re-running regexes over long definitions
+ */
+@Service
+public class MatchHighlighter implements TerminologyIndexContributor<Map<String, MatchHighlighter.RecordPositions>> {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchHighlighter.class);
+    public static final String FIELD_CODE_DESCRIPTION = "code_description";
+    public static final String FIELD_TM2_DEFINITION = "tm2_definition";
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public MatchHighlighter(TerminologyIndexLoader terminologyIndexLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+    }
+
+    @Override
+    public Map<String, RecordPositions> buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        Map<String, RecordPositions> positions = new HashMap<>();
+        for (NamasteCode record : snapshot.getRecords()) {
+            if (record.getId() != null) {
+                positions.put(record.getId(), RecordPositions.of(record));
+            }
+        }
+        log.info("Rebuilt highlight token positions for {} records in {} ms", positions.size(), System.currentTimeMillis() - start);
+        return positions;
+    }
+
+    /**
+     * Spans of every expanded symptom term in one field (code_description or tm2_definition) of the record
+     * Overlapping spans are merged and returned in order
+     */
+    public List<Highlight> highlight(NamasteCode record, String field, List<List<SynonymDictionary.WeightedTerm>> expandedSymptoms) {
+        Map<String, RecordPositions> current = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        RecordPositions positions = current != null && record.getId() != null ? current.get(record.getId()) : null;
+        if (positions == null) {
+            // Fetched from MongoDB after the last reload
+            positions = RecordPositions.of(record);
+        }
+
+        List<Highlight> highlights = new ArrayList<>();
+        TokenPositions fieldPositions = FIELD_TM2_DEFINITION.equals(field) ? positions.tm2Definition : positions.codeDescription;
+        addSpans(highlights, record.getCode(), field, fieldPositions, expandedSymptoms);
+        return highlights;
+    }
+
+    private static void addSpans(List<Highlight> highlights, String code, String field, TokenPositions positions,
+                                 List<List<SynonymDictionary.WeightedTerm>> expandedSymptoms) {
+        List<int[]> spans = new ArrayList<>();
+        for (List<SynonymDictionary.WeightedTerm> terms : expandedSymptoms) {
+            for (SynonymDictionary.WeightedTerm term : terms) {
+                positions.findSpans(term.getTerm(), (start, end) -> spans.add(new int[]{start, end}));
+            }
+        }
+        if (spans.isEmpty()) {
+            return;
+        }
+
+        spans.sort(Comparator.comparingInt((int[] span) -> span[0]).thenComparingInt(span -> span[1]));
+        int[] open = spans.get(0);
+        for (int i = 1; i < spans.size(); i++) {
+            int[] span = spans.get(i);
+            if (span[0] <= open[1]) {
+                open[1] = Math.max(open[1], span[1]);
+            } else {
+                highlights.add(new Highlight(code, field, open[0], open[1]));
+                open = span;
+            }
+        }
+        highlights.add(new Highlight(code, field, open[0], open[1]));
+    }
+
+    static final class RecordPositions {
+        private final TokenPositions codeDescription;
+        private final TokenPositions tm2Definition;
+
+        private RecordPositions(TokenPositions codeDescription, TokenPositions tm2Definition) {
+            this.codeDescription = codeDescription;
+            this.tm2Definition = tm2Definition;
+        }
+
+        private static RecordPositions of(NamasteCode record) {
+            return new RecordPositions(TokenPositions.of(record.getCodeDescription()), TokenPositions.of(record.getTm2Definition()));
+        }
+    }
+
+    /**
+     * A matched [start, end) character range in one field of one record
+     */
+    public static class Highlight {
+        private final String code;
+        private final String field;
+        private final int start;
+        private final int end;
+
+        public Highlight(String code, String field, int start, int end) {
+            this.code = code;
+            this.field = field;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+    }
+}
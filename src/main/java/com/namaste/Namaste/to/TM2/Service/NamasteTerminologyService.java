@@ -1,7 +1,11 @@
 package com.namaste.Namaste.to.TM2.Service;
 
+import com.namaste.Namaste.to.TM2.Index.RoaringBitmap;
+import com.namaste.Namaste.to.TM2.Index.SynonymDictionary;
 import com.namaste.Namaste.to.TM2.Model.NamasteCode;
 import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.config.RequestDeadline;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,10 +18,51 @@ import java.util.stream.Collectors;
 public class NamasteTerminologyService {
 
     private static final Logger log = LoggerFactory.getLogger(NamasteTerminologyService.class);
+    private static final double DESCRIPTION_WEIGHT = 0.7;
+    // Share of the TF-IDF cosine in a document's relevance; the rest is symptom coverage
+    private static final double COSINE_WEIGHT = 0.4;
+    // Best first: relevance, then mapping confidence, then TM2 code so equal scores page deterministically
+    private static final Comparator<ScoredGroup> RANKING = Comparator
+            .comparingDouble((ScoredGroup group) -> group.score).reversed()
+            .thenComparing(group -> group.code.getConfidenceScore(), Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(group -> group.code.getTm2Code());
     private final NamasteCodeRepository namasteCodeRepository;
-
-    public NamasteTerminologyService(NamasteCodeRepository namasteCodeRepository) {
+    private final CodeNegativeCache codeNegativeCache;
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final Tm2BestMappingTable bestMappingTable;
+    private final SymptomQueryCache symptomQueryCache;
+    private final TerminologyIndexConfig indexConfig;
+    private final SpellingCorrectionService spellingCorrectionService;
+    private final TransliterationTitleIndex transliterationTitleIndex;
+    private final SymptomSynonymService symptomSynonymService;
+    private final TfIdfRelevanceService tfIdfRelevanceService;
+    private final MatchHighlighter matchHighlighter;
+    private final TerminologyFacetIndex facetIndex;
+
+    public NamasteTerminologyService(NamasteCodeRepository namasteCodeRepository,
+                                     CodeNegativeCache codeNegativeCache,
+                                     TerminologyIndexLoader terminologyIndexLoader,
+                                     Tm2BestMappingTable bestMappingTable,
+                                     SymptomQueryCache symptomQueryCache,
+                                     TerminologyIndexConfig indexConfig,
+                                     SpellingCorrectionService spellingCorrectionService,
+                                     TransliterationTitleIndex transliterationTitleIndex,
+                                     SymptomSynonymService symptomSynonymService,
+                                     TfIdfRelevanceService tfIdfRelevanceService,
+                                     MatchHighlighter matchHighlighter,
+                                     TerminologyFacetIndex facetIndex) {
         this.namasteCodeRepository = namasteCodeRepository;
+        this.codeNegativeCache = codeNegativeCache;
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.bestMappingTable = bestMappingTable;
+        this.symptomQueryCache = symptomQueryCache;
+        this.indexConfig = indexConfig;
+        this.spellingCorrectionService = spellingCorrectionService;
+        this.transliterationTitleIndex = transliterationTitleIndex;
+        this.symptomSynonymService = symptomSynonymService;
+        this.tfIdfRelevanceService = tfIdfRelevanceService;
+        this.matchHighlighter = matchHighlighter;
+        this.facetIndex = facetIndex;
     }
 
     /**
@@ -25,6 +70,28 @@ public class NamasteTerminologyService {
      * Returns matching traditional medicine codes with their TM2 mappings
      */
     public List<NamasteCode> searchForAutoComplete(String searchTerm, int maxResults) {
+        // Limit results for performance
+        return findAutoCompleteMatches(searchTerm).stream().limit(maxResults).collect(Collectors.toList());
+    }
+
+    /**
+     * Auto-complete with facet counts: one pass over all matches counts every type and confidence band
+     * and keeps the first maxResults, so the UI's "Ayurveda (12) / Siddha (7)" needs no extra requests
+     */
+    public FacetedResults searchForAutoCompleteFaceted(String searchTerm, int maxResults) {
+        List<NamasteCode> matches = findAutoCompleteMatches(searchTerm);
+        FacetCounts facets = new FacetCounts();
+        List<NamasteCode> results = new ArrayList<>(Math.min(matches.size(), maxResults));
+        for (NamasteCode match : matches) {
+            facets.add(match);
+            if (results.size() < maxResults) {
+                results.add(match);
+            }
+        }
+        return new FacetedResults(results, matches.size(), facets);
+    }
+
+    private List<NamasteCode> findAutoCompleteMatches(String searchTerm) {
         log.info("Auto-complete search for term: {}", searchTerm);
 
         if (searchTerm == null || searchTerm.trim().length() < 2) {
@@ -34,8 +101,20 @@ public class NamasteTerminologyService {
         // Use the updated repository method
         List<NamasteCode> results = namasteCodeRepository.findByCodeTitleContainingIgnoreCase(searchTerm.trim());
 
-        // Limit results for performance
-        return results.stream().limit(maxResults).collect(Collectors.toList());
+        if (results.isEmpty()) {
+            // Variant spellings of a whole title or its words resolve from precomputed keys
+            results = transliterationTitleIndex.lookup(searchTerm).getRecords();
+        }
+
+        if (results.isEmpty()) {
+            // Typo-tolerant fallback: search the corrected term instead
+            String corrected = spellingCorrectionService.correctPhrase(searchTerm);
+            if (corrected != null) {
+                log.info("No auto-complete match for '{}', trying '{}'", searchTerm, corrected);
+                results = namasteCodeRepository.findByCodeTitleContainingIgnoreCase(corrected);
+            }
+        }
+        return results;
     }
 
     /**
@@ -43,7 +122,20 @@ public class NamasteTerminologyService {
      */
     public Optional<NamasteCode> getByNamasteName(String namasteName) {
         log.info("Fetching details for traditional medicine name: {}", namasteName);
-        return namasteCodeRepository.findByCodeTitle(namasteName);
+        Optional<NamasteCode> exact = namasteCodeRepository.findFirstByCodeTitleOrderByConfidenceScoreDesc(namasteName);
+        if (exact.isPresent()) {
+            return exact;
+        }
+        // Diacritic / romanization variant of the title (Vāta, vaatham)
+        return transliterationTitleIndex.lookup(namasteName).getRecords().stream().findFirst();
+    }
+
+    /**
+     * Title search tolerant of diacritics and romanization variants, via precomputed keys
+     */
+    public TransliterationTitleIndex.TitleMatch searchByTitleVariant(String title) {
+        log.info("Transliteration-aware title search: {}", title);
+        return transliterationTitleIndex.lookup(title);
     }
 
     /**
@@ -51,7 +143,7 @@ public class NamasteTerminologyService {
      */
     public Optional<NamasteCode> getByNamasteCode(String namasteCode) {
         log.info("Fetching details for traditional medicine code: {}", namasteCode);
-        return namasteCodeRepository.findByCode(namasteCode);
+        return namasteCodeRepository.findFirstByCodeOrderByConfidenceScoreDesc(namasteCode);
     }
 
     /**
@@ -72,6 +164,10 @@ public class NamasteTerminologyService {
      */
     public List<NamasteCode> getByCategory(String category) {
         log.info("Fetching codes for category: {}", category);
+        TerminologyFacetIndex.FacetState facets = facetIndex.current();
+        if (facets != null) {
+            return facets.records(facets.filter(category, null, null));
+        }
         return namasteCodeRepository.findByType(category);
     }
 
@@ -89,6 +185,11 @@ public class NamasteTerminologyService {
     public Optional<String> translateToIcd11Tm2(String traditionalMedicineCode) {
         log.info("Translating traditional medicine code {} to ICD-11 TM2", traditionalMedicineCode);
 
+        if (codeNegativeCache.isDefinitelyUnknownCode(traditionalMedicineCode)) {
+            codeNegativeCache.recordShortCircuit("translateToIcd11Tm2");
+            return Optional.empty();
+        }
+
         return namasteCodeRepository.findByCode(traditionalMedicineCode)
                 .map(NamasteCode::getTm2Code);
     }
@@ -146,6 +247,10 @@ public class NamasteTerminologyService {
      */
     public List<NamasteCode> getHighConfidenceMappings() {
         log.info("Fetching high confidence mappings");
+        TerminologyFacetIndex.FacetState facets = facetIndex.current();
+        if (facets != null) {
+            return facets.records(facets.filter(null, TerminologyFacetIndex.ConfidenceBand.HIGH, null));
+        }
         return namasteCodeRepository.findHighConfidenceMappings();
     }
 
@@ -154,6 +259,10 @@ public class NamasteTerminologyService {
      */
     public List<NamasteCode> getMediumConfidenceMappings() {
         log.info("Fetching medium confidence mappings");
+        TerminologyFacetIndex.FacetState facets = facetIndex.current();
+        if (facets != null) {
+            return facets.records(facets.filter(null, TerminologyFacetIndex.ConfidenceBand.MEDIUM, null));
+        }
         return namasteCodeRepository.findMediumConfidenceMappings();
     }
 
@@ -162,6 +271,10 @@ public class NamasteTerminologyService {
      */
     public List<NamasteCode> getLowConfidenceMappings() {
         log.info("Fetching low confidence mappings");
+        TerminologyFacetIndex.FacetState facets = facetIndex.current();
+        if (facets != null) {
+            return facets.records(facets.filter(null, TerminologyFacetIndex.ConfidenceBand.LOW, null));
+        }
         return namasteCodeRepository.findLowConfidenceMappings();
     }
 
@@ -172,6 +285,18 @@ public class NamasteTerminologyService {
         log.info("Generating terminology statistics");
 
         TerminologyStats stats = new TerminologyStats();
+        TerminologyFacetIndex.FacetState facets = facetIndex.current();
+        if (facets != null) {
+            // Bitmap cardinalities of one version instead of seven collection scans
+            stats.setTotalCodes(facets.getDocumentCount());
+            stats.setAyurvedaCodes(facets.count("ayurveda", null, null));
+            stats.setSiddhaCodes(facets.count("siddha", null, null));
+            stats.setUnaniCodes(facets.count("unani", null, null));
+            stats.setHighConfidenceMappings(facets.count(null, TerminologyFacetIndex.ConfidenceBand.HIGH, null));
+            stats.setMediumConfidenceMappings(facets.count(null, TerminologyFacetIndex.ConfidenceBand.MEDIUM, null));
+            stats.setLowConfidenceMappings(facets.count(null, TerminologyFacetIndex.ConfidenceBand.LOW, null));
+            return stats;
+        }
         stats.setTotalCodes(namasteCodeRepository.count());
         stats.setAyurvedaCodes(namasteCodeRepository.countByType("ayurveda"));
         stats.setSiddhaCodes(namasteCodeRepository.countByType("siddha"));
@@ -190,7 +315,20 @@ public class NamasteTerminologyService {
      */
     public NamasteCode saveOrUpdate(NamasteCode namasteCode, String userId) {
         log.info("Saving/updating traditional medicine code: {}", namasteCode.getCode());
-        return namasteCodeRepository.save(namasteCode);
+        NamasteCode saved = namasteCodeRepository.save(namasteCode);
+        terminologyIndexLoader.publishUpdate(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * Bulk import of traditional medicine code records
+     * Rebuilds all in-memory indexes from the collection once the import is stored
+     */
+    public List<NamasteCode> importCodes(List<NamasteCode> namasteCodes, String userId) {
+        log.info("Importing {} traditional medicine code records for {}", namasteCodes.size(), userId);
+        List<NamasteCode> saved = namasteCodeRepository.saveAll(namasteCodes);
+        terminologyIndexLoader.reload();
+        return saved;
     }
 
     /**
@@ -202,6 +340,41 @@ public class NamasteTerminologyService {
         return allCodes.stream().limit(limit).collect(Collectors.toList());
     }
 
+    /**
+     * Search by code against a pinned dataset version; null or the current version uses the live path
+     * Older versions are answered from the retained snapshot, so a client can keep reading a version
+     * while a newer import is being rolled out
+     */
+    public List<NamasteCode> searchByCode(String codeValue, Long version) {
+        if (version == null || version == terminologyIndexLoader.getVersion()) {
+            return searchByCode(codeValue);
+        }
+        TerminologySnapshot snapshot = requireSnapshot(version);
+        if (codeValue == null || codeValue.trim().isEmpty()) {
+            return List.of();
+        }
+        return snapshot.bestMappingsForCode(codeValue.trim());
+    }
+
+    /**
+     * Restore the tm2_mappings collection to a retained version and publish it as a new version
+     * The collection is swapped in one step (see NamasteCodeRepositoryCustom.replaceAll), so records added after
+     * that version disappear together with the rest of the change; the restored data gets a fresh version number
+     */
+    public TerminologySnapshot rollbackTo(long version) {
+        TerminologySnapshot snapshot = requireSnapshot(version);
+        log.info("Rolling terminology back to version {} ({} records)", version, snapshot.size());
+        namasteCodeRepository.replaceAll(snapshot.getRecords());
+        terminologyIndexLoader.reload();
+        return terminologyIndexLoader.getCurrentSnapshot();
+    }
+
+    private TerminologySnapshot requireSnapshot(long version) {
+        return terminologyIndexLoader.getSnapshot(version).orElseThrow(() -> new IllegalArgumentException(
+                "Terminology version " + version + " is not retained (available: " + terminologyIndexLoader.getSnapshots().stream()
+                        .map(snapshot -> String.valueOf(snapshot.getVersion())).collect(Collectors.joining(", ")) + ")"));
+    }
+
     /**
      * Search by code - Main feature 1
      * Searches in both tm2_code and code fields (EXACT MATCH ONLY)
@@ -220,6 +393,21 @@ public class NamasteTerminologyService {
         log.info("Trimmed codeValue: '{}'", trimmedCode);
         log.info("Trimmed codeValue length: {}", trimmedCode.length());
 
+        // Definite miss: neither a known code nor a known tm2_code
+        if (codeNegativeCache.isDefinitelyUnknown(trimmedCode)) {
+            codeNegativeCache.recordShortCircuit("searchByCode");
+            log.debug("Code '{}' is not in the terminology, skipping MongoDB lookup", trimmedCode);
+            return List.of();
+        }
+
+        // Materialized table: one keyed read for the code, one for its TM2 code
+        if (bestMappingTable.isLoaded()) {
+            List<NamasteCode> bestMappings = bestMappingTable.bestMappingsForCode(trimmedCode);
+            log.info("Best mappings from materialized table: {}", bestMappings.size());
+            log.info("=== SEARCH BY CODE DEBUG END ===");
+            return bestMappings;
+        }
+
         log.info("Calling repository.findByAnyCode with parameter: '{}'", trimmedCode);
 
         try {
@@ -289,6 +477,13 @@ public class NamasteTerminologyService {
         }
 
         String trimmedCode = codeValue.trim();
+
+        if (codeNegativeCache.isDefinitelyUnknownTm2Code(trimmedCode)) {
+            codeNegativeCache.recordShortCircuit("searchByTm2CodeOnly");
+            log.debug("TM2 code '{}' is not in the terminology, skipping MongoDB lookup", trimmedCode);
+            return List.of();
+        }
+
         log.info("Calling repository.findByTm2CodeOnly with parameter: '{}'", trimmedCode);
 
         try {
@@ -370,233 +565,295 @@ public class NamasteTerminologyService {
      * Results are grouped by TM2 code so frontend knows which mappings belong together
      */
     public List<DiseaseMapping> searchBySymptomsGrouped(List<String> symptoms) {
-        log.info("Searching by symptoms/description (grouped): {}", symptoms);
+        return searchBySymptomsRanked(symptoms, 0, null).getGroups();
+    }
+
+    /**
+     * Ranked, paged multi-symptom search
+     * Every disease group matching all symptoms is scored, only the best offset+count are kept in a bounded heap,
+     * and mappings are loaded for the requested page alone. Ties break on confidence, then TM2 code, so pages are stable.
+     */
+    public DiseasePage searchBySymptomsRanked(List<String> symptoms, Integer offset, Integer count) {
+        log.info("Searching by symptoms/description (ranked): {} offset={} count={}", symptoms, offset, count);
+
+        int pageOffset = Math.max(0, offset != null ? offset : 0);
+        int pageCount = count != null ? count : indexConfig.getSymptomPageDefaultCount();
+        pageCount = Math.max(0, Math.min(pageCount, indexConfig.getSymptomPageMaxCount()));
 
         if (symptoms == null || symptoms.isEmpty()) {
-            return List.of(); // Return empty list if no symptoms provided
+            return new DiseasePage(List.of(), 0, pageOffset, pageCount); // Return empty page if no symptoms provided
         }
 
-        // Filter out very short symptoms
-        List<String> validSymptoms = symptoms.stream()
-                .filter(symptom -> symptom != null && symptom.trim().length() >= 2)
-                .map(String::trim)
-                .collect(Collectors.toList());
+        // Symptoms are a set: trim, case-fold, dedupe and sort so every spelling of the query shares a cache entry
+        List<String> validSymptoms = SymptomQueryCache.canonicalize(symptoms);
 
         if (validSymptoms.isEmpty()) {
-            return List.of();
+            return new DiseasePage(List.of(), 0, pageOffset, pageCount);
         }
 
         log.info("Valid symptoms for search: {}", validSymptoms);
 
-        // Use the optimized repository method for AND logic
-        List<NamasteCode> results = namasteCodeRepository.findByAllSymptoms(validSymptoms);
-
-        log.info("Repository AND query returned {} documents (documents matching ALL symptoms)", results.size());
-
-        if (results.isEmpty()) {
-            return List.of();
-        }
-        // Calculate multi-symptom similarity scores and sort by relevance
-        List<NamasteCode> scoredResults = results.stream()
-                .filter(code -> code.getConfidenceScore() > 0.6) // Only keep codes with some relevance
-                .collect(Collectors.toList());
-
-        // Now for each matched document, get all three traditional medicine mappings using searchByCode
-        List<DiseaseMapping> groupedResults = new ArrayList<>();
-        HashSet<String> processedTm2Codes = new HashSet<>(); // To avoid duplicate processing
-        for (NamasteCode matchedCode : scoredResults) {
-            String tm2Code = matchedCode.getTm2Code();
-
-            // Skip if we've already processed this TM2 code
-            if (tm2Code != null && !processedTm2Codes.contains(tm2Code)) {
-                processedTm2Codes.add(tm2Code);
-
-                log.info("Getting all mappings for TM2 code: {}", tm2Code);
-
-                // Call searchByCode to get all three traditional medicine mappings
-                List<NamasteCode> allMappings = searchByCode(matchedCode.getCode());
-
-                if (!allMappings.isEmpty()) {
-                    // Create a disease mapping group
-                    DiseaseMapping diseaseMapping = new DiseaseMapping();
-                    diseaseMapping.setTm2Code(tm2Code);
-                    diseaseMapping.setTm2Title(matchedCode.getTm2Title());
-                    diseaseMapping.setTm2Definition(matchedCode.getTm2Definition());
-                    diseaseMapping.setSimilarityScore(matchedCode.getConfidenceScore()); // Symptom similarity score
-                    diseaseMapping.setMappings(allMappings);
-
-                    groupedResults.add(diseaseMapping);
-                    if(groupedResults.size()>20)
-                        break;
-                    log.info("Added disease group for TM2 code: {} with {} traditional medicine mappings", tm2Code, allMappings.size());
+        DiseasePage page = rankCanonicalSymptoms(validSymptoms, pageOffset, pageCount);
+        if (page.getTotal() == 0) {
+            // Nothing matched: retry once with misspelled words corrected ("jvara" -> "jwara")
+            List<String> correctedSymptoms = correctSymptoms(validSymptoms);
+            if (correctedSymptoms != null) {
+                DiseasePage correctedPage = rankCanonicalSymptoms(correctedSymptoms, pageOffset, pageCount);
+                if (correctedPage.getTotal() > 0) {
+                    log.info("No match for {}, showing results for {}", validSymptoms, correctedSymptoms);
+                    return correctedPage.withCorrectedSymptoms(correctedSymptoms);
                 }
             }
         }
+        return page;
+    }
+
+    private DiseasePage rankCanonicalSymptoms(List<String> validSymptoms, int pageOffset, int pageCount) {
+        SymptomQueryCache.CachedSymptomResult cached = cachedSymptomMatches(validSymptoms);
+
+        DiseasePage page = cached.getPage(pageOffset, pageCount);
+        if (page != null) {
+            log.info("Symptom query cache hit for {} ({} of {} disease groups)", validSymptoms, page.getGroups().size(), page.getTotal());
+            return page;
+        }
 
-        log.info("FOUND {} DISEASE GROUPS (not individual mappings)", groupedResults.size());
-        int totalMappings = groupedResults.stream().mapToInt(DiseaseMapping::getMappingCount).sum();
-        log.info("Total individual mappings across all disease groups: {}", totalMappings);
-        return groupedResults;
+        page = rankDiseaseGroups(validSymptoms, cached.getMatches(), pageOffset, pageCount);
+        cached.putPage(pageOffset, pageCount, page);
+        log.info("FOUND {} DISEASE GROUPS, returning {} from offset {}", page.getTotal(), page.getGroups().size(), pageOffset);
+        return page;
     }
 
     /**
-     * Keep the original method for backward compatibility
+     * Matches are stored under the version they were computed against, and only when that version was still
+     * current with up-to-date indexes once they were computed, so a concurrent save never leaves stale results
+     * cached under the new version
      */
-    public List<NamasteCode> searchBySymptoms(List<String> symptoms) {
-        // Convert grouped results back to flat list for backward compatibility
-        return searchBySymptomsGrouped(symptoms).stream()
-                .flatMap(diseaseMapping -> diseaseMapping.getMappings().stream())
-                .collect(Collectors.toList());
+    private SymptomQueryCache.CachedSymptomResult cachedSymptomMatches(List<String> validSymptoms) {
+        TerminologySnapshot snapshot = terminologyIndexLoader.getCurrentSnapshot();
+        long version = snapshot.getVersion();
+        SymptomQueryCache.CachedSymptomResult cached = symptomQueryCache.get(validSymptoms, version);
+        if (cached != null) {
+            return cached;
+        }
+        List<NamasteCode> matches = findAllSymptomMatches(validSymptoms, version);
+        if (snapshot.hasStaleIndexes() || terminologyIndexLoader.getCurrentSnapshot() != snapshot) {
+            return new SymptomQueryCache.CachedSymptomResult(validSymptoms, version, List.copyOf(matches));
+        }
+        return symptomQueryCache.put(validSymptoms, version, matches);
     }
 
     /**
-     * Calculate similarity score between multiple symptoms and document text fields
-     * Returns a score between 0.0 and 1.0 where 1.0 is perfect match
+     * Codes matching every given filter: type, confidence band, TM2 chapter and all symptoms (each optional)
+     * Facets are bitmap intersections; symptom matches come from the symptom cache, so a repeated
+     * "siddha AND high confidence AND fever" never reaches MongoDB
+     * All bitmaps and records come from one facet state; before the first load this throws
+     * TerminologyNotLoadedException, as there is no equivalent MongoDB query
      */
-    private double calculateMultiSymptomSimilarityScore(List<String> symptoms, NamasteCode code) {
-        double totalScore = 0.0;
-        int scoredSymptoms = 0;
-
-        // Calculate score for each symptom and take the average
-        for (String symptom : symptoms) {
-            String symptomLower = symptom.toLowerCase();
-            double symptomScore = calculateSingleSymptomScore(symptomLower, code);
-
-            if (symptomScore > 0.0) {
-                totalScore += symptomScore;
-                scoredSymptoms++;
-            }
+    public FilteredCodes filterCodes(String type, TerminologyFacetIndex.ConfidenceBand band, String chapter,
+                                     List<String> symptoms, int limit) {
+        log.info("Filtering codes: type={} confidence={} chapter={} symptoms={}", type, band, chapter, symptoms);
+
+        TerminologyFacetIndex.FacetState facets = facetIndex.requireCurrent();
+        RoaringBitmap matches = facets.filter(type, band, chapter);
+        List<String> validSymptoms = symptoms != null ? SymptomQueryCache.canonicalize(symptoms) : List.of();
+        if (!validSymptoms.isEmpty() && !matches.isEmpty()) {
+            matches = matches.and(facets.bitmapOf(cachedSymptomMatches(validSymptoms).getMatches()));
         }
+        return new FilteredCodes(matches.cardinality(), facets.records(matches, limit));
+    }
 
-        if (scoredSymptoms == 0) {
-            return 0.0;
+    /**
+     * Canonical symptom set with misspelled words corrected, or null when no correction applies
+     */
+    private List<String> correctSymptoms(List<String> validSymptoms) {
+        List<String> corrected = new ArrayList<>(validSymptoms.size());
+        boolean changed = false;
+        for (String symptom : validSymptoms) {
+            String correction = spellingCorrectionService.correctPhrase(symptom);
+            corrected.add(correction != null ? correction : symptom);
+            changed |= correction != null;
         }
-
-        // Calculate average score
-        double averageScore = totalScore / scoredSymptoms;
-
-        // Bonus for matching multiple symptoms
-        double multiSymptomBonus = 0.0;
-        if (scoredSymptoms > 1) {
-            // Give bonus based on how many symptoms matched
-            multiSymptomBonus = (double) (scoredSymptoms - 1) * 0.1; // 10% bonus per additional symptom
-            multiSymptomBonus = Math.min(multiSymptomBonus, 0.3); // Cap at 30% bonus
+        if (!changed) {
+            return null;
         }
-
-        return Math.min(1.0, averageScore + multiSymptomBonus);
+        List<String> canonical = SymptomQueryCache.canonicalize(corrected);
+        return canonical.equals(validSymptoms) ? null : canonical;
     }
 
     /**
-     * Calculate similarity score for a single symptom against a document
+     * Documents matching all (canonical) symptoms, each symptom matching through any of its synonyms
+     * Reuses a cached subset when there is one; dictionary symptoms are resolved from the local synonym
+     * postings so only literal symptoms reach MongoDB, and an all-dictionary query never does
      */
-    private double calculateSingleSymptomScore(String symptom, NamasteCode code) {
-        double maxScore = 0.0;
-
-        // Check code_description field
-        if (code.getCodeDescription() != null) {
-            double descScore = calculateTextSimilarity(symptom, code.getCodeDescription().toLowerCase());
-            maxScore = Math.max(maxScore, descScore);
+    private List<NamasteCode> findAllSymptomMatches(List<String> validSymptoms, long version) {
+        SymptomQueryCache.CachedSymptomResult subset = symptomQueryCache.findLargestSubset(validSymptoms, version);
+        if (subset != null) {
+            // Every document matching the full set also matches the subset, so filtering its matches is exact
+            List<String> extraSymptoms = new ArrayList<>(validSymptoms);
+            extraSymptoms.removeAll(subset.getSymptoms());
+            List<NamasteCode> results = SymptomQueryCache.filterMatches(subset.getMatches(), expandAll(extraSymptoms));
+            log.info("Filtered {} cached documents for {} by {} -> {} documents",
+                    subset.getMatches().size(), subset.getSymptoms(), extraSymptoms, results.size());
+            return results;
         }
 
-        // Check tm2_definition field
-        if (code.getTm2Definition() != null) {
-            double defScore = calculateTextSimilarity(symptom, code.getTm2Definition().toLowerCase());
-            maxScore = Math.max(maxScore, defScore);
+        List<String> dictionarySymptoms = new ArrayList<>();
+        List<String> literalSymptoms = new ArrayList<>();
+        for (String symptom : validSymptoms) {
+            (symptomSynonymService.isLocallyResolvable(symptom) ? dictionarySymptoms : literalSymptoms).add(symptom);
         }
-
-        // Check code_title field for additional matching
-        if (code.getCodeTitle() != null) {
-            double titleScore = calculateTextSimilarity(symptom, code.getCodeTitle().toLowerCase());
-            maxScore = Math.max(maxScore, titleScore * 0.8); // Slightly lower weight for title
+        if (literalSymptoms.isEmpty()) {
+            List<NamasteCode> results = symptomSynonymService.findLocally(dictionarySymptoms);
+            log.info("Synonym index resolved {} locally -> {} documents", dictionarySymptoms, results.size());
+            return results;
         }
 
-        // Check tm2_title field
-        if (code.getTm2Title() != null) {
-            double tm2TitleScore = calculateTextSimilarity(symptom, code.getTm2Title().toLowerCase());
-            maxScore = Math.max(maxScore, tm2TitleScore * 0.8); // Slightly lower weight for title
+        // Use the optimized repository method for AND logic
+        List<NamasteCode> results = namasteCodeRepository.findByAllSymptoms(literalSymptoms);
+        log.info("Repository AND query returned {} documents (documents matching ALL symptoms)", results.size());
+        if (!dictionarySymptoms.isEmpty()) {
+            results = SymptomQueryCache.filterMatches(results, expandAll(dictionarySymptoms));
+            log.info("Filtered by synonyms of {} -> {} documents", dictionarySymptoms, results.size());
         }
+        return results;
+    }
 
-        return maxScore;
+    private List<List<String>> expandAll(List<String> symptoms) {
+        List<List<String>> expanded = new ArrayList<>(symptoms.size());
+        for (String symptom : symptoms) {
+            expanded.add(symptomSynonymService.expandTerms(symptom));
+        }
+        return expanded;
     }
 
     /**
-     * Calculate similarity score between query and document text fields
-     * Returns a score between 0.0 and 1.0 where 1.0 is perfect match
+     * Score disease groups (one per TM2 code, scored by their best document) and build one page
+     * A document scores its symptom coverage blended with its TF-IDF cosine, scaled by mapping confidence
+     * O(n) to score, O(g log k) to select with k = offset + count; only the page gets its mappings loaded
      */
-    private double calculateSimilarityScore(String query, NamasteCode code) {
-        double maxScore = 0.0;
-
-        // Check code_description field
-        if (code.getCodeDescription() != null) {
-            double descScore = calculateTextSimilarity(query, code.getCodeDescription().toLowerCase());
-            maxScore = Math.max(maxScore, descScore);
+    private DiseasePage rankDiseaseGroups(List<String> symptoms, List<NamasteCode> matches, int offset, int count) {
+        List<List<SynonymDictionary.WeightedTerm>> expandedSymptoms = new ArrayList<>(symptoms.size());
+        for (String symptom : symptoms) {
+            expandedSymptoms.add(symptomSynonymService.expand(symptom));
         }
-
-        // Check tm2_definition field
-        if (code.getTm2Definition() != null) {
-            double defScore = calculateTextSimilarity(query, code.getTm2Definition().toLowerCase());
-            maxScore = Math.max(maxScore, defScore);
+        float[] cosineScores = tfIdfRelevanceService.cosineScores(expandedSymptoms, matches);
+        Map<String, ScoredGroup> bestByTm2Code = new HashMap<>();
+        FacetCounts facets = new FacetCounts();
+        for (int i = 0; i < matches.size(); i++) {
+            NamasteCode match = matches.get(i);
+            facets.add(match);
+            if (match.getTm2Code() == null || match.getConfidenceScore() == null || match.getConfidenceScore() <= 0.6) {
+                continue; // Only keep codes with some relevance
+            }
+            double relevance = (1 - COSINE_WEIGHT) * symptomCoverage(expandedSymptoms, match) + COSINE_WEIGHT * cosineScores[i];
+            ScoredGroup candidate = new ScoredGroup(match, relevance * (0.8 + 0.2 * match.getConfidenceScore()));
+            bestByTm2Code.merge(match.getTm2Code(), candidate,
+                    (current, next) -> RANKING.compare(next, current) < 0 ? next : current);
         }
 
-        // Check code_title field for additional matching
-        if (code.getCodeTitle() != null) {
-            double titleScore = calculateTextSimilarity(query, code.getCodeTitle().toLowerCase());
-            maxScore = Math.max(maxScore, titleScore * 0.8); // Slightly lower weight for title
+        int keep = (int) Math.min((long) offset + count, bestByTm2Code.size());
+        List<ScoredGroup> top = new ArrayList<>(keep);
+        if (keep > 0) {
+            // Worst kept group on top of the heap
+            PriorityQueue<ScoredGroup> heap = new PriorityQueue<>(keep + 1, RANKING.reversed());
+            for (ScoredGroup group : bestByTm2Code.values()) {
+                heap.offer(group);
+                if (heap.size() > keep) {
+                    heap.poll();
+                }
+            }
+            top.addAll(heap);
+            top.sort(RANKING);
         }
 
-        // Check tm2_title field
-        if (code.getTm2Title() != null) {
-            double tm2TitleScore = calculateTextSimilarity(query, code.getTm2Title().toLowerCase());
-            maxScore = Math.max(maxScore, tm2TitleScore * 0.8); // Slightly lower weight for title
+        List<DiseaseMapping> groups = new ArrayList<>();
+        for (int i = offset; i < top.size(); i++) {
+            RequestDeadline.checkpoint();
+            NamasteCode matchedCode = top.get(i).code;
+            log.info("Getting all mappings for TM2 code: {}", matchedCode.getTm2Code());
+
+            // Call searchByCode to get all three traditional medicine mappings
+            List<NamasteCode> allMappings = searchByCode(matchedCode.getCode());
+
+            DiseaseMapping diseaseMapping = new DiseaseMapping();
+            diseaseMapping.setTm2Code(matchedCode.getTm2Code());
+            diseaseMapping.setTm2Title(matchedCode.getTm2Title());
+            diseaseMapping.setTm2Definition(matchedCode.getTm2Definition());
+            diseaseMapping.setSimilarityScore(top.get(i).score); // Symptom relevance score
+            diseaseMapping.setMappings(allMappings.isEmpty() ? List.of(matchedCode) : allMappings);
+
+            // Matched terms: in the shared TM2 definition once, and in each mapping's own description
+            List<MatchHighlighter.Highlight> highlights = new ArrayList<>(
+                    matchHighlighter.highlight(matchedCode, MatchHighlighter.FIELD_TM2_DEFINITION, expandedSymptoms));
+            for (NamasteCode mapping : diseaseMapping.getMappings()) {
+                highlights.addAll(matchHighlighter.highlight(mapping, MatchHighlighter.FIELD_CODE_DESCRIPTION, expandedSymptoms));
+            }
+            diseaseMapping.setHighlights(highlights);
+            groups.add(diseaseMapping);
         }
-
-        return maxScore;
+        return new DiseasePage(List.copyOf(groups), bestByTm2Code.size(), offset, count, null, facets);
     }
 
     /**
-     * Simple text similarity calculation using word overlap and containment
-     * This is a basic implementation - for production, consider using more sophisticated
-     * algorithms like Jaccard similarity, Levenshtein distance, or TF-IDF
+     * How well a document covers all symptoms, between 0.0 and 1.0
+     * Per symptom: its best weighted term (the literal term weighs 1.0, synonyms less), whole-word hits beat
+     * hits inside a word, and titles weigh more than descriptions; the per-symptom scores are averaged
      */
-    private double calculateTextSimilarity(String query, String text) {
-        if (query == null || text == null || query.trim().isEmpty() || text.trim().isEmpty()) {
-            return 0.0;
+    private double symptomCoverage(List<List<SynonymDictionary.WeightedTerm>> expandedSymptoms, NamasteCode code) {
+        String codeTitle = lowerCase(code.getCodeTitle());
+        String tm2Title = lowerCase(code.getTm2Title());
+        String codeDescription = lowerCase(code.getCodeDescription());
+        String tm2Definition = lowerCase(code.getTm2Definition());
+
+        double total = 0.0;
+        for (List<SynonymDictionary.WeightedTerm> terms : expandedSymptoms) {
+            double best = 0.0;
+            for (SynonymDictionary.WeightedTerm term : terms) {
+                if (term.getWeight() <= best) {
+                    break; // Strongest first, so no later term can do better
+                }
+                String symptom = term.getTerm();
+                double titleScore = Math.max(fieldMatchScore(codeTitle, symptom), fieldMatchScore(tm2Title, symptom));
+                double descriptionScore = Math.max(fieldMatchScore(codeDescription, symptom), fieldMatchScore(tm2Definition, symptom));
+                best = Math.max(best, term.getWeight() * Math.max(titleScore, descriptionScore * DESCRIPTION_WEIGHT));
+            }
+            total += best;
         }
+        return total / expandedSymptoms.size();
+    }
 
-        String queryTrimmed = query.trim();
-        String textTrimmed = text.trim();
-
-        // Exact match gets highest score
-        if (textTrimmed.contains(queryTrimmed)) {
-            return 1.0;
+    /**
+     * 1.0 for a whole-word occurrence, 0.5 when the symptom only occurs inside a longer word
+     */
+    private static double fieldMatchScore(String text, String symptom) {
+        if (text == null) {
+            return 0.0;
         }
-
-        // Split into words and calculate overlap
-        String[] queryWords = queryTrimmed.split("\\s+");
-        String[] textWords = textTrimmed.split("\\s+");
-
-        int matchingWords = 0;
-        for (String queryWord : queryWords) {
-            if (queryWord.length() > 2) { // Only consider words longer than 2 characters
-                for (String textWord : textWords) {
-                    if (textWord.contains(queryWord) || queryWord.contains(textWord)) {
-                        matchingWords++;
-                        break; // Count each query word only once
-                    }
-                }
+        double best = 0.0;
+        for (int index = text.indexOf(symptom); index >= 0; index = text.indexOf(symptom, index + 1)) {
+            int end = index + symptom.length();
+            boolean wholeWord = (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1)))
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)));
+            if (wholeWord) {
+                return 1.0;
             }
+            best = 0.5;
         }
+        return best;
+    }
 
-        // Calculate similarity as ratio of matching words
-        double wordSimilarity = queryWords.length > 0 ? (double) matchingWords / queryWords.length : 0.0;
-
-        // Boost score if query is a substring of text (partial match)
-        double substringBonus = 0.0;
-        if (textTrimmed.contains(queryTrimmed)) {
-            substringBonus = 0.3;
-        }
+    private static String lowerCase(String value) {
+        return value != null ? value.toLowerCase(Locale.ROOT) : null;
+    }
 
-        return Math.min(1.0, wordSimilarity + substringBonus);
+    /**
+     * Keep the original method for backward compatibility
+     */
+    public List<NamasteCode> searchBySymptoms(List<String> symptoms) {
+        // Convert grouped results back to flat list for backward compatibility
+        return searchBySymptomsGrouped(symptoms).stream()
+                .flatMap(diseaseMapping -> diseaseMapping.getMappings().stream())
+                .collect(Collectors.toList());
     }
 
     /**
@@ -694,6 +951,160 @@ public class NamasteTerminologyService {
         }
     }
 
+    private static final class ScoredGroup {
+        private final NamasteCode code;
+        private final double score;
+
+        private ScoredGroup(NamasteCode code, double score) {
+            this.code = code;
+            this.score = score;
+        }
+    }
+
+    /**
+     * One page of ranked disease groups
+     */
+    public static class DiseasePage {
+        private final List<DiseaseMapping> groups;
+        private final int total;
+        private final int offset;
+        private final int count;
+        private final List<String> correctedSymptoms;
+        private final FacetCounts facets;
+
+        public DiseasePage(List<DiseaseMapping> groups, int total, int offset, int count) {
+            this(groups, total, offset, count, null, new FacetCounts());
+        }
+
+        public DiseasePage(List<DiseaseMapping> groups, int total, int offset, int count, List<String> correctedSymptoms,
+                           FacetCounts facets) {
+            this.groups = groups;
+            this.total = total;
+            this.offset = offset;
+            this.count = count;
+            this.correctedSymptoms = correctedSymptoms;
+            this.facets = facets;
+        }
+
+        public DiseasePage withCorrectedSymptoms(List<String> correctedSymptoms) {
+            return new DiseasePage(groups, total, offset, count, correctedSymptoms, facets);
+        }
+
+        public List<DiseaseMapping> getGroups() {
+            return groups;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public boolean hasMore() {
+            return offset + groups.size() < total;
+        }
+
+        /**
+         * Symptoms actually searched when the query only matched after spelling correction, otherwise null
+         */
+        public List<String> getCorrectedSymptoms() {
+            return correctedSymptoms;
+        }
+
+        /**
+         * Type and confidence-band counts over every document matching all symptoms
+         */
+        public FacetCounts getFacets() {
+            return facets;
+        }
+    }
+
+    /**
+     * Total number of codes matching a filter and the first of them
+     */
+    public static class FilteredCodes {
+        private final int total;
+        private final List<NamasteCode> codes;
+
+        public FilteredCodes(int total, List<NamasteCode> codes) {
+            this.total = total;
+            this.codes = codes;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<NamasteCode> getCodes() {
+            return codes;
+        }
+    }
+
+    /**
+     * Per-facet counts (type, confidence band) of a result set, gathered while scanning its candidates
+     */
+    public static class FacetCounts {
+        private final Map<String, Integer> byType = new TreeMap<>();
+        private final Map<String, Integer> byConfidenceBand = new LinkedHashMap<>();
+
+        public FacetCounts() {
+            for (TerminologyFacetIndex.ConfidenceBand band : TerminologyFacetIndex.ConfidenceBand.values()) {
+                byConfidenceBand.put(band.name().toLowerCase(Locale.ROOT), 0);
+            }
+        }
+
+        public void add(NamasteCode code) {
+            if (code.getType() != null) {
+                byType.merge(code.getType(), 1, Integer::sum);
+            }
+            TerminologyFacetIndex.ConfidenceBand band = TerminologyFacetIndex.ConfidenceBand.of(code.getConfidenceScore());
+            if (band != null) {
+                byConfidenceBand.merge(band.name().toLowerCase(Locale.ROOT), 1, Integer::sum);
+            }
+        }
+
+        public Map<String, Integer> getByType() {
+            return byType;
+        }
+
+        public Map<String, Integer> getByConfidenceBand() {
+            return byConfidenceBand;
+        }
+    }
+
+    /**
+     * Auto-complete results with facet counts over every match, not just the returned ones
+     */
+    public static class FacetedResults {
+        private final List<NamasteCode> results;
+        private final int total;
+        private final FacetCounts facets;
+
+        public FacetedResults(List<NamasteCode> results, int total, FacetCounts facets) {
+            this.results = results;
+            this.total = total;
+            this.facets = facets;
+        }
+
+        public List<NamasteCode> getResults() {
+            return results;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public FacetCounts getFacets() {
+            return facets;
+        }
+    }
+
     /**
      * Class to group disease mappings by TM2 code
      * Contains the TM2 disease information and all its traditional medicine mappings
@@ -704,9 +1115,11 @@ public class NamasteTerminologyService {
         private String tm2Definition;
         private Double similarityScore; // How well this disease matched the symptoms
         private List<NamasteCode> mappings; // All traditional medicine mappings for this disease
+        private List<MatchHighlighter.Highlight> highlights; // Matched symptom spans (field, start, end)
 
         public DiseaseMapping() {
             this.mappings = new ArrayList<>();
+            this.highlights = new ArrayList<>();
         }
 
         // Getters and Setters
@@ -750,6 +1163,14 @@ public class NamasteTerminologyService {
             this.mappings = mappings != null ? mappings : new ArrayList<>();
         }
 
+        public List<MatchHighlighter.Highlight> getHighlights() {
+            return highlights;
+        }
+
+        public void setHighlights(List<MatchHighlighter.Highlight> highlights) {
+            this.highlights = highlights;
+        }
+
         // Helper methods
         public int getMappingCount() {
             return mappings != null ? mappings.size() : 0;
@@ -0,0 +1,112 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.SymSpellIndex;
+import com.namaste.Namaste.to.TM2.Index.TextTokenizer;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Typo-tolerant "did you mean" for transliterated terms (jvara / jwara)
+ * The vocabulary is every word of code_title, tm2_title, code_description and tm2_definition,
+ * indexed with SymSpell for bounded edit-distance lookups
+ */
+@Service
+public class SpellingCorrectionService implements TerminologyIndexContributor<SymSpellIndex> {
+
+    private static final Logger log = LoggerFactory.getLogger(SpellingCorrectionService.class);
+    // Shorter words have too many neighbours to correct reliably
+    private static final int MIN_CORRECTABLE_LENGTH = 4;
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final TerminologyIndexConfig indexConfig;
+
+    public SpellingCorrectionService(TerminologyIndexLoader terminologyIndexLoader,
+                                     TerminologyIndexConfig indexConfig) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.indexConfig = indexConfig;
+    }
+
+    @Override
+    public SymSpellIndex buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        Map<String, Integer> vocabulary = new HashMap<>();
+        for (NamasteCode record : snapshot.getRecords()) {
+            addWords(vocabulary, record.getCodeTitle());
+            addWords(vocabulary, record.getTm2Title());
+            addWords(vocabulary, record.getCodeDescription());
+            addWords(vocabulary, record.getTm2Definition());
+        }
+        SymSpellIndex newIndex = SymSpellIndex.build(vocabulary, indexConfig.getFuzzyMaxEditDistance(),
+                indexConfig.getFuzzyPrefixLength());
+        log.info("Rebuilt spelling index: {} words in {} ms", newIndex.size(), System.currentTimeMillis() - start);
+        return newIndex;
+    }
+
+    /**
+     * Closest vocabulary words for one word
+     */
+    public List<SymSpellIndex.Suggestion> suggest(String word, int limit) {
+        SymSpellIndex current = index();
+        if (current == null || word == null) {
+            return List.of();
+        }
+        String normalized = word.trim().toLowerCase(Locale.ROOT);
+        return current.lookup(normalized, maxDistanceFor(normalized, current), limit);
+    }
+
+    /**
+     * Phrase with every unknown word replaced by its best correction, or null when nothing changed
+     */
+    public String correctPhrase(String phrase) {
+        SymSpellIndex current = index();
+        if (current == null || phrase == null) {
+            return null;
+        }
+        List<String> tokens = TextTokenizer.tokenize(phrase);
+        boolean changed = false;
+        List<String> corrected = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            String replacement = token;
+            if (!current.contains(token)) {
+                List<SymSpellIndex.Suggestion> suggestions = current.lookup(token, maxDistanceFor(token, current), 1);
+                if (!suggestions.isEmpty()) {
+                    replacement = suggestions.get(0).getTerm();
+                    changed = true;
+                }
+            }
+            corrected.add(replacement);
+        }
+        return changed ? String.join(" ", corrected) : null;
+    }
+
+    public boolean isReady() {
+        return index() != null;
+    }
+
+    private SymSpellIndex index() {
+        return terminologyIndexLoader.getCurrentSnapshot().index(this);
+    }
+
+    /**
+     * One edit for short words, the configured maximum otherwise
+     */
+    private static int maxDistanceFor(String word, SymSpellIndex current) {
+        if (word.length() < MIN_CORRECTABLE_LENGTH) {
+            return 0;
+        }
+        return word.length() < 7 ? Math.min(1, current.getMaxEditDistance()) : current.getMaxEditDistance();
+    }
+
+    private static void addWords(Map<String, Integer> vocabulary, String text) {
+        for (String token : TextTokenizer.tokenize(text)) {
+            if (token.length() >= 2 && !Character.isDigit(token.charAt(0))) {
+                vocabulary.merge(token, 1, Integer::sum);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.LruCache;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for multi-symptom AND searches
+ * Symptom lists are sets: they are trimmed, case-folded, de-duplicated and sorted into one canonical key,
+ * so "fever,headache" and ["Headache", "fever"] share an entry. Entries are tagged with the dataset version
+ * and keep the matched documents as well as the ranked pages served from them, so a superset query such as
+ * {fever, headache, nausea} can be answered by filtering the documents cached for {fever, headache}.
+ */
+@Service
+public class SymptomQueryCache {
+
+    // Subsets of larger queries are only probed one symptom at a time, not exhaustively
+    private static final int MAX_EXHAUSTIVE_SUBSET_SIZE = 6;
+    private static final String KEY_SEPARATOR = "\u001F";
+    private static final int MAX_PAGES_PER_ENTRY = 16;
+
+    private final LruCache<String, CachedSymptomResult> cache;
+
+    public SymptomQueryCache(TerminologyIndexConfig indexConfig) {
+        this.cache = new LruCache<>(indexConfig.getSymptomCacheSize());
+    }
+
+    /**
+     * Trim, case-fold, de-duplicate and sort; symptoms shorter than 2 characters are dropped
+     */
+    public static List<String> canonicalize(Collection<String> symptoms) {
+        TreeSet<String> canonical = new TreeSet<>();
+        for (String symptom : symptoms) {
+            if (symptom != null && symptom.trim().length() >= 2) {
+                canonical.add(symptom.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return new ArrayList<>(canonical);
+    }
+
+    public CachedSymptomResult get(List<String> canonicalSymptoms, long version) {
+        return cache.get(key(canonicalSymptoms, version));
+    }
+
+    public CachedSymptomResult put(List<String> canonicalSymptoms, long version, List<NamasteCode> matches) {
+        CachedSymptomResult entry = new CachedSymptomResult(canonicalSymptoms, version, List.copyOf(matches));
+        cache.put(key(canonicalSymptoms, version), entry);
+        return entry;
+    }
+
+    /**
+     * Largest cached proper subset of the query at the same dataset version, or null
+     */
+    public CachedSymptomResult findLargestSubset(List<String> canonicalSymptoms, long version) {
+        int size = canonicalSymptoms.size();
+        if (size < 2) {
+            return null;
+        }
+        if (size > MAX_EXHAUSTIVE_SUBSET_SIZE) {
+            for (int skip = 0; skip < size; skip++) {
+                List<String> subset = new ArrayList<>(canonicalSymptoms);
+                subset.remove(skip);
+                CachedSymptomResult cached = get(subset, version);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+            return null;
+        }
+
+        // Bit masks grouped by popcount, largest subsets first; canonical order is kept so keys line up
+        int full = (1 << size) - 1;
+        for (int subsetSize = size - 1; subsetSize >= 1; subsetSize--) {
+            for (int mask = 1; mask < full; mask++) {
+                if (Integer.bitCount(mask) != subsetSize) {
+                    continue;
+                }
+                List<String> subset = new ArrayList<>(subsetSize);
+                for (int i = 0; i < size; i++) {
+                    if ((mask & (1 << i)) != 0) {
+                        subset.add(canonicalSymptoms.get(i));
+                    }
+                }
+                CachedSymptomResult cached = get(subset, version);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Narrow cached matches to the documents that also contain every extra symptom, each given as the
+     * terms any of which satisfies it (the symptom and its synonyms)
+     * Same semantics as the repository query: case-insensitive substring in any of the four text fields
+     */
+    public static List<NamasteCode> filterMatches(List<NamasteCode> matches, Collection<? extends Collection<String>> extraSymptoms) {
+        List<NamasteCode> filtered = new ArrayList<>();
+        for (NamasteCode code : matches) {
+            boolean matchesAll = true;
+            for (Collection<String> anyOf : extraSymptoms) {
+                if (!containsAnySymptom(code, anyOf)) {
+                    matchesAll = false;
+                    break;
+                }
+            }
+            if (matchesAll) {
+                filtered.add(code);
+            }
+        }
+        return filtered;
+    }
+
+    private static boolean containsAnySymptom(NamasteCode code, Collection<String> anyOf) {
+        for (String symptom : anyOf) {
+            if (containsSymptom(code, symptom)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsSymptom(NamasteCode code, String symptom) {
+        return containsIgnoreCase(code.getCodeDescription(), symptom)
+                || containsIgnoreCase(code.getTm2Definition(), symptom)
+                || containsIgnoreCase(code.getTm2Title(), symptom)
+                || containsIgnoreCase(code.getCodeTitle(), symptom);
+    }
+
+    private static boolean containsIgnoreCase(String text, String lowerCaseSymptom) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(lowerCaseSymptom);
+    }
+
+    private static String key(List<String> canonicalSymptoms, long version) {
+        return version + KEY_SEPARATOR + String.join(KEY_SEPARATOR, canonicalSymptoms);
+    }
+
+    /**
+     * Matched documents and ranked pages of one canonical symptom set
+     */
+    public static class CachedSymptomResult {
+        private final List<String> symptoms;
+        private final long version;
+        private final List<NamasteCode> matches;
+        private final Map<Long, NamasteTerminologyService.DiseasePage> pages = new ConcurrentHashMap<>();
+
+        public CachedSymptomResult(List<String> symptoms, long version, List<NamasteCode> matches) {
+            this.symptoms = symptoms;
+            this.version = version;
+            this.matches = matches;
+        }
+
+        public NamasteTerminologyService.DiseasePage getPage(int offset, int count) {
+            return pages.get(pageKey(offset, count));
+        }
+
+        public void putPage(int offset, int count, NamasteTerminologyService.DiseasePage page) {
+            if (pages.size() < MAX_PAGES_PER_ENTRY) {
+                pages.put(pageKey(offset, count), page);
+            }
+        }
+
+        private static long pageKey(int offset, int count) {
+            return ((long) offset << 32) | (count & 0xFFFFFFFFL);
+        }
+
+        public List<String> getSymptoms() {
+            return symptoms;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<NamasteCode> getMatches() {
+            return matches;
+        }
+    }
+}
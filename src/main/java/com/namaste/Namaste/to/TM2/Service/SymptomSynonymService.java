@@ -0,0 +1,181 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.SynonymDictionary;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Symptom synonym expansion resolved against a local index
+ * Every dictionary term gets a precomputed posting set of the records containing it (same case-insensitive
+ * substring test as the MongoDB query), so a symptom that expands to an OR of synonyms is answered with
+ * bitset unions instead of one regex scan per synonym
+ */
+@Service
+public class SymptomSynonymService implements TerminologyIndexContributor<SymptomSynonymService.SynonymState> {
+
+    private static final Logger log = LoggerFactory.getLogger(SymptomSynonymService.class);
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final TerminologyIndexConfig indexConfig;
+    private final ResourceLoader resourceLoader;
+
+    // Read from the resource on the first build only
+    private volatile SynonymDictionary dictionary;
+
+    public SymptomSynonymService(TerminologyIndexLoader terminologyIndexLoader,
+                                 TerminologyIndexConfig indexConfig,
+                                 ResourceLoader resourceLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.indexConfig = indexConfig;
+        this.resourceLoader = resourceLoader;
+    }
+
+    @Override
+    public SynonymState buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        SynonymDictionary dictionary = dictionary();
+        NamasteCode[] records = snapshot.getRecords().toArray(new NamasteCode[0]);
+
+        Map<String, BitSet> postings = new HashMap<>();
+        for (String term : dictionary.getTerms()) {
+            postings.put(term, new BitSet(records.length));
+        }
+        for (int i = 0; i < records.length; i++) {
+            String text = searchableText(records[i]);
+            for (Map.Entry<String, BitSet> posting : postings.entrySet()) {
+                if (text.contains(posting.getKey())) {
+                    posting.getValue().set(i);
+                }
+            }
+        }
+
+        log.info("Rebuilt symptom synonym index: {} terms over {} records in {} ms",
+                dictionary.size(), records.length, System.currentTimeMillis() - start);
+        return new SynonymState(dictionary, records, postings);
+    }
+
+    /**
+     * The symptom and its weighted synonyms, strongest first
+     */
+    public List<SynonymDictionary.WeightedTerm> expand(String symptom) {
+        SynonymState current = state();
+        return current != null ? current.dictionary.expand(symptom) : List.of(new SynonymDictionary.WeightedTerm(symptom, 1.0));
+    }
+
+    /**
+     * Terms a document may contain to match the symptom
+     */
+    public List<String> expandTerms(String symptom) {
+        List<String> terms = new ArrayList<>();
+        for (SynonymDictionary.WeightedTerm term : expand(symptom)) {
+            terms.add(term.getTerm());
+        }
+        return terms;
+    }
+
+    /**
+     * Whether the symptom is a dictionary term and can be matched without MongoDB
+     */
+    public boolean isLocallyResolvable(String symptom) {
+        SynonymState current = state();
+        return current != null && current.dictionary.contains(symptom);
+    }
+
+    /**
+     * Records matching every symptom, each symptom being any of its synonyms
+     * All symptoms must be locally resolvable
+     */
+    public List<NamasteCode> findLocally(List<String> symptoms) {
+        SynonymState current = state();
+        if (current == null || symptoms.isEmpty()) {
+            return List.of();
+        }
+        BitSet matches = null;
+        for (String symptom : symptoms) {
+            BitSet anySynonym = new BitSet(current.records.length);
+            for (SynonymDictionary.WeightedTerm term : current.dictionary.expand(symptom)) {
+                BitSet posting = current.postings.get(term.getTerm());
+                if (posting != null) {
+                    anySynonym.or(posting);
+                }
+            }
+            if (matches == null) {
+                matches = anySynonym;
+            } else {
+                matches.and(anySynonym);
+            }
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<NamasteCode> results = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            results.add(current.records[i]);
+        }
+        return results;
+    }
+
+    private SynonymState state() {
+        return terminologyIndexLoader.getCurrentSnapshot().index(this);
+    }
+
+    private static String searchableText(NamasteCode record) {
+        // Newlines keep a term from matching across two fields
+        return (Objects.toString(record.getCodeDescription(), "") + "\n"
+                + Objects.toString(record.getTm2Definition(), "") + "\n"
+                + Objects.toString(record.getTm2Title(), "") + "\n"
+                + Objects.toString(record.getCodeTitle(), "")).toLowerCase(Locale.ROOT);
+    }
+
+    private SynonymDictionary dictionary() {
+        SynonymDictionary loaded = dictionary;
+        if (loaded == null) {
+            loaded = loadDictionary();
+            dictionary = loaded;
+        }
+        return loaded;
+    }
+
+    private SynonymDictionary loadDictionary() {
+        Resource resource = resourceLoader.getResource(indexConfig.getSynonymDictionaryLocation());
+        if (!resource.exists()) {
+            log.warn("Symptom synonym dictionary not found at {}", indexConfig.getSynonymDictionaryLocation());
+            return SynonymDictionary.empty();
+        }
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return SynonymDictionary.parse(lines);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Failed to load symptom synonym dictionary {}", indexConfig.getSynonymDictionaryLocation(), e);
+            return SynonymDictionary.empty();
+        }
+    }
+
+    static final class SynonymState {
+        private final SynonymDictionary dictionary;
+        private final NamasteCode[] records;
+        private final Map<String, BitSet> postings;
+
+        private SynonymState(SynonymDictionary dictionary, NamasteCode[] records, Map<String, BitSet> postings) {
+            this.dictionary = dictionary;
+            this.records = records;
+            this.postings = postings;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * Published whenever the tm2_mappings data changes so in-memory indexes can follow
+ * fullReload = true: codes holds the complete dataset (startup or import), and snapshot the version it was read from
+ * fullReload = false: codes holds only the records that were saved
+ */
+public class TerminologyChangedEvent extends ApplicationEvent {
+
+    private final List<NamasteCode> codes;
+    private final boolean fullReload;
+    private final long version;
+    private final TerminologySnapshot snapshot;
+
+    public TerminologyChangedEvent(Object source, List<NamasteCode> codes, boolean fullReload, long version) {
+        super(source);
+        this.codes = codes != null ? List.copyOf(codes) : List.of();
+        this.fullReload = fullReload;
+        this.version = version;
+        this.snapshot = null;
+    }
+
+    /**
+     * A full reload; codes is a view of the snapshot's records, which a mapped snapshot decodes on access
+     */
+    public TerminologyChangedEvent(Object source, TerminologySnapshot snapshot) {
+        super(source);
+        this.codes = snapshot.getRecords();
+        this.fullReload = true;
+        this.version = snapshot.getVersion();
+        this.snapshot = snapshot;
+    }
+
+    public List<NamasteCode> getCodes() {
+        return codes;
+    }
+
+    public boolean isFullReload() {
+        return fullReload;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The published version for a full reload, null for single-record updates
+     */
+    public TerminologySnapshot getSnapshot() {
+        return snapshot;
+    }
+}
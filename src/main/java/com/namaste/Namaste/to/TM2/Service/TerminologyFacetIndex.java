@@ -0,0 +1,209 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.RoaringBitmap;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Roaring bitmaps per type, confidence band and TM2 chapter over dense document ids
+ * Document ids are row numbers of the terminology snapshot, so a combined filter ("siddha AND high confidence
+ * AND matches fever") is an intersection of a few bitmaps and its count never touches MongoDB
+ */
+@Service
+public class TerminologyFacetIndex implements TerminologyIndexContributor<TerminologyFacetIndex.FacetState> {
+
+    private static final Logger log = LoggerFactory.getLogger(TerminologyFacetIndex.class);
+    // TM2 chapter: the block prefix of the code (SK10 -> SK)
+    private static final int CHAPTER_PREFIX_LENGTH = 2;
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public TerminologyFacetIndex(TerminologyIndexLoader terminologyIndexLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+    }
+
+    @Override
+    public FacetState buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        NamasteCode[] records = snapshot.getRecords().toArray(new NamasteCode[0]);
+        Map<String, RoaringBitmap> byType = new HashMap<>();
+        Map<ConfidenceBand, RoaringBitmap> byBand = new EnumMap<>(ConfidenceBand.class);
+        Map<String, RoaringBitmap> byChapter = new HashMap<>();
+        Map<String, Integer> docIdById = new HashMap<>();
+        RoaringBitmap all = new RoaringBitmap();
+
+        for (int docId = 0; docId < records.length; docId++) {
+            NamasteCode record = records[docId];
+            all.add(docId);
+            if (record.getId() != null) {
+                docIdById.put(record.getId(), docId);
+            }
+            if (record.getType() != null) {
+                byType.computeIfAbsent(record.getType(), key -> new RoaringBitmap()).add(docId);
+            }
+            ConfidenceBand band = ConfidenceBand.of(record.getConfidenceScore());
+            if (band != null) {
+                byBand.computeIfAbsent(band, key -> new RoaringBitmap()).add(docId);
+            }
+            String chapter = chapterOf(record.getTm2Code());
+            if (chapter != null) {
+                byChapter.computeIfAbsent(chapter, key -> new RoaringBitmap()).add(docId);
+            }
+        }
+
+        log.info("Rebuilt facet bitmaps: {} documents, {} types, {} chapters in {} ms",
+                records.length, byType.size(), byChapter.size(), System.currentTimeMillis() - start);
+        return new FacetState(records, docIdById, all, byType, byBand, byChapter);
+    }
+
+    /**
+     * The facet bitmaps of the current snapshot, or null until they are built
+     * Take this once per request: its document ids are only meaningful against its own records
+     */
+    public FacetState current() {
+        return terminologyIndexLoader.getCurrentSnapshot().index(this);
+    }
+
+    /**
+     * The current facet bitmaps, for callers without a MongoDB fallback
+     */
+    public FacetState requireCurrent() {
+        FacetState current = current();
+        if (current == null) {
+            throw new TerminologyNotLoadedException("Facet index is not loaded yet, retry shortly");
+        }
+        return current;
+    }
+
+    public static String chapterOf(String tm2Code) {
+        if (tm2Code == null || tm2Code.length() < CHAPTER_PREFIX_LENGTH) {
+            return null;
+        }
+        return tm2Code.substring(0, CHAPTER_PREFIX_LENGTH).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Facet bitmaps of one snapshot; every answer of one instance refers to the same dataset version
+     */
+    public static final class FacetState {
+        private final NamasteCode[] records;
+        private final Map<String, Integer> docIdById;
+        private final RoaringBitmap all;
+        private final Map<String, RoaringBitmap> byType;
+        private final Map<ConfidenceBand, RoaringBitmap> byBand;
+        private final Map<String, RoaringBitmap> byChapter;
+
+        private FacetState(NamasteCode[] records, Map<String, Integer> docIdById, RoaringBitmap all,
+                           Map<String, RoaringBitmap> byType, Map<ConfidenceBand, RoaringBitmap> byBand,
+                           Map<String, RoaringBitmap> byChapter) {
+            this.records = records;
+            this.docIdById = docIdById;
+            this.all = all;
+            this.byType = byType;
+            this.byBand = byBand;
+            this.byChapter = byChapter;
+        }
+
+        /**
+         * Documents matching every given facet; a null facet does not filter
+         * An unknown type or chapter matches nothing, as the equivalent MongoDB query would
+         */
+        public RoaringBitmap filter(String type, ConfidenceBand band, String chapter) {
+            List<RoaringBitmap> filters = new ArrayList<>(3);
+            if (type != null) {
+                filters.add(byType.getOrDefault(type, EMPTY));
+            }
+            if (band != null) {
+                filters.add(byBand.getOrDefault(band, EMPTY));
+            }
+            if (chapter != null) {
+                filters.add(byChapter.getOrDefault(chapter.toUpperCase(Locale.ROOT), EMPTY));
+            }
+            return filters.isEmpty() ? all.copy() : RoaringBitmap.andAll(filters.toArray(new RoaringBitmap[0]));
+        }
+
+        /**
+         * Dense ids of the given records (e.g. symptom matches) for intersecting with facet filters
+         * Records are matched by id, so matches read from another version only keep the documents still present
+         */
+        public RoaringBitmap bitmapOf(Collection<NamasteCode> matches) {
+            int[] docIds = new int[matches.size()];
+            int count = 0;
+            for (NamasteCode record : matches) {
+                Integer docId = record.getId() != null ? docIdById.get(record.getId()) : null;
+                if (docId != null) {
+                    docIds[count++] = docId;
+                }
+            }
+            Arrays.sort(docIds, 0, count);
+            RoaringBitmap bitmap = new RoaringBitmap();
+            for (int i = 0; i < count; i++) {
+                bitmap.add(docIds[i]);
+            }
+            return bitmap;
+        }
+
+        public List<NamasteCode> records(RoaringBitmap docIds) {
+            return records(docIds, Integer.MAX_VALUE);
+        }
+
+        /**
+         * The records of the first (lowest) limit document ids
+         */
+        public List<NamasteCode> records(RoaringBitmap docIds, int limit) {
+            int[] ids = docIds.toArray();
+            List<NamasteCode> result = new ArrayList<>(Math.min(ids.length, limit));
+            for (int i = 0; i < ids.length && i < limit; i++) {
+                result.add(records[ids[i]]);
+            }
+            return result;
+        }
+
+        public int count(String type, ConfidenceBand band, String chapter) {
+            return filter(type, band, chapter).cardinality();
+        }
+
+        public int getDocumentCount() {
+            return records.length;
+        }
+    }
+
+    /**
+     * Mapping confidence bands, matching the find*ConfidenceMappings queries
+     */
+    public enum ConfidenceBand {
+        HIGH, MEDIUM, LOW;
+
+        /**
+         * Band of a confidence score; null (no score) belongs to none
+         */
+        public static ConfidenceBand of(Double confidenceScore) {
+            if (confidenceScore == null) {
+                return null;
+            }
+            if (confidenceScore >= 0.8) {
+                return HIGH;
+            }
+            return confidenceScore >= 0.6 ? MEDIUM : LOW;
+        }
+
+        /**
+         * Case-insensitive band name, or null when absent
+         */
+        public static ConfidenceBand parse(String band) {
+            if (band == null || band.isBlank()) {
+                return null;
+            }
+            try {
+                return valueOf(band.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown confidence band: " + band + " (expected high, medium or low)");
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.namaste.Namaste.to.TM2.Service;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.parser.IParser;
+import com.namaste.Namaste.to.TM2.Index.SymSpellIndex;
+import com.namaste.Namaste.to.TM2.Index.TextTokenizer;
 import com.namaste.Namaste.to.TM2.Model.NamasteCode;
 import org.hl7.fhir.r4.model.*;
 import org.slf4j.Logger;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -23,9 +26,27 @@ public class TerminologyFhirService {
     private final FhirContext fhirContext;
     private final IParser jsonParser;
     private final NamasteTerminologyService terminologyService;
-
-    public TerminologyFhirService(NamasteTerminologyService terminologyService) {
+    private final CrossSystemTranslator crossSystemTranslator;
+    private final ValueSetExpansionService valueSetExpansionService;
+    private final CodeSystemLookupService codeSystemLookupService;
+    private final ClinicalNoteAnnotator clinicalNoteAnnotator;
+    private final SpellingCorrectionService spellingCorrectionService;
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public TerminologyFhirService(NamasteTerminologyService terminologyService,
+                                  CrossSystemTranslator crossSystemTranslator,
+                                  ValueSetExpansionService valueSetExpansionService,
+                                  CodeSystemLookupService codeSystemLookupService,
+                                  ClinicalNoteAnnotator clinicalNoteAnnotator,
+                                  SpellingCorrectionService spellingCorrectionService,
+                                  TerminologyIndexLoader terminologyIndexLoader) {
         this.terminologyService = terminologyService;
+        this.crossSystemTranslator = crossSystemTranslator;
+        this.valueSetExpansionService = valueSetExpansionService;
+        this.codeSystemLookupService = codeSystemLookupService;
+        this.clinicalNoteAnnotator = clinicalNoteAnnotator;
+        this.spellingCorrectionService = spellingCorrectionService;
+        this.terminologyIndexLoader = terminologyIndexLoader;
         this.fhirContext = FhirContext.forR4();
         this.jsonParser = fhirContext.newJsonParser().setPrettyPrint(true);
     }
@@ -41,13 +62,23 @@ public class TerminologyFhirService {
      * Create FHIR Parameters for search by code result - MAIN FEATURE 1
      */
     public Parameters createSearchByCodeResult(String codeValue) {
-        log.info("Creating FHIR Parameters for code search: {}", codeValue);
+        return createSearchByCodeResult(codeValue, null);
+    }
+
+    /**
+     * Search by code result against a pinned dataset version (null = current)
+     */
+    public Parameters createSearchByCodeResult(String codeValue, Long version) {
+        log.info("Creating FHIR Parameters for code search: {} (version {})", codeValue, version != null ? version : "current");
 
         Parameters parameters = new Parameters();
         parameters.setId("search-by-code-result-" + codeValue);
 
         // Search using the terminology service
-        List<NamasteCode> result = terminologyService.searchByCode(codeValue);
+        List<NamasteCode> result = terminologyService.searchByCode(codeValue, version);
+        if (version != null) {
+            parameters.addParameter("version", new StringType(String.valueOf(version)));
+        }
 
         if (result.isEmpty()) {
             // Result parameter (false = not found)
@@ -244,12 +275,87 @@ public class TerminologyFhirService {
         return parameters;
     }
 
+    /**
+     * Create FHIR Parameters for a title search tolerant of diacritics and romanization variants
+     */
+    public Parameters createSearchByTitleResult(String title) {
+        log.info("Creating FHIR Parameters for title search: {}", title);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("search-by-title-result-" + System.currentTimeMillis());
+
+        TransliterationTitleIndex.TitleMatch match = terminologyService.searchByTitleVariant(title);
+        if (!match.isFound()) {
+            parameters.addParameter("result", new BooleanType(false));
+            parameters.addParameter("message", new StringType("No title found matching: " + title));
+            return parameters;
+        }
+
+        parameters.addParameter("result", new BooleanType(true));
+        parameters.addParameter("totalMatches", new IntegerType(match.getRecords().size()));
+        parameters.addParameter("matchedBy", new CodeType(match.getMatchedBy()));
+
+        for (NamasteCode namasteCode : match.getRecords()) {
+            Parameters.ParametersParameterComponent matchGroup = new Parameters.ParametersParameterComponent();
+            matchGroup.setName("match");
+
+            Parameters.ParametersParameterComponent codeParam = new Parameters.ParametersParameterComponent();
+            codeParam.setName("code");
+            codeParam.addPart().setName("system").setValue(new UriType("http://terminology.hl7.org.in/CodeSystem/namaste"));
+            codeParam.addPart().setName("code").setValue(new CodeType(namasteCode.getNamasteCode()));
+            codeParam.addPart().setName("display").setValue(new StringType(namasteCode.getNamasteName()));
+            matchGroup.addPart(codeParam);
+            matchGroup.addPart().setName("type").setValue(new StringType(namasteCode.getNamasteCategory()));
+
+            if (namasteCode.getIcd11Tm2Code() != null) {
+                Parameters.ParametersParameterComponent tm2Param = new Parameters.ParametersParameterComponent();
+                tm2Param.setName("tm2Mapping");
+                tm2Param.addPart().setName("system").setValue(new UriType("http://id.who.int/icd/release/11/tm2"));
+                tm2Param.addPart().setName("code").setValue(new CodeType(namasteCode.getIcd11Tm2Code()));
+                tm2Param.addPart().setName("display").setValue(new StringType(namasteCode.getIcd11Tm2Name()));
+                matchGroup.addPart(tm2Param);
+            }
+
+            if (namasteCode.getConfidenceScore() != null) {
+                matchGroup.addPart().setName("confidenceScore").setValue(new DecimalType(namasteCode.getConfidenceScore()));
+            }
+
+            parameters.addParameter(matchGroup);
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Create FHIR Parameters listing the current and retained dataset versions, newest first
+     */
+    public Parameters createVersionsResult() {
+        Parameters parameters = new Parameters();
+        parameters.setId("terminology-versions");
+        List<TerminologySnapshot> snapshots = terminologyIndexLoader.getSnapshots();
+        parameters.addParameter("current", new StringType(String.valueOf(snapshots.get(0).getVersion())));
+        for (TerminologySnapshot snapshot : snapshots) {
+            Parameters.ParametersParameterComponent versionParam = parameters.addParameter().setName("version");
+            versionParam.addPart().setName("version").setValue(new StringType(String.valueOf(snapshot.getVersion())));
+            versionParam.addPart().setName("created").setValue(new DateTimeType(Date.from(snapshot.getCreatedAt())));
+            versionParam.addPart().setName("records").setValue(new IntegerType(snapshot.size()));
+        }
+        return parameters;
+    }
+
     /**
      * Create FHIR Parameters for search by symptoms result - MAIN FEATURE 2
      * Modified to use grouped results and show proper disease groupings
      */
     public Parameters createSearchBySymptomsResult(List<String> symptoms) {
-        log.info("Creating FHIR Parameters for symptoms search: {}", symptoms);
+        return createSearchBySymptomsResult(symptoms, null, null, false);
+    }
+
+    /**
+     * Ranked page of disease groups; offset/count page through all groups matching every symptom
+     */
+    public Parameters createSearchBySymptomsResult(List<String> symptoms, Integer offset, Integer count, boolean includeFacets) {
+        log.info("Creating FHIR Parameters for symptoms search: {} offset={} count={}", symptoms, offset, count);
 
         if (symptoms == null || symptoms.isEmpty()) {
             // Create empty parameters if no symptoms provided
@@ -260,10 +366,11 @@ public class TerminologyFhirService {
             return parameters;
         }
 
-        // Search using the NEW GROUPED terminology service method
-        List<NamasteTerminologyService.DiseaseMapping> groupedResults = terminologyService.searchBySymptomsGrouped(symptoms);
+        // Search using the ranked, paged terminology service method
+        NamasteTerminologyService.DiseasePage page = terminologyService.searchBySymptomsRanked(symptoms, offset, count);
+        List<NamasteTerminologyService.DiseaseMapping> groupedResults = page.getGroups();
 
-        if (groupedResults.isEmpty()) {
+        if (page.getTotal() == 0) {
             // Create empty parameters if no results found
             Parameters parameters = new Parameters();
             parameters.setId("search-by-symptoms-result-" + System.currentTimeMillis());
@@ -272,24 +379,24 @@ public class TerminologyFhirService {
             return parameters;
         }
 
-        // Check if results exceed 20 DISEASE GROUPS (not individual mappings)
-        if (groupedResults.size() > 20) {
-            Parameters parameters = new Parameters();
-            parameters.setId("search-by-symptoms-error-" + System.currentTimeMillis());
-            parameters.addParameter("result", new BooleanType(false));
-            parameters.addParameter("error", new StringType("Too many results"));
-            parameters.addParameter("message", new StringType("Found " + groupedResults.size() + " disease groups. Please refine your symptoms to get 20 or fewer results."));
-            parameters.addParameter("resultCount", new IntegerType(groupedResults.size()));
-            parameters.addParameter("maxAllowed", new IntegerType(20));
-            return parameters;
-        }
-
-        // Return ALL grouped results
+        // Return one ranked page of grouped results
         Parameters parameters = new Parameters();
         parameters.setId("search-by-symptoms-grouped-results-" + System.currentTimeMillis());
         parameters.addParameter("result", new BooleanType(true));
-        parameters.addParameter("totalDiseaseGroups", new IntegerType(groupedResults.size()));
+        parameters.addParameter("totalDiseaseGroups", new IntegerType(page.getTotal()));
+        parameters.addParameter("returnedDiseaseGroups", new IntegerType(groupedResults.size()));
+        parameters.addParameter("offset", new IntegerType(page.getOffset()));
+        parameters.addParameter("count", new IntegerType(page.getCount()));
+        if (page.hasMore()) {
+            parameters.addParameter("nextOffset", new IntegerType(page.getOffset() + groupedResults.size()));
+        }
         parameters.addParameter("matchedSymptoms", new StringType(String.join(", ", symptoms)));
+        if (page.getCorrectedSymptoms() != null) {
+            parameters.addParameter("didYouMean", new StringType(String.join(", ", page.getCorrectedSymptoms())));
+        }
+        if (includeFacets) {
+            addFacetParameters(parameters, page.getFacets());
+        }
 
         // Add each disease group as a parameter
         for (int i = 0; i < groupedResults.size(); i++) {
@@ -308,8 +415,11 @@ public class TerminologyFhirService {
             if (diseaseMapping.getTm2Definition() != null) {
                 tm2Info.addPart().setName("definition").setValue(new StringType(diseaseMapping.getTm2Definition()));
             }
+            addHighlightParts(tm2Info, diseaseMapping.getHighlights(), MatchHighlighter.FIELD_TM2_DEFINITION, null);
             diseaseGroup.addPart(tm2Info);
 
+            diseaseGroup.addPart().setName("rank").setValue(new IntegerType(page.getOffset() + i + 1));
+
             // Add symptom similarity score
             if (diseaseMapping.getSimilarityScore() != null) {
                 diseaseGroup.addPart().setName("symptomSimilarityScore").setValue(new DecimalType(diseaseMapping.getSimilarityScore()));
@@ -339,6 +449,7 @@ public class TerminologyFhirService {
                 if (mapping.getNamasteDescription() != null) {
                     mappingParam.addPart().setName("description").setValue(new StringType(mapping.getNamasteDescription()));
                 }
+                addHighlightParts(mappingParam, diseaseMapping.getHighlights(), MatchHighlighter.FIELD_CODE_DESCRIPTION, mapping.getNamasteCode());
 
                 // Add mapping confidence score
                 if (mapping.getConfidenceScore() != null) {
@@ -353,4 +464,393 @@ public class TerminologyFhirService {
 
         return parameters;
     }
-}
\ No newline at end of file
+
+    /**
+     * Create FHIR Parameters for codes filtered by type, confidence band, TM2 chapter and symptoms
+     */
+    public Parameters createFilterResult(String type, String confidence, String chapter, List<String> symptoms, int limit) {
+        log.info("Creating FHIR Parameters for filter type={} confidence={} chapter={} symptoms={}", type, confidence, chapter, symptoms);
+
+        NamasteTerminologyService.FilteredCodes filtered = terminologyService.filterCodes(
+                type, TerminologyFacetIndex.ConfidenceBand.parse(confidence), chapter, symptoms, limit);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("filter-result-" + System.currentTimeMillis());
+        parameters.addParameter("result", new BooleanType(filtered.getTotal() > 0));
+        parameters.addParameter("total", new IntegerType(filtered.getTotal()));
+        parameters.addParameter("returned", new IntegerType(filtered.getCodes().size()));
+        for (NamasteCode code : filtered.getCodes()) {
+            Parameters.ParametersParameterComponent match = new Parameters.ParametersParameterComponent();
+            match.setName("match");
+            match.addPart().setName("system").setValue(new UriType("http://terminology.hl7.org.in/CodeSystem/namaste"));
+            match.addPart().setName("code").setValue(new CodeType(code.getNamasteCode()));
+            match.addPart().setName("display").setValue(new StringType(code.getNamasteName()));
+            match.addPart().setName("type").setValue(new StringType(code.getType()));
+            if (code.getTm2Code() != null) {
+                match.addPart().setName("tm2Code").setValue(new CodeType(code.getTm2Code()));
+            }
+            if (code.getConfidenceScore() != null) {
+                match.addPart().setName("mappingConfidenceScore").setValue(new DecimalType(code.getConfidenceScore()));
+            }
+            parameters.addParameter(match);
+        }
+        return parameters;
+    }
+
+    /**
+     * Create FHIR Parameters for auto-complete, optionally with type and confidence-band counts
+     */
+    public Parameters createAutoCompleteResult(String term, int limit, boolean includeFacets) {
+        log.info("Creating FHIR Parameters for auto-complete of '{}'", term);
+
+        NamasteTerminologyService.FacetedResults faceted = terminologyService.searchForAutoCompleteFaceted(term, limit);
+        Parameters parameters = new Parameters();
+        parameters.setId("autocomplete-result-" + System.currentTimeMillis());
+        parameters.addParameter("result", new BooleanType(faceted.getTotal() > 0));
+        parameters.addParameter("total", new IntegerType(faceted.getTotal()));
+        parameters.addParameter("returned", new IntegerType(faceted.getResults().size()));
+        if (includeFacets) {
+            addFacetParameters(parameters, faceted.getFacets());
+        }
+        for (NamasteCode code : faceted.getResults()) {
+            Parameters.ParametersParameterComponent match = new Parameters.ParametersParameterComponent();
+            match.setName("match");
+            match.addPart().setName("system").setValue(new UriType("http://terminology.hl7.org.in/CodeSystem/namaste"));
+            match.addPart().setName("code").setValue(new CodeType(code.getNamasteCode()));
+            match.addPart().setName("display").setValue(new StringType(code.getNamasteName()));
+            match.addPart().setName("type").setValue(new StringType(code.getType()));
+            if (code.getTm2Code() != null) {
+                match.addPart().setName("tm2Code").setValue(new CodeType(code.getTm2Code()));
+            }
+            parameters.addParameter(match);
+        }
+        return parameters;
+    }
+
+    /**
+     * One "facet" parameter per facet (type, confidenceBand) with a value/count part per bucket
+     */
+    private void addFacetParameters(Parameters parameters, NamasteTerminologyService.FacetCounts facets) {
+        addFacet(parameters, "type", facets.getByType());
+        addFacet(parameters, "confidenceBand", facets.getByConfidenceBand());
+    }
+
+    private void addFacet(Parameters parameters, String name, Map<String, Integer> counts) {
+        Parameters.ParametersParameterComponent facet = new Parameters.ParametersParameterComponent();
+        facet.setName("facet");
+        facet.addPart().setName("name").setValue(new StringType(name));
+        counts.forEach((value, count) -> {
+            Parameters.ParametersParameterComponent bucket = facet.addPart().setName("bucket");
+            bucket.addPart().setName("value").setValue(new StringType(value));
+            bucket.addPart().setName("count").setValue(new IntegerType(count));
+        });
+        parameters.addParameter(facet);
+    }
+
+    /**
+     * One "highlight" part (field, start, end) per matched span of the field; code narrows to one mapping
+     */
+    private void addHighlightParts(Parameters.ParametersParameterComponent component, List<MatchHighlighter.Highlight> highlights,
+                                   String field, String code) {
+        for (MatchHighlighter.Highlight highlight : highlights) {
+            if (!field.equals(highlight.getField()) || (code != null && !code.equals(highlight.getCode()))) {
+                continue;
+            }
+            Parameters.ParametersParameterComponent part = component.addPart().setName("highlight");
+            part.addPart().setName("field").setValue(new StringType(highlight.getField()));
+            part.addPart().setName("start").setValue(new IntegerType(highlight.getStart()));
+            part.addPart().setName("end").setValue(new IntegerType(highlight.getEnd()));
+        }
+    }
+
+    /**
+     * Create FHIR Parameters for a cross-system translation ($translate style)
+     * e.g. Ayurveda code -> Siddha equivalent through the shared TM2 code
+     */
+    public Parameters createTranslateResult(String code, String targetType) {
+        log.info("Creating FHIR Parameters for translation of {} to {}", code, targetType);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("translate-result-" + code + "-" + targetType);
+
+        if (!crossSystemTranslator.isKnownType(targetType)) {
+            parameters.addParameter("result", new BooleanType(false));
+            parameters.addParameter("message", new StringType("Unknown target system: " + targetType
+                    + ". Known systems: " + String.join(", ", crossSystemTranslator.getKnownTypes())));
+            return parameters;
+        }
+
+        CrossSystemTranslator.Translation translation = crossSystemTranslator.translate(code, targetType);
+        parameters.addParameter("result", new BooleanType(translation.isFound()));
+        if (!translation.isFound()) {
+            parameters.addParameter("message", new StringType("No " + targetType + " equivalent found for code: " + code));
+            return parameters;
+        }
+
+        parameters.addParameter(createTranslationMatch(translation));
+        return parameters;
+    }
+
+    /**
+     * Create FHIR Parameters for a batch of translations into the same target system
+     */
+    public Parameters createBatchTranslateResult(List<String> codes, String targetType) {
+        log.info("Creating FHIR Parameters for batch translation of {} codes to {}", codes.size(), targetType);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("batch-translate-result-" + System.currentTimeMillis());
+
+        if (!crossSystemTranslator.isKnownType(targetType)) {
+            parameters.addParameter("result", new BooleanType(false));
+            parameters.addParameter("message", new StringType("Unknown target system: " + targetType
+                    + ". Known systems: " + String.join(", ", crossSystemTranslator.getKnownTypes())));
+            return parameters;
+        }
+
+        List<CrossSystemTranslator.Translation> translations = crossSystemTranslator.translateAll(codes, targetType);
+        long found = translations.stream().filter(CrossSystemTranslator.Translation::isFound).count();
+        parameters.addParameter("result", new BooleanType(found > 0));
+        parameters.addParameter("totalRequested", new IntegerType(translations.size()));
+        parameters.addParameter("totalTranslated", new IntegerType((int) found));
+
+        for (CrossSystemTranslator.Translation translation : translations) {
+            Parameters.ParametersParameterComponent translationGroup = new Parameters.ParametersParameterComponent();
+            translationGroup.setName("translation");
+            translationGroup.addPart().setName("sourceCode").setValue(new CodeType(translation.getSourceCode()));
+            translationGroup.addPart().setName("result").setValue(new BooleanType(translation.isFound()));
+            if (translation.isFound()) {
+                translationGroup.addPart(createTranslationMatch(translation));
+            }
+            parameters.addParameter(translationGroup);
+        }
+
+        return parameters;
+    }
+
+    private Parameters.ParametersParameterComponent createTranslationMatch(CrossSystemTranslator.Translation translation) {
+        NamasteCode target = translation.getTarget();
+
+        Parameters.ParametersParameterComponent matchGroup = new Parameters.ParametersParameterComponent();
+        matchGroup.setName("match");
+        matchGroup.addPart().setName("equivalence").setValue(new CodeType("equivalent"));
+        matchGroup.addPart().setName("concept").setValue(new Coding()
+                .setSystem("http://terminology.hl7.org.in/CodeSystem/namaste")
+                .setCode(target.getNamasteCode())
+                .setDisplay(target.getNamasteName()));
+        matchGroup.addPart().setName("type").setValue(new StringType(target.getNamasteCategory()));
+
+        if (translation.getSource() != null) {
+            matchGroup.addPart().setName("source").setValue(new Coding()
+                    .setSystem("http://terminology.hl7.org.in/CodeSystem/namaste")
+                    .setCode(translation.getSource().getNamasteCode())
+                    .setDisplay(translation.getSource().getNamasteName()));
+        }
+        if (target.getIcd11Tm2Code() != null) {
+            matchGroup.addPart().setName("via").setValue(new Coding()
+                    .setSystem("http://id.who.int/icd/release/11/tm2")
+                    .setCode(target.getIcd11Tm2Code())
+                    .setDisplay(target.getIcd11Tm2Name()));
+        }
+        if (target.getConfidenceScore() != null) {
+            matchGroup.addPart().setName("confidenceScore").setValue(new DecimalType(target.getConfidenceScore()));
+        }
+        return matchGroup;
+    }
+
+    /**
+     * Create a FHIR ValueSet with one page of an implicit value set expansion ($expand)
+     */
+    public ValueSet createValueSetExpansion(String valueSetReference, String filter, Integer offset, Integer count) {
+        log.info("Creating FHIR ValueSet expansion for {} (filter={}, offset={}, count={})", valueSetReference, filter, offset, count);
+
+        String valueSetId = valueSetExpansionService.resolveValueSetId(valueSetReference);
+        if (valueSetId == null) {
+            throw new IllegalArgumentException("Unknown value set: " + valueSetReference
+                    + ". Available: " + String.join(", ", valueSetExpansionService.getValueSetIds()));
+        }
+
+        ValueSetExpansionService.Expansion expansion = valueSetExpansionService.expand(valueSetId, filter, offset, count);
+
+        ValueSet valueSet = new ValueSet();
+        valueSet.setId(valueSetId);
+        valueSet.setUrl(ValueSetExpansionService.VALUESET_BASE_URL + valueSetId);
+        valueSet.setName(valueSetId);
+        valueSet.setStatus(Enumerations.PublicationStatus.ACTIVE);
+
+        ValueSet.ValueSetExpansionComponent expansionComponent = valueSet.getExpansion();
+        expansionComponent.setIdentifier("urn:namaste:expansion:" + valueSetId + ":" + expansion.getDatasetVersion());
+        expansionComponent.setTimestamp(new Date());
+        expansionComponent.setTotal(expansion.getTotal());
+        expansionComponent.setOffset(expansion.getOffset());
+        if (!expansion.getFilter().isEmpty()) {
+            expansionComponent.addParameter().setName("filter").setValue(new StringType(expansion.getFilter()));
+        }
+        expansionComponent.addParameter().setName("offset").setValue(new IntegerType(expansion.getOffset()));
+        expansionComponent.addParameter().setName("count").setValue(new IntegerType(expansion.getCount()));
+        expansionComponent.addParameter().setName("version").setValue(new StringType(String.valueOf(expansion.getDatasetVersion())));
+
+        for (ValueSetExpansionService.ExpandedConcept concept : expansion.getContains()) {
+            expansionComponent.addContains()
+                    .setSystem(concept.getSystem())
+                    .setCode(concept.getCode())
+                    .setDisplay(concept.getDisplay());
+        }
+
+        return valueSet;
+    }
+
+    /**
+     * Create FHIR Parameters for CodeSystem $validate-code
+     */
+    public Parameters createValidateCodeResult(String system, String code, String display) {
+        log.info("Creating FHIR Parameters for $validate-code: {}|{}", system, code);
+
+        CodeSystemLookupService.ValidationResult validation = codeSystemLookupService.validateCode(system, code, display);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("validate-code-result-" + code);
+        parameters.addParameter("result", new BooleanType(validation.isValid()));
+        if (validation.getMessage() != null) {
+            parameters.addParameter("message", new StringType(validation.getMessage()));
+        }
+        if (validation.getDisplay() != null) {
+            parameters.addParameter("display", new StringType(validation.getDisplay()));
+        }
+        if (validation.getSystem() != null) {
+            parameters.addParameter("system", new UriType(validation.getSystem()));
+        }
+        parameters.addParameter("code", new CodeType(validation.getCode()));
+        return parameters;
+    }
+
+    /**
+     * Create FHIR Parameters for CodeSystem $lookup, or null when the code is unknown
+     */
+    public Parameters createLookupResult(String system, String code) {
+        log.info("Creating FHIR Parameters for $lookup: {}|{}", system, code);
+
+        CodeSystemLookupService.Concept concept = codeSystemLookupService.lookup(system, code);
+        if (concept == null) {
+            return null;
+        }
+        NamasteCode record = concept.getRecord();
+        boolean namaste = ValueSetExpansionService.NAMASTE_SYSTEM.equals(concept.getSystem());
+
+        Parameters parameters = new Parameters();
+        parameters.setId("lookup-result-" + concept.getCode());
+        parameters.addParameter("name", new StringType(namaste ? "NAMASTE" : "ICD-11 TM2"));
+        parameters.addParameter("system", new UriType(concept.getSystem()));
+        parameters.addParameter("display", new StringType(concept.getDisplay()));
+        if (concept.getDefinition() != null) {
+            parameters.addParameter("definition", new StringType(concept.getDefinition()));
+        }
+
+        if (namaste) {
+            addLookupProperty(parameters, "type", new CodeType(record.getNamasteCategory()));
+            if (record.getIcd11Tm2Code() != null) {
+                addLookupProperty(parameters, "tm2Mapping", new Coding()
+                        .setSystem(ValueSetExpansionService.TM2_SYSTEM)
+                        .setCode(record.getIcd11Tm2Code())
+                        .setDisplay(record.getIcd11Tm2Name()));
+            }
+            if (record.getConfidenceScore() != null) {
+                addLookupProperty(parameters, "confidenceScore", new DecimalType(record.getConfidenceScore()));
+            }
+        } else if (record.getIcd11Tm2Uri() != null) {
+            addLookupProperty(parameters, "link", new UriType(record.getIcd11Tm2Uri()));
+        }
+        return parameters;
+    }
+
+    private void addLookupProperty(Parameters parameters, String code, Type value) {
+        Parameters.ParametersParameterComponent property = parameters.addParameter();
+        property.setName("property");
+        property.addPart().setName("code").setValue(new CodeType(code));
+        property.addPart().setName("value").setValue(value);
+    }
+
+    /**
+     * Create FHIR Parameters with the code annotations of a free-text clinical note
+     */
+    public Parameters createAnnotationResult(String text) {
+        log.info("Creating FHIR Parameters for note annotation ({} chars)", text != null ? text.length() : 0);
+
+        List<ClinicalNoteAnnotator.Annotation> annotations = clinicalNoteAnnotator.annotate(text);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("annotation-result-" + System.currentTimeMillis());
+        parameters.addParameter("result", new BooleanType(!annotations.isEmpty()));
+        parameters.addParameter("totalAnnotations", new IntegerType(annotations.size()));
+        if (!clinicalNoteAnnotator.isReady()) {
+            parameters.addParameter("message", new StringType("Annotator is still loading the terminology"));
+        }
+
+        for (ClinicalNoteAnnotator.Annotation annotation : annotations) {
+            Parameters.ParametersParameterComponent annotationGroup = new Parameters.ParametersParameterComponent();
+            annotationGroup.setName("annotation");
+            annotationGroup.addPart().setName("text").setValue(new StringType(annotation.getText()));
+            annotationGroup.addPart().setName("start").setValue(new IntegerType(annotation.getStart()));
+            annotationGroup.addPart().setName("end").setValue(new IntegerType(annotation.getEnd()));
+            annotationGroup.addPart().setName("matchedTerm").setValue(new StringType(annotation.getMatchedTerm()));
+            for (String kind : annotation.getKinds()) {
+                annotationGroup.addPart().setName("kind").setValue(new CodeType(kind));
+            }
+
+            for (ClinicalNoteAnnotator.Candidate candidate : annotation.getCandidates()) {
+                Parameters.ParametersParameterComponent candidateParam = new Parameters.ParametersParameterComponent();
+                candidateParam.setName("candidate");
+                candidateParam.addPart().setName("code").setValue(new Coding()
+                        .setSystem(candidate.getSystem())
+                        .setCode(candidate.getCode())
+                        .setDisplay(candidate.getDisplay()));
+                if (candidate.getType() != null) {
+                    candidateParam.addPart().setName("type").setValue(new StringType(candidate.getType()));
+                }
+                if (candidate.getConfidenceScore() != null) {
+                    candidateParam.addPart().setName("confidenceScore").setValue(new DecimalType(candidate.getConfidenceScore()));
+                }
+                annotationGroup.addPart(candidateParam);
+            }
+
+            parameters.addParameter(annotationGroup);
+        }
+
+        return parameters;
+    }
+
+    /**
+     * Create FHIR Parameters with "did you mean" corrections for a (possibly misspelled) term
+     * One suggestion group per word, plus the corrected phrase when any word changed
+     */
+    public Parameters createSuggestionResult(String term, int limit) {
+        log.info("Creating FHIR Parameters for spelling suggestions of '{}'", term);
+
+        Parameters parameters = new Parameters();
+        parameters.setId("suggestion-result-" + System.currentTimeMillis());
+        String corrected = spellingCorrectionService.correctPhrase(term);
+        parameters.addParameter("result", new BooleanType(corrected != null));
+        if (corrected != null) {
+            parameters.addParameter("didYouMean", new StringType(corrected));
+        }
+        if (!spellingCorrectionService.isReady()) {
+            parameters.addParameter("message", new StringType("Spelling index is still loading the terminology"));
+        }
+
+        for (String word : TextTokenizer.tokenize(term)) {
+            Parameters.ParametersParameterComponent wordGroup = new Parameters.ParametersParameterComponent();
+            wordGroup.setName("word");
+            wordGroup.addPart().setName("input").setValue(new StringType(word));
+            for (SymSpellIndex.Suggestion suggestion : spellingCorrectionService.suggest(word, limit)) {
+                Parameters.ParametersParameterComponent suggestionParam = new Parameters.ParametersParameterComponent();
+                suggestionParam.setName("suggestion");
+                suggestionParam.addPart().setName("term").setValue(new StringType(suggestion.getTerm()));
+                suggestionParam.addPart().setName("distance").setValue(new IntegerType(suggestion.getDistance()));
+                suggestionParam.addPart().setName("frequency").setValue(new IntegerType(suggestion.getFrequency()));
+                wordGroup.addPart(suggestionParam);
+            }
+            parameters.addParameter(wordGroup);
+        }
+
+        return parameters;
+    }
+}
@@ -0,0 +1,154 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.namaste.Namaste.to.TM2.Index.TerminologyIndexFile;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsCriteria;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Persists the terminology records and best-mapping postings as a TerminologyIndexFile after every full reload
+ * and hands the file back at startup
+ * A new instance maps the file and, after one sequential pass to verify its checksum, serves code lookups and
+ * records straight from the mapped pages before MongoDB has been scanned; the other in-memory indexes follow
+ * once they are built from it. With GridFS enabled the file is also stored in MongoDB and fetched by instances
+ * that start without a local copy
+ */
+@Service
+public class TerminologyIndexArtifactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(TerminologyIndexArtifactStore.class);
+    private static final String CONTENT_TYPE = "application/octet-stream";
+
+    private final TerminologyIndexConfig indexConfig;
+    private final ObjectProvider<GridFsTemplate> gridFsTemplate;
+
+    // Version read from the artifact at startup; republishing it must not rewrite the same file
+    private volatile long loadedVersion = -1;
+
+    public TerminologyIndexArtifactStore(TerminologyIndexConfig indexConfig,
+                                         ObjectProvider<GridFsTemplate> gridFsTemplate) {
+        this.indexConfig = indexConfig;
+        this.gridFsTemplate = gridFsTemplate;
+    }
+
+    @EventListener
+    @Order(40)
+    public void onTerminologyChanged(TerminologyChangedEvent event) {
+        if (!isEnabled() || event.getSnapshot() == null || event.getVersion() == loadedVersion) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path path = artifactPath();
+        try {
+            TerminologySnapshot snapshot = event.getSnapshot();
+            TerminologyIndexFile.write(path, snapshot.getVersion(), snapshot.getRecords(), snapshot.getBestMappings());
+            log.info("Wrote terminology index artifact {} ({} records, version {}, {} bytes) in {} ms",
+                    path, event.getCodes().size(), event.getVersion(), Files.size(path), System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            log.warn("Could not write terminology index artifact {}: {}", path, e.getMessage());
+            return;
+        }
+        if (indexConfig.isArtifactGridFsEnabled()) {
+            uploadToGridFs(path, event.getVersion());
+        }
+    }
+
+    /**
+     * The mapped local artifact (downloaded from GridFS first when enabled and missing locally)
+     * Empty when there is no usable artifact; a corrupt or outdated file is logged and ignored
+     */
+    public Optional<TerminologyIndexFile.Contents> load() {
+        if (!isEnabled()) {
+            return Optional.empty();
+        }
+        Path path = artifactPath();
+        if (!Files.exists(path) && indexConfig.isArtifactGridFsEnabled()) {
+            downloadFromGridFs(path);
+        }
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            TerminologyIndexFile.Contents contents = TerminologyIndexFile.read(path);
+            loadedVersion = contents.getDatasetVersion();
+            log.info("Mapped terminology index artifact {} ({} records, version {}) in {} ms",
+                    path, contents.size(), contents.getDatasetVersion(), System.currentTimeMillis() - start);
+            return Optional.of(contents);
+        } catch (IOException e) {
+            log.warn("Ignoring terminology index artifact {}: {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void uploadToGridFs(Path path, long version) {
+        GridFsTemplate gridFs = gridFsTemplate.getIfAvailable();
+        if (gridFs == null) {
+            return;
+        }
+        String filename = path.getFileName().toString();
+        try (InputStream content = Files.newInputStream(path)) {
+            gridFs.store(content, filename, CONTENT_TYPE, new Document("version", version)
+                    .append("format", TerminologyIndexFile.FORMAT_VERSION));
+            // Older uploads go only after the new one is stored, so a reader always finds a copy
+            gridFs.delete(Query.query(GridFsCriteria.whereFilename().is(filename)
+                    .and("metadata.version").ne(version)));
+        } catch (Exception e) {
+            log.warn("Could not store terminology index artifact in GridFS: {}", e.getMessage());
+        }
+    }
+
+    private void downloadFromGridFs(Path path) {
+        GridFsTemplate gridFs = gridFsTemplate.getIfAvailable();
+        if (gridFs == null) {
+            return;
+        }
+        try {
+            Query latest = Query.query(GridFsCriteria.whereFilename().is(path.getFileName().toString()))
+                    .with(Sort.by(Sort.Direction.DESC, "uploadDate"))
+                    .limit(1);
+            GridFSFile file = gridFs.findOne(latest);
+            if (file == null) {
+                return;
+            }
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".download");
+            try (InputStream content = gridFs.getResource(file).getInputStream()) {
+                Files.copy(content, temporary, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+            log.info("Downloaded terminology index artifact from GridFS to {}", path);
+        } catch (Exception e) {
+            log.warn("Could not fetch terminology index artifact from GridFS: {}", e.getMessage());
+        }
+    }
+
+    private boolean isEnabled() {
+        return indexConfig.getArtifactPath() != null && !indexConfig.getArtifactPath().isBlank();
+    }
+
+    private Path artifactPath() {
+        return Path.of(indexConfig.getArtifactPath());
+    }
+}
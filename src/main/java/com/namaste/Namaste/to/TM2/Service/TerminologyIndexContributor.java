@@ -0,0 +1,30 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+
+import java.util.Collection;
+
+/**
+ * An in-memory index derived from one version of the terminology
+ * TerminologyIndexLoader builds the index of every contributor into the new TerminologySnapshot before that
+ * snapshot is published, so a reader that takes the current snapshot once sees every index at the same version;
+ * a contributor reads its index back with snapshot.index(this)
+ * Single saves are applied with updateIndex where a contributor supports it; otherwise the previous index is
+ * carried into the new snapshot and rebuilt in the background shortly after
+ */
+public interface TerminologyIndexContributor<T> {
+
+    /**
+     * Build the index from the snapshot's records; must not read other contributors' indexes
+     */
+    T buildIndex(TerminologySnapshot snapshot);
+
+    /**
+     * Apply saved records to the previous version's index, or return null to have it rebuilt in the background
+     * Readers may still hold the previous snapshot, so the index may only be changed in place where that can
+     * never give them a wrong answer (a Bloom filter only gains bits)
+     */
+    default T updateIndex(T index, TerminologySnapshot snapshot, Collection<NamasteCode> savedRecords) {
+        return null;
+    }
+}
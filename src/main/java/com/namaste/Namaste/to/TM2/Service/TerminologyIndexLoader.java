@@ -0,0 +1,332 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.TerminologyIndexFile;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the terminology dataset and publishes it, with every in-memory index, as TerminologySnapshots
+ * Full reloads run at startup (in the background) and after imports
+ * A single save is published at once with a new version: contributors that support updateIndex apply it in
+ * place, the others keep serving their previous index until a debounced rebuild on the terminology-index-refresh
+ * thread swaps in a fresh one, so a burst of saves costs one rebuild rather than one per save
+ * Every change builds a new immutable snapshot off to the side, including the index of every
+ * TerminologyIndexContributor, and publishes it with one volatile write, so readers never lock and never
+ * combine indexes of two versions; a TerminologyChangedEvent follows for listeners with side effects
+ * A contributor or listener that fails is logged and skipped: the snapshot is still published, and that
+ * contributor's index stays unavailable (its service falls back) until the next load
+ * Versions are retained per import: a full reload retires the current snapshot into the history (the last
+ * retained-versions are kept, off-heap), while a single save gets a new version number but replaces the
+ * current snapshot without being retained
+ */
+@Service
+public class TerminologyIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(TerminologyIndexLoader.class);
+    private final NamasteCodeRepository namasteCodeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TerminologyIndexConfig indexConfig;
+    private final TerminologyIndexArtifactStore artifactStore;
+    private final ObjectProvider<TerminologyIndexContributor<?>> contributors;
+    private final AtomicLong version = new AtomicLong();
+    // Current dataset and indexes
+    private volatile TerminologySnapshot current = TerminologySnapshot.of(0, List.of());
+    // Versions replaced by a full reload, newest first; only touched under the instance lock
+    private final Deque<TerminologySnapshot> previous = new ArrayDeque<>();
+    private volatile boolean loaded;
+    // Contributors whose index in the current snapshot predates a save; only touched under the instance lock
+    private final Set<TerminologyIndexContributor<?>> staleContributors = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final ScheduledExecutorService refreshExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "terminology-index-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> pendingRefresh;
+    // Bumped by every full publish, so a background refresh never overwrites the indexes of a newer load
+    private long fullLoads;
+
+    public TerminologyIndexLoader(NamasteCodeRepository namasteCodeRepository,
+                                  ApplicationEventPublisher eventPublisher,
+                                  TerminologyIndexConfig indexConfig,
+                                  TerminologyIndexArtifactStore artifactStore,
+                                  ObjectProvider<TerminologyIndexContributor<?>> contributors) {
+        this.namasteCodeRepository = namasteCodeRepository;
+        this.eventPublisher = eventPublisher;
+        this.indexConfig = indexConfig;
+        this.artifactStore = artifactStore;
+        this.contributors = contributors;
+    }
+
+    /**
+     * Load indexes in the background so startup is not blocked on MongoDB
+     * A persisted index artifact is published first, so lookups are served from memory before the collection scan
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(() -> {
+            boolean fromArtifact = false;
+            try {
+                fromArtifact = loadArtifact();
+            } catch (Exception e) {
+                log.warn("Publishing the terminology index artifact failed, loading from MongoDB", e);
+            }
+            if (fromArtifact && !indexConfig.isArtifactRefreshOnStartup()) {
+                return;
+            }
+            try {
+                reload();
+            } catch (Exception e) {
+                log.error("Initial terminology index load failed, lookups fall back to MongoDB", e);
+            }
+        }, "terminology-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Read the whole tm2_mappings collection and rebuild every index
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        List<NamasteCode> allCodes = namasteCodeRepository.findAll();
+        TerminologySnapshot snapshot = publishFull(TerminologySnapshot.of(version.incrementAndGet(), allCodes));
+        log.info("Terminology indexes rebuilt from {} records (version {}) in {} ms",
+                snapshot.size(), snapshot.getVersion(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Publish the persisted index artifact, continuing its version numbering
+     * The mapped snapshot is published as soon as the file is checked, so code lookups and pinned reads are
+     * served from the mapped pages at once; the contributor indexes are built from it and swapped in after
+     */
+    synchronized boolean loadArtifact() {
+        Optional<TerminologyIndexFile.Contents> artifact = artifactStore.load();
+        if (artifact.isEmpty()) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        TerminologySnapshot mapped = TerminologySnapshot.of(artifact.get());
+        version.accumulateAndGet(mapped.getVersion(), Math::max);
+        current = mapped;
+        loaded = true;
+        log.info("Serving terminology version {} ({} records) from the mapped artifact after {} ms",
+                mapped.getVersion(), mapped.size(), System.currentTimeMillis() - start);
+        publishFull(mapped);
+        log.info("Terminology indexes rebuilt from artifact version {} in {} ms",
+                mapped.getVersion(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * Push saved records into the indexes without a full reload
+     * Indexes that cannot take the update in place are carried forward and rebuilt after refresh-delay-millis
+     */
+    public synchronized void publishUpdate(List<NamasteCode> savedCodes) {
+        long newVersion = version.incrementAndGet();
+        TerminologySnapshot previousSnapshot = current;
+        TerminologySnapshot updated = previousSnapshot.withUpdates(newVersion, savedCodes);
+        Map<TerminologyIndexContributor<?>, Object> indexes = new IdentityHashMap<>();
+        contributors.orderedStream().forEach(contributor -> {
+            Object index = previousSnapshot.index(contributor);
+            Object applied = null;
+            if (index != null && !staleContributors.contains(contributor)) {
+                try {
+                    applied = applyUpdate(contributor, previousSnapshot, updated, savedCodes);
+                } catch (RuntimeException e) {
+                    log.warn("Updating the {} index for terminology version {} failed, rebuilding it",
+                            contributor.getClass().getSimpleName(), newVersion, e);
+                }
+            }
+            if (applied != null) {
+                indexes.put(contributor, applied);
+                return;
+            }
+            if (index != null) {
+                indexes.put(contributor, index);
+            }
+            staleContributors.add(contributor);
+        });
+        current = updated.withIndexes(indexes, !staleContributors.isEmpty());
+        if (!staleContributors.isEmpty()) {
+            scheduleRefresh();
+        }
+        publishEvent(new TerminologyChangedEvent(this, savedCodes, false, newVersion));
+    }
+
+    /**
+     * Rebuild the indexes that were carried forward past a save and swap them into the current snapshot
+     * The build runs outside the lock; saves that land meanwhile keep the rebuilt indexes (they are newer than
+     * the ones they replace) and leave them stale for one more refresh, while a full reload discards them
+     */
+    void refreshStaleIndexes() {
+        TerminologySnapshot snapshot;
+        List<TerminologyIndexContributor<?>> stale;
+        long loadGeneration;
+        synchronized (this) {
+            pendingRefresh = null;
+            snapshot = current;
+            stale = new ArrayList<>(staleContributors);
+            staleContributors.clear();
+            loadGeneration = fullLoads;
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<TerminologyIndexContributor<?>, Object> rebuilt = buildIndexes(stale, snapshot.decoded());
+        synchronized (this) {
+            if (loadGeneration != fullLoads) {
+                return;
+            }
+            Map<TerminologyIndexContributor<?>, Object> indexes = new IdentityHashMap<>(current.indexes());
+            for (TerminologyIndexContributor<?> contributor : stale) {
+                Object index = rebuilt.get(contributor);
+                if (index != null) {
+                    indexes.put(contributor, index);
+                } else {
+                    indexes.remove(contributor);
+                }
+            }
+            if (current != snapshot) {
+                staleContributors.addAll(stale);
+                scheduleRefresh();
+            }
+            current = current.withIndexes(indexes, !staleContributors.isEmpty());
+        }
+        log.debug("Rebuilt {} terminology indexes for version {} in {} ms",
+                stale.size(), snapshot.getVersion(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Run one refresh after refresh-delay-millis unless one is already pending; called under the instance lock
+     */
+    private void scheduleRefresh() {
+        if (pendingRefresh != null || refreshExecutor.isShutdown()) {
+            return;
+        }
+        pendingRefresh = refreshExecutor.schedule(() -> {
+            try {
+                refreshStaleIndexes();
+            } catch (RuntimeException e) {
+                log.error("Refreshing the terminology indexes failed", e);
+            }
+        }, Math.max(0, indexConfig.getRefreshDelayMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    public TerminologySnapshot getCurrentSnapshot() {
+        return current;
+    }
+
+    /**
+     * The current or a retained previous version of the dataset
+     */
+    public synchronized Optional<TerminologySnapshot> getSnapshot(long snapshotVersion) {
+        TerminologySnapshot latest = current;
+        if (latest.getVersion() == snapshotVersion) {
+            return Optional.of(latest);
+        }
+        return previous.stream().filter(snapshot -> snapshot.getVersion() == snapshotVersion).findFirst();
+    }
+
+    /**
+     * Current version followed by the retained previous versions, newest first
+     */
+    public synchronized List<TerminologySnapshot> getSnapshots() {
+        List<TerminologySnapshot> snapshots = new ArrayList<>(previous.size() + 1);
+        snapshots.add(current);
+        snapshots.addAll(previous);
+        return snapshots;
+    }
+
+    /**
+     * Build the indexes, swap the snapshot in and retire the old one into the history
+     * Retired versions move off-heap, so retaining several costs direct memory rather than GC work
+     */
+    private TerminologySnapshot publishFull(TerminologySnapshot records) {
+        TerminologySnapshot snapshot = withIndexes(records);
+        TerminologySnapshot replaced = current;
+        current = snapshot;
+        loaded = true;
+        fullLoads++;
+        staleContributors.clear();
+        // The artifact's own version is already current while its indexes are built; it is not retired
+        if (replaced.getVersion() > 0 && replaced.getVersion() != snapshot.getVersion() && indexConfig.getRetainedVersions() > 0) {
+            TerminologySnapshot retired = replaced.compact();
+            previous.addFirst(retired);
+            log.debug("Retired terminology version {} off-heap ({} records, {} bytes)",
+                    retired.getVersion(), retired.size(), retired.getOffHeapBytes());
+        }
+        while (previous.size() > Math.max(0, indexConfig.getRetainedVersions())) {
+            previous.removeLast();
+        }
+
+        publishEvent(new TerminologyChangedEvent(this, snapshot));
+        return snapshot;
+    }
+
+    /**
+     * The records with the index of every contributor, built in contributor order from one decoded copy
+     */
+    private TerminologySnapshot withIndexes(TerminologySnapshot records) {
+        return records.withIndexes(buildIndexes(contributors.orderedStream().toList(), records.decoded()));
+    }
+
+    private Map<TerminologyIndexContributor<?>, Object> buildIndexes(List<TerminologyIndexContributor<?>> toBuild,
+                                                                    TerminologySnapshot source) {
+        Map<TerminologyIndexContributor<?>, Object> indexes = new IdentityHashMap<>();
+        for (TerminologyIndexContributor<?> contributor : toBuild) {
+            try {
+                Object index = contributor.buildIndex(source);
+                if (index != null) {
+                    indexes.put(contributor, index);
+                }
+            } catch (RuntimeException e) {
+                log.error("Building the {} index for terminology version {} failed, it stays unavailable until the next load",
+                        contributor.getClass().getSimpleName(), source.getVersion(), e);
+            }
+        }
+        return indexes;
+    }
+
+    private static <T> T applyUpdate(TerminologyIndexContributor<T> contributor, TerminologySnapshot previousSnapshot,
+                                     TerminologySnapshot snapshot, Collection<NamasteCode> savedCodes) {
+        return contributor.updateIndex(previousSnapshot.index(contributor), snapshot, savedCodes);
+    }
+
+    private void publishEvent(TerminologyChangedEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            log.error("A terminology change listener failed for version {}", event.getVersion(), e);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+}
@@ -0,0 +1,12 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+/**
+ * Thrown when a request needs an in-memory terminology index that has not been built yet and has no
+ * MongoDB fallback; the controllers answer 503 so clients retry instead of acting on an empty result
+ */
+public class TerminologyNotLoadedException extends RuntimeException {
+
+    public TerminologyNotLoadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,307 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.BestMappingIndex;
+import com.namaste.Namaste.to.TM2.Index.ColumnarTextStore;
+import com.namaste.Namaste.to.TM2.Index.OverlayMap;
+import com.namaste.Namaste.to.TM2.Index.TerminologyIndexFile;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.IntFunction;
+
+/**
+ * One immutable version of the terminology dataset and of every in-memory index built from it
+ * Built completely before it is published, so a reader holding a snapshot never sees a half-applied import
+ * or indexes from two different versions
+ * Rows are stable across single-record updates: a saved record replaces its row and a new one is appended.
+ * An update shares the base rows and the best-mapping table of the version before it and copies only what
+ * changed since the base was built; the changes are folded into a new base once they pass an eighth of it
+ * The current version keeps its records on the heap; retired versions are compacted into a ColumnarTextStore,
+ * keep only the best-mapping table for pinned reads, and decode only the rows a pinned request returns.
+ * A version loaded from a TerminologyIndexFile reads its records, ids and best mappings from the mapped file
+ */
+public class TerminologySnapshot {
+
+    private static final int MIN_FOLD_ROWS = 1024;
+    private static final int FOLD_DIVISOR = 8;
+
+    private final long version;
+    private final Instant createdAt;
+    private final int size;
+    private final int baseSize;
+    private final IntFunction<NamasteCode> baseRecordAt;
+    private final NamasteCode[] heapRecords;
+    private final ColumnarTextStore columns;
+    private final TerminologyIndexFile.Contents artifact;
+    // Rows replaced or appended since the base was built
+    private final Map<Integer, NamasteCode> changedRows;
+    private final IntFunction<NamasteCode> recordAt;
+    private final OverlayMap<String, Integer> rowById;
+    private final BestMappingIndex bestMappings;
+    private final Map<TerminologyIndexContributor<?>, Object> indexes;
+    // Some indexes were carried forward from an earlier version and await a background rebuild
+    private final boolean staleIndexes;
+
+    private TerminologySnapshot(long version, Instant createdAt, int size, int baseSize, IntFunction<NamasteCode> baseRecordAt,
+                                NamasteCode[] heapRecords, ColumnarTextStore columns, TerminologyIndexFile.Contents artifact,
+                                Map<Integer, NamasteCode> changedRows,
+                                OverlayMap<String, Integer> rowById, BestMappingIndex bestMappings,
+                                Map<TerminologyIndexContributor<?>, Object> indexes, boolean staleIndexes) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.size = size;
+        this.baseSize = baseSize;
+        this.baseRecordAt = baseRecordAt;
+        this.heapRecords = heapRecords;
+        this.columns = columns;
+        this.artifact = artifact;
+        this.changedRows = changedRows;
+        this.recordAt = recordAt(baseRecordAt, changedRows);
+        this.rowById = rowById;
+        this.bestMappings = bestMappings;
+        this.indexes = indexes;
+        this.staleIndexes = staleIndexes;
+    }
+
+    public static TerminologySnapshot of(long version, Collection<NamasteCode> records) {
+        Map<String, NamasteCode> byId = new LinkedHashMap<>();
+        for (NamasteCode record : records) {
+            byId.put(record.getId(), record);
+        }
+        return build(version, byId.values().toArray(new NamasteCode[0]));
+    }
+
+    /**
+     * The version stored in a mapped index artifact; nothing is decoded until it is read
+     */
+    public static TerminologySnapshot of(TerminologyIndexFile.Contents artifact) {
+        return new TerminologySnapshot(artifact.getDatasetVersion(), Instant.now(), artifact.size(), artifact.size(),
+                artifact::record, null, null, artifact, Map.of(), OverlayMap.of(artifact.rowById()),
+                artifact.bestMappings(), Map.of(), false);
+    }
+
+    /**
+     * A new version with the saved records replacing their previous state; this snapshot is left untouched
+     * The new version carries no contributor indexes until withIndexes is called
+     */
+    public TerminologySnapshot withUpdates(long newVersion, Collection<NamasteCode> savedRecords) {
+        Map<Integer, NamasteCode> changed = new HashMap<>(changedRows);
+        Map<String, Integer> addedRows = new HashMap<>();
+        Set<Integer> touchedRows = new LinkedHashSet<>();
+        int newSize = size;
+        for (NamasteCode record : savedRecords) {
+            Integer row = record.getId() != null ? addedRows.getOrDefault(record.getId(), rowById.get(record.getId())) : null;
+            if (row == null) {
+                row = newSize++;
+                if (record.getId() != null) {
+                    addedRows.put(record.getId(), row);
+                }
+            }
+            changed.put(row, record);
+            touchedRows.add(row);
+        }
+
+        if (changed.size() > Math.max(MIN_FOLD_ROWS, baseSize / FOLD_DIVISOR)) {
+            NamasteCode[] merged = new NamasteCode[newSize];
+            for (int row = 0; row < newSize; row++) {
+                NamasteCode record = changed.get(row);
+                merged[row] = record != null ? record : baseRecordAt.apply(row);
+            }
+            return build(newVersion, merged);
+        }
+        BestMappingIndex updatedBest = bestMappings.withChangedRows(touchedRows.stream().mapToInt(Integer::intValue).toArray(),
+                size, recordAt, recordAt(baseRecordAt, changed));
+        return new TerminologySnapshot(newVersion, Instant.now(), newSize, baseSize, baseRecordAt, heapRecords, columns,
+                artifact, changed, rowById.with(addedRows), updatedBest, Map.of(), false);
+    }
+
+    /**
+     * The same version and records carrying the given contributor indexes
+     */
+    public TerminologySnapshot withIndexes(Map<TerminologyIndexContributor<?>, Object> newIndexes) {
+        return withIndexes(newIndexes, false);
+    }
+
+    /**
+     * The same version and records carrying the given contributor indexes, some of them possibly from an
+     * earlier version when stale is set
+     */
+    TerminologySnapshot withIndexes(Map<TerminologyIndexContributor<?>, Object> newIndexes, boolean stale) {
+        return new TerminologySnapshot(version, createdAt, size, baseSize, baseRecordAt, heapRecords, columns,
+                artifact, changedRows, rowById, bestMappings, Collections.unmodifiableMap(new IdentityHashMap<>(newIndexes)), stale);
+    }
+
+    /**
+     * The same version with its records moved off-heap and its contributor indexes dropped;
+     * row numbers and best mappings are unchanged. A version still read from a mapped artifact stays there
+     */
+    public TerminologySnapshot compact() {
+        if (heapRecords == null && changedRows.isEmpty()) {
+            return indexes.isEmpty() ? this : new TerminologySnapshot(version, createdAt, size, baseSize, baseRecordAt,
+                    null, columns, artifact, changedRows, rowById, bestMappings, Map.of(), false);
+        }
+        ColumnarTextStore store = ColumnarTextStore.of(getRecords());
+        return new TerminologySnapshot(version, createdAt, size, size, store::record, null, store, null, Map.of(),
+                rowById, bestMappings, Map.of(), false);
+    }
+
+    /**
+     * The same version with every record decoded onto the heap once, sharing rows, ids and best mappings
+     * Contributors build from this, so indexes that keep records share one copy instead of decoding their own
+     */
+    TerminologySnapshot decoded() {
+        if (heapRecords != null) {
+            return this;
+        }
+        NamasteCode[] records = getRecords().toArray(new NamasteCode[0]);
+        return new TerminologySnapshot(version, createdAt, size, size, row -> records[row], records, null, null,
+                Map.of(), rowById, bestMappings, Map.of(), false);
+    }
+
+    /**
+     * The index the contributor built for this version, or null when it has none (not loaded yet, or retired)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T index(TerminologyIndexContributor<T> contributor) {
+        return (T) indexes.get(contributor);
+    }
+
+    /**
+     * True while some contributor indexes still reflect an earlier version; results derived from them
+     * should not be cached under this version
+     */
+    public boolean hasStaleIndexes() {
+        return staleIndexes;
+    }
+
+    /**
+     * Every contributor index this snapshot carries
+     */
+    Map<TerminologyIndexContributor<?>, Object> indexes() {
+        return indexes;
+    }
+
+    /**
+     * Best mapping per type for the TM2 code behind the given value, see BestMappingIndex.bestMappingsForCode
+     */
+    public List<NamasteCode> bestMappingsForCode(String codeValue) {
+        return bestMappings.bestMappingsForCode(codeValue, recordAt);
+    }
+
+    /**
+     * Best mapping per type for a TM2 code, highest confidence first
+     */
+    public List<NamasteCode> bestMappingsForTm2Code(String tm2Code) {
+        List<NamasteCode> bests = new ArrayList<>();
+        for (int row : bestMappings.bestRows(tm2Code)) {
+            bests.add(recordAt.apply(row));
+        }
+        return bests;
+    }
+
+    /**
+     * Highest-confidence record for a traditional medicine code
+     */
+    public Optional<NamasteCode> topRecordForCode(String code) {
+        int row = bestMappings.topRow(code);
+        return row != BestMappingIndex.NONE ? Optional.of(recordAt.apply(row)) : Optional.empty();
+    }
+
+    public BestMappingIndex getBestMappings() {
+        return bestMappings;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * The record at a row; for a compacted snapshot each access decodes the row
+     */
+    public NamasteCode record(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return recordAt.apply(row);
+    }
+
+    /**
+     * Row of the record with the given id, or -1
+     */
+    public int rowOf(String id) {
+        Integer row = id != null ? rowById.get(id) : null;
+        return row != null ? row : -1;
+    }
+
+    /**
+     * All records in row order; for a compacted snapshot each access decodes the row
+     */
+    public List<NamasteCode> getRecords() {
+        if (heapRecords != null && changedRows.isEmpty()) {
+            return Collections.unmodifiableList(Arrays.asList(heapRecords));
+        }
+        return new AbstractList<>() {
+            @Override
+            public NamasteCode get(int row) {
+                return record(row);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isCompacted() {
+        return columns != null;
+    }
+
+    /**
+     * Direct memory held by a compacted snapshot or the size of its mapped artifact (0 while on the heap)
+     */
+    public long getOffHeapBytes() {
+        if (columns != null) {
+            return columns.getOffHeapBytes();
+        }
+        return artifact != null ? artifact.getMappedBytes() : 0;
+    }
+
+    /**
+     * True while the records are read from a mapped index artifact
+     */
+    public boolean isMapped() {
+        return artifact != null && heapRecords == null;
+    }
+
+    private static IntFunction<NamasteCode> recordAt(IntFunction<NamasteCode> baseRecordAt, Map<Integer, NamasteCode> changedRows) {
+        if (changedRows.isEmpty()) {
+            return baseRecordAt;
+        }
+        return row -> {
+            NamasteCode changed = changedRows.get(row);
+            return changed != null ? changed : baseRecordAt.apply(row);
+        };
+    }
+
+    private static TerminologySnapshot build(long version, NamasteCode[] records) {
+        Map<String, Integer> rowById = new HashMap<>();
+        for (int row = 0; row < records.length; row++) {
+            if (records[row].getId() != null) {
+                rowById.put(records[row].getId(), row);
+            }
+        }
+        IntFunction<NamasteCode> recordAt = row -> records[row];
+        return new TerminologySnapshot(version, Instant.now(), records.length, records.length, recordAt, records, null,
+                null, Map.of(), OverlayMap.of(rowById), BestMappingIndex.build(recordAt, records.length), Map.of(), false);
+    }
+}
@@ -0,0 +1,113 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.SimilarityKernels;
+import com.namaste.Namaste.to.TM2.Index.SynonymDictionary;
+import com.namaste.Namaste.to.TM2.Index.TextTokenizer;
+import com.namaste.Namaste.to.TM2.Index.TfIdfIndex;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * TF-IDF cosine relevance of terminology records to symptom queries
+ * Record vectors are computed once per reload, with title terms counted fully and description terms at 0.7
+ * as in the substring ranking. Query terms carry their synonym weight
+ */
+@Service
+public class TfIdfRelevanceService implements TerminologyIndexContributor<TfIdfRelevanceService.RelevanceState> {
+
+    private static final Logger log = LoggerFactory.getLogger(TfIdfRelevanceService.class);
+    private static final float DESCRIPTION_TERM_WEIGHT = 0.7f;
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public TfIdfRelevanceService(TerminologyIndexLoader terminologyIndexLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+    }
+
+    @Override
+    public RelevanceState buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        List<Map<String, Float>> documents = new ArrayList<>();
+        Map<String, Integer> rowById = new HashMap<>();
+        for (NamasteCode record : snapshot.getRecords()) {
+            if (record.getId() == null || rowById.containsKey(record.getId())) {
+                continue;
+            }
+            Map<String, Float> termFrequencies = new HashMap<>();
+            addTerms(termFrequencies, record.getCodeTitle(), 1f);
+            addTerms(termFrequencies, record.getTm2Title(), 1f);
+            addTerms(termFrequencies, record.getCodeDescription(), DESCRIPTION_TERM_WEIGHT);
+            addTerms(termFrequencies, record.getTm2Definition(), DESCRIPTION_TERM_WEIGHT);
+            rowById.put(record.getId(), documents.size());
+            documents.add(termFrequencies);
+        }
+
+        TfIdfIndex index = TfIdfIndex.build(documents);
+        log.info("Rebuilt TF-IDF relevance index: {} documents, {} terms in {} ms ({} scoring)",
+                index.getDocumentCount(), index.getTermCount(), System.currentTimeMillis() - start,
+                SimilarityKernels.isVectorized() ? "SIMD" : "scalar");
+        return new RelevanceState(index, rowById);
+    }
+
+    /**
+     * Cosine similarity of each candidate with the expanded symptoms, aligned with candidates
+     * Candidates not in the index (or before the first load) score 0
+     */
+    public float[] cosineScores(List<List<SynonymDictionary.WeightedTerm>> expandedSymptoms, List<NamasteCode> candidates) {
+        float[] scores = new float[candidates.size()];
+        RelevanceState current = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        if (current == null || candidates.isEmpty()) {
+            return scores;
+        }
+
+        Map<String, Float> queryTerms = new HashMap<>();
+        for (List<SynonymDictionary.WeightedTerm> terms : expandedSymptoms) {
+            for (SynonymDictionary.WeightedTerm term : terms) {
+                for (String token : TextTokenizer.tokenize(term.getTerm())) {
+                    queryTerms.merge(token, (float) term.getWeight(), Math::max);
+                }
+            }
+        }
+        TfIdfIndex.QueryVector query = current.index.query(queryTerms);
+        if (query.isEmpty()) {
+            return scores;
+        }
+
+        int[] rows = new int[candidates.size()];
+        int[] positions = new int[candidates.size()];
+        int known = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Integer row = current.rowById.get(candidates.get(i).getId());
+            if (row != null) {
+                rows[known] = row;
+                positions[known++] = i;
+            }
+        }
+        float[] knownScores = new float[known];
+        current.index.score(query, Arrays.copyOf(rows, known), knownScores);
+        for (int i = 0; i < known; i++) {
+            scores[positions[i]] = knownScores[i];
+        }
+        return scores;
+    }
+
+    private static void addTerms(Map<String, Float> termFrequencies, String text, float weight) {
+        for (String token : TextTokenizer.tokenize(text)) {
+            termFrequencies.merge(token, weight, Float::sum);
+        }
+    }
+
+    static final class RelevanceState {
+        private final TfIdfIndex index;
+        private final Map<String, Integer> rowById;
+
+        private RelevanceState(TfIdfIndex index, Map<String, Integer> rowById) {
+            this.index = index;
+            this.rowById = rowById;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Materialized best-mapping-per-type table for TM2 codes
+ * tm2_code -> type -> highest-confidence mapping above 0.6, plus code -> highest-confidence record for that code
+ * Reads the BestMappingIndex of the current TerminologySnapshot, the same table pinned reads of older versions
+ * use, so searchByCode is two keyed reads instead of two MongoDB queries and a HashMap loop
+ * The table is computed from the snapshot's rows rather than by a $match/$sort/$group aggregation: it has to
+ * describe exactly the records of its version (a pipeline run after the scan may see later writes), be
+ * available from the mapped artifact before MongoDB answers, and exist for retained versions MongoDB no longer
+ * holds. A save still refreshes it incrementally, re-ranking only the keys the saved rows touch
+ */
+@Service
+public class Tm2BestMappingTable {
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public Tm2BestMappingTable(TerminologyIndexLoader terminologyIndexLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+    }
+
+    /**
+     * Best mapping per type for the TM2 code behind the given value
+     * The value is first resolved as a traditional medicine code; that record is kept for its own type
+     * even below the confidence threshold. Otherwise the value is treated as a tm2_code.
+     */
+    public List<NamasteCode> bestMappingsForCode(String codeValue) {
+        return terminologyIndexLoader.getCurrentSnapshot().bestMappingsForCode(codeValue);
+    }
+
+    /**
+     * Best mapping per type for a TM2 code, highest confidence first
+     */
+    public List<NamasteCode> bestMappingsForTm2Code(String tm2Code) {
+        return terminologyIndexLoader.getCurrentSnapshot().bestMappingsForTm2Code(tm2Code);
+    }
+
+    /**
+     * Highest-confidence record for a traditional medicine code
+     */
+    public Optional<NamasteCode> topRecordForCode(String code) {
+        return terminologyIndexLoader.getCurrentSnapshot().topRecordForCode(code);
+    }
+
+    public boolean isLoaded() {
+        return terminologyIndexLoader.isLoaded();
+    }
+}
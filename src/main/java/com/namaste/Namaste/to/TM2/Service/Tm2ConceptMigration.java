@@ -0,0 +1,173 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.Tm2Concept;
+import com.namaste.Namaste.to.TM2.Repository.Tm2ConceptRepository;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * One-off (and re-runnable) migration from embedded TM2 concept fields to the tm2_concepts collection
+ * 1. $group tm2_mappings by tm2_code and concept fields, keeping the most frequent variant per tm2_code
+ * 2. for each new concept, store an explicit null on its mappings that lack one of the concept's fields, so the
+ *    join does not give them a value they never had (reads return exactly what they returned before the migration)
+ * 3. insert concepts that do not exist yet and reload the concept table, so reads can join before anything is removed
+ * 4. $unset each concept field on the mappings whose value equals their concept; diverging values stay embedded
+ * A missing field means "take the concept's value" once the concept exists, so step 2 only runs for new concepts
+ */
+@Service
+public class Tm2ConceptMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(Tm2ConceptMigration.class);
+    private static final String MAPPINGS = "tm2_mappings";
+    private static final String[] CONCEPT_FIELDS = {
+            Tm2ConceptTable.FIELD_TM2_TITLE, Tm2ConceptTable.FIELD_TM2_DEFINITION, Tm2ConceptTable.FIELD_TM2_LINK};
+
+    private final MongoTemplate mongoTemplate;
+    private final Tm2ConceptRepository tm2ConceptRepository;
+    private final Tm2ConceptTable conceptTable;
+    private final TerminologyIndexConfig indexConfig;
+
+    public Tm2ConceptMigration(MongoTemplate mongoTemplate,
+                               Tm2ConceptRepository tm2ConceptRepository,
+                               Tm2ConceptTable conceptTable,
+                               TerminologyIndexConfig indexConfig) {
+        this.mongoTemplate = mongoTemplate;
+        this.tm2ConceptRepository = tm2ConceptRepository;
+        this.conceptTable = conceptTable;
+        this.indexConfig = indexConfig;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!indexConfig.isConceptMigrationOnStartup()) {
+            return;
+        }
+        Thread migration = new Thread(() -> {
+            try {
+                migrate();
+            } catch (Exception e) {
+                log.error("TM2 concept migration failed, mappings keep their embedded fields", e);
+            }
+        }, "tm2-concept-migration");
+        migration.setDaemon(true);
+        migration.start();
+    }
+
+    public synchronized MigrationResult migrate() {
+        long start = System.currentTimeMillis();
+
+        Aggregation variants = Aggregation.newAggregation(
+                Aggregation.match(new Criteria().andOperator(
+                        Criteria.where("tm2_code").ne(null),
+                        new Criteria().orOperator(Arrays.stream(CONCEPT_FIELDS)
+                                .map(field -> Criteria.where(field).exists(true))
+                                .toArray(Criteria[]::new)))),
+                Aggregation.group("tm2_code", "tm2_title", "tm2_definition", "tm2_link").count().as("mappings"),
+                Aggregation.sort(Sort.by(Sort.Direction.DESC, "mappings")),
+                Aggregation.group("tm2_code")
+                        .first(Tm2ConceptTable.FIELD_TM2_TITLE).as(Tm2ConceptTable.FIELD_TM2_TITLE)
+                        .first(Tm2ConceptTable.FIELD_TM2_DEFINITION).as(Tm2ConceptTable.FIELD_TM2_DEFINITION)
+                        .first(Tm2ConceptTable.FIELD_TM2_LINK).as(Tm2ConceptTable.FIELD_TM2_LINK)
+        );
+
+        Map<String, Tm2Concept> existing = new HashMap<>();
+        tm2ConceptRepository.findAll().forEach(concept -> existing.put(concept.getTm2Code(), concept));
+        List<Tm2Concept> created = new ArrayList<>();
+        for (Document concept : mongoTemplate.aggregate(variants, MAPPINGS, Document.class)) {
+            String tm2Code = concept.getString("_id");
+            if (!existing.containsKey(tm2Code)) {
+                Tm2Concept tm2Concept = new Tm2Concept(tm2Code, concept.getString(Tm2ConceptTable.FIELD_TM2_TITLE),
+                        concept.getString(Tm2ConceptTable.FIELD_TM2_DEFINITION), concept.getString(Tm2ConceptTable.FIELD_TM2_LINK));
+                created.add(tm2Concept);
+                existing.put(tm2Code, tm2Concept);
+            }
+        }
+        long keptAbsent = 0;
+        if (!created.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MAPPINGS);
+            for (Tm2Concept concept : created) {
+                addKeepAbsent(bulk, concept.getTm2Code(), Tm2ConceptTable.FIELD_TM2_TITLE, concept.getTm2Title());
+                addKeepAbsent(bulk, concept.getTm2Code(), Tm2ConceptTable.FIELD_TM2_DEFINITION, concept.getTm2Definition());
+                addKeepAbsent(bulk, concept.getTm2Code(), Tm2ConceptTable.FIELD_TM2_LINK, concept.getTm2Link());
+            }
+            keptAbsent = bulk.execute().getModifiedCount();
+        }
+        tm2ConceptRepository.saveAll(created);
+        conceptTable.reload();
+
+        long stripped = 0;
+        if (!existing.isEmpty()) {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, MAPPINGS);
+            for (Tm2Concept concept : existing.values()) {
+                addUnset(bulk, concept.getTm2Code(), Tm2ConceptTable.FIELD_TM2_TITLE, concept.getTm2Title());
+                addUnset(bulk, concept.getTm2Code(), Tm2ConceptTable.FIELD_TM2_DEFINITION, concept.getTm2Definition());
+                addUnset(bulk, concept.getTm2Code(), Tm2ConceptTable.FIELD_TM2_LINK, concept.getTm2Link());
+            }
+            stripped = bulk.execute().getModifiedCount();
+        }
+
+        MigrationResult result = new MigrationResult(created.size(), existing.size(), stripped, keptAbsent);
+        log.info("TM2 concept migration: {} concepts created ({} total), {} mapping field sets removed, {} absent fields kept absent in {} ms",
+                result.getConceptsCreated(), result.getConceptsTotal(), result.getMappingsUpdated(), result.getAbsentFieldsKept(),
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private static void addKeepAbsent(BulkOperations bulk, String tm2Code, String field, String conceptValue) {
+        if (conceptValue == null) {
+            return;
+        }
+        bulk.updateMulti(Query.query(Criteria.where("tm2_code").is(tm2Code).and(field).exists(false)), new Update().set(field, null));
+    }
+
+    private static void addUnset(BulkOperations bulk, String tm2Code, String field, String conceptValue) {
+        if (conceptValue == null) {
+            return;
+        }
+        bulk.updateMulti(Query.query(Criteria.where("tm2_code").is(tm2Code).and(field).is(conceptValue)), new Update().unset(field));
+    }
+
+    public static class MigrationResult {
+        private final int conceptsCreated;
+        private final int conceptsTotal;
+        private final long mappingsUpdated;
+        private final long absentFieldsKept;
+
+        public MigrationResult(int conceptsCreated, int conceptsTotal, long mappingsUpdated, long absentFieldsKept) {
+            this.conceptsCreated = conceptsCreated;
+            this.conceptsTotal = conceptsTotal;
+            this.mappingsUpdated = mappingsUpdated;
+            this.absentFieldsKept = absentFieldsKept;
+        }
+
+        public int getConceptsCreated() {
+            return conceptsCreated;
+        }
+
+        public int getConceptsTotal() {
+            return conceptsTotal;
+        }
+
+        public long getMappingsUpdated() {
+            return mappingsUpdated;
+        }
+
+        public long getAbsentFieldsKept() {
+            return absentFieldsKept;
+        }
+    }
+}
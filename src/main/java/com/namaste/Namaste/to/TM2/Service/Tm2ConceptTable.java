@@ -0,0 +1,155 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Model.Tm2Concept;
+import com.namaste.Namaste.to.TM2.Repository.Tm2ConceptRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Hot in-memory copy of the tm2_concepts collection (a few thousand small documents)
+ * Mapping documents read from MongoDB are completed from it, and mapping documents being saved drop the
+ * concept fields that equal their concept, so tm2_title/tm2_definition/tm2_link are stored and transferred
+ * once per TM2 code instead of once per mapping. Until the migration has created concepts the table is
+ * empty and documents are read and written exactly as before
+ */
+@Service
+public class Tm2ConceptTable {
+
+    private static final Logger log = LoggerFactory.getLogger(Tm2ConceptTable.class);
+    static final String FIELD_TM2_TITLE = "tm2_title";
+    static final String FIELD_TM2_DEFINITION = "tm2_definition";
+    static final String FIELD_TM2_LINK = "tm2_link";
+
+    private final Tm2ConceptRepository tm2ConceptRepository;
+
+    // null until the first successful load
+    private volatile Map<String, Tm2Concept> concepts;
+
+    public Tm2ConceptTable(Tm2ConceptRepository tm2ConceptRepository) {
+        this.tm2ConceptRepository = tm2ConceptRepository;
+    }
+
+    /**
+     * Re-read every concept and swap the table in one step
+     */
+    public synchronized void reload() {
+        long start = System.currentTimeMillis();
+        Map<String, Tm2Concept> loaded = new HashMap<>();
+        for (Tm2Concept concept : tm2ConceptRepository.findAll()) {
+            loaded.put(concept.getTm2Code(), concept);
+        }
+        concepts = Collections.unmodifiableMap(loaded);
+        log.info("Loaded {} TM2 concepts in {} ms", loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * True once mappings may reference concepts instead of embedding their fields
+     */
+    public boolean isNormalized() {
+        return !concepts().isEmpty();
+    }
+
+    public Optional<Tm2Concept> get(String tm2Code) {
+        return tm2Code == null ? Optional.empty() : Optional.ofNullable(concepts().get(tm2Code));
+    }
+
+    public int size() {
+        return concepts().size();
+    }
+
+    /**
+     * Fill concept fields the mapping document did not carry; fields stored on the mapping win
+     * A field stored as an explicit null stays null: the mapping never had that value, only its concept does
+     */
+    public void hydrate(NamasteCode record, Document document) {
+        if (record.getTm2Code() == null) {
+            return;
+        }
+        Tm2Concept concept = concepts().get(record.getTm2Code());
+        if (concept == null) {
+            return;
+        }
+        if (record.getTm2Title() == null && !document.containsKey(FIELD_TM2_TITLE)) {
+            record.setTm2Title(concept.getTm2Title());
+        }
+        if (record.getTm2Definition() == null && !document.containsKey(FIELD_TM2_DEFINITION)) {
+            record.setTm2Definition(concept.getTm2Definition());
+        }
+        if (record.getTm2Link() == null && !document.containsKey(FIELD_TM2_LINK)) {
+            record.setTm2Link(concept.getTm2Link());
+        }
+    }
+
+    /**
+     * Remove from the outgoing mapping document every concept field equal to its concept
+     * A TM2 code seen for the first time becomes a new concept; fields that differ stay on the mapping,
+     * and a field the record lacks is written as an explicit null so reads do not fill it from the concept
+     */
+    public void strip(NamasteCode record, Document document) {
+        if (record.getTm2Code() == null || !isNormalized()) {
+            return;
+        }
+        Tm2Concept concept = concepts().get(record.getTm2Code());
+        if (concept == null) {
+            concept = new Tm2Concept(record.getTm2Code(), record.getTm2Title(), record.getTm2Definition(), record.getTm2Link());
+            put(tm2ConceptRepository.save(concept));
+        }
+        stripField(document, FIELD_TM2_TITLE, record.getTm2Title(), concept.getTm2Title());
+        stripField(document, FIELD_TM2_DEFINITION, record.getTm2Definition(), concept.getTm2Definition());
+        stripField(document, FIELD_TM2_LINK, record.getTm2Link(), concept.getTm2Link());
+    }
+
+    /**
+     * TM2 codes whose concept field matches the (MongoDB-escaped) case-insensitive pattern
+     * Lets a regex over mapping fields also find mappings that only reference their concept
+     */
+    public List<String> tm2CodesMatching(String pattern, Function<Tm2Concept, String> field) {
+        Pattern compiled = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        List<String> tm2Codes = new ArrayList<>();
+        for (Tm2Concept concept : concepts().values()) {
+            String value = field.apply(concept);
+            if (value != null && compiled.matcher(value).find()) {
+                tm2Codes.add(concept.getTm2Code());
+            }
+        }
+        return tm2Codes;
+    }
+
+    private synchronized void put(Tm2Concept concept) {
+        Map<String, Tm2Concept> updated = new HashMap<>(concepts());
+        updated.put(concept.getTm2Code(), concept);
+        concepts = Collections.unmodifiableMap(updated);
+    }
+
+    private Map<String, Tm2Concept> concepts() {
+        Map<String, Tm2Concept> current = concepts;
+        if (current != null) {
+            return current;
+        }
+        try {
+            reload();
+            return concepts;
+        } catch (Exception e) {
+            log.warn("TM2 concepts unavailable, mappings are used as stored: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static void stripField(Document document, String field, String recordValue, String conceptValue) {
+        if (conceptValue == null) {
+            return;
+        }
+        if (recordValue == null) {
+            document.put(field, null);
+        } else if (conceptValue.equals(recordValue)) {
+            document.remove(field);
+        }
+    }
+}
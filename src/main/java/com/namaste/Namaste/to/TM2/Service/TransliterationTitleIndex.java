@@ -0,0 +1,141 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.IndicPhoneticKey;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * code_title lookups that tolerate diacritics and romanization variants
+ * Normalized and phonetic keys are computed once per record at index time, so a user-typed title
+ * (Vāta, vaatham, jwara, jvaram) resolves with hash probes instead of regex alternations
+ */
+@Service
+public class TransliterationTitleIndex implements TerminologyIndexContributor<TransliterationTitleIndex.TitleKeys> {
+
+    private static final Logger log = LoggerFactory.getLogger(TransliterationTitleIndex.class);
+    public static final String MATCHED_BY_NORMALIZED = "normalized";
+    public static final String MATCHED_BY_PHONETIC = "phonetic";
+    public static final String MATCHED_BY_PHONETIC_WORDS = "phonetic-words";
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+
+    public TransliterationTitleIndex(TerminologyIndexLoader terminologyIndexLoader) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+    }
+
+    @Override
+    public TitleKeys buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        Map<String, List<NamasteCode>> byNormalizedTitle = new HashMap<>();
+        Map<String, List<NamasteCode>> byPhoneticTitle = new HashMap<>();
+        Map<String, Set<NamasteCode>> byPhoneticWord = new HashMap<>();
+
+        for (NamasteCode record : snapshot.getRecords()) {
+            String normalized = IndicPhoneticKey.normalize(record.getCodeTitle());
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            byNormalizedTitle.computeIfAbsent(normalized, key -> new ArrayList<>()).add(record);
+            byPhoneticTitle.computeIfAbsent(IndicPhoneticKey.phoneticKey(normalized), key -> new ArrayList<>()).add(record);
+            for (String word : normalized.split(" ")) {
+                byPhoneticWord.computeIfAbsent(IndicPhoneticKey.wordKey(word), key -> new LinkedHashSet<>()).add(record);
+            }
+        }
+
+        log.info("Rebuilt transliteration title index: {} titles, {} phonetic keys, {} word keys in {} ms",
+                byNormalizedTitle.size(), byPhoneticTitle.size(), byPhoneticWord.size(), System.currentTimeMillis() - start);
+        return new TitleKeys(byNormalizedTitle, byPhoneticTitle, byPhoneticWord);
+    }
+
+    /**
+     * Records whose code_title matches the name, trying the strictest key first:
+     * diacritic-folded title, phonetic title, then titles containing every word phonetically
+     */
+    public TitleMatch lookup(String name) {
+        TitleKeys keys = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        String normalized = IndicPhoneticKey.normalize(name);
+        if (keys == null || normalized.isEmpty()) {
+            return TitleMatch.NONE;
+        }
+
+        List<NamasteCode> matches = keys.byNormalizedTitle.get(normalized);
+        if (matches != null) {
+            return new TitleMatch(matches, MATCHED_BY_NORMALIZED);
+        }
+        matches = keys.byPhoneticTitle.get(IndicPhoneticKey.phoneticKey(normalized));
+        if (matches != null) {
+            return new TitleMatch(matches, MATCHED_BY_PHONETIC);
+        }
+
+        // Partial titles: intersect the word postings, smallest first
+        List<Set<NamasteCode>> postings = new ArrayList<>();
+        for (String word : normalized.split(" ")) {
+            Set<NamasteCode> posting = keys.byPhoneticWord.get(IndicPhoneticKey.wordKey(word));
+            if (posting == null) {
+                return TitleMatch.NONE;
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        List<NamasteCode> intersection = new ArrayList<>();
+        for (NamasteCode record : postings.get(0)) {
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) {
+                inAll = postings.get(i).contains(record);
+            }
+            if (inAll) {
+                intersection.add(record);
+            }
+        }
+        return intersection.isEmpty() ? TitleMatch.NONE : new TitleMatch(intersection, MATCHED_BY_PHONETIC_WORDS);
+    }
+
+    public boolean isReady() {
+        return terminologyIndexLoader.getCurrentSnapshot().index(this) != null;
+    }
+
+    static final class TitleKeys {
+        private final Map<String, List<NamasteCode>> byNormalizedTitle;
+        private final Map<String, List<NamasteCode>> byPhoneticTitle;
+        private final Map<String, Set<NamasteCode>> byPhoneticWord;
+
+        private TitleKeys(Map<String, List<NamasteCode>> byNormalizedTitle,
+                          Map<String, List<NamasteCode>> byPhoneticTitle,
+                          Map<String, Set<NamasteCode>> byPhoneticWord) {
+            this.byNormalizedTitle = byNormalizedTitle;
+            this.byPhoneticTitle = byPhoneticTitle;
+            this.byPhoneticWord = byPhoneticWord;
+        }
+    }
+
+    /**
+     * Records found for a title and which key matched
+     */
+    public static class TitleMatch {
+        static final TitleMatch NONE = new TitleMatch(List.of(), null);
+
+        private final List<NamasteCode> records;
+        private final String matchedBy;
+
+        public TitleMatch(List<NamasteCode> records, String matchedBy) {
+            this.records = records;
+            this.matchedBy = matchedBy;
+        }
+
+        public List<NamasteCode> getRecords() {
+            return records;
+        }
+
+        public String getMatchedBy() {
+            return matchedBy;
+        }
+
+        public boolean isFound() {
+            return !records.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.LruCache;
+import com.namaste.Namaste.to.TM2.Index.ValueSetExpansionIndex;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * ValueSet $expand over the implicit value sets of the terminology
+ * - namaste: all NAMASTE codes
+ * - namaste-{type}: NAMASTE codes of one system (ayurveda, siddha, unani)
+ * - tm2: all ICD-11 TM2 codes
+ * Filter matches are cached per (valueset, filter, dataset version); paging slices the cached match list
+ */
+@Service
+public class ValueSetExpansionService implements TerminologyIndexContributor<ValueSetExpansionService.VersionedValueSets> {
+
+    private static final Logger log = LoggerFactory.getLogger(ValueSetExpansionService.class);
+    public static final String NAMASTE_SYSTEM = "http://terminology.hl7.org.in/CodeSystem/namaste";
+    public static final String TM2_SYSTEM = "http://id.who.int/icd/release/11/tm2";
+    public static final String VALUESET_BASE_URL = "http://terminology.hl7.org.in/ValueSet/";
+    private static final String NAMASTE_VALUESET = "namaste";
+    private static final String TM2_VALUESET = "tm2";
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final TerminologyIndexConfig indexConfig;
+    private final LruCache<String, int[]> matchCache;
+
+    public ValueSetExpansionService(TerminologyIndexLoader terminologyIndexLoader,
+                                    TerminologyIndexConfig indexConfig) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.indexConfig = indexConfig;
+        this.matchCache = new LruCache<>(indexConfig.getExpansionCacheSize());
+    }
+
+    @Override
+    public VersionedValueSets buildIndex(TerminologySnapshot snapshot) {
+        long start = System.currentTimeMillis();
+        Map<String, String> namasteDisplays = new HashMap<>();
+        Map<String, Map<String, String>> displaysByType = new HashMap<>();
+        Map<String, String> tm2Displays = new HashMap<>();
+
+        for (NamasteCode record : snapshot.getRecords()) {
+            if (record.getCode() != null) {
+                namasteDisplays.putIfAbsent(record.getCode(), record.getCodeTitle());
+                if (record.getType() != null) {
+                    displaysByType.computeIfAbsent(record.getType().trim().toLowerCase(Locale.ROOT), key -> new HashMap<>())
+                            .putIfAbsent(record.getCode(), record.getCodeTitle());
+                }
+            }
+            if (record.getTm2Code() != null) {
+                tm2Displays.putIfAbsent(record.getTm2Code(), record.getTm2Title());
+            }
+        }
+
+        Map<String, ValueSetExpansionIndex> newValueSets = new HashMap<>();
+        newValueSets.put(NAMASTE_VALUESET, ValueSetExpansionIndex.build(NAMASTE_SYSTEM, namasteDisplays));
+        newValueSets.put(TM2_VALUESET, ValueSetExpansionIndex.build(TM2_SYSTEM, tm2Displays));
+        displaysByType.forEach((type, displays) ->
+                newValueSets.put(NAMASTE_VALUESET + "-" + type, ValueSetExpansionIndex.build(NAMASTE_SYSTEM, displays)));
+
+        log.info("Rebuilt {} implicit value sets in {} ms", newValueSets.size(), System.currentTimeMillis() - start);
+        return new VersionedValueSets(newValueSets, snapshot.getVersion());
+    }
+
+    /**
+     * Resolve a ValueSet id or canonical url to an implicit value set id, or null when unknown
+     */
+    public String resolveValueSetId(String idOrUrl) {
+        if (idOrUrl == null || idOrUrl.isBlank()) {
+            return null;
+        }
+        String reference = idOrUrl.trim();
+        if (reference.equals(NAMASTE_SYSTEM + "?fhir_vs")) {
+            reference = NAMASTE_VALUESET;
+        } else if (reference.equals(TM2_SYSTEM + "?fhir_vs")) {
+            reference = TM2_VALUESET;
+        } else if (reference.startsWith(VALUESET_BASE_URL)) {
+            reference = reference.substring(VALUESET_BASE_URL.length());
+        }
+        reference = reference.toLowerCase(Locale.ROOT);
+        return current().valueSets.containsKey(reference) ? reference : null;
+    }
+
+    public Set<String> getValueSetIds() {
+        return new TreeSet<>(current().valueSets.keySet());
+    }
+
+    /**
+     * Expand one page of a value set
+     */
+    public Expansion expand(String valueSetId, String filter, Integer offset, Integer count) {
+        VersionedValueSets valueSets = current();
+        ValueSetExpansionIndex index = valueSets.valueSets.get(valueSetId);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown value set: " + valueSetId);
+        }
+
+        String normalizedFilter = filter != null ? filter.trim().toLowerCase(Locale.ROOT) : "";
+        long version = valueSets.version;
+        int[] matches = matchCache.computeIfAbsent(valueSetId + "|" + normalizedFilter + "|" + version,
+                key -> index.match(normalizedFilter));
+
+        int pageOffset = Math.max(0, offset != null ? offset : 0);
+        int pageCount = count != null ? count : indexConfig.getExpandDefaultCount();
+        pageCount = Math.max(0, Math.min(pageCount, indexConfig.getExpandMaxCount()));
+
+        List<ExpandedConcept> contains = new ArrayList<>();
+        int end = (int) Math.min(matches.length, (long) pageOffset + pageCount);
+        for (int i = pageOffset; i < end; i++) {
+            contains.add(new ExpandedConcept(index.getSystem(), index.codeAt(matches[i]), index.displayAt(matches[i])));
+        }
+
+        return new Expansion(valueSetId, normalizedFilter, pageOffset, pageCount, matches.length, version, contains);
+    }
+
+    private VersionedValueSets current() {
+        VersionedValueSets valueSets = terminologyIndexLoader.getCurrentSnapshot().index(this);
+        return valueSets != null ? valueSets : VersionedValueSets.EMPTY;
+    }
+
+    static final class VersionedValueSets {
+        private static final VersionedValueSets EMPTY = new VersionedValueSets(Map.of(), 0);
+
+        private final Map<String, ValueSetExpansionIndex> valueSets;
+        private final long version;
+
+        private VersionedValueSets(Map<String, ValueSetExpansionIndex> valueSets, long version) {
+            this.valueSets = valueSets;
+            this.version = version;
+        }
+    }
+
+    /**
+     * One page of a value set expansion
+     */
+    public static class Expansion {
+        private final String valueSetId;
+        private final String filter;
+        private final int offset;
+        private final int count;
+        private final int total;
+        private final long datasetVersion;
+        private final List<ExpandedConcept> contains;
+
+        public Expansion(String valueSetId, String filter, int offset, int count, int total,
+                         long datasetVersion, List<ExpandedConcept> contains) {
+            this.valueSetId = valueSetId;
+            this.filter = filter;
+            this.offset = offset;
+            this.count = count;
+            this.total = total;
+            this.datasetVersion = datasetVersion;
+            this.contains = contains;
+        }
+
+        public String getValueSetId() {
+            return valueSetId;
+        }
+
+        public String getFilter() {
+            return filter;
+        }
+
+        public int getOffset() {
+            return offset;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public long getDatasetVersion() {
+            return datasetVersion;
+        }
+
+        public List<ExpandedConcept> getContains() {
+            return contains;
+        }
+    }
+
+    /**
+     * One code in an expansion
+     */
+    public static class ExpandedConcept {
+        private final String system;
+        private final String code;
+        private final String display;
+
+        public ExpandedConcept(String system, String code, String display) {
+            this.system = system;
+            this.code = code;
+            this.display = display;
+        }
+
+        public String getSystem() {
+            return system;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getDisplay() {
+            return display;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "admission")
+@Data
+public class AdmissionControlConfig {
+    private boolean enabled = true;
+    // Shared concurrency limit, adapted by AIMD against each class's latency target
+    private int initialLimit = 40;
+    private int minLimit = 8;
+    private int maxLimit = 200;
+    private double backoffRatio = 0.9;
+    // Endpoint classes without an entry are not admission-controlled
+    private Map<AdmissionController.EndpointClass, ClassLimits> classes = new EnumMap<>(AdmissionController.EndpointClass.class);
+
+    @Data
+    public static class ClassLimits {
+        private int maxConcurrency = 16;
+        private int queueSize = 32;
+        private long maxWaitMillis = 200;
+        // 0 = the class does not adapt the shared limit (e.g. streamed responses)
+        private long targetLatencyMillis = 0;
+    }
+}
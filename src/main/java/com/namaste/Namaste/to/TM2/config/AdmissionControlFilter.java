@@ -0,0 +1,125 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs admission-controlled endpoints through AdmissionController; runs after RequestDeadlineFilter so
+ * queueing counts against the request's deadline. Shed requests get 503 with a throttled OperationOutcome
+ * Streamed responses hold their permit until the async request completes
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String FHIR_JSON_CONTENT_TYPE = "application/fhir+json;fhirVersion=4.0";
+
+    private final AdmissionController admissionController;
+    private final AdmissionControlConfig config;
+
+    public AdmissionControlFilter(AdmissionController admissionController, AdmissionControlConfig config) {
+        this.admissionController = admissionController;
+        this.config = config;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Optional<AdmissionController.EndpointClass> endpointClass = config.isEnabled() && !"OPTIONS".equals(request.getMethod())
+                ? admissionController.classify(request.getRequestURI().substring(request.getContextPath().length()))
+                : Optional.empty();
+        if (endpointClass.isEmpty()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long maxWaitMillis = RequestDeadline.current().map(RequestDeadline::remainingMillis).orElse(Long.MAX_VALUE);
+        Optional<AdmissionController.Rejection> rejection;
+        try {
+            rejection = admissionController.acquire(endpointClass.get(), maxWaitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejection = Optional.of(AdmissionController.Rejection.WAIT_EXCEEDED);
+        }
+        if (rejection.isPresent()) {
+            writeOverloaded(response, endpointClass.get(), rejection.get());
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new PermitReleasingListener(endpointClass.get(), response, start));
+            } else {
+                admissionController.release(endpointClass.get(), elapsedMillis(start), failed || response.getStatus() >= 500);
+            }
+        }
+    }
+
+    private void writeOverloaded(HttpServletResponse response, AdmissionController.EndpointClass endpointClass,
+                                 AdmissionController.Rejection rejection) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader("Retry-After", "1");
+        response.setHeader("X-FHIR-Version", "4.0.1");
+        response.setContentType(FHIR_JSON_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write("{\"resourceType\":\"OperationOutcome\",\"issue\":[{\"severity\":\"error\",\"code\":\"throttled\","
+                + "\"diagnostics\":\"Server overloaded, " + endpointClass.name().toLowerCase(Locale.ROOT) + " request not admitted ("
+                + rejection.name().toLowerCase(Locale.ROOT) + "). Retry shortly\"}]}");
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private class PermitReleasingListener implements AsyncListener {
+        private final AdmissionController.EndpointClass endpointClass;
+        private final HttpServletResponse response;
+        private final long startNanos;
+
+        PermitReleasingListener(AdmissionController.EndpointClass endpointClass, HttpServletResponse response, long startNanos) {
+            this.endpointClass = endpointClass;
+            this.response = response;
+            this.startNanos = startNanos;
+        }
+
+        // Called once after any timeout or error as well
+        @Override
+        public void onComplete(AsyncEvent event) {
+            admissionController.release(endpointClass, elapsedMillis(startNanos), response.getStatus() >= 500);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // A re-dispatch replaces the listeners; keep this one registered
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Priority admission control for the FHIR API
+ * All controlled requests share one concurrency limit, adapted by AIMD: a request slower than its class's
+ * latency target (or failing with 5xx) multiplies the limit by backoff-ratio, a fast request while the
+ * limit is at least half used adds 1/limit. Each class also has a fixed concurrency cap and a bounded queue;
+ * freed capacity goes to the highest-priority waiting class first, so autocomplete keystrokes do not wait
+ * behind symptom searches. A request that cannot be admitted within its class's wait is rejected at once
+ */
+@Component
+public class AdmissionController {
+
+    /**
+     * Endpoint classes by priority (lower ordinal is admitted first)
+     */
+    public enum EndpointClass {
+        AUTOCOMPLETE("/api/fhir/autocomplete", "/api/fhir/suggest"),
+        LOOKUP("/api/fhir/search/code/**", "/api/fhir/search/tm2code/**", "/api/fhir/search/codeonly/**",
+                "/api/fhir/search/title", "/api/fhir/CodeSystem/$lookup", "/api/fhir/CodeSystem/$validate-code",
+                "/api/fhir/translate", "/api/fhir/versions", "/api/fhir/ValueSet/**"),
+        SEARCH("/api/fhir/search/symptoms", "/api/fhir/annotate", "/api/fhir/filter"),
+        BULK("/api/fhir/annotate/bulk", "/api/fhir/CodeSystem/$validate-code/batch");
+
+        private final String[] patterns;
+
+        EndpointClass(String... patterns) {
+            this.patterns = patterns;
+        }
+    }
+
+    public enum Rejection {
+        QUEUE_FULL, WAIT_EXCEEDED
+    }
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final AdmissionControlConfig config;
+    private final MeterRegistry meterRegistry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiting = new PriorityQueue<>(
+            Comparator.comparingInt((Waiter waiter) -> waiter.endpointClass.ordinal()).thenComparingLong(waiter -> waiter.sequence));
+    private final int[] inFlightByClass = new int[EndpointClass.values().length];
+    private final int[] queuedByClass = new int[EndpointClass.values().length];
+    private double limit;
+    private int inFlight;
+    private long sequence;
+    private long lastBackoffNanos = System.nanoTime();
+
+    public AdmissionController(AdmissionControlConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.limit = config.getInitialLimit();
+
+        Gauge.builder("terminology.admission.limit", this, AdmissionController::getLimit)
+                .description("Adaptive concurrency limit shared by admission-controlled endpoints")
+                .register(meterRegistry);
+        Gauge.builder("terminology.admission.in.flight", this, AdmissionController::getInFlight)
+                .description("Admitted requests still running")
+                .register(meterRegistry);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            Gauge.builder("terminology.admission.class.in.flight", this, controller -> controller.getInFlight(endpointClass))
+                    .tag("class", tagOf(endpointClass))
+                    .register(meterRegistry);
+            Gauge.builder("terminology.admission.class.queued", this, controller -> controller.getQueued(endpointClass))
+                    .tag("class", tagOf(endpointClass))
+                    .register(meterRegistry);
+            Gauge.builder("terminology.admission.class.limit", this, controller -> controller.getClassLimit(endpointClass))
+                    .tag("class", tagOf(endpointClass))
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * The controlled class of a request path, if any
+     */
+    public Optional<EndpointClass> classify(String path) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            if (config.getClasses().containsKey(endpointClass)) {
+                for (String pattern : endpointClass.patterns) {
+                    if (PATH_MATCHER.match(pattern, path)) {
+                        return Optional.of(endpointClass);
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Admit now, or wait in the class's queue for up to its max wait, capped by maxWaitMillis
+     * (the request's remaining deadline); returns the rejection reason when the request is not admitted
+     * An interrupted wait holds no permit when InterruptedException is thrown
+     */
+    public Optional<Rejection> acquire(EndpointClass endpointClass, long maxWaitMillis) throws InterruptedException {
+        AdmissionControlConfig.ClassLimits limits = limitsOf(endpointClass);
+        int index = endpointClass.ordinal();
+        lock.lock();
+        try {
+            if (canAdmit(endpointClass)) {
+                admit(endpointClass);
+                return Optional.empty();
+            }
+            long waitMillis = Math.min(limits.getMaxWaitMillis(), maxWaitMillis);
+            if (queuedByClass[index] >= limits.getQueueSize() || waitMillis <= 0) {
+                return reject(endpointClass, Rejection.QUEUE_FULL);
+            }
+
+            Waiter waiter = new Waiter(endpointClass, sequence++, lock.newCondition());
+            waiting.add(waiter);
+            queuedByClass[index]++;
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            try {
+                while (!waiter.admitted && remainingNanos > 0) {
+                    remainingNanos = waiter.signal.awaitNanos(remainingNanos);
+                }
+            } catch (InterruptedException e) {
+                if (waiter.admitted) {
+                    // Interrupted after admitWaiting() took a permit for us: the caller will not release it
+                    inFlight--;
+                    inFlightByClass[index]--;
+                    admitWaiting();
+                }
+                throw e;
+            } finally {
+                if (!waiter.admitted) {
+                    waiting.remove(waiter);
+                    queuedByClass[index]--;
+                }
+            }
+            return waiter.admitted ? Optional.empty() : reject(endpointClass, Rejection.WAIT_EXCEEDED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the permit and feed the request's latency into the shared limit
+     */
+    public void release(EndpointClass endpointClass, long latencyMillis, boolean failed) {
+        long targetMillis = limitsOf(endpointClass).getTargetLatencyMillis();
+        lock.lock();
+        try {
+            if (targetMillis > 0) {
+                long now = System.nanoTime();
+                if (failed || latencyMillis > targetMillis) {
+                    // At most one backoff per target latency, like one window per round trip, so a burst of
+                    // slow completions from the same overload does not drive the limit straight to the floor
+                    if (now - lastBackoffNanos >= TimeUnit.MILLISECONDS.toNanos(targetMillis)) {
+                        limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                        lastBackoffNanos = now;
+                    }
+                } else if (inFlight * 2 >= limit) {
+                    limit = Math.min(config.getMaxLimit(), limit + 1.0 / limit);
+                }
+            }
+            inFlight--;
+            inFlightByClass[endpointClass.ordinal()]--;
+            admitWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight(EndpointClass endpointClass) {
+        lock.lock();
+        try {
+            return inFlightByClass[endpointClass.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueued(EndpointClass endpointClass) {
+        lock.lock();
+        try {
+            return queuedByClass[endpointClass.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getClassLimit(EndpointClass endpointClass) {
+        AdmissionControlConfig.ClassLimits limits = config.getClasses().get(endpointClass);
+        return limits != null ? limits.getMaxConcurrency() : 0;
+    }
+
+    // Waiters are in priority order; one blocked by its class cap does not hold back other classes
+    private void admitWaiting() {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        List<Waiter> ordered = new ArrayList<>(waiting);
+        ordered.sort(waiting.comparator());
+        for (Waiter waiter : ordered) {
+            if (inFlight >= (int) limit) {
+                return;
+            }
+            if (canAdmit(waiter.endpointClass)) {
+                waiting.remove(waiter);
+                queuedByClass[waiter.endpointClass.ordinal()]--;
+                admit(waiter.endpointClass);
+                waiter.admitted = true;
+                waiter.signal.signal();
+            }
+        }
+    }
+
+    private boolean canAdmit(EndpointClass endpointClass) {
+        return inFlight < (int) limit && inFlightByClass[endpointClass.ordinal()] < limitsOf(endpointClass).getMaxConcurrency();
+    }
+
+    private void admit(EndpointClass endpointClass) {
+        inFlight++;
+        inFlightByClass[endpointClass.ordinal()]++;
+    }
+
+    private Optional<Rejection> reject(EndpointClass endpointClass, Rejection rejection) {
+        Counter.builder("terminology.admission.rejected")
+                .description("Requests shed by admission control")
+                .tag("class", tagOf(endpointClass))
+                .tag("reason", rejection.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .increment();
+        return Optional.of(rejection);
+    }
+
+    private AdmissionControlConfig.ClassLimits limitsOf(EndpointClass endpointClass) {
+        return config.getClasses().get(endpointClass);
+    }
+
+    private static String tagOf(EndpointClass endpointClass) {
+        return endpointClass.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static class Waiter {
+        private final EndpointClass endpointClass;
+        private final long sequence;
+        private final Condition signal;
+        private boolean admitted;
+
+        Waiter(EndpointClass endpointClass, long sequence, Condition signal) {
+            this.endpointClass = endpointClass;
+            this.sequence = sequence;
+            this.signal = signal;
+        }
+    }
+}
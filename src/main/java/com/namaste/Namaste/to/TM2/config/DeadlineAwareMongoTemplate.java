@@ -0,0 +1,47 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MongoTemplate that bounds every operation issued on a request thread by the request's remaining time
+ * The driver's operation timeout sends the remainder as maxTimeMS, so the server abandons a scan the
+ * client has stopped waiting for, and also stops waiting on the client side; background work
+ * (index loading, migrations, explain capture) runs without a deadline and is unaffected
+ */
+public class DeadlineAwareMongoTemplate extends MongoTemplate {
+
+    public DeadlineAwareMongoTemplate(MongoDatabaseFactory mongoDbFactory, MongoConverter mongoConverter) {
+        super(mongoDbFactory, mongoConverter);
+    }
+
+    @Override
+    protected MongoCollection<Document> prepareCollection(MongoCollection<Document> collection) {
+        MongoCollection<Document> prepared = super.prepareCollection(collection);
+        Optional<RequestDeadline> deadline = RequestDeadline.current();
+        return deadline.isPresent() ? prepared.withTimeout(remainingOrFail(deadline.get()), TimeUnit.MILLISECONDS) : prepared;
+    }
+
+    @Override
+    protected MongoDatabase prepareDatabase(MongoDatabase database) {
+        MongoDatabase prepared = super.prepareDatabase(database);
+        Optional<RequestDeadline> deadline = RequestDeadline.current();
+        return deadline.isPresent() ? prepared.withTimeout(remainingOrFail(deadline.get()), TimeUnit.MILLISECONDS) : prepared;
+    }
+
+    // A timeout of 0 means "no limit" to the driver, so an exhausted budget fails before the command is sent
+    private static long remainingOrFail(RequestDeadline deadline) {
+        long remaining = deadline.remainingMillis();
+        if (remaining <= 0) {
+            throw deadline.exceeded();
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,11 @@
+package com.namaste.Namaste.to.TM2.config;
+
+/**
+ * Thrown when work for a request would start or continue after its RequestDeadline has passed
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+@Configuration
+public class MongoConfig {
+
+    /**
+     * Replaces Spring Boot's MongoTemplate (same factory and converter) so repositories inherit request deadlines
+     */
+    @Bean
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory mongoDatabaseFactory, MongoConverter mongoConverter) {
+        return new DeadlineAwareMongoTemplate(mongoDatabaseFactory, mongoConverter);
+    }
+}
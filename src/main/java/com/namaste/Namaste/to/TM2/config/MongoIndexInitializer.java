@@ -0,0 +1,67 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Model.Tm2Concept;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the terminology documents (@Indexed / @CompoundIndex)
+ * Automatic index creation is off in Spring Boot, so without this the annotations are documentation only;
+ * createIndex is idempotent, so running it on every start only builds indexes that are missing
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoIndexInitializer.class);
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(NamasteCode.class, Tm2Concept.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Build indexes in the background so startup is not blocked on MongoDB
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexesOnStartup() {
+        Thread indexer = new Thread(() -> {
+            try {
+                ensureIndexes();
+            } catch (Exception e) {
+                log.error("Creating terminology indexes failed, queries fall back to existing indexes", e);
+            }
+        }, "mongo-index-initializer");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    public void ensureIndexes() {
+        long start = System.currentTimeMillis();
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext = mongoTemplate.getConverter().getMappingContext();
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        int count = 0;
+        for (Class<?> documentType : INDEXED_DOCUMENTS) {
+            MongoPersistentEntity<?> entity = mappingContext.getRequiredPersistentEntity(documentType);
+            IndexOperations indexOperations = mongoTemplate.indexOps(entity.getCollection());
+            for (MongoPersistentEntityIndexResolver.IndexDefinitionHolder index : resolver.resolveIndexForEntity(entity)) {
+                indexOperations.createIndex(index);
+                count++;
+            }
+        }
+        log.info("Ensured {} MongoDB indexes in {} ms", count, System.currentTimeMillis() - start);
+    }
+}
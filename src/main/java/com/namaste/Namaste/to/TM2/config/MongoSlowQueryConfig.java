@@ -0,0 +1,17 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "mongodb.slow-query")
+@Data
+public class MongoSlowQueryConfig {
+    private boolean enabled = true;
+    private long thresholdMillis = 100;
+    private double sampleRate = 1.0;
+    private int maxShapes = 100;
+    private int explainIntervalSeconds = 300;
+    private int topCount = 20;
+}
@@ -0,0 +1,517 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Samples MongoDB read commands that take longer than mongodb.slow-query.threshold-millis
+ * Commands are grouped by shape (the command with every literal replaced by "?"), so one slow repository
+ * method shows up once however many values it was called with. The first slow sample of a shape, and
+ * one per explain interval after that, is re-run as explain("executionStats") on a background thread
+ * Only sampled commands are copied when they start; everything else costs a map lookup
+ */
+@Component
+public class MongoSlowQueryRecorder implements CommandListener, MongoClientSettingsBuilderCustomizer {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoSlowQueryRecorder.class);
+    private static final Set<String> RECORDED_COMMANDS = Set.of("find", "aggregate", "count", "distinct", "findAndModify");
+    private static final Set<String> DRIVER_FIELDS = Set.of("$db", "lsid", "$clusterTime", "$readPreference",
+            "txnNumber", "apiVersion", "apiStrict", "apiDeprecationErrors");
+    // Shape-defining fields that carry no user values and are kept as sent
+    private static final Set<String> STRUCTURAL_FIELDS = Set.of("sort", "projection", "key", "hint", "collation");
+    private static final Set<String> LOGICAL_OPERATORS = Set.of("$and", "$or", "$nor");
+    private static final Set<String> REDACTED_STAGES = Set.of("$match", "$limit", "$skip", "$sample");
+    private static final BsonString REDACTED = new BsonString("?");
+    private static final String APPLICATION_PACKAGE = "com.namaste.";
+    private static final int MAX_CALLERS = 5;
+
+    private final MongoSlowQueryConfig config;
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Integer, BsonDocument> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, SlowQueryShape> shapes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor explainExecutor;
+
+    // MongoTemplate is looked up lazily: it is built from the MongoClient this listener is registered on
+    public MongoSlowQueryRecorder(MongoSlowQueryConfig config,
+                                  ObjectProvider<MongoTemplate> mongoTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.config = config;
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.explainExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(16), runnable -> {
+            Thread thread = new Thread(runnable, "mongo-slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        builder.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!config.isEnabled() || !RECORDED_COMMANDS.contains(event.getCommandName())) {
+            return;
+        }
+        if (config.getSampleRate() < 1.0 && ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) {
+            return;
+        }
+        // The event's document is only valid during the callback
+        inFlight.put(event.getRequestId(), event.getCommand().clone());
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        BsonDocument command = inFlight.remove(event.getRequestId());
+        if (command != null) {
+            completed(command, event.getCommandName(), event.getDatabaseName(), event.getElapsedTime(TimeUnit.MILLISECONDS), false);
+        }
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        BsonDocument command = inFlight.remove(event.getRequestId());
+        if (command != null) {
+            completed(command, event.getCommandName(), event.getDatabaseName(), event.getElapsedTime(TimeUnit.MILLISECONDS), true);
+        }
+    }
+
+    /**
+     * The slowest shapes by total time spent, most expensive first
+     */
+    public List<SlowQuery> getTopQueries(int limit) {
+        return shapes.values().stream()
+                .map(SlowQueryShape::snapshot)
+                .sorted(Comparator.comparingLong(SlowQuery::getTotalMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public int getRecordedShapes() {
+        return shapes.size();
+    }
+
+    private void completed(BsonDocument command, String commandName, String database, long elapsedMillis, boolean failed) {
+        if (elapsedMillis < config.getThresholdMillis()) {
+            return;
+        }
+        BsonValue target = command.get(commandName);
+        String collection = target != null && target.isString() ? target.asString().getValue() : null;
+        String shape = shapeOf(command, commandName).toJson();
+
+        SlowQueryShape entry = shapes.get(shape);
+        if (entry == null) {
+            evictCheapestIfFull();
+            entry = shapes.computeIfAbsent(shape, key -> new SlowQueryShape(key, commandName, collection));
+        }
+        entry.add(elapsedMillis, failed, callerOf());
+        Counter.builder("mongodb.slow.commands")
+                .description("MongoDB commands slower than the slow-query threshold")
+                .tag("command", commandName)
+                .register(meterRegistry)
+                .increment();
+
+        if (entry.claimExplain(System.currentTimeMillis(), TimeUnit.SECONDS.toMillis(config.getExplainIntervalSeconds()))) {
+            SlowQueryShape explained = entry;
+            try {
+                explainExecutor.execute(() -> explained.setExplain(explain(command, database)));
+            } catch (RejectedExecutionException e) {
+                explained.releaseExplainClaim();
+            }
+        }
+    }
+
+    private void evictCheapestIfFull() {
+        if (shapes.size() < config.getMaxShapes()) {
+            return;
+        }
+        shapes.values().stream()
+                .min(Comparator.comparingLong(SlowQueryShape::getTotalMillis))
+                .ifPresent(cheapest -> shapes.remove(cheapest.getShape()));
+    }
+
+    private ExplainSummary explain(BsonDocument command, String database) {
+        BsonDocument explainable = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (!DRIVER_FIELDS.contains(key)) {
+                explainable.put(key, value);
+            }
+        });
+        try {
+            MongoTemplate template = mongoTemplate.getObject();
+            Document explain = template.getMongoDatabaseFactory().getMongoDatabase(database).runCommand(
+                    new Document("explain", explainable).append("verbosity", "executionStats"));
+            return ExplainSummary.of(explain);
+        } catch (Exception e) {
+            log.debug("Explain of slow query failed: {}", e.getMessage());
+            return ExplainSummary.failed(e.getMessage());
+        }
+    }
+
+    /**
+     * The command without its literals: logical operators and pipelines keep their structure,
+     * $in lists collapse to a single "?" so different list lengths share a shape
+     */
+    static BsonDocument shapeOf(BsonDocument command, String commandName) {
+        BsonDocument shape = new BsonDocument();
+        command.forEach((key, value) -> {
+            if (key.equals(commandName) || STRUCTURAL_FIELDS.contains(key)) {
+                shape.put(key, value);
+            } else if ("pipeline".equals(key) && value.isArray()) {
+                BsonArray stages = new BsonArray();
+                for (BsonValue stage : value.asArray()) {
+                    stages.add(redactStage(stage));
+                }
+                shape.put(key, stages);
+            } else if (!DRIVER_FIELDS.contains(key)) {
+                shape.put(key, redact(key, value));
+            }
+        });
+        return shape;
+    }
+
+    private static BsonValue redactStage(BsonValue stage) {
+        if (!stage.isDocument()) {
+            return REDACTED;
+        }
+        BsonDocument redacted = new BsonDocument();
+        stage.asDocument().forEach((name, body) -> redacted.put(name, REDACTED_STAGES.contains(name) ? redact(name, body) : body));
+        return redacted;
+    }
+
+    private static BsonValue redact(String key, BsonValue value) {
+        if (value.isDocument()) {
+            BsonDocument redacted = new BsonDocument();
+            value.asDocument().forEach((field, nested) -> redacted.put(field, redact(field, nested)));
+            return redacted;
+        }
+        if (value.isArray() && LOGICAL_OPERATORS.contains(key)) {
+            BsonArray redacted = new BsonArray();
+            for (BsonValue clause : value.asArray()) {
+                redacted.add(redact(key, clause));
+            }
+            return redacted;
+        }
+        return REDACTED;
+    }
+
+    /**
+     * The application method that issued the command; the driver calls listeners on the calling thread.
+     * A repository interface method only appears as a proxy frame, so it is reported next to its caller
+     */
+    private static String callerOf() {
+        return StackWalker.getInstance().walk(frames -> {
+            String repositoryMethod = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (className.contains("$Proxy")) {
+                    repositoryMethod = frame.getMethodName();
+                } else if (className.startsWith(APPLICATION_PACKAGE) && !className.equals(MongoSlowQueryRecorder.class.getName())) {
+                    String caller = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                    return repositoryMethod != null ? caller + " -> " + repositoryMethod : caller;
+                }
+            }
+            return repositoryMethod != null ? repositoryMethod : "unknown";
+        });
+    }
+
+    private static class SlowQueryShape {
+        private final String shape;
+        private final String command;
+        private final String collection;
+        private final Set<String> callers = new LinkedHashSet<>();
+        private long count;
+        private long failures;
+        private long totalMillis;
+        private long maxMillis;
+        private long lastMillis;
+        private Instant lastSeen;
+        private long explainClaimedAt;
+        private ExplainSummary explain;
+
+        SlowQueryShape(String shape, String command, String collection) {
+            this.shape = shape;
+            this.command = command;
+            this.collection = collection;
+        }
+
+        synchronized void add(long elapsedMillis, boolean failed, String caller) {
+            count++;
+            if (failed) {
+                failures++;
+            }
+            totalMillis += elapsedMillis;
+            maxMillis = Math.max(maxMillis, elapsedMillis);
+            lastMillis = elapsedMillis;
+            lastSeen = Instant.now();
+            if (callers.size() < MAX_CALLERS) {
+                callers.add(caller);
+            }
+        }
+
+        synchronized boolean claimExplain(long now, long intervalMillis) {
+            if (explainClaimedAt != 0 && now - explainClaimedAt < intervalMillis) {
+                return false;
+            }
+            explainClaimedAt = now;
+            return true;
+        }
+
+        synchronized void releaseExplainClaim() {
+            explainClaimedAt = 0;
+        }
+
+        synchronized void setExplain(ExplainSummary explain) {
+            this.explain = explain;
+        }
+
+        String getShape() {
+            return shape;
+        }
+
+        synchronized long getTotalMillis() {
+            return totalMillis;
+        }
+
+        synchronized SlowQuery snapshot() {
+            return new SlowQuery(shape, command, collection, new ArrayList<>(callers), count, failures,
+                    totalMillis, maxMillis, lastMillis, lastSeen, explain);
+        }
+    }
+
+    public static class SlowQuery {
+        private final String shape;
+        private final String command;
+        private final String collection;
+        private final List<String> callers;
+        private final long count;
+        private final long failures;
+        private final long totalMillis;
+        private final long maxMillis;
+        private final long lastMillis;
+        private final Instant lastSeen;
+        private final ExplainSummary explain;
+
+        public SlowQuery(String shape, String command, String collection, List<String> callers, long count, long failures,
+                         long totalMillis, long maxMillis, long lastMillis, Instant lastSeen, ExplainSummary explain) {
+            this.shape = shape;
+            this.command = command;
+            this.collection = collection;
+            this.callers = callers;
+            this.count = count;
+            this.failures = failures;
+            this.totalMillis = totalMillis;
+            this.maxMillis = maxMillis;
+            this.lastMillis = lastMillis;
+            this.lastSeen = lastSeen;
+            this.explain = explain;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public List<String> getCallers() {
+            return callers;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        public long getMaxMillis() {
+            return maxMillis;
+        }
+
+        public long getMeanMillis() {
+            return count > 0 ? totalMillis / count : 0;
+        }
+
+        public long getLastMillis() {
+            return lastMillis;
+        }
+
+        public Instant getLastSeen() {
+            return lastSeen;
+        }
+
+        public ExplainSummary getExplain() {
+            return explain;
+        }
+    }
+
+    /**
+     * The parts of explain("executionStats") that tell whether an index is missing
+     */
+    public static class ExplainSummary {
+        private final Instant capturedAt;
+        private final String winningPlan;
+        private final List<String> indexes;
+        private final Long returned;
+        private final Long keysExamined;
+        private final Long docsExamined;
+        private final Long executionMillis;
+        private final boolean collectionScan;
+        private final String error;
+
+        private ExplainSummary(String winningPlan, List<String> indexes, Long returned, Long keysExamined,
+                               Long docsExamined, Long executionMillis, boolean collectionScan, String error) {
+            this.capturedAt = Instant.now();
+            this.winningPlan = winningPlan;
+            this.indexes = indexes;
+            this.returned = returned;
+            this.keysExamined = keysExamined;
+            this.docsExamined = docsExamined;
+            this.executionMillis = executionMillis;
+            this.collectionScan = collectionScan;
+            this.error = error;
+        }
+
+        static ExplainSummary of(Document explain) {
+            Document plan = find(explain, "winningPlan");
+            if (plan != null && plan.get("queryPlan") instanceof Document) {
+                // Slot-based engine nests the classic plan tree one level down
+                plan = (Document) plan.get("queryPlan");
+            }
+            List<String> stages = new ArrayList<>();
+            List<String> indexes = new ArrayList<>();
+            collectPlan(plan, stages, indexes);
+            Document stats = find(explain, "executionStats");
+            return new ExplainSummary(String.join(" <- ", stages), indexes, number(stats, "nReturned"),
+                    number(stats, "totalKeysExamined"), number(stats, "totalDocsExamined"),
+                    number(stats, "executionTimeMillis"), stages.contains("COLLSCAN"), null);
+        }
+
+        static ExplainSummary failed(String error) {
+            return new ExplainSummary(null, List.of(), null, null, null, null, false, error);
+        }
+
+        private static void collectPlan(Document stage, List<String> stages, List<String> indexes) {
+            if (stage == null) {
+                return;
+            }
+            if (stage.get("stage") instanceof String) {
+                stages.add((String) stage.get("stage"));
+            }
+            if (stage.get("indexName") instanceof String) {
+                indexes.add((String) stage.get("indexName"));
+            }
+            if (stage.get("inputStage") instanceof Document) {
+                collectPlan((Document) stage.get("inputStage"), stages, indexes);
+            }
+            if (stage.get("inputStages") instanceof List) {
+                for (Object input : (List<?>) stage.get("inputStages")) {
+                    if (input instanceof Document) {
+                        collectPlan((Document) input, stages, indexes);
+                    }
+                }
+            }
+        }
+
+        /**
+         * First document under the key anywhere in the explain output (aggregate explains nest it in a $cursor stage)
+         */
+        private static Document find(Object node, String key) {
+            if (node instanceof Document) {
+                Document document = (Document) node;
+                if (document.get(key) instanceof Document) {
+                    return (Document) document.get(key);
+                }
+                for (Object value : document.values()) {
+                    Document found = find(value, key);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            } else if (node instanceof List) {
+                for (Object element : (List<?>) node) {
+                    Document found = find(element, key);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static Long number(Document document, String key) {
+            return document != null && document.get(key) instanceof Number ? ((Number) document.get(key)).longValue() : null;
+        }
+
+        public Instant getCapturedAt() {
+            return capturedAt;
+        }
+
+        public String getWinningPlan() {
+            return winningPlan;
+        }
+
+        public List<String> getIndexes() {
+            return indexes;
+        }
+
+        public Long getReturned() {
+            return returned;
+        }
+
+        public Long getKeysExamined() {
+            return keysExamined;
+        }
+
+        public Long getDocsExamined() {
+            return docsExamined;
+        }
+
+        public Long getExecutionMillis() {
+            return executionMillis;
+        }
+
+        public boolean isCollectionScan() {
+            return collectionScan;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
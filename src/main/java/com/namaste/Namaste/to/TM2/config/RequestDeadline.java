@@ -0,0 +1,90 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Absolute time budget of the current API request, set by RequestDeadlineFilter on the servlet thread
+ * MongoDB commands get the remaining time as their timeout (maxTimeMS), ABHA calls as their Reactor timeout;
+ * reactive chains that continue on other threads carry it in the Reactor context instead of the thread
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long budgetMillis;
+    private final long expiresAtNanos;
+
+    private RequestDeadline(long budgetMillis) {
+        this.budgetMillis = budgetMillis;
+        this.expiresAtNanos = System.nanoTime() + budgetMillis * 1_000_000L;
+    }
+
+    static RequestDeadline start(long budgetMillis) {
+        RequestDeadline deadline = new RequestDeadline(budgetMillis);
+        CURRENT.set(deadline);
+        return deadline;
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    public static Optional<RequestDeadline> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * The deadline carried by a reactive chain, falling back to the calling thread's
+     */
+    public static Optional<RequestDeadline> current(ContextView context) {
+        Optional<RequestDeadline> carried = context.getOrEmpty(RequestDeadline.class);
+        return carried.isPresent() ? carried : current();
+    }
+
+    /**
+     * Captures the calling thread's deadline now, for contextWrite on a chain whose later stages run elsewhere
+     */
+    public static Function<Context, Context> propagate() {
+        RequestDeadline deadline = CURRENT.get();
+        return context -> deadline == null || context.hasKey(RequestDeadline.class) ? context : context.put(RequestDeadline.class, deadline);
+    }
+
+    /**
+     * Stop in-process work for a request whose deadline has passed; no-op outside a request
+     */
+    public static void checkpoint() {
+        RequestDeadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw deadline.exceeded();
+        }
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, (expiresAtNanos - System.nanoTime()) / 1_000_000L);
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * The configured timeout, shortened to what is left of the budget
+     */
+    public Duration within(Duration configured) {
+        Duration remaining = Duration.ofMillis(remainingMillis());
+        return remaining.compareTo(configured) < 0 ? remaining : configured;
+    }
+
+    public DeadlineExceededException exceeded() {
+        return new DeadlineExceededException("Request deadline of " + budgetMillis + " ms exceeded");
+    }
+}
@@ -0,0 +1,20 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "request.deadline")
+@Data
+public class RequestDeadlineConfig {
+    private boolean enabled = true;
+    private long defaultMillis = 10000;
+    // Ant path pattern -> budget in ms; the most specific match wins, 0 = no deadline
+    private Map<String, Long> endpoints = new LinkedHashMap<>();
+    // Clients may ask for a shorter budget with this header (ms), never a longer one
+    private String header = "X-Request-Timeout";
+}
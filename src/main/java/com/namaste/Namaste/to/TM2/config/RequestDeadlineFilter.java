@@ -0,0 +1,73 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Starts the RequestDeadline of every request from request.deadline.endpoints (most specific pattern),
+ * request.deadline.default-millis otherwise, shortened by the client's X-Request-Timeout header
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final RequestDeadlineConfig config;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RequestDeadlineFilter(RequestDeadlineConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long budgetMillis = config.isEnabled() ? budgetFor(request) : 0;
+        if (budgetMillis <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RequestDeadline.start(budgetMillis);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    long budgetFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Comparator<String> specificity = pathMatcher.getPatternComparator(path);
+        long budgetMillis = config.getEndpoints().entrySet().stream()
+                .filter(endpoint -> pathMatcher.match(endpoint.getKey(), path))
+                .min(Map.Entry.comparingByKey(specificity))
+                .map(Map.Entry::getValue)
+                .orElse(config.getDefaultMillis());
+        if (budgetMillis <= 0) {
+            return 0;
+        }
+
+        String requested = request.getHeader(config.getHeader());
+        if (requested != null) {
+            try {
+                long requestedMillis = Long.parseLong(requested.trim());
+                if (requestedMillis > 0) {
+                    budgetMillis = Math.min(budgetMillis, requestedMillis);
+                }
+            } catch (NumberFormatException e) {
+                // Ignore a malformed header and keep the endpoint budget
+            }
+        }
+        return budgetMillis;
+    }
+}
@@ -0,0 +1,37 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/slowqueries: the most expensive slow MongoDB command shapes with their captured explain
+ * Read-only: actuator endpoints are not authenticated, and shapes age out by cost once max-shapes is reached
+ */
+@Component
+@Endpoint(id = "slowqueries")
+public class SlowQueryEndpoint {
+
+    private final MongoSlowQueryRecorder recorder;
+    private final MongoSlowQueryConfig config;
+
+    public SlowQueryEndpoint(MongoSlowQueryRecorder recorder, MongoSlowQueryConfig config) {
+        this.recorder = recorder;
+        this.config = config;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowQueries(@Nullable Integer limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", config.isEnabled());
+        result.put("thresholdMillis", config.getThresholdMillis());
+        result.put("sampleRate", config.getSampleRate());
+        result.put("recordedShapes", recorder.getRecordedShapes());
+        result.put("queries", recorder.getTopQueries(limit != null && limit > 0 ? limit : config.getTopCount()));
+        return result;
+    }
+}
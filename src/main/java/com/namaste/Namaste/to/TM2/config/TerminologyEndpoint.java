@@ -0,0 +1,87 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Service.NamasteTerminologyService;
+import com.namaste.Namaste.to.TM2.Service.TerminologyIndexLoader;
+import com.namaste.Namaste.to.TM2.Service.TerminologySnapshot;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * /actuator/terminology: retained dataset versions, rollback to one of them (POST {"version": n}), and bulk
+ * import of code records followed by a full reload (POST /actuator/terminology/import {"records": [...]})
+ * Changes data, so it is not in the default web exposure: actuator endpoints are not authenticated and
+ * operators enable it explicitly (management.endpoints.web.exposure.include) where the port is protected
+ */
+@Component
+@Endpoint(id = "terminology")
+public class TerminologyEndpoint {
+
+    private final TerminologyIndexLoader terminologyIndexLoader;
+    private final NamasteTerminologyService terminologyService;
+    private final ObjectMapper objectMapper;
+
+    public TerminologyEndpoint(TerminologyIndexLoader terminologyIndexLoader, NamasteTerminologyService terminologyService,
+                               ObjectMapper objectMapper) {
+        this.terminologyIndexLoader = terminologyIndexLoader;
+        this.terminologyService = terminologyService;
+        this.objectMapper = objectMapper;
+    }
+
+    @ReadOperation
+    public Map<String, Object> versions() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("loaded", terminologyIndexLoader.isLoaded());
+        result.put("current", terminologyIndexLoader.getVersion());
+        List<Map<String, Object>> versions = new ArrayList<>();
+        for (TerminologySnapshot snapshot : terminologyIndexLoader.getSnapshots()) {
+            versions.add(describe(snapshot));
+        }
+        result.put("versions", versions);
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rollback(long version) {
+        Map<String, Object> result = describe(terminologyService.rollbackTo(version));
+        result.put("restoredFrom", version);
+        return result;
+    }
+
+    /**
+     * Records use the same JSON fields as the search responses; records with an existing id replace it
+     */
+    @WriteOperation
+    public Map<String, Object> importCodes(@Selector String operation, List<Map<String, Object>> records,
+                                           @Nullable String userId) {
+        if (!"import".equals(operation)) {
+            throw new IllegalArgumentException("Unknown terminology operation: " + operation);
+        }
+        List<NamasteCode> codes = new ArrayList<>(records.size());
+        for (Map<String, Object> record : records) {
+            codes.add(objectMapper.convertValue(record, NamasteCode.class));
+        }
+        List<NamasteCode> saved = terminologyService.importCodes(codes, userId);
+        Map<String, Object> result = describe(terminologyIndexLoader.getCurrentSnapshot());
+        result.put("imported", saved.size());
+        return result;
+    }
+
+    private static Map<String, Object> describe(TerminologySnapshot snapshot) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("version", snapshot.getVersion());
+        description.put("created", snapshot.getCreatedAt().toString());
+        description.put("records", snapshot.size());
+        return description;
+    }
+}
@@ -0,0 +1,33 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "terminology.index")
+@Data
+public class TerminologyIndexConfig {
+    private boolean bloomEnabled = true;
+    private double bloomFalsePositiveRate = 0.01;
+    private int bloomMinCapacity = 10000;
+    private int expandDefaultCount = 100;
+    private int expandMaxCount = 1000;
+    private int expansionCacheSize = 512;
+    private String symptomTermsLocation = "classpath:terminology/symptom-terms.txt";
+    private int annotationMaxCandidates = 10;
+    private int bulkAnnotationWorkers = 0;
+    private int bulkAnnotationMaxInFlight = 256;
+    private int symptomCacheSize = 256;
+    private int symptomPageDefaultCount = 20;
+    private int symptomPageMaxCount = 100;
+    private int fuzzyMaxEditDistance = 2;
+    private int fuzzyPrefixLength = 7;
+    private String synonymDictionaryLocation = "classpath:terminology/symptom-synonyms.txt";
+    private int retainedVersions = 3;
+    private long refreshDelayMillis = 500;
+    private String artifactPath = "data/terminology-index.bin";
+    private boolean artifactGridFsEnabled = false;
+    private boolean artifactRefreshOnStartup = true;
+    private boolean conceptMigrationOnStartup = false;
+}
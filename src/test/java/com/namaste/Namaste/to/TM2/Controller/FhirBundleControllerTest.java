@@ -0,0 +1,64 @@
+package com.namaste.Namaste.to.TM2.Controller;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.namaste.Namaste.to.TM2.Service.BulkAnnotationService;
+import com.namaste.Namaste.to.TM2.Service.CodeSystemLookupService;
+import com.namaste.Namaste.to.TM2.Service.TerminologyFhirService;
+import com.namaste.Namaste.to.TM2.config.DeadlineExceededException;
+import com.namaste.Namaste.to.TM2.config.RequestDeadlineConfig;
+import com.namaste.Namaste.to.TM2.config.RequestDeadlineFilter;
+import org.hl7.fhir.r4.model.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class FhirBundleControllerTest {
+
+    private final TerminologyFhirService terminologyFhirService = mock(TerminologyFhirService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        when(terminologyFhirService.toJson(any(Resource.class))).thenAnswer(invocation ->
+                FhirContext.forR4Cached().newJsonParser().encodeResourceToString(invocation.getArgument(0)));
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new FhirBundleController(terminologyFhirService,
+                        mock(CodeSystemLookupService.class), mock(BulkAnnotationService.class)))
+                .addFilters(new RequestDeadlineFilter(new RequestDeadlineConfig()))
+                .build();
+    }
+
+    @Test
+    void requestPastItsDeadlineGetsTimeoutOutcome() throws Exception {
+        when(terminologyFhirService.createSearchByCodeResult(eq("SR11"), isNull())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            throw new DeadlineExceededException("Request deadline of 5 ms exceeded");
+        });
+
+        mockMvc.perform(get("/api/fhir/search/code/SR11").header("X-Request-Timeout", "5"))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.resourceType").value("OperationOutcome"))
+                .andExpect(jsonPath("$.issue[0].severity").value("error"))
+                .andExpect(jsonPath("$.issue[0].code").value("timeout"));
+    }
+
+    @Test
+    void failureWithinTheDeadlineStaysProcessingError() throws Exception {
+        when(terminologyFhirService.createSearchByCodeResult(eq("SR11"), isNull()))
+                .thenThrow(new IllegalStateException("index not loaded"));
+
+        mockMvc.perform(get("/api/fhir/search/code/SR11"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.issue[0].code").value("processing"));
+    }
+}
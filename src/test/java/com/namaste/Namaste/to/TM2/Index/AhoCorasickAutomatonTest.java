@@ -0,0 +1,142 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AhoCorasickAutomatonTest {
+
+    @Test
+    void overlappingPatternsAreAllReported() {
+        List<String> patterns = List.of("high fever", "fever", "fever with chills");
+        assertEquals(Set.of(match(0, 10, 0), match(5, 10, 1), match(5, 22, 2)),
+                scan(patterns, "high fever with chills"));
+    }
+
+    @Test
+    void nestedPatternsAreAllReported() {
+        List<String> patterns = List.of("vata jwara", "jwara", "vata", "sannipata vata jwara");
+        assertEquals(Set.of(match(0, 20, 3), match(10, 20, 0), match(10, 14, 2), match(15, 20, 1)),
+                scan(patterns, "sannipata vata jwara"));
+    }
+
+    @Test
+    void matchesOnlyWholeWords() {
+        List<String> patterns = List.of("fever", "pain");
+        assertEquals(Set.of(), scan(patterns, "feverish antifever painful"));
+        assertEquals(Set.of(match(0, 5, 0), match(14, 18, 1)), scan(patterns, "Fever, chest (pain)"));
+        assertEquals(Set.of(match(4, 8, 1)), scan(patterns, "2x (PAIN)"));
+    }
+
+    @Test
+    void runsOfPunctuationReadAsOneSpace() {
+        List<String> patterns = List.of(AhoCorasickAutomaton.normalize("Vata-Jwara"));
+        assertEquals("vata jwara", patterns.get(0));
+
+        String note = "...Vāta?! -- ,jwara";
+        // ā is a letter, so this is "vāta jwara" and does not match; the ASCII spelling does
+        assertEquals(Set.of(), scan(patterns, note));
+        assertEquals(Set.of(match(3, 19, 0)), scan(patterns, "...Vata?! -- ,jwara."));
+    }
+
+    @Test
+    void offsetsReferToTheOriginalText() {
+        String note = "  Pt c/o   HIGH \t\n fever;  since 2 days";
+        List<String> patterns = List.of("high fever", "2 days");
+        Set<List<Integer>> matches = scan(patterns, note);
+
+        assertEquals(Set.of(match(11, 24, 0), match(33, 39, 1)), matches);
+        assertEquals("HIGH \t\n fever", note.substring(11, 24));
+        assertEquals("2 days", note.substring(33, 39));
+    }
+
+    @Test
+    void patternsEndingAtTheSameStateAreAllReported() {
+        // Duplicates share a trie state; "back pain" and "pain" end at the same position through the output link
+        List<String> patterns = List.of("pain", "back pain", "pain", "lower back pain");
+        assertEquals(Set.of(match(0, 15, 3), match(6, 15, 1), match(11, 15, 0), match(11, 15, 2)),
+                scan(patterns, "lower back pain"));
+    }
+
+    @Test
+    void emptyInputsMatchNothing() {
+        AhoCorasickAutomaton automaton = AhoCorasickAutomaton.build(List.of("", "fever"));
+        List<int[]> matches = new ArrayList<>();
+        automaton.scan(null, (start, end, id) -> matches.add(new int[]{start, end, id}));
+        automaton.scan("", (start, end, id) -> matches.add(new int[]{start, end, id}));
+        automaton.scan(" ,. ", (start, end, id) -> matches.add(new int[]{start, end, id}));
+        assertEquals(0, matches.size());
+        assertEquals("", AhoCorasickAutomaton.normalize(null));
+    }
+
+    @Test
+    void agreesWithNaiveMatchingOnRandomText() {
+        Random random = new Random(31);
+        String[] words = {"a", "ab", "ba", "abb", "b"};
+        char[] separators = {' ', '-', ',', '.', '\n'};
+        for (int round = 0; round < 300; round++) {
+            List<String> patterns = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(6); i++) {
+                StringBuilder pattern = new StringBuilder(words[random.nextInt(words.length)]);
+                for (int w = random.nextInt(3); w > 0; w--) {
+                    pattern.append(' ').append(words[random.nextInt(words.length)]);
+                }
+                patterns.add(pattern.toString());
+            }
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(40); i > 0; i--) {
+                text.append(random.nextInt(3) == 0
+                        ? separators[random.nextInt(separators.length)]
+                        : (random.nextBoolean() ? 'a' : 'B'));
+            }
+            assertEquals(naive(patterns, text.toString()), scan(patterns, text.toString()),
+                    "patterns " + patterns + " text '" + text + "'");
+        }
+    }
+
+    private static Set<List<Integer>> scan(List<String> patterns, String text) {
+        Set<List<Integer>> matches = new HashSet<>();
+        AhoCorasickAutomaton.build(patterns).scan(text, (start, end, id) -> matches.add(match(start, end, id)));
+        return matches;
+    }
+
+    /**
+     * Every occurrence of every pattern in the normalized text, bounded by spaces, mapped back to original offsets
+     */
+    private static Set<List<Integer>> naive(List<String> patterns, String text) {
+        StringBuilder fed = new StringBuilder();
+        List<Integer> offsets = new ArrayList<>();
+        boolean lastWasSpace = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                fed.append(Character.toLowerCase(c));
+                offsets.add(i);
+                lastWasSpace = false;
+            } else if (!lastWasSpace) {
+                fed.append(' ');
+                offsets.add(i);
+                lastWasSpace = true;
+            }
+        }
+        Set<List<Integer>> matches = new HashSet<>();
+        for (int id = 0; id < patterns.size(); id++) {
+            String pattern = patterns.get(id);
+            for (int start = fed.indexOf(pattern); start >= 0; start = fed.indexOf(pattern, start + 1)) {
+                int end = start + pattern.length();
+                boolean wordStart = start == 0 || fed.charAt(start - 1) == ' ';
+                boolean wordEnd = end == fed.length() || fed.charAt(end) == ' ';
+                if (wordStart && wordEnd) {
+                    matches.add(match(offsets.get(start), offsets.get(end - 1) + 1, id));
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static List<Integer> match(int start, int end, int id) {
+        return List.of(start, end, id);
+    }
+}
@@ -0,0 +1,134 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BestMappingIndexTest {
+
+    private static final String[] TYPES = {"ayurveda", "siddha", "unani", null};
+    private static final Double[] CONFIDENCES = {null, 0.4, 0.6, 0.7, 0.9, 0.9, 1.0};
+
+    @Test
+    void equalConfidenceGoesToTheLowerRowAndMissingConfidenceRanksLast() {
+        List<NamasteCode> records = List.of(
+                record("1", "SK25", "A1", 0.9, "ayurveda"),
+                record("2", "SK25", "A1", 0.9, "ayurveda"),
+                record("3", "SK25", "A2", null, "siddha"),
+                record("4", "SK25", "A2", 0.1, "siddha"),
+                record("5", "SK25", "A3", 0.6, "unani"),
+                record("6", "SK25", "A3", 0.95, "unani"));
+        BestMappingIndex index = BestMappingIndex.build(records::get, records.size());
+
+        assertEquals(0, index.topRow("A1"));
+        assertEquals(3, index.topRow("A2"));
+        assertEquals(BestMappingIndex.NONE, index.topRow("missing"));
+        assertArrayEquals(new int[]{5, 0}, index.bestRows("SK25"), "siddha and 0.6 are not above the threshold");
+    }
+
+    @Test
+    void pinnedCodeKeepsItsOwnTypeBelowTheThreshold() {
+        List<NamasteCode> records = List.of(
+                record("1", " SK25 ", "A1", 0.3, "ayurveda"),
+                record("2", "SK25", "A2", 0.8, "ayurveda"),
+                record("3", "SK25", "S1", 0.7, "siddha"));
+        BestMappingIndex index = BestMappingIndex.build(records::get, records.size());
+
+        List<NamasteCode> pinned = index.bestMappingsForCode("A1", records::get);
+        assertEquals(List.of(records.get(0), records.get(2)), pinned, "the pinned ayurveda record wins its type");
+        assertEquals(List.of(records.get(1), records.get(2)), index.bestMappingsForCode("SK25", records::get));
+    }
+
+    @Test
+    void incrementalUpdatesMatchARebuildAndANaiveScan() {
+        Random random = new Random(43);
+        List<NamasteCode> table = new ArrayList<>();
+        for (int row = 0; row < 200; row++) {
+            table.add(randomRecord(random, row));
+        }
+        BestMappingIndex index = BestMappingIndex.build(snapshotOf(table), table.size());
+
+        for (int round = 0; round < 100; round++) {
+            IntFunction<NamasteCode> before = snapshotOf(table);
+            int previousSize = table.size();
+            Set<Integer> changed = new TreeSet<>();
+            for (int i = random.nextInt(5) + 1; i > 0; i--) {
+                if (random.nextInt(4) == 0) {
+                    changed.add(table.size());
+                    table.add(randomRecord(random, table.size()));
+                } else {
+                    int row = random.nextInt(table.size());
+                    changed.add(row);
+                    table.set(row, randomRecord(random, row));
+                }
+            }
+            IntFunction<NamasteCode> after = snapshotOf(table);
+            index = index.withChangedRows(changed.stream().mapToInt(Integer::intValue).toArray(), previousSize, before, after);
+
+            BestMappingIndex rebuilt = BestMappingIndex.build(after, table.size());
+            assertEquals(rebuilt.topByCode(after), index.topByCode(after), "round " + round);
+            assertEquals(rebuilt.bestByTm2Code(after), index.bestByTm2Code(after), "round " + round);
+            assertEquals(naiveBest(table), index.bestByTm2Code(after), "round " + round);
+        }
+    }
+
+    @Test
+    void updatesLeaveThePreviousIndexUntouched() {
+        List<NamasteCode> before = List.of(record("1", "SK25", "A1", 0.9, "ayurveda"));
+        List<NamasteCode> after = List.of(record("1", "SK30", "A1", 0.9, "ayurveda"));
+        BestMappingIndex original = BestMappingIndex.build(before::get, 1);
+
+        BestMappingIndex updated = original.withChangedRows(new int[]{0}, 1, before::get, after::get);
+
+        assertArrayEquals(new int[]{0}, original.bestRows("SK25"));
+        assertArrayEquals(new int[0], updated.bestRows("SK25"));
+        assertArrayEquals(new int[]{0}, updated.bestRows("SK30"));
+    }
+
+    /**
+     * The rule written out directly: per tm2_code and type the highest confidence above the threshold,
+     * earliest row on ties, types ordered the same way
+     */
+    private static Map<String, List<NamasteCode>> naiveBest(List<NamasteCode> table) {
+        Map<String, Map<String, Integer>> bestRowByType = new HashMap<>();
+        for (int row = 0; row < table.size(); row++) {
+            NamasteCode record = table.get(row);
+            if (record.getTm2Code() == null || record.getConfidenceScore() == null
+                    || record.getConfidenceScore() <= BestMappingIndex.MIN_CONFIDENCE) {
+                continue;
+            }
+            Map<String, Integer> byType = bestRowByType.computeIfAbsent(record.getTm2Code(), key -> new HashMap<>());
+            Integer current = byType.get(String.valueOf(record.getType()));
+            if (current == null || record.getConfidenceScore() > table.get(current).getConfidenceScore()) {
+                byType.put(String.valueOf(record.getType()), row);
+            }
+        }
+        Map<String, List<NamasteCode>> best = new HashMap<>();
+        bestRowByType.forEach((tm2Code, byType) -> best.put(tm2Code, byType.values().stream()
+                .sorted(Comparator.comparing((Integer row) -> table.get(row).getConfidenceScore()).reversed()
+                        .thenComparing(row -> row))
+                .map(table::get)
+                .toList()));
+        return best;
+    }
+
+    private static IntFunction<NamasteCode> snapshotOf(List<NamasteCode> table) {
+        List<NamasteCode> copy = List.copyOf(table);
+        return copy::get;
+    }
+
+    private static NamasteCode randomRecord(Random random, int row) {
+        String tm2Code = random.nextInt(10) == 0 ? null : "SK" + random.nextInt(12);
+        String code = random.nextInt(10) == 0 ? null : "C" + random.nextInt(30);
+        return record(String.valueOf(row), tm2Code, code, CONFIDENCES[random.nextInt(CONFIDENCES.length)],
+                TYPES[random.nextInt(TYPES.length)]);
+    }
+
+    private static NamasteCode record(String id, String tm2Code, String code, Double confidence, String type) {
+        return new NamasteCode(id, tm2Code, null, code, null, null, code, null, confidence, type);
+    }
+}
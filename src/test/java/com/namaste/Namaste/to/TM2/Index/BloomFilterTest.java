@@ -0,0 +1,59 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void everyInsertedValueMightBeContained() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("SR" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("SR" + i), "SR" + i);
+        }
+        assertFalse(filter.mightContain(null));
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredRate() {
+        int expected = 10_000;
+        BloomFilter filter = BloomFilter.create(expected, 0.01);
+        for (int i = 0; i < expected; i++) {
+            filter.put("TM2-" + i);
+        }
+
+        int probes = 100_000;
+        int falsePositives = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+
+        double rate = (double) falsePositives / probes;
+        assertTrue(rate > 0.002 && rate < 0.02, "false-positive rate " + rate);
+    }
+
+    @Test
+    void sizingFollowsTheOptimalFormula() {
+        BloomFilter filter = BloomFilter.create(10_000, 0.01);
+
+        // m = -n ln p / (ln 2)^2 = 95851 bits, rounded up to whole 64-bit words; k = m/n ln 2 = 7
+        assertEquals(95_872, filter.getBitCount());
+        assertEquals(7, filter.getHashFunctions());
+        assertEquals(64, BloomFilter.create(0, 0.01).getBitCount(), "tiny filters still get one word");
+    }
+
+    @Test
+    void emptyFilterContainsNothing() {
+        BloomFilter filter = BloomFilter.create(100, 0.01);
+
+        assertFalse(filter.mightContain("SR11"));
+        assertFalse(filter.mightContain(""));
+    }
+}
@@ -0,0 +1,88 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTextStoreTest {
+
+    @Test
+    void recordsRoundTrip() {
+        List<NamasteCode> records = List.of(
+                new NamasteCode("1", "TM2-SK25", "http://id.who.int/icd/entity/1", "SR11", "Vata disorder",
+                        "Disorder of vata", "Vatavyadhi", "Diseases of vata", 0.91, "ayurveda"),
+                new NamasteCode("2", "TM2-SK25", "http://id.who.int/icd/entity/1", "SR12", "Vata disorder",
+                        "Disorder of vata", "Jwara", "Fever", 0.5, "ayurveda"),
+                new NamasteCode("3", "TM2-SM80", null, "U-101", "Mizaj imbalance", null, "Sū'-e-Mizāj",
+                        "सूजन और ज्वर — வீக்கம் 🙂", 1.0, "unani"));
+        ColumnarTextStore store = ColumnarTextStore.of(records);
+
+        assertEquals(3, store.size());
+        for (int row = 0; row < records.size(); row++) {
+            assertEquals(records.get(row), store.record(row));
+            assertNotSame(records.get(row), store.record(row));
+        }
+        assertEquals("SR12", store.get(1, ColumnarTextStore.Column.CODE));
+        assertEquals("सूजन और ज्वर — வீக்கம் 🙂", store.get(2, ColumnarTextStore.Column.CODE_DESCRIPTION));
+    }
+
+    @Test
+    void nullTextAndConfidenceStayNull() {
+        List<NamasteCode> records = List.of(
+                new NamasteCode(null, null, null, null, null, null, null, null, null, null),
+                new NamasteCode("", "", "", "", "", "", "", "", 0.0, ""));
+        ColumnarTextStore store = ColumnarTextStore.of(records);
+
+        for (ColumnarTextStore.Column column : ColumnarTextStore.Column.values()) {
+            assertNull(store.get(0, column), column.name());
+            assertEquals("", store.get(1, column), "empty is not null in " + column.name());
+        }
+        assertNull(store.getConfidenceScore(0));
+        assertEquals(0.0, store.getConfidenceScore(1));
+        assertEquals(records.get(0), store.record(0));
+        assertEquals(records.get(1), store.record(1));
+    }
+
+    @Test
+    void dictionaryColumnsStoreRepeatedValuesOnce() {
+        String definition = "A long shared definition of the TM2 category ".repeat(20);
+        List<NamasteCode> shared = new ArrayList<>();
+        List<NamasteCode> distinct = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            shared.add(new NamasteCode("id" + i, "TM2-A", null, "C" + i, "Title", definition, "t", "d", 0.7, "siddha"));
+            distinct.add(new NamasteCode("id" + i, "TM2-A", null, "C" + i, "Title", definition + i, "t", "d", 0.7, "siddha"));
+        }
+        ColumnarTextStore sharedStore = ColumnarTextStore.of(shared);
+        ColumnarTextStore distinctStore = ColumnarTextStore.of(distinct);
+
+        // 200 copies of a ~900-byte definition would be ~180 KB; the dictionary keeps one plus an id per row
+        assertTrue(sharedStore.getOffHeapBytes() < 16 * 1024, "off-heap bytes " + sharedStore.getOffHeapBytes());
+        assertTrue(distinctStore.getOffHeapBytes() > 150 * 1024);
+        for (int row = 0; row < 200; row++) {
+            assertEquals(shared.get(row), sharedStore.record(row));
+            assertEquals(distinct.get(row), distinctStore.record(row));
+        }
+    }
+
+    @Test
+    void emptyStore() {
+        ColumnarTextStore store = ColumnarTextStore.of(List.of());
+
+        assertEquals(0, store.size());
+        assertTrue(store.getOffHeapBytes() > 0);
+        assertThrows(IndexOutOfBoundsException.class, () -> store.record(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.getConfidenceScore(-1));
+    }
+
+    @Test
+    void rowsOutOfRangeAreRejected() {
+        ColumnarTextStore store = ColumnarTextStore.of(List.of(new NamasteCode()));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> store.get(1, ColumnarTextStore.Column.ID));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.record(-1));
+    }
+}
@@ -0,0 +1,67 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossSystemJoinIndexTest {
+
+    private final NamasteCode ayurvedaFever = record("A1", "SK25", "ayurveda", 0.9);
+    private final NamasteCode siddhaFever = record("S1", "SK25", "siddha", 0.8);
+    private final NamasteCode unaniFever = record("U1", "SK25", "Unani ", 0.7);
+    private final NamasteCode ayurvedaCough = record("A2", "SK30", "ayurveda", 0.95);
+    private final NamasteCode siddhaOrphan = record("S9", null, "siddha", 0.5);
+    private final NamasteCode siddhaUnmapped = record("S8", "SK99", "siddha", 0.6);
+
+    private final CrossSystemJoinIndex index = CrossSystemJoinIndex.build(
+            Map.of("A1", ayurvedaFever, "S1", siddhaFever, "U1", unaniFever, "A2", ayurvedaCough,
+                    "S9", siddhaOrphan, "S8", siddhaUnmapped),
+            Map.of("SK25", List.of(ayurvedaFever, siddhaFever, unaniFever), "SK30", List.of(ayurvedaCough)));
+
+    @Test
+    void translatesThroughTheSharedTm2Code() {
+        assertSame(siddhaFever, index.translate("A1", "siddha"));
+        assertSame(unaniFever, index.translate("A1", "UNANI"));
+        assertSame(ayurvedaFever, index.translate("U1", " Ayurveda "));
+        assertSame(ayurvedaFever, index.sourceRecord("A1"));
+    }
+
+    @Test
+    void sourceOfTheTargetTypeTranslatesToItself() {
+        assertSame(siddhaFever, index.translate("S1", "siddha"));
+        assertSame(siddhaOrphan, index.translate("S9", "siddha"));
+    }
+
+    @Test
+    void missingLinksTranslateToNull() {
+        assertNull(index.translate("A2", "siddha"), "no siddha mapping for SK30");
+        assertNull(index.translate("S9", "ayurveda"), "source has no TM2 code");
+        assertNull(index.translate("S8", "ayurveda"), "source TM2 code has no best mappings");
+        assertNull(index.translate("X1", "siddha"), "unknown code");
+        assertNull(index.translate("A1", "homeopathy"), "unknown type");
+        assertNull(index.sourceRecord("X1"));
+    }
+
+    @Test
+    void firstBestPerTypeWinsAndTypesAreNormalized() {
+        NamasteCode better = record("S2", "SK25", "siddha", 0.99);
+        NamasteCode worse = record("S3", "SK25", "SIDDHA", 0.1);
+        CrossSystemJoinIndex duplicates = CrossSystemJoinIndex.build(Map.of("A1", ayurvedaFever),
+                Map.of("SK25", List.of(better, worse, ayurvedaFever)));
+
+        assertSame(better, duplicates.translate("A1", "Siddha"));
+        assertTrue(duplicates.isKnownType(" AYURVEDA"));
+        assertFalse(duplicates.isKnownType("unani"));
+        assertEquals(List.of("siddha", "ayurveda"), duplicates.getTypes());
+        assertEquals(1, duplicates.getCodeCount());
+        assertEquals(1, duplicates.getTm2CodeCount());
+    }
+
+    private static NamasteCode record(String code, String tm2Code, String type, double confidence) {
+        return new NamasteCode(code, tm2Code, null, code, null, null, code + " title", null, confidence, type);
+    }
+}
@@ -0,0 +1,74 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicPhoneticKeyTest {
+
+    @Test
+    void normalizeStripsDiacriticsCaseAndPunctuation() {
+        assertEquals("vata", IndicPhoneticKey.normalize("Vāta"));
+        assertEquals("vata pitta", IndicPhoneticKey.normalize("  Vāta,, -Pitta! "));
+        assertEquals("su e mizaj", IndicPhoneticKey.normalize("Sū'-e-Mizāj"));
+        assertEquals("amavata 2", IndicPhoneticKey.normalize("Āmavāta (2)"));
+        assertEquals("", IndicPhoneticKey.normalize(null));
+        assertEquals("", IndicPhoneticKey.normalize(" -- "));
+    }
+
+    @Test
+    void romanizationVariantsShareAKey() {
+        assertEquivalent("jwara", "jvara", "Jwaram", "jvaram", "JWARA");
+        assertEquivalent("atisara", "athisaram", "Atīsāra");
+        assertEquivalent("kasa", "kaasa", "khasa");
+        assertEquivalent("shotha", "sotha", "sothaam");
+        assertEquivalent("kshaya", "ksaya", "xaya");
+        assertEquivalent("chhardi", "chardi", "cardi");
+        assertEquivalent("zukam", "jukam", "jukaam");
+        assertEquivalent("qabz", "kabj");
+        assertEquivalent("pitta", "pita", "pittam");
+        assertEquivalent("samgraha", "sangraha", "sangrahaam");
+        assertEquivalent("phiranga", "firanga");
+    }
+
+    @Test
+    void distinctTermsKeepDistinctKeys() {
+        List<String> distinct = List.of("vata", "pitta", "kapha", "kasa", "svasa", "atisara", "tisara",
+                "jwara", "jvala", "kshaya", "shaya", "amla", "anna", "shotha", "shodha");
+        for (int i = 0; i < distinct.size(); i++) {
+            for (int j = i + 1; j < distinct.size(); j++) {
+                assertNotEquals(IndicPhoneticKey.phoneticKey(distinct.get(i)), IndicPhoneticKey.phoneticKey(distinct.get(j)),
+                        distinct.get(i) + " / " + distinct.get(j));
+            }
+        }
+    }
+
+    @Test
+    void keysDropInnerVowelsAndRepeatedConsonants() {
+        assertEquals("jvr", IndicPhoneticKey.wordKey("jwaram"));
+        assertEquals("atsr", IndicPhoneticKey.wordKey("athisaram"));
+        assertEquals("pt", IndicPhoneticKey.wordKey("pitta"));
+        assertEquals("sngrh", IndicPhoneticKey.wordKey("samgraha"));
+        // The Tamil ending is only stripped from words longer than four letters
+        assertEquals("rm", IndicPhoneticKey.wordKey("ram"));
+        assertEquals("an", IndicPhoneticKey.wordKey("anna"));
+    }
+
+    @Test
+    void phraseKeyIsTheWordKeys() {
+        assertEquals("vt jvr", IndicPhoneticKey.phoneticKey("Vāta-Jwaram"));
+        assertEquals(IndicPhoneticKey.phoneticKey("vata jvara"), IndicPhoneticKey.phoneticKey("  VATA,  jwara."));
+        assertNotEquals(IndicPhoneticKey.phoneticKey("vata jwara"), IndicPhoneticKey.phoneticKey("jwara vata"));
+        assertEquals("", IndicPhoneticKey.phoneticKey(null));
+        assertEquals("", IndicPhoneticKey.phoneticKey("!!"));
+    }
+
+    private static void assertEquivalent(String... spellings) {
+        String key = IndicPhoneticKey.phoneticKey(spellings[0]);
+        for (String spelling : spellings) {
+            assertEquals(key, IndicPhoneticKey.phoneticKey(spelling), spelling + " vs " + spellings[0]);
+        }
+    }
+}
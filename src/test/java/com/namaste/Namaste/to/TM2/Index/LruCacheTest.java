@@ -0,0 +1,69 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        LruCache<String, Integer> cache = new LruCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // Reading "a" makes "b" the eldest
+        assertEquals(1, cache.get("a"));
+        cache.put("d", 4);
+
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(4, cache.get("d"));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void putRefreshesAnExistingKey() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("a", 10);
+        cache.put("c", 3);
+
+        assertEquals(10, cache.get("a"));
+        assertNull(cache.get("b"));
+    }
+
+    @Test
+    void computeIfAbsentLoadsOnceAndSkipsNulls() {
+        LruCache<String, Integer> cache = new LruCache<>(2);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(3, cache.computeIfAbsent("abc", key -> {
+            loads.incrementAndGet();
+            return key.length();
+        }));
+        assertEquals(3, cache.computeIfAbsent("abc", key -> {
+            loads.incrementAndGet();
+            return -1;
+        }));
+        assertEquals(1, loads.get());
+
+        assertNull(cache.computeIfAbsent("missing", key -> null));
+        assertEquals(1, cache.size(), "null results are not cached");
+
+        // A hit counts as a use for eviction
+        cache.put("x", 1);
+        cache.computeIfAbsent("abc", key -> -1);
+        cache.put("y", 2);
+        assertNull(cache.get("x"));
+        assertEquals(3, cache.get("abc"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
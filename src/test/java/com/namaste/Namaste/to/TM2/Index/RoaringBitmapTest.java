@@ -0,0 +1,170 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoaringBitmapTest {
+
+    private static final int[] CHUNK_KEYS = {0, 1, 3, 7, 40};
+    // Straddles the 4096 switch between array and bitmap containers
+    private static final int[] CHUNK_SIZES = {0, 1, 37, 4095, 4096, 4097, 9000, 65536};
+
+    private final Random random = new Random(41);
+
+    @Test
+    void setOperationsAgreeWithBitSet() {
+        for (int round = 0; round < 60; round++) {
+            BitSet[] expected = new BitSet[3];
+            RoaringBitmap[] bitmaps = new RoaringBitmap[3];
+            for (int i = 0; i < bitmaps.length; i++) {
+                expected[i] = randomSet();
+                bitmaps[i] = toBitmap(expected[i]);
+                assertSame(expected[i], bitmaps[i]);
+            }
+
+            BitSet and = (BitSet) expected[0].clone();
+            and.and(expected[1]);
+            assertSame(and, bitmaps[0].and(bitmaps[1]));
+            assertEquals(and.cardinality(), bitmaps[0].andCardinality(bitmaps[1]));
+            assertEquals(and.cardinality(), bitmaps[1].andCardinality(bitmaps[0]));
+
+            BitSet or = (BitSet) expected[0].clone();
+            or.or(expected[1]);
+            assertSame(or, bitmaps[0].or(bitmaps[1]));
+            assertSame(or, bitmaps[1].or(bitmaps[0]));
+
+            BitSet all = (BitSet) and.clone();
+            all.and(expected[2]);
+            assertSame(all, RoaringBitmap.andAll(bitmaps));
+
+            // Inputs are left untouched
+            for (int i = 0; i < bitmaps.length; i++) {
+                assertSame(expected[i], bitmaps[i]);
+            }
+        }
+    }
+
+    @Test
+    void resultsStayCorrectWhenAddedToAcrossTheContainerSwitch() {
+        for (int round = 0; round < 20; round++) {
+            BitSet left = randomSet();
+            BitSet right = randomSet();
+            RoaringBitmap and = toBitmap(left).and(toBitmap(right));
+            RoaringBitmap or = toBitmap(left).or(toBitmap(right));
+            BitSet expectedAnd = (BitSet) left.clone();
+            expectedAnd.and(right);
+            BitSet expectedOr = (BitSet) left.clone();
+            expectedOr.or(right);
+
+            for (int i = 0; i < 6000; i++) {
+                int value = randomValue();
+                and.add(value);
+                expectedAnd.set(value);
+                or.add(value);
+                expectedOr.set(value);
+            }
+            assertSame(expectedAnd, and);
+            assertSame(expectedOr, or);
+        }
+    }
+
+    @Test
+    void arrayChunkBecomesBitmapAfter4096Values() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet expected = new BitSet();
+        // Descending adds take the slow insert path
+        for (int low = 8191; low >= 0; low -= 2) {
+            bitmap.add((2 << 16) | low);
+            expected.set((2 << 16) | low);
+            if (expected.cardinality() == 4096 || expected.cardinality() == 4097) {
+                assertSame(expected, bitmap);
+            }
+        }
+        bitmap.add((2 << 16) | 1);
+        expected.set((2 << 16) | 1);
+        assertSame(expected, bitmap);
+
+        RoaringBitmap sparse = RoaringBitmap.of((2 << 16) | 1, (2 << 16) | 2, (2 << 16) | 3, 5);
+        assertArrayEquals(new int[]{(2 << 16) | 1, (2 << 16) | 3}, bitmap.and(sparse).toArray());
+        assertEquals(2, sparse.andCardinality(bitmap));
+    }
+
+    @Test
+    void duplicatesAndNegativeValues() {
+        RoaringBitmap bitmap = RoaringBitmap.of(3, 3, 70000, 3);
+        assertEquals(2, bitmap.cardinality());
+        assertFalse(bitmap.contains(-1));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.add(-1));
+        assertTrue(RoaringBitmap.andAll().isEmpty());
+
+        RoaringBitmap single = RoaringBitmap.andAll(bitmap);
+        single.add(5);
+        assertFalse(bitmap.contains(5), "andAll of one bitmap returns a copy");
+        assertArrayEquals(new int[]{3, 70000, Integer.MAX_VALUE},
+                RoaringBitmap.of(Integer.MAX_VALUE, 70000, 3).toArray());
+    }
+
+    private BitSet randomSet() {
+        BitSet set = new BitSet();
+        for (int key : CHUNK_KEYS) {
+            int size = CHUNK_SIZES[random.nextInt(CHUNK_SIZES.length)];
+            if (size == 65536) {
+                set.set(key << 16, (key + 1) << 16);
+                continue;
+            }
+            // Values drawn from part of the chunk so two random sets overlap
+            int span = Math.max(size * 2, 1024);
+            for (int added = 0; added < size; ) {
+                int value = (key << 16) | random.nextInt(Math.min(span, 65536));
+                if (!set.get(value)) {
+                    set.set(value);
+                    added++;
+                }
+            }
+        }
+        return set;
+    }
+
+    private int randomValue() {
+        return (CHUNK_KEYS[random.nextInt(CHUNK_KEYS.length)] << 16) | random.nextInt(65536);
+    }
+
+    private RoaringBitmap toBitmap(BitSet set) {
+        // Shuffled so both the append and the insert path of add() are exercised
+        List<Integer> values = new ArrayList<>();
+        set.stream().forEach(values::add);
+        if (random.nextBoolean()) {
+            Collections.shuffle(values, random);
+        }
+        RoaringBitmap bitmap = new RoaringBitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    /**
+     * Membership, cardinality, toArray and forEach order all match the BitSet
+     */
+    private static void assertSame(BitSet expected, RoaringBitmap actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+        List<Integer> visited = new ArrayList<>();
+        actual.forEach(visited::add);
+        assertEquals(expected.stream().boxed().toList(), visited);
+        for (int i = 0; i < 50; i++) {
+            int probe = expected.isEmpty() || i % 2 == 0
+                    ? (CHUNK_KEYS[i % CHUNK_KEYS.length] << 16) | (i * 1311 % 65536)
+                    : expected.nextSetBit(i * 997 % Math.max(1, expected.length()));
+            if (probe >= 0) {
+                assertEquals(expected.get(probe), actual.contains(probe));
+            }
+        }
+    }
+}
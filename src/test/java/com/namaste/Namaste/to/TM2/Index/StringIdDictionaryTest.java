@@ -0,0 +1,67 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StringIdDictionaryTest {
+
+    @Test
+    void idsFollowInsertionOrderAndSurviveRehashes() {
+        StringIdDictionary dictionary = new StringIdDictionary(1);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String value = "code-" + i;
+            values.add(value);
+            assertEquals(i, dictionary.intern(value));
+            // Every earlier id stays put across the rehashes this insert may trigger
+            if (Integer.bitCount(i + 1) == 1) {
+                for (int id = 0; id <= i; id++) {
+                    assertEquals(id, dictionary.idOf(values.get(id)));
+                    assertEquals(values.get(id), dictionary.valueOf(id));
+                }
+            }
+        }
+        assertEquals(5000, dictionary.size());
+        for (int id = 0; id < values.size(); id++) {
+            assertEquals(id, dictionary.intern(values.get(id)), "interning again returns the existing id");
+        }
+        assertEquals(5000, dictionary.size());
+    }
+
+    @Test
+    void collidingHashCodesGetDistinctIds() {
+        // "Aa" and "BB" share a hashCode, and so does every concatenation of them
+        List<String> colliding = new ArrayList<>();
+        for (int mask = 0; mask < 64; mask++) {
+            StringBuilder value = new StringBuilder();
+            for (int bit = 0; bit < 6; bit++) {
+                value.append((mask & (1 << bit)) != 0 ? "Aa" : "BB");
+            }
+            colliding.add(value.toString());
+        }
+        StringIdDictionary dictionary = new StringIdDictionary(4);
+        for (String value : colliding) {
+            dictionary.intern(value);
+        }
+
+        assertEquals(64, dictionary.size());
+        for (int id = 0; id < colliding.size(); id++) {
+            assertEquals(id, dictionary.idOf(colliding.get(id)));
+        }
+    }
+
+    @Test
+    void unknownValuesAreNotFound() {
+        StringIdDictionary dictionary = new StringIdDictionary(16);
+        dictionary.intern("SR11");
+
+        assertEquals(StringIdDictionary.NOT_FOUND, dictionary.idOf("SR12"));
+        assertEquals(StringIdDictionary.NOT_FOUND, dictionary.idOf("sr11"));
+        assertEquals(StringIdDictionary.NOT_FOUND, dictionary.idOf(null));
+        assertEquals(1, dictionary.size());
+    }
+}
@@ -0,0 +1,160 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymSpellIndexTest {
+
+    @Test
+    void findsExactlyTheWordsWithinTheDistanceBound() {
+        for (int prefixLength : new int[]{3, 5, 7}) {
+            assertMatchesBruteForce(prefixLength);
+        }
+    }
+
+    private static void assertMatchesBruteForce(int prefixLength) {
+        Random random = new Random(36);
+        Map<String, Integer> vocabulary = new HashMap<>();
+        while (vocabulary.size() < 400) {
+            vocabulary.put(randomWord(random, 3 + random.nextInt(8)), 1 + random.nextInt(100));
+        }
+        SymSpellIndex index = SymSpellIndex.build(vocabulary, 2, prefixLength);
+        List<String> words = new ArrayList<>(vocabulary.keySet());
+
+        for (int round = 0; round < 500; round++) {
+            String input = round % 2 == 0
+                    ? mutate(words.get(random.nextInt(words.size())), 1 + random.nextInt(3), random)
+                    : randomWord(random, 1 + random.nextInt(10));
+            for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+                int bound = Math.min(maxDistance, 2);
+                List<SymSpellIndex.Suggestion> suggestions = index.lookup(input, maxDistance, Integer.MAX_VALUE);
+
+                Map<String, Integer> expected = new TreeMap<>();
+                for (String word : words) {
+                    int distance = osaDistance(input, word);
+                    if (distance <= bound) {
+                        expected.put(word, distance);
+                    }
+                }
+                Map<String, Integer> actual = new TreeMap<>();
+                for (SymSpellIndex.Suggestion suggestion : suggestions) {
+                    actual.put(suggestion.getTerm(), suggestion.getDistance());
+                    assertEquals(vocabulary.get(suggestion.getTerm()), suggestion.getFrequency());
+                }
+                assertEquals(expected, actual, "input '" + input + "' distance " + maxDistance + " prefix " + prefixLength);
+                assertEquals(expected.size(), suggestions.size(), "no duplicate suggestions");
+            }
+        }
+    }
+
+    @Test
+    void suggestionsAreOrderedByDistanceThenFrequencyThenTerm() {
+        SymSpellIndex index = SymSpellIndex.build(Map.of("jwara", 5, "jvara", 9, "kwara", 9, "jwala", 9, "jwar", 1), 2, 7);
+
+        List<String> terms = index.lookup("jwara", 2, 10).stream().map(SymSpellIndex.Suggestion::getTerm).toList();
+        assertEquals(List.of("jwara", "jvara", "jwala", "kwara", "jwar"), terms);
+        assertEquals(List.of("jwara", "jvara"),
+                index.lookup("jwara", 2, 2).stream().map(SymSpellIndex.Suggestion::getTerm).toList());
+        assertEquals(List.of("jwara"),
+                index.lookup("jwara", 0, 10).stream().map(SymSpellIndex.Suggestion::getTerm).toList());
+    }
+
+    @Test
+    void prefixLengthOnlyLimitsTheIndexedDeletes() {
+        // Only the first 4 characters are indexed, so long words share candidates by prefix and are then verified in full
+        SymSpellIndex index = SymSpellIndex.build(Map.of("atisara", 1, "atisaram", 1, "atibala", 1, "amlapitta", 1), 1, 4);
+
+        assertEquals(List.of("atisara", "atisaram"),
+                index.lookup("atisarax", 1, 10).stream().map(SymSpellIndex.Suggestion::getTerm).sorted().toList());
+        assertEquals(List.of("atibala"),
+                index.lookup("atibalx", 1, 10).stream().map(SymSpellIndex.Suggestion::getTerm).toList());
+        // Same 4-character prefix but two edits further on
+        assertEquals(List.of(), index.lookup("atisbxa", 1, 10));
+        // Edit inside the prefix
+        assertEquals(List.of("amlapitta"),
+                index.lookup("mlapitta", 1, 10).stream().map(SymSpellIndex.Suggestion::getTerm).toList());
+    }
+
+    @Test
+    void boundedDistanceCountsTranspositionsAsOneEdit() {
+        assertEquals(1, SymSpellIndex.boundedDistance("vata", "vtaa", 2));
+        assertEquals(1, SymSpellIndex.boundedDistance("kapha", "kaphha", 1));
+        assertEquals(-1, SymSpellIndex.boundedDistance("kapha", "pitta", 3));
+        assertEquals(-1, SymSpellIndex.boundedDistance("a", "abcd", 2));
+        assertEquals(0, SymSpellIndex.boundedDistance("", "", 0));
+    }
+
+    @Test
+    void degenerateInputs() {
+        SymSpellIndex index = SymSpellIndex.build(Map.of("vata", 1), 2, 7);
+
+        assertTrue(index.lookup(null, 2, 10).isEmpty());
+        assertTrue(index.lookup("", 2, 10).isEmpty());
+        assertTrue(index.lookup("vata", 2, 0).isEmpty());
+        assertTrue(SymSpellIndex.build(Map.of(), 2, 7).lookup("vata", 2, 10).isEmpty());
+        assertTrue(index.contains("vata"));
+        assertFalse(index.contains("vat"));
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append("abcde".charAt(random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    private static String mutate(String word, int edits, Random random) {
+        StringBuilder result = new StringBuilder(word);
+        for (int i = 0; i < edits; i++) {
+            int position = random.nextInt(result.length() + 1);
+            switch (random.nextInt(4)) {
+                case 0 -> result.insert(position, "abcde".charAt(random.nextInt(5)));
+                case 1 -> {
+                    if (position < result.length() && result.length() > 1) {
+                        result.deleteCharAt(position);
+                    }
+                }
+                case 2 -> {
+                    if (position < result.length()) {
+                        result.setCharAt(position, "abcde".charAt(random.nextInt(5)));
+                    }
+                }
+                default -> {
+                    if (position + 1 < result.length()) {
+                        char c = result.charAt(position);
+                        result.setCharAt(position, result.charAt(position + 1));
+                        result.setCharAt(position + 1, c);
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Unbounded optimal string alignment distance, the reference for the index
+     */
+    private static int osaDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,82 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TermFrequencyStatisticsTest {
+
+    private final TermFrequencyStatistics statistics = TermFrequencyStatistics.build(List.of(
+            List.of("Vata Jwara", "Fever of vata origin"),
+            List.of("Pitta Jwara", "Fever with burning"),
+            List.of("Vatavyadhi", "Disorder of vata"),
+            Arrays.asList("Kasa", null)));
+
+    @Test
+    void countsEachTokenOncePerDocument() {
+        assertEquals(2, statistics.estimateDocumentFrequency("jwara"));
+        assertEquals(1, statistics.estimateDocumentFrequency("vatavyadhi"));
+        assertEquals(1, TermFrequencyStatistics.build(List.of(List.of("Jwara jwara", "JWARA"))).estimateDocumentFrequency("jwara"));
+        assertEquals(4, statistics.getDocumentCount());
+    }
+
+    @Test
+    void wordsCountEveryTokenTheyPrefix() {
+        // vata (2 documents) + vatavyadhi (1)
+        assertEquals(3, statistics.estimateDocumentFrequency("vata"));
+        assertEquals(3, statistics.estimateDocumentFrequency("VAT"));
+        // fever (2) + of (2) are distinct prefixes; "f" covers fever only
+        assertEquals(2, statistics.estimateDocumentFrequency("f"));
+        assertEquals(0, statistics.estimateDocumentFrequency("ata"), "infixes are not counted");
+        assertEquals(0, statistics.estimateDocumentFrequency("shotha"));
+    }
+
+    @Test
+    void multiWordTermsTakeTheLeastFrequentWord() {
+        assertEquals(1, statistics.estimateDocumentFrequency("fever burning"));
+        assertEquals(0, statistics.estimateDocumentFrequency("jwara shotha"));
+        assertEquals(2, statistics.estimateDocumentFrequency("vata jwara"));
+    }
+
+    @Test
+    void estimatesAreCappedAtTheDocumentCount() {
+        TermFrequencyStatistics repeated = TermFrequencyStatistics.build(List.of(
+                List.of("a1 a2 a3"), List.of("a1 a2 a3"), List.of("b")));
+
+        // a1 + a2 + a3 sum to 6 but only 3 documents exist
+        assertEquals(3, repeated.estimateDocumentFrequency("a"));
+        assertEquals(3, repeated.estimateDocumentFrequency(" -- "), "a term without words matches everything");
+        assertEquals(3, repeated.estimateDocumentFrequency(null));
+        assertEquals(4, repeated.getTokenCount());
+    }
+
+    @Test
+    void estimateIsAnUpperBoundOfLeadingPartMatches() {
+        Random random = new Random(34);
+        String[] words = {"vata", "vatavyadhi", "pitta", "pittaja", "kapha", "jwara", "jwaram", "kasa", "svasa"};
+        List<List<String>> documents = new ArrayList<>();
+        for (int d = 0; d < 200; d++) {
+            StringBuilder text = new StringBuilder();
+            for (int w = random.nextInt(5); w >= 0; w--) {
+                text.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            documents.add(List.of(text.toString()));
+        }
+        TermFrequencyStatistics random200 = TermFrequencyStatistics.build(documents);
+
+        for (String term : List.of("vata", "pitta", "jwara", "vat jw", "kasa svasa", "pittaja", "sv")) {
+            long matching = documents.stream().filter(document -> {
+                List<String> tokens = TextTokenizer.tokenize(document.get(0));
+                return TextTokenizer.tokenize(term).stream().allMatch(word -> tokens.stream().anyMatch(t -> t.startsWith(word)));
+            }).count();
+            long estimate = random200.estimateDocumentFrequency(term);
+            assertTrue(estimate >= matching, term + ": estimate " + estimate + " below " + matching);
+            assertTrue(estimate <= documents.size());
+        }
+        // A word prefixing a single token is exact
+        long jwaram = documents.stream().filter(document -> document.get(0).contains("jwaram")).count();
+        assertEquals(jwaram, random200.estimateDocumentFrequency("jwaram"));
+    }
+}
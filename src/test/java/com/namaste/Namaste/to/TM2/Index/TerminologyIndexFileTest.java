@@ -0,0 +1,156 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerminologyIndexFileTest {
+
+    private static final List<NamasteCode> RECORDS = List.of(
+            new NamasteCode("1", "TM2-SK25", "http://id.who.int/icd/entity/1", "SR11", "Vata disorder",
+                    "Disorder of vata", "Vatavyadhi", "Diseases of vata", 0.91, "ayurveda"),
+            new NamasteCode("2", "TM2-SK25", "http://id.who.int/icd/entity/1", "SR12", "Vata disorder",
+                    "Disorder of vata", "Jwara", "Fever", 0.5, "siddha"),
+            new NamasteCode("3", "TM2-SM80", null, "U-101", "Mizaj imbalance", null, "Sū'-e-Mizāj",
+                    "सूजन और ज्वर — வீக்கம் 🙂", 1.0, "unani"),
+            new NamasteCode(null, null, null, null, null, null, null, null, null, null),
+            new NamasteCode("5", "", "", "SR11", "", "", "", "", 0.0, ""));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsRoundTripWithNullsAndTheirVersion() throws IOException {
+        Path file = directory.resolve("index.bin");
+        TerminologyIndexFile.write(file, 41, RECORDS, BestMappingIndex.build(RECORDS::get, RECORDS.size()));
+
+        TerminologyIndexFile.Contents contents = TerminologyIndexFile.read(file);
+
+        assertEquals(41, contents.getDatasetVersion());
+        assertEquals(RECORDS, contents.getRecords());
+        assertNull(contents.record(3).getConfidenceScore());
+        assertEquals(0.0, contents.record(4).getConfidenceScore());
+        assertEquals("", contents.record(4).getTm2Code(), "empty strings stay distinct from null");
+        assertThrows(IndexOutOfBoundsException.class, () -> contents.record(RECORDS.size()));
+    }
+
+    @Test
+    void idsAndBestMappingsAreReadFromTheFile() throws IOException {
+        Path file = directory.resolve("index.bin");
+        BestMappingIndex written = BestMappingIndex.build(RECORDS::get, RECORDS.size());
+        TerminologyIndexFile.write(file, 7, RECORDS, written);
+
+        TerminologyIndexFile.Contents contents = TerminologyIndexFile.read(file);
+        BestMappingIndex mapped = contents.bestMappings();
+
+        assertEquals(2, contents.rowById().get("3"));
+        assertNull(contents.rowById().get("4"));
+        assertNull(contents.rowById().get("SR11"), "a code is not an id");
+        assertEquals(written.topByCode(RECORDS::get), mapped.topByCode(RECORDS::get));
+        assertEquals(written.bestByTm2Code(RECORDS::get), mapped.bestByTm2Code(RECORDS::get));
+        assertEquals(0, mapped.topRow("SR11"));
+        assertArrayEquals(new int[]{0}, mapped.bestRows("TM2-SK25"));
+        assertEquals(written.bestMappingsForCode("U-101", RECORDS::get), mapped.bestMappingsForCode("U-101", contents::record));
+        assertEquals(BestMappingIndex.NONE, mapped.topRow("missing"));
+    }
+
+    @Test
+    void mappedBestMappingsAcceptUpdates() throws IOException {
+        Path file = directory.resolve("index.bin");
+        TerminologyIndexFile.write(file, 7, RECORDS, BestMappingIndex.build(RECORDS::get, RECORDS.size()));
+        TerminologyIndexFile.Contents contents = TerminologyIndexFile.read(file);
+
+        List<NamasteCode> updated = Arrays.asList(RECORDS.toArray(new NamasteCode[0]));
+        updated.set(1, new NamasteCode("2", "TM2-SK25", null, "SR12", null, null, "Jwara", null, 0.95, "siddha"));
+        BestMappingIndex index = contents.bestMappings().withChangedRows(new int[]{1}, RECORDS.size(), RECORDS::get, updated::get);
+
+        assertEquals(BestMappingIndex.build(updated::get, updated.size()).bestByTm2Code(updated::get), index.bestByTm2Code(updated::get));
+    }
+
+    @Test
+    void emptyDatasetRoundTrips() throws IOException {
+        Path file = directory.resolve("index.bin");
+        TerminologyIndexFile.write(file, 1, List.of(), BestMappingIndex.build(row -> null, 0));
+
+        TerminologyIndexFile.Contents contents = TerminologyIndexFile.read(file);
+
+        assertEquals(0, contents.size());
+        assertTrue(contents.getRecords().isEmpty());
+        assertNull(contents.rowById().get("1"));
+    }
+
+    @Test
+    void truncatedFilesAreRejected() throws IOException {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        IOException truncated = assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+        assertTrue(truncated.getMessage().contains("Truncated"), truncated.getMessage());
+
+        Files.write(file, Arrays.copyOf(bytes, 20));
+        assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+
+        Files.write(file, new byte[0]);
+        assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+    }
+
+    @Test
+    void corruptFilesAreRejected() throws IOException {
+        Path file = written();
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] flipped = bytes.clone();
+        flipped[flipped.length / 2] ^= 0x10;
+        Files.write(file, flipped);
+        IOException checksum = assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+        assertTrue(checksum.getMessage().contains("Checksum"), checksum.getMessage());
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] = 'X';
+        Files.write(file, badMagic);
+        assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+
+        byte[] otherFormat = bytes.clone();
+        ByteBuffer.wrap(otherFormat).putInt(4, TerminologyIndexFile.FORMAT_VERSION + 1);
+        Files.write(file, otherFormat);
+        IOException format = assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+        assertTrue(format.getMessage().contains("Unsupported"), format.getMessage());
+
+        byte[] wrongCount = bytes.clone();
+        ByteBuffer.wrap(wrongCount).putInt(16, RECORDS.size() + 1);
+        Files.write(file, wrongCount);
+        assertThrows(IOException.class, () -> TerminologyIndexFile.read(file));
+    }
+
+    @Test
+    void rewritingReplacesTheFileWhileAnEarlierMappingStaysReadable() throws IOException {
+        Path file = written();
+        TerminologyIndexFile.Contents first = TerminologyIndexFile.read(file);
+
+        List<NamasteCode> next = List.of(RECORDS.get(0));
+        TerminologyIndexFile.write(file, 42, next, BestMappingIndex.build(next::get, 1));
+
+        assertEquals(RECORDS, first.getRecords());
+        assertEquals(42, TerminologyIndexFile.read(file).getDatasetVersion());
+        assertEquals(next, TerminologyIndexFile.read(file).getRecords());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count(), "no temporary files are left behind");
+        }
+    }
+
+    private Path written() throws IOException {
+        Path file = directory.resolve("index.bin");
+        TerminologyIndexFile.write(file, 41, RECORDS, BestMappingIndex.build(RECORDS::get, RECORDS.size()));
+        return file;
+    }
+}
@@ -0,0 +1,150 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TfIdfIndexTest {
+
+    @Test
+    void scoresMatchNaiveCosine() {
+        Random random = new Random(39);
+        for (int round = 0; round < 30; round++) {
+            List<Map<String, Float>> documents = new ArrayList<>();
+            for (int d = 1 + random.nextInt(60); d > 0; d--) {
+                documents.add(randomTerms(random, random.nextInt(8), 40));
+            }
+            TfIdfIndex index = TfIdfIndex.build(documents);
+            // Terms t40..t49 never occur in a document
+            Map<String, Float> query = randomTerms(random, 1 + random.nextInt(5), 50);
+
+            int[] rows = new int[documents.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = rows.length - 1 - i;
+            }
+            float[] scores = new float[rows.length + 3];
+            Arrays.fill(scores, 42f);
+            index.score(index.query(query), rows, scores);
+
+            for (int i = 0; i < rows.length; i++) {
+                assertEquals(naiveCosine(documents, query, rows[i]), scores[i], 1e-5, "row " + rows[i]);
+            }
+            assertEquals(42f, scores[rows.length], "scores past the candidates are untouched");
+        }
+    }
+
+    @Test
+    void parallelVectorsScoreOneAndDisjointOnesZero() {
+        List<Map<String, Float>> documents = List.of(
+                Map.of("vata", 1f, "jwara", 2f),
+                Map.of("pitta", 1f),
+                Map.of("vata", 1f, "kapha", 1f));
+        TfIdfIndex index = TfIdfIndex.build(documents);
+        float[] scores = new float[3];
+
+        index.score(index.query(Map.of("vata", 1f, "jwara", 2f)), new int[]{0, 1, 2}, scores);
+        assertEquals(0f, scores[1]);
+        assertTrue(scores[0] > scores[2]);
+
+        // A query weight of log(1 + tf) reproduces the document's own vector
+        index.score(index.query(Map.of("vata", (float) Math.log1p(1), "jwara", (float) Math.log1p(2))), new int[]{0}, scores);
+        assertEquals(1f, scores[0], 1e-6);
+        assertEquals(4, index.getTermCount());
+        assertEquals(3, index.getDocumentCount());
+    }
+
+    @Test
+    void unknownQueryTermsLowerEveryScoreAlike() {
+        TfIdfIndex index = TfIdfIndex.build(List.of(Map.of("vata", 1f), Map.of("vata", 1f, "pitta", 1f), Map.of("kapha", 1f)));
+        float[] known = new float[2];
+        float[] withUnknown = new float[2];
+
+        index.score(index.query(Map.of("vata", 1f)), new int[]{0, 1}, known);
+        index.score(index.query(Map.of("vata", 1f, "unknown", 1f)), new int[]{0, 1}, withUnknown);
+
+        assertTrue(withUnknown[0] < known[0]);
+        assertEquals(known[0] / known[1], withUnknown[0] / withUnknown[1], 1e-5);
+        assertTrue(index.query(Map.of("unknown", 1f)).isEmpty());
+    }
+
+    @Test
+    void emptyQueryOrCandidatesScoreNothing() {
+        TfIdfIndex index = TfIdfIndex.build(List.of(Map.of("vata", 1f)));
+        float[] scores = {7f};
+
+        index.score(index.query(Map.of()), new int[]{0}, scores);
+        assertEquals(0f, scores[0]);
+        index.score(index.query(Map.of("vata", 1f)), new int[0], scores);
+        assertEquals(0f, scores[0]);
+    }
+
+    @Test
+    void axpyMatchesScalarLoopForEveryTailLength() {
+        Random random = new Random(39);
+        for (int length : new int[]{0, 1, 3, 7, 8, 9, 15, 16, 17, 31, 33, 64, 1000, 1027}) {
+            float[] x = new float[length + 5];
+            float[] y = new float[length + 5];
+            for (int i = 0; i < x.length; i++) {
+                x[i] = random.nextFloat() * 2 - 1;
+                y[i] = random.nextFloat() * 2 - 1;
+            }
+            float a = random.nextFloat() * 4 - 2;
+            float[] expected = y.clone();
+            for (int i = 0; i < length; i++) {
+                expected[i] += a * x[i];
+            }
+
+            SimilarityKernels.axpy(a, x, y, length);
+            for (int i = 0; i < y.length; i++) {
+                assertEquals(expected[i], y[i], 1e-6, "length " + length + " index " + i
+                        + (SimilarityKernels.isVectorized() ? " (vectorized)" : " (scalar)"));
+            }
+        }
+    }
+
+    private static Map<String, Float> randomTerms(Random random, int count, int vocabulary) {
+        Map<String, Float> terms = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            terms.put("t" + random.nextInt(vocabulary), random.nextBoolean() ? 1f + random.nextInt(3) : 0.5f);
+        }
+        return terms;
+    }
+
+    /**
+     * Cosine of the query and one document, computed directly from the weighting formula in double precision
+     */
+    private static double naiveCosine(List<Map<String, Float>> documents, Map<String, Float> query, int row) {
+        Map<String, Integer> documentFrequency = new HashMap<>();
+        for (Map<String, Float> document : documents) {
+            for (String term : document.keySet()) {
+                documentFrequency.merge(term, 1, Integer::sum);
+            }
+        }
+        double maxIdf = 0;
+        Map<String, Double> idf = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : documentFrequency.entrySet()) {
+            double value = Math.log(1.0 + (double) documents.size() / entry.getValue());
+            idf.put(entry.getKey(), value);
+            maxIdf = Math.max(maxIdf, value);
+        }
+
+        Map<String, Double> documentVector = new HashMap<>();
+        for (Map.Entry<String, Float> entry : documents.get(row).entrySet()) {
+            documentVector.put(entry.getKey(), Math.log1p(entry.getValue()) * idf.get(entry.getKey()));
+        }
+        double dot = 0;
+        double queryNorm = 0;
+        for (Map.Entry<String, Float> entry : query.entrySet()) {
+            double weight = entry.getValue() * idf.getOrDefault(entry.getKey(), maxIdf);
+            queryNorm += weight * weight;
+            dot += weight * documentVector.getOrDefault(entry.getKey(), 0.0);
+        }
+        double documentNorm = 0;
+        for (double weight : documentVector.values()) {
+            documentNorm += weight * weight;
+        }
+        return queryNorm == 0 || documentNorm == 0 ? 0 : dot / Math.sqrt(queryNorm * documentNorm);
+    }
+}
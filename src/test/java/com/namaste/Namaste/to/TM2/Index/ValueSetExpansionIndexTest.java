@@ -0,0 +1,95 @@
+package com.namaste.Namaste.to.TM2.Index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueSetExpansionIndexTest {
+
+    private final ValueSetExpansionIndex index = ValueSetExpansionIndex.build("urn:test", Map.of(
+            "SR11", "Vata Jwara",
+            "SR12", "pitta jwara",
+            "SR13", "Kapha Jwara",
+            "SR20", "Vatavyadhi",
+            "SK-7", "Kasa (cough)",
+            "U9", "Zukam"));
+
+    @Test
+    void conceptsAreOrderedByDisplayIgnoringCase() {
+        List<String> displays = new ArrayList<>();
+        for (int position = 0; position < index.size(); position++) {
+            displays.add(index.displayAt(position));
+        }
+        assertEquals(List.of("Kapha Jwara", "Kasa (cough)", "pitta jwara", "Vata Jwara", "Vatavyadhi", "Zukam"), displays);
+        assertEquals("SR13", index.codeAt(0));
+        assertEquals("urn:test", index.getSystem());
+    }
+
+    @Test
+    void everyFilterWordMustPrefixADisplayOrCodeToken() {
+        assertEquals(List.of("SR13", "SR12", "SR11"), codes(index.match("jwa")));
+        assertEquals(List.of("SR11", "SR20"), codes(index.match("VATA")));
+        assertEquals(List.of("SR11"), codes(index.match("vata jw")));
+        assertEquals(List.of("SR11"), codes(index.match("jw, vat")), "word order and punctuation do not matter");
+        assertEquals(List.of("SK-7"), codes(index.match("cough")));
+        assertEquals(List.of("SK-7"), codes(index.match("sk 7")), "code tokens match too");
+        assertEquals(List.of("SR11", "SR12", "SR13", "SR20"), sorted(codes(index.match("sr"))));
+        assertEquals(List.of(), codes(index.match("jwara cough")));
+        assertEquals(List.of(), codes(index.match("wara")), "infixes do not match");
+    }
+
+    @Test
+    void emptyFilterMatchesEveryConcept() {
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, index.match(""));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, index.match(" -- "));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4, 5}, index.match(null));
+    }
+
+    @Test
+    void matchesAgreeWithAScanAcrossBitmapWords() {
+        // More than 64 concepts so matches span several words of the match bitmap
+        Map<String, String> displays = new HashMap<>();
+        Random random = new Random(29);
+        String[] words = {"vata", "pitta", "kapha", "jwara", "kasa", "shotha", "atisara"};
+        for (int i = 0; i < 300; i++) {
+            displays.put("C" + i, words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+        }
+        ValueSetExpansionIndex large = ValueSetExpansionIndex.build("urn:test", displays);
+
+        for (String filter : List.of("va", "pit jw", "kasa shotha", "at", "x")) {
+            List<Integer> expected = new ArrayList<>();
+            for (int position = 0; position < large.size(); position++) {
+                List<String> tokens = TextTokenizer.tokenize(large.displayAt(position) + " " + large.codeAt(position));
+                if (TextTokenizer.tokenize(filter).stream().allMatch(word -> tokens.stream().anyMatch(t -> t.startsWith(word)))) {
+                    expected.add(position);
+                }
+            }
+            assertEquals(expected, Arrays.stream(large.match(filter)).boxed().toList(), filter);
+        }
+    }
+
+    @Test
+    void emptyValueSet() {
+        ValueSetExpansionIndex empty = ValueSetExpansionIndex.build("urn:test", Map.of());
+
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.match("").length);
+        assertEquals(0, empty.match("vata").length);
+    }
+
+    private List<String> codes(int[] positions) {
+        List<String> codes = new ArrayList<>();
+        for (int position : positions) {
+            codes.add(index.codeAt(position));
+        }
+        return codes;
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> copy = new ArrayList<>(values);
+        Collections.sort(copy);
+        return copy;
+    }
+}
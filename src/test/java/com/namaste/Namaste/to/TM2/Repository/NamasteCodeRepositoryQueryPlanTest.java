@@ -0,0 +1,184 @@
+package com.namaste.Namaste.to.TM2.Repository;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.MongoIndexInitializer;
+import org.bson.Document;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs explain on the commands every index-backed repository query sends and fails on a COLLSCAN or an in-memory SORT
+ * Runs against a real MongoDB in a Testcontainers container (MONGODB_TEST_IMAGE, default mongo:7.0), so it runs
+ * in CI and on any machine with Docker; skipped without Docker. The unanchored regex searches (findBySymptoms,
+ * findByAllSymptoms, findByAdvancedSearch, findByCodeTitleContainingIgnoreCase) are not covered: no index can
+ * bound them, and the service answers them from the in-memory indexes
+ */
+@SpringBootTest(properties = "terminology.index.artifact-path=")
+@Testcontainers(disabledWithoutDocker = true)
+class NamasteCodeRepositoryQueryPlanTest {
+
+    @Container
+    static final MongoDBContainer MONGODB = new MongoDBContainer(
+            System.getenv().getOrDefault("MONGODB_TEST_IMAGE", "mongo:7.0"));
+
+    private static final Set<String> EXPLAINED_COMMANDS = Set.of("find", "aggregate", "count", "distinct");
+    private static final Set<String> DRIVER_FIELDS = Set.of("$db", "lsid", "$clusterTime", "$readPreference",
+            "txnNumber", "apiVersion", "apiStrict", "apiDeprecationErrors");
+    private static final List<Document> RECORDED = new CopyOnWriteArrayList<>();
+    // Only the test thread is recorded; the background index loader queries the same collection
+    private static volatile Thread recordingThread;
+
+    @Autowired
+    private NamasteCodeRepository namasteCodeRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoIndexInitializer mongoIndexInitializer;
+
+    @DynamicPropertySource
+    static void mongoProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> MONGODB.getReplicaSetUrl("namaste_query_plan_test"));
+    }
+
+    @BeforeEach
+    void seed() {
+        if (mongoTemplate.getCollection("tm2_mappings").estimatedDocumentCount() > 0) {
+            return;
+        }
+        String[] types = {"ayurveda", "siddha", "unani"};
+        List<NamasteCode> records = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            records.add(new NamasteCode(null, String.format("SK%03d", i % 300), "https://icd.who.int/tm2/" + (i % 300),
+                    String.format("NAM%04d", i), "TM2 title " + (i % 300), "TM2 definition " + (i % 300),
+                    "Code title " + i, "Code description " + i, (i % 100) / 100.0, types[i % types.length]));
+        }
+        mongoTemplate.insertAll(records);
+        mongoIndexInitializer.ensureIndexes();
+    }
+
+    @TestFactory
+    Stream<DynamicTest> repositoryQueriesUseIndexes() {
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("findByAnyCode", () -> namasteCodeRepository.findByAnyCode("NAM0042"));
+        queries.put("findByTm2CodeOnly", () -> namasteCodeRepository.findByTm2CodeOnly("SK042"));
+        queries.put("findByCodeOnly", () -> namasteCodeRepository.findByCodeOnly("NAM0042"));
+        queries.put("findByCode", () -> namasteCodeRepository.findByCode("NAM0042"));
+        queries.put("findByCodeTitle", () -> namasteCodeRepository.findByCodeTitle("Code title 42"));
+        queries.put("findFirstByCodeTitleOrderByConfidenceScoreDesc",
+                () -> namasteCodeRepository.findFirstByCodeTitleOrderByConfidenceScoreDesc("code TITLE 42"));
+        queries.put("findFirstByCodeOrderByConfidenceScoreDesc",
+                () -> namasteCodeRepository.findFirstByCodeOrderByConfidenceScoreDesc("nam0042"));
+        queries.put("findTopByCodeOrderByConfidenceScoreDesc",
+                () -> namasteCodeRepository.findTopByCodeOrderByConfidenceScoreDesc("NAM0042"));
+        queries.put("findByType", () -> namasteCodeRepository.findByType("siddha"));
+        queries.put("findByTm2Code", () -> namasteCodeRepository.findByTm2Code("SK042"));
+        queries.put("countByType", () -> namasteCodeRepository.countByType("unani"));
+        queries.put("findAllByOrderByCodeTitleAsc", () -> namasteCodeRepository.findAllByOrderByCodeTitleAsc());
+        queries.put("findByTm2CodeIsNotNull", () -> namasteCodeRepository.findByTm2CodeIsNotNull());
+        queries.put("findHighConfidenceMappings", () -> namasteCodeRepository.findHighConfidenceMappings());
+        queries.put("findMediumConfidenceMappings", () -> namasteCodeRepository.findMediumConfidenceMappings());
+        queries.put("findLowConfidenceMappings", () -> namasteCodeRepository.findLowConfidenceMappings());
+
+        return queries.entrySet().stream().map(query -> DynamicTest.dynamicTest(query.getKey(), () -> {
+            List<Document> commands = record(query.getValue());
+            assertFalse(commands.isEmpty(), query.getKey() + " sent no query command");
+            for (Document command : commands) {
+                Document explain = mongoTemplate.getDb().runCommand(
+                        new Document("explain", command).append("verbosity", "queryPlanner"));
+                Set<String> stages = new TreeSet<>();
+                collectStages(explain, stages);
+                assertFalse(stages.contains("COLLSCAN"), query.getKey() + " scans the collection: " + stages + " for " + command.toJson());
+                assertFalse(stages.contains("SORT"), query.getKey() + " sorts in memory: " + stages + " for " + command.toJson());
+            }
+        }));
+    }
+
+    /**
+     * Commands sent to tm2_mappings while running the query, without driver session fields
+     */
+    private static List<Document> record(Runnable query) {
+        RECORDED.clear();
+        recordingThread = Thread.currentThread();
+        try {
+            query.run();
+        } catch (DataAccessException e) {
+            // Single-result methods over non-unique keys: the command was still sent
+        } finally {
+            recordingThread = null;
+        }
+        List<Document> commands = new ArrayList<>();
+        for (Document command : RECORDED) {
+            Document explainable = new Document();
+            command.forEach((key, value) -> {
+                if (!DRIVER_FIELDS.contains(key)) {
+                    explainable.put(key, value);
+                }
+            });
+            if ("tm2_mappings".equals(explainable.get(explainable.keySet().iterator().next()))) {
+                commands.add(explainable);
+            }
+        }
+        return commands;
+    }
+
+    /**
+     * Every "stage" value anywhere in the explain output (classic and slot-based engine layouts alike)
+     */
+    private static void collectStages(Object node, Set<String> stages) {
+        if (node instanceof Document) {
+            Document document = (Document) node;
+            Object stage = document.get("stage");
+            if (stage instanceof String) {
+                stages.add((String) stage);
+            }
+            document.forEach((key, value) -> {
+                // Rejected plans may scan; only the winning plan runs
+                if (!"rejectedPlans".equals(key)) {
+                    collectStages(value, stages);
+                }
+            });
+        } else if (node instanceof List) {
+            for (Object element : (List<?>) node) {
+                collectStages(element, stages);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class CommandRecorderConfig {
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer commandRecorder() {
+            CommandListener listener = new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (Thread.currentThread() == recordingThread && EXPLAINED_COMMANDS.contains(event.getCommandName())) {
+                        RECORDED.add(Document.parse(event.getCommand().toJson()));
+                    }
+                }
+            };
+            return builder -> builder.addCommandListener(listener);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BulkAnnotationServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ClinicalNoteAnnotator annotator = mock(ClinicalNoteAnnotator.class);
+    private BulkAnnotationService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void resultsAreWrittenInInputOrder() throws Exception {
+        service = service(8, 4);
+        when(annotator.annotate(anyString())).thenAnswer(invocation -> {
+            // Earlier records finish last
+            Thread.sleep(Math.max(0, 40 - Integer.parseInt(invocation.getArgument(0))));
+            return List.of();
+        });
+
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            input.append("{\"id\":\"r").append(i).append("\",\"text\":\"").append(i).append("\"}\n");
+        }
+        List<JsonNode> lines = run(input.toString());
+
+        assertEquals(41, lines.size());
+        for (int i = 0; i < 40; i++) {
+            assertEquals("r" + i, lines.get(i).get("id").asText());
+        }
+        assertEquals(40, lines.get(40).get("summary").get("records").asLong());
+    }
+
+    @Test
+    void readerStaysWithinTheInFlightWindow() throws Exception {
+        int maxInFlight = 3;
+        service = service(maxInFlight, 8);
+        CountDownLatch firstRecord = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        when(annotator.annotate(anyString())).thenAnswer(invocation -> {
+            started.incrementAndGet();
+            if ("0".equals(invocation.getArgument(0))) {
+                firstRecord.await();
+            }
+            return List.of();
+        });
+
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            input.append("{\"text\":\"").append(i).append("\"}\n");
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> request = caller.submit(() -> {
+                service.annotate(new ByteArrayInputStream(input.toString().getBytes(StandardCharsets.UTF_8)), output);
+                return null;
+            });
+
+            // The oldest record is stuck, so the reader must stop once the window is full
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (started.get() < maxInFlight && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            Thread.sleep(100);
+            assertEquals(maxInFlight, started.get());
+            assertFalse(request.isDone());
+
+            firstRecord.countDown();
+            request.get(5, TimeUnit.SECONDS);
+            assertEquals(50, started.get());
+        } finally {
+            firstRecord.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedRecordsReportTheirLineAndCountInTheSummary() throws Exception {
+        service = service(4, 2);
+        when(annotator.annotate(anyString())).thenAnswer(invocation -> {
+            if ("boom".equals(invocation.getArgument(0))) {
+                throw new IllegalStateException("annotator failed");
+            }
+            return List.of();
+        });
+
+        List<JsonNode> lines = run("{\"id\":\"a\",\"text\":\"fine\"}\n"
+                + "\n"
+                + "{\"id\":\"b\",\"text\":\"boom\"}\n"
+                + "not json\n"
+                + "{\"id\":\"c\"}\n"
+                + "{\"text\":\"no id\"}\n");
+
+        assertEquals(6, lines.size());
+        assertEquals("a", lines.get(0).get("id").asText());
+        assertEquals(3, lines.get(1).get("line").asLong());
+        assertEquals("annotator failed", lines.get(1).get("error").asText());
+        assertEquals(4, lines.get(2).get("line").asLong());
+        assertTrue(lines.get(2).get("error").asText().startsWith("Invalid JSON"));
+        assertEquals(5, lines.get(3).get("line").asLong());
+        assertEquals("text is required", lines.get(3).get("error").asText());
+        assertEquals(6, lines.get(4).get("id").asLong(), "records without an id are identified by their line");
+
+        JsonNode summary = lines.get(5).get("summary");
+        assertEquals(5, summary.get("records").asLong());
+        assertEquals(3, summary.get("errors").asLong());
+        assertTrue(summary.has("elapsedMs"));
+        assertTrue(summary.has("recordsPerSecond"));
+    }
+
+    @Test
+    void emptyInputStillWritesSummary() throws Exception {
+        service = service(4, 2);
+
+        List<JsonNode> lines = run("");
+
+        assertEquals(1, lines.size());
+        assertEquals(0, lines.get(0).get("summary").get("records").asLong());
+        assertEquals(0, lines.get(0).get("summary").get("errors").asLong());
+    }
+
+    @Test
+    void recordsAnnotatedBeforeTheAnnotatorLoadsAreErrors() throws Exception {
+        service = service(4, 2);
+        when(annotator.annotate(anyString()))
+                .thenThrow(new TerminologyNotLoadedException("Clinical note annotator is not loaded yet, retry shortly"));
+
+        List<JsonNode> lines = run("{\"id\":\"a\",\"text\":\"fever\"}\n{\"id\":\"b\",\"text\":\"cough\"}\n");
+
+        assertEquals(3, lines.size());
+        assertEquals(1, lines.get(0).get("line").asLong());
+        assertFalse(lines.get(0).has("annotations"));
+        assertTrue(lines.get(0).get("error").asText().contains("not loaded"));
+        assertEquals(2, lines.get(2).get("summary").get("errors").asLong());
+    }
+
+    private BulkAnnotationService service(int maxInFlight, int workers) {
+        TerminologyIndexConfig config = new TerminologyIndexConfig();
+        config.setBulkAnnotationMaxInFlight(maxInFlight);
+        config.setBulkAnnotationWorkers(workers);
+        return new BulkAnnotationService(annotator, objectMapper, config, new SimpleMeterRegistry());
+    }
+
+    private List<JsonNode> run(String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.annotate(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+}
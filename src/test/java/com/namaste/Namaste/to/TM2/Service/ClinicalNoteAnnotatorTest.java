@@ -0,0 +1,43 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClinicalNoteAnnotatorTest {
+
+    private final TerminologyIndexLoader loader = mock(TerminologyIndexLoader.class);
+    private final ClinicalNoteAnnotator annotator = new ClinicalNoteAnnotator(loader, new TerminologyIndexConfig(),
+            new DefaultResourceLoader());
+
+    @Test
+    void notLoadedIsNotReportedAsNoMatches() {
+        when(loader.getCurrentSnapshot()).thenReturn(TerminologySnapshot.of(0, List.of()));
+
+        assertFalse(annotator.isReady());
+        assertThrows(TerminologyNotLoadedException.class, () -> annotator.annotate("Patient has vatavyadhi"));
+    }
+
+    @Test
+    void loadedAnnotatorFindsTitlesAndReportsNoMatchesAsEmpty() {
+        TerminologySnapshot snapshot = TerminologySnapshot.of(1, List.of(
+                new NamasteCode("1", "SK25", null, "SR11", "Vata disorder", null, "Vatavyadhi", null, 0.9, "ayurveda")));
+        when(loader.getCurrentSnapshot()).thenReturn(snapshot.withIndexes(Map.of(annotator, annotator.buildIndex(snapshot))));
+
+        List<ClinicalNoteAnnotator.Annotation> annotations = annotator.annotate("Patient has vatavyadhi since May");
+
+        assertTrue(annotator.isReady());
+        assertEquals(1, annotations.size());
+        assertEquals("vatavyadhi", annotations.get(0).getText());
+        assertEquals(12, annotations.get(0).getStart());
+        assertTrue(annotator.annotate("Routine follow-up").isEmpty());
+    }
+}
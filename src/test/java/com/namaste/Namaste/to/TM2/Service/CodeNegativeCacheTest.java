@@ -0,0 +1,97 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CodeNegativeCacheTest {
+
+    private final NamasteCodeRepository repository = mock(NamasteCodeRepository.class);
+    private final TerminologyIndexConfig config = new TerminologyIndexConfig();
+    private TerminologyIndexLoader loader;
+    private CodeNegativeCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ObjectProvider<TerminologyIndexContributor<?>> contributors = mock(ObjectProvider.class);
+        when(contributors.orderedStream()).thenAnswer(invocation -> Stream.of(cache));
+        loader = new TerminologyIndexLoader(repository, mock(ApplicationEventPublisher.class), config,
+                mock(TerminologyIndexArtifactStore.class), contributors);
+        cache = new CodeNegativeCache(config, new SimpleMeterRegistry(), loader);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    void everyValueIsMaybeKnownUntilTheFirstLoad() {
+        assertFalse(cache.isDefinitelyUnknown("SR11"));
+        assertFalse(cache.isDefinitelyUnknownCode("anything"));
+    }
+
+    @Test
+    void loadedCodesAreKnownAndOthersAreNot() {
+        when(repository.findAll()).thenReturn(List.of(record("1", "SK25", "SR11")));
+        loader.reload();
+
+        assertFalse(cache.isDefinitelyUnknown("SR11"));
+        assertFalse(cache.isDefinitelyUnknown("SK25"));
+        assertFalse(cache.isDefinitelyUnknownCode("SR11"));
+        assertTrue(cache.isDefinitelyUnknownTm2Code("SR11"));
+        assertTrue(cache.isDefinitelyUnknown("SR99"));
+    }
+
+    @Test
+    void codeSavedAfterStartupIsNotReportedUnknown() {
+        when(repository.findAll()).thenReturn(List.of(record("1", "SK25", "SR11")));
+        loader.reload();
+        assertTrue(cache.isDefinitelyUnknown("SR12"));
+        assertTrue(cache.isDefinitelyUnknown("SK30"));
+
+        loader.publishUpdate(List.of(record("2", "SK30", "SR12")));
+
+        assertFalse(cache.isDefinitelyUnknownCode("SR12"), "known as soon as the save is published");
+        assertFalse(cache.isDefinitelyUnknownTm2Code("SK30"));
+        assertFalse(loader.getCurrentSnapshot().hasStaleIndexes(), "applied in place, no rebuild pending");
+        assertFalse(cache.isDefinitelyUnknown("SR11"));
+    }
+
+    @Test
+    void storedValuesWithStrayWhitespaceAreKnownAsStored() {
+        when(repository.findAll()).thenReturn(List.of(record("1", "SK25 ", " SR11")));
+        loader.reload();
+
+        // Exact-match queries for the stored values find these records
+        assertFalse(cache.isDefinitelyUnknownCode(" SR11"));
+        assertFalse(cache.isDefinitelyUnknownTm2Code("SK25 "));
+    }
+
+    @Test
+    void disabledFilterNeverShortCircuits() {
+        config.setBloomEnabled(false);
+        when(repository.findAll()).thenReturn(List.of(record("1", "SK25", "SR11")));
+        loader.reload();
+
+        assertFalse(cache.isDefinitelyUnknown("SR99"));
+    }
+
+    private static NamasteCode record(String id, String tm2Code, String code) {
+        return new NamasteCode(id, tm2Code, null, code, "Fever", null, "Jwara", null, 0.9, "ayurveda");
+    }
+}
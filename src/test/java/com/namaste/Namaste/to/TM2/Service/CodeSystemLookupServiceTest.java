@@ -0,0 +1,92 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CodeSystemLookupServiceTest {
+
+    private static final NamasteCode FEVER = new NamasteCode("1", "SK25", null, "SR11", "Fever", null, "Jwara", null, 0.9, "ayurveda");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TerminologyIndexLoader loader = mock(TerminologyIndexLoader.class);
+    private final NamasteCodeRepository repository = mock(NamasteCodeRepository.class);
+    private final CodeSystemLookupService service = new CodeSystemLookupService(loader, repository, objectMapper);
+
+    @Test
+    void codesAreLookedUpInMongoUntilTheTablesAreBuilt() {
+        when(loader.getCurrentSnapshot()).thenReturn(TerminologySnapshot.of(0, List.of()));
+        when(repository.findTopByCodeOrderByConfidenceScoreDesc(anyString())).thenReturn(Optional.empty());
+        when(repository.findTopByCodeOrderByConfidenceScoreDesc("SR11")).thenReturn(Optional.of(FEVER));
+        when(repository.findTopByTm2CodeOrderByConfidenceScoreDesc(anyString())).thenReturn(Optional.empty());
+        when(repository.findTopByTm2CodeOrderByConfidenceScoreDesc("SK25")).thenReturn(Optional.of(FEVER));
+
+        assertTrue(service.validateCode(null, "SR11", "jwara").isValid());
+        assertEquals(ValueSetExpansionService.TM2_SYSTEM, service.validateCode(null, "SK25", null).getSystem());
+        assertFalse(service.validateCode(null, "SR99", null).isValid());
+    }
+
+    @Test
+    void builtTablesAnswerWithoutMongo() {
+        publishTables();
+
+        assertTrue(service.validateCode(ValueSetExpansionService.NAMASTE_SYSTEM, "SR11", null).isValid());
+        assertFalse(service.validateCode(null, "SR99", null).isValid());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void bodiesThatAreNotAnObjectAreRejectedBeforeStreaming() {
+        assertThrows(IllegalArgumentException.class, () -> service.openBatch(body("[\"SR11\"]")));
+        assertThrows(JsonParseException.class, () -> service.openBatch(body("not json")));
+    }
+
+    @Test
+    void lateSystemAndMalformedItemsEndTheStreamWithAnOutcome() throws IOException {
+        publishTables();
+
+        JsonNode late = validate("{\"codes\": [\"SR11\"], \"system\": \"" + ValueSetExpansionService.TM2_SYSTEM + "\"}");
+        assertEquals(1, late.get("total").asInt());
+        assertEquals("OperationOutcome", late.get("error").get("resourceType").asText());
+        assertTrue(late.get("error").get("issue").get(0).get("diagnostics").asText().contains("before"));
+
+        JsonNode malformed = validate("{\"codes\": [\"SR11\", ");
+        assertEquals(1, malformed.get("valid").asInt());
+        assertTrue(malformed.has("error"));
+
+        JsonNode ordered = validate("{\"system\": \"" + ValueSetExpansionService.NAMASTE_SYSTEM + "\", \"codes\": [\"SR11\", {\"code\": \"SK25\"}]}");
+        assertEquals(2, ordered.get("total").asInt());
+        assertEquals(1, ordered.get("valid").asInt());
+        assertFalse(ordered.has("error"));
+    }
+
+    private void publishTables() {
+        TerminologySnapshot snapshot = TerminologySnapshot.of(1, List.of(FEVER));
+        when(loader.getCurrentSnapshot()).thenReturn(snapshot.withIndexes(Map.of(service, service.buildIndex(snapshot))));
+    }
+
+    private JsonNode validate(String json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.validateBatch(service.openBatch(body(json)), out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,108 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepositoryImpl;
+import com.namaste.Namaste.to.TM2.config.MongoIndexInitializer;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pins the exact-lookup contract of getByNamasteName / getByNamasteCode: case-insensitive (the en/strength 2
+ * collation), best confidence first when several mappings share the name or code
+ * Collation needs a real MongoDB, so this runs in a Testcontainers container and is skipped without Docker
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NamasteTerminologyServiceLookupTest {
+
+    @Container
+    static final MongoDBContainer MONGODB = new MongoDBContainer(
+            System.getenv().getOrDefault("MONGODB_TEST_IMAGE", "mongo:7.0"));
+
+    private static MongoClient client;
+    private static NamasteTerminologyService service;
+
+    @BeforeAll
+    static void setUp() {
+        client = MongoClients.create(MONGODB.getReplicaSetUrl());
+        MongoTemplate mongoTemplate = new MongoTemplate(client, "namaste_lookup_test");
+
+        NamasteCodeRepositoryImpl custom = new NamasteCodeRepositoryImpl();
+        ReflectionTestUtils.setField(custom, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(custom, "conceptTable", mock(Tm2ConceptTable.class));
+        NamasteCodeRepository repository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(NamasteCodeRepository.class, RepositoryComposition.RepositoryFragments.just(custom));
+
+        mongoTemplate.insertAll(List.of(
+                record("m1", "SR11", "Vata Jwara", 0.4),
+                record("m2", "sr11", "VATA JWARA", 0.9),
+                record("m3", "Sr11", "vata jwara", 0.6),
+                record("m4", "SR11", "Vata Jwara", null),
+                record("m5", "SR12", "Pitta Jwara", 1.0),
+                record("m6", "SR110", "Vata Jwara Chronic", 0.99)));
+        new MongoIndexInitializer(mongoTemplate).ensureIndexes();
+
+        TransliterationTitleIndex titleIndex = mock(TransliterationTitleIndex.class);
+        when(titleIndex.lookup(anyString())).thenReturn(new TransliterationTitleIndex.TitleMatch(List.of(), null));
+        service = new NamasteTerminologyService(repository, mock(CodeNegativeCache.class), mock(TerminologyIndexLoader.class),
+                mock(Tm2BestMappingTable.class), mock(SymptomQueryCache.class), new TerminologyIndexConfig(),
+                mock(SpellingCorrectionService.class), titleIndex, mock(SymptomSynonymService.class),
+                mock(TfIdfRelevanceService.class), mock(MatchHighlighter.class), mock(TerminologyFacetIndex.class));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    void codeLookupIgnoresCaseAndReturnsTheBestConfidence() {
+        for (String code : List.of("SR11", "sr11", "sR11")) {
+            Optional<NamasteCode> found = service.getByNamasteCode(code);
+            assertTrue(found.isPresent(), code);
+            assertEquals("m2", found.get().getId(), code);
+            assertEquals(0.9, found.get().getConfidenceScore());
+        }
+        assertEquals("m5", service.getByNamasteCode("sr12").orElseThrow().getId());
+    }
+
+    @Test
+    void nameLookupIgnoresCaseAndReturnsTheBestConfidence() {
+        for (String name : List.of("Vata Jwara", "vata jwara", "VaTa JWARA")) {
+            assertEquals("m2", service.getByNamasteName(name).orElseThrow().getId(), name);
+        }
+    }
+
+    @Test
+    void lookupsMatchWholeValuesOnly() {
+        assertTrue(service.getByNamasteCode("SR1").isEmpty());
+        assertTrue(service.getByNamasteCode("SR11 ").isEmpty());
+        assertTrue(service.getByNamasteName("vata").isEmpty());
+        assertEquals("m6", service.getByNamasteName("vata jwara chronic").orElseThrow().getId());
+    }
+
+    private static NamasteCode record(String id, String code, String title, Double confidence) {
+        return new NamasteCode(id, "SK25", null, code, null, null, title, null, confidence, "ayurveda");
+    }
+}
@@ -0,0 +1,129 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepositoryImpl;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NamasteTerminologyServiceRollbackTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private NamasteCodeRepository repository;
+    private TerminologyIndexLoader loader;
+    private NamasteTerminologyService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "namaste");
+
+        NamasteCodeRepositoryImpl custom = new NamasteCodeRepositoryImpl();
+        ReflectionTestUtils.setField(custom, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(custom, "conceptTable", mock(Tm2ConceptTable.class));
+        repository = new MongoRepositoryFactory(mongoTemplate)
+                .getRepository(NamasteCodeRepository.class, RepositoryComposition.RepositoryFragments.just(custom));
+
+        ObjectProvider<TerminologyIndexContributor<?>> contributors = mock(ObjectProvider.class);
+        when(contributors.orderedStream()).thenAnswer(invocation -> Stream.empty());
+        loader = new TerminologyIndexLoader(repository, mock(ApplicationEventPublisher.class), new TerminologyIndexConfig(),
+                mock(TerminologyIndexArtifactStore.class), contributors);
+        service = new NamasteTerminologyService(repository, mock(CodeNegativeCache.class), loader,
+                new Tm2BestMappingTable(loader), mock(SymptomQueryCache.class), new TerminologyIndexConfig(),
+                mock(SpellingCorrectionService.class), mock(TransliterationTitleIndex.class), mock(SymptomSynonymService.class),
+                mock(TfIdfRelevanceService.class), mock(MatchHighlighter.class), mock(TerminologyFacetIndex.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void rollbackRestoresTheRetainedVersionAsANewVersion() {
+        repository.saveAll(List.of(record("1", "A1", 0.9), record("2", "A2", 0.8)));
+        mongoTemplate.indexOps(NamasteCode.class).createIndex(new Index("code", Sort.Direction.ASC).named("code_asc"));
+        loader.reload();
+        long imported = loader.getVersion();
+
+        repository.saveAll(List.of(record("1", "A1", 0.1), record("3", "A3", 0.7)));
+        loader.reload();
+        assertEquals(3, repository.count());
+
+        TerminologySnapshot restored = service.rollbackTo(imported);
+
+        assertTrue(restored.getVersion() > imported);
+        assertEquals(restored, loader.getCurrentSnapshot());
+        assertEquals(List.of(record("1", "A1", 0.9), record("2", "A2", 0.8)), sorted(repository.findAll()));
+        assertEquals(sorted(restored.getRecords()), sorted(repository.findAll()));
+        assertEquals(0.9, service.searchByCode("A1").get(0).getConfidenceScore());
+        assertTrue(indexNames().contains("code_asc"), "indexes are carried over to the restored collection");
+        assertFalse(mongoTemplate.collectionExists("tm2_mappings_staging"));
+    }
+
+    @Test
+    void failedReplaceLeavesTheLiveCollectionUntouched() {
+        repository.saveAll(List.of(record("1", "A1", 0.9), record("2", "A2", 0.8)));
+
+        List<NamasteCode> duplicateIds = List.of(record("5", "A5", 0.9), record("5", "A6", 0.9));
+        assertThrows(RuntimeException.class, () -> repository.replaceAll(duplicateIds));
+
+        assertEquals(List.of(record("1", "A1", 0.9), record("2", "A2", 0.8)), sorted(repository.findAll()));
+    }
+
+    @Test
+    void unknownVersionIsRejectedWithoutTouchingTheCollection() {
+        repository.saveAll(List.of(record("1", "A1", 0.9)));
+        loader.reload();
+
+        assertThrows(IllegalArgumentException.class, () -> service.rollbackTo(loader.getVersion() + 10));
+        assertEquals(1, repository.count());
+    }
+
+    private List<String> indexNames() {
+        List<String> names = new ArrayList<>();
+        for (Document index : mongoTemplate.getCollection("tm2_mappings").listIndexes()) {
+            names.add(index.getString("name"));
+        }
+        return names;
+    }
+
+    private static List<NamasteCode> sorted(List<NamasteCode> records) {
+        return records.stream().sorted(Comparator.comparing(NamasteCode::getId)).toList();
+    }
+
+    private static NamasteCode record(String id, String code, Double confidence) {
+        return new NamasteCode(id, "SK25", null, code, "Fever", null, "Jwara " + code, null, confidence, "ayurveda");
+    }
+}
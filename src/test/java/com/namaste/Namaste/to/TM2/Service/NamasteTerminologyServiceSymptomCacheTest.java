@@ -0,0 +1,81 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class NamasteTerminologyServiceSymptomCacheTest {
+
+    private static final List<NamasteCode> MATCHES = List.of(
+            new NamasteCode("1", "SK25", null, "A1", "Fever", null, "Jwara", "fever with chills", 0.5, "ayurveda"));
+
+    private final TerminologyIndexLoader loader = mock(TerminologyIndexLoader.class);
+    private final SymptomSynonymService synonymService = mock(SymptomSynonymService.class);
+    private final SymptomQueryCache symptomQueryCache = new SymptomQueryCache(new TerminologyIndexConfig());
+    private NamasteTerminologyService service;
+
+    @BeforeEach
+    void setUp() {
+        when(synonymService.isLocallyResolvable(anyString())).thenReturn(true);
+        when(synonymService.expand(anyString())).thenReturn(List.of());
+        TfIdfRelevanceService relevanceService = mock(TfIdfRelevanceService.class);
+        when(relevanceService.cosineScores(anyList(), anyList()))
+                .thenAnswer(invocation -> new float[invocation.<List<?>>getArgument(1).size()]);
+        service = new NamasteTerminologyService(mock(NamasteCodeRepository.class), mock(CodeNegativeCache.class), loader,
+                mock(Tm2BestMappingTable.class), symptomQueryCache, new TerminologyIndexConfig(),
+                mock(SpellingCorrectionService.class), mock(TransliterationTitleIndex.class), synonymService,
+                relevanceService, mock(MatchHighlighter.class), mock(TerminologyFacetIndex.class));
+    }
+
+    @Test
+    void matchesOfAnUnchangedVersionAreCached() {
+        when(loader.getCurrentSnapshot()).thenReturn(TerminologySnapshot.of(5, MATCHES));
+        when(synonymService.findLocally(anyList())).thenReturn(MATCHES);
+
+        service.searchBySymptomsRanked(List.of("fever"), 0, 10);
+        service.searchBySymptomsRanked(List.of("Fever"), 0, 10);
+
+        verify(synonymService, times(1)).findLocally(anyList());
+        assertNotNull(symptomQueryCache.get(List.of("fever"), 5));
+    }
+
+    @Test
+    void matchesComputedWhileANewVersionIsPublishedAreNotCached() {
+        TerminologySnapshot before = TerminologySnapshot.of(5, MATCHES);
+        TerminologySnapshot after = TerminologySnapshot.of(6, MATCHES);
+        when(loader.getCurrentSnapshot()).thenReturn(before);
+        when(synonymService.findLocally(anyList())).thenAnswer(invocation -> {
+            // A save lands while the matches are computed from version 5
+            when(loader.getCurrentSnapshot()).thenReturn(after);
+            return MATCHES;
+        });
+
+        service.searchBySymptomsRanked(List.of("fever"), 0, 10);
+
+        assertNull(symptomQueryCache.get(List.of("fever"), 5));
+        assertNull(symptomQueryCache.get(List.of("fever"), 6));
+    }
+
+    @Test
+    void matchesComputedFromCarriedForwardIndexesAreNotCached() {
+        TerminologySnapshot stale = TerminologySnapshot.of(5, MATCHES).withIndexes(Map.of(), true);
+        when(loader.getCurrentSnapshot()).thenReturn(stale);
+        when(synonymService.findLocally(anyList())).thenReturn(MATCHES);
+
+        service.searchBySymptomsRanked(List.of("fever"), 0, 10);
+        service.searchBySymptomsRanked(List.of("fever"), 0, 10);
+
+        verify(synonymService, times(2)).findLocally(anyList());
+        assertNull(symptomQueryCache.get(List.of("fever"), 5));
+    }
+}
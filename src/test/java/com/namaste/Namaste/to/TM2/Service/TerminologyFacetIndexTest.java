@@ -0,0 +1,59 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Index.RoaringBitmap;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TerminologyFacetIndexTest {
+
+    private final TerminologyIndexLoader loader = mock(TerminologyIndexLoader.class);
+    private final TerminologyFacetIndex facetIndex = new TerminologyFacetIndex(loader);
+
+    @Test
+    void oneStateAnswersFromItsOwnVersionAfterAReload() {
+        publish(1, List.of(
+                record("1", "SK25", 0.9, "siddha"),
+                record("2", "SM30", 0.7, "ayurveda"),
+                record("3", "SK40", 0.95, "siddha")));
+        TerminologyFacetIndex.FacetState facets = facetIndex.current();
+        RoaringBitmap siddha = facets.filter("siddha", TerminologyFacetIndex.ConfidenceBand.HIGH, null);
+
+        // A smaller dataset replaces the current one between filtering and reading the records
+        publish(2, List.of(record("9", "SK99", 0.9, "unani")));
+
+        assertEquals(List.of("1", "3"), ids(facets.records(siddha)));
+        assertEquals(3, facets.getDocumentCount());
+        assertEquals(1, facetIndex.current().getDocumentCount());
+        assertEquals(1, facets.count(null, null, "sm"));
+        assertEquals(List.of("3"), ids(facets.records(facets.bitmapOf(List.of(record("3", null, null, null),
+                record("9", null, null, null))))));
+    }
+
+    @Test
+    void missingStateIsReportedAsNotLoaded() {
+        when(loader.getCurrentSnapshot()).thenReturn(TerminologySnapshot.of(0, List.of()));
+
+        assertNull(facetIndex.current());
+        assertThrows(TerminologyNotLoadedException.class, facetIndex::requireCurrent);
+    }
+
+    private void publish(long version, List<NamasteCode> records) {
+        TerminologySnapshot snapshot = TerminologySnapshot.of(version, records);
+        when(loader.getCurrentSnapshot()).thenReturn(snapshot.withIndexes(Map.of(facetIndex, facetIndex.buildIndex(snapshot))));
+    }
+
+    private static List<String> ids(List<NamasteCode> records) {
+        return records.stream().map(NamasteCode::getId).toList();
+    }
+
+    private static NamasteCode record(String id, String tm2Code, Double confidence, String type) {
+        return new NamasteCode(id, tm2Code, null, "C" + id, "Title", null, "Name", null, confidence, type);
+    }
+}
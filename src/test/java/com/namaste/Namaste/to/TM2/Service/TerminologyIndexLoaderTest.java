@@ -0,0 +1,218 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepository;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TerminologyIndexLoaderTest {
+
+    private static final List<NamasteCode> RECORDS = List.of(
+            record("1", "SK25", "A1", 0.9, "ayurveda"),
+            record("2", "SK25", "S1", 0.8, "siddha"),
+            record("3", "SK30", "A2", 0.7, "ayurveda"));
+
+    @TempDir
+    Path directory;
+
+    private final NamasteCodeRepository repository = mock(NamasteCodeRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final List<TerminologyIndexContributor<?>> contributors = new ArrayList<>();
+    private final TerminologyIndexConfig config = new TerminologyIndexConfig();
+    private TerminologyIndexArtifactStore artifactStore;
+    private TerminologyIndexLoader loader;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        config.setArtifactPath(directory.resolve("terminology-index.bin").toString());
+        artifactStore = new TerminologyIndexArtifactStore(config, mock(ObjectProvider.class));
+        ObjectProvider<TerminologyIndexContributor<?>> provider = mock(ObjectProvider.class);
+        when(provider.orderedStream()).thenAnswer(invocation -> contributors.stream());
+        config.setRefreshDelayMillis(50);
+        loader = new TerminologyIndexLoader(repository, eventPublisher, config, artifactStore, provider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    void artifactIsServedMappedAndVersionNumberingContinues() {
+        writeArtifact(41);
+        TerminologyIndexContributor<Integer> counter = snapshot -> snapshot.getRecords().size();
+        contributors.add(counter);
+
+        assertTrue(loader.loadArtifact());
+
+        TerminologySnapshot current = loader.getCurrentSnapshot();
+        assertTrue(loader.isLoaded());
+        assertEquals(41, loader.getVersion());
+        assertTrue(current.isMapped(), "records are read from the mapped file");
+        assertEquals(3, current.index(counter));
+        assertEquals(RECORDS, current.getRecords());
+        assertEquals(List.of("A1", "S1"), codes(current.bestMappingsForCode("A1")));
+        assertEquals(List.of(41L), versions(), "the artifact's version is not retired into its own history");
+
+        loader.publishUpdate(List.of(record("2", "SK25", "S1", 0.95, "siddha"), record("4", "SK30", "U1", 0.9, "unani")));
+        assertEquals(42, loader.getVersion());
+        assertEquals(List.of("S1", "A1"), codes(loader.getCurrentSnapshot().bestMappingsForTm2Code("SK25")));
+        assertEquals(3, loader.getCurrentSnapshot().rowOf("4"));
+
+        when(repository.findAll()).thenReturn(RECORDS);
+        loader.reload();
+        assertEquals(43, loader.getVersion());
+        assertEquals(List.of(43L, 42L), versions(), "the replaced version is retained");
+    }
+
+    @Test
+    void mongoFailureAfterTheArtifactKeepsItServed() {
+        writeArtifact(41);
+        loader.loadArtifact();
+        when(repository.findAll()).thenThrow(new DataAccessResourceFailureException("MongoDB is down"));
+
+        assertThrows(DataAccessResourceFailureException.class, () -> loader.reload());
+
+        assertTrue(loader.isLoaded());
+        assertEquals(41, loader.getVersion());
+        assertEquals(RECORDS, loader.getCurrentSnapshot().getRecords());
+    }
+
+    @Test
+    void failingListenersAndContributorsDoNotStopThePublish() {
+        doThrow(new IllegalStateException("listener failed")).when(eventPublisher).publishEvent(any(Object.class));
+        TerminologyIndexContributor<String> failing = snapshot -> {
+            throw new IllegalStateException("contributor failed");
+        };
+        TerminologyIndexContributor<String> working = snapshot -> "built " + snapshot.getVersion();
+        contributors.add(failing);
+        contributors.add(working);
+        when(repository.findAll()).thenReturn(RECORDS);
+
+        loader.reload();
+
+        assertTrue(loader.isLoaded());
+        assertEquals(1, loader.getVersion());
+        assertNull(loader.getCurrentSnapshot().index(failing));
+        assertEquals("built 1", loader.getCurrentSnapshot().index(working));
+
+        loader.publishUpdate(List.of(record("9", "SK40", "X1", 0.9, "unani")));
+        assertEquals(2, loader.getVersion());
+        assertEquals("built 1", loader.getCurrentSnapshot().index(working), "carried forward until the refresh");
+
+        loader.refreshStaleIndexes();
+        assertEquals(2, loader.getVersion());
+        assertEquals("built 2", loader.getCurrentSnapshot().index(working));
+        assertNull(loader.getCurrentSnapshot().index(failing));
+    }
+
+    @Test
+    void savesAreAppliedInPlaceOrRebuiltOnceInTheBackground() throws InterruptedException {
+        AtomicInteger builds = new AtomicInteger();
+        TerminologyIndexContributor<Integer> rebuilt = snapshot -> {
+            builds.incrementAndGet();
+            return snapshot.size();
+        };
+        TerminologyIndexContributor<List<String>> incremental = new TerminologyIndexContributor<>() {
+            @Override
+            public List<String> buildIndex(TerminologySnapshot snapshot) {
+                return snapshot.getRecords().stream().map(NamasteCode::getId).toList();
+            }
+
+            @Override
+            public List<String> updateIndex(List<String> ids, TerminologySnapshot snapshot, Collection<NamasteCode> savedRecords) {
+                List<String> updated = new ArrayList<>(ids);
+                savedRecords.forEach(saved -> updated.add(saved.getId()));
+                return updated;
+            }
+        };
+        contributors.add(rebuilt);
+        contributors.add(incremental);
+        when(repository.findAll()).thenReturn(RECORDS);
+        loader.reload();
+        assertEquals(1, builds.get());
+
+        loader.publishUpdate(List.of(record("4", "SK30", "U1", 0.9, "unani")));
+        loader.publishUpdate(List.of(record("5", "SK30", "U2", 0.9, "unani")));
+
+        assertEquals(List.of("1", "2", "3", "4", "5"), loader.getCurrentSnapshot().index(incremental));
+        assertEquals(3, loader.getCurrentSnapshot().index(rebuilt));
+        assertEquals(1, builds.get(), "no rebuild on the saving thread");
+        assertTrue(loader.getCurrentSnapshot().hasStaleIndexes());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loader.getCurrentSnapshot().index(rebuilt) != 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, loader.getCurrentSnapshot().index(rebuilt));
+        assertEquals(2, builds.get(), "both saves are covered by one rebuild");
+        assertFalse(loader.getCurrentSnapshot().hasStaleIndexes());
+        assertEquals(3, loader.getVersion());
+        assertEquals(List.of("1", "2", "3", "4", "5"), loader.getCurrentSnapshot().index(incremental));
+    }
+
+    @Test
+    void fullReloadDuringARefreshKeepsItsOwnIndexes() {
+        config.setRefreshDelayMillis(60_000);
+        TerminologyIndexContributor<Integer> rebuilt = snapshot -> {
+            if (snapshot.getVersion() == 2) {
+                // A reload lands while the background refresh of version 2 is building
+                when(repository.findAll()).thenReturn(RECORDS.subList(0, 1));
+                loader.reload();
+            }
+            return snapshot.size();
+        };
+        contributors.add(rebuilt);
+        when(repository.findAll()).thenReturn(RECORDS);
+        loader.reload();
+        loader.publishUpdate(List.of(record("4", "SK30", "U1", 0.9, "unani")));
+
+        loader.refreshStaleIndexes();
+
+        assertEquals(3, loader.getVersion());
+        assertEquals(1, loader.getCurrentSnapshot().index(rebuilt));
+    }
+
+    @Test
+    void missingOrCorruptArtifactIsIgnored() throws Exception {
+        assertFalse(loader.loadArtifact());
+
+        Files.write(directory.resolve("terminology-index.bin"), new byte[]{1, 2, 3});
+        assertFalse(loader.loadArtifact());
+        assertFalse(loader.isLoaded());
+    }
+
+    private void writeArtifact(long version) {
+        artifactStore.onTerminologyChanged(new TerminologyChangedEvent(this, TerminologySnapshot.of(version, RECORDS)));
+    }
+
+    private List<Long> versions() {
+        return loader.getSnapshots().stream().map(TerminologySnapshot::getVersion).toList();
+    }
+
+    private static List<String> codes(List<NamasteCode> records) {
+        return records.stream().map(NamasteCode::getCode).toList();
+    }
+
+    private static NamasteCode record(String id, String tm2Code, String code, Double confidence, String type) {
+        return new NamasteCode(id, tm2Code, null, code, "Title " + tm2Code, null, "Title " + code, null, confidence, type);
+    }
+}
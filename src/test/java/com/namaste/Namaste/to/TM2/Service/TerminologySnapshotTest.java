@@ -0,0 +1,98 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerminologySnapshotTest {
+
+    @Test
+    void updatesKeepRowsStableAndLeaveTheOriginalUntouched() {
+        TerminologySnapshot original = TerminologySnapshot.of(1, List.of(
+                record("1", "SK25", "A1", 0.9, "ayurveda"),
+                record("2", "SK25", "S1", 0.8, "siddha")));
+
+        TerminologySnapshot updated = original.withUpdates(2, List.of(
+                record("2", "SK30", "S1", 0.8, "siddha"),
+                record("3", "SK25", "U1", 0.7, "unani")));
+
+        assertEquals(2, updated.getVersion());
+        assertEquals(1, updated.rowOf("2"));
+        assertEquals(2, updated.rowOf("3"));
+        assertEquals(-1, original.rowOf("3"));
+        assertEquals("SK25", original.record(1).getTm2Code());
+        assertEquals(List.of("A1", "S1"), codes(original.bestMappingsForTm2Code("SK25")));
+        assertEquals(List.of("A1", "U1"), codes(updated.bestMappingsForTm2Code("SK25")));
+        assertEquals(List.of("S1"), codes(updated.bestMappingsForTm2Code("SK30")));
+        assertThrows(IndexOutOfBoundsException.class, () -> original.record(2));
+    }
+
+    @Test
+    void updatesAnswerLikeAFreshBuild() {
+        List<NamasteCode> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            records.add(record(String.valueOf(i), "SK" + (i % 7), "C" + (i % 13), 0.5 + (i % 5) / 10.0, i % 2 == 0 ? "ayurveda" : "siddha"));
+        }
+        TerminologySnapshot snapshot = TerminologySnapshot.of(1, records);
+        for (int i = 0; i < 20; i++) {
+            NamasteCode saved = record(String.valueOf(i * 2), "SK" + (i % 4), "C" + (i % 9), 0.95 - i / 100.0, "unani");
+            records.set(i * 2, saved);
+            snapshot = snapshot.withUpdates(i + 2, List.of(saved));
+        }
+
+        TerminologySnapshot fresh = TerminologySnapshot.of(99, records);
+        assertEquals(fresh.getRecords(), snapshot.getRecords());
+        assertEquals(fresh.getBestMappings().bestByTm2Code(fresh::record), snapshot.getBestMappings().bestByTm2Code(snapshot::record));
+        assertEquals(fresh.getBestMappings().topByCode(fresh::record), snapshot.getBestMappings().topByCode(snapshot::record));
+        for (int i = 0; i < 13; i++) {
+            assertEquals(fresh.bestMappingsForCode("C" + i), snapshot.bestMappingsForCode("C" + i));
+        }
+    }
+
+    @Test
+    void largeUpdatesFoldIntoANewBase() {
+        List<NamasteCode> saved = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            saved.add(record(String.valueOf(i), "SK" + (i % 50), "C" + i, 0.9, "ayurveda"));
+        }
+
+        TerminologySnapshot updated = TerminologySnapshot.of(1, List.of(record("x", "SK1", "X", 0.7, "siddha")))
+                .withUpdates(2, saved);
+
+        assertEquals(2001, updated.size());
+        assertEquals("x", updated.record(0).getId());
+        assertEquals(saved, updated.getRecords().subList(1, 2001));
+        assertEquals(List.of("C1", "X"), codes(updated.bestMappingsForTm2Code("SK1")));
+    }
+
+    @Test
+    void compactingKeepsRowsAndBestMappingsButDropsContributorIndexes() {
+        TerminologyIndexContributor<String> contributor = snapshot -> "index of " + snapshot.getVersion();
+        TerminologySnapshot snapshot = TerminologySnapshot.of(4, List.of(
+                record("1", "SK25", "A1", 0.9, "ayurveda"),
+                record("2", "SK25", "S1", 0.8, "siddha")));
+        snapshot = snapshot.withIndexes(Map.of(contributor, contributor.buildIndex(snapshot)));
+
+        TerminologySnapshot compacted = snapshot.compact();
+
+        assertEquals("index of 4", snapshot.index(contributor));
+        assertNull(compacted.index(contributor));
+        assertTrue(compacted.isCompacted());
+        assertEquals(snapshot.getRecords(), compacted.getRecords());
+        assertEquals(snapshot.bestMappingsForCode("A1"), compacted.bestMappingsForCode("A1"));
+        assertEquals(1, compacted.rowOf("2"));
+    }
+
+    private static List<String> codes(List<NamasteCode> records) {
+        return records.stream().map(NamasteCode::getCode).toList();
+    }
+
+    private static NamasteCode record(String id, String tm2Code, String code, Double confidence, String type) {
+        return new NamasteCode(id, tm2Code, null, code, "Title " + tm2Code, null, "Title " + code, null, confidence, type);
+    }
+}
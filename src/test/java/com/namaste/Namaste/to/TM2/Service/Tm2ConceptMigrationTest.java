@@ -0,0 +1,181 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Model.Tm2Concept;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeConceptCallbacks;
+import com.namaste.Namaste.to.TM2.Repository.NamasteCodeRepositoryImpl;
+import com.namaste.Namaste.to.TM2.Repository.Tm2ConceptRepository;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Tm2ConceptMigrationTest {
+
+    private MongoServer server;
+    private MongoClient client;
+    private MongoTemplate mongoTemplate;
+    private Tm2ConceptRepository conceptRepository;
+    private Tm2ConceptTable conceptTable;
+    private Tm2ConceptMigration migration;
+
+    @BeforeEach
+    void setUp() {
+        server = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = server.bind();
+        client = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new MongoTemplate(client, "namaste");
+        conceptRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(Tm2ConceptRepository.class);
+        conceptTable = new Tm2ConceptTable(conceptRepository);
+        mongoTemplate.setEntityCallbacks(EntityCallbacks.create(new NamasteCodeConceptCallbacks(conceptTable)));
+        migration = new Tm2ConceptMigration(mongoTemplate, conceptRepository, conceptTable, new TerminologyIndexConfig());
+
+        mongoTemplate.getCollection("tm2_mappings").insertMany(List.of(
+                mapping("A1", "SK25", "Fever", "Raised body temperature", "http://id.who.int/icd/entity/25"),
+                mapping("A2", "SK25", "Fever", "Raised body temperature", "http://id.who.int/icd/entity/25"),
+                mapping("A3", "SK25", "Fever (local title)", "Raised body temperature", "http://id.who.int/icd/entity/25"),
+                // Never had a definition or link, while its concept has both
+                new Document("_id", "A4").append("code", "A4").append("tm2_code", "SK25").append("tm2_title", "Fever"),
+                new Document("_id", "B1").append("code", "B1").append("tm2_code", "SK30").append("tm2_title", "Cough"),
+                new Document("_id", "C1").append("code", "C1").append("code_title", "Unmapped")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        server.shutdown();
+    }
+
+    @Test
+    void readsAreUnchangedByTheMigration() {
+        List<NamasteCode> before = readAll();
+
+        Tm2ConceptMigration.MigrationResult result = migration.migrate();
+
+        assertEquals(2, result.getConceptsCreated());
+        assertEquals(2, result.getConceptsTotal());
+        assertEquals(2, result.getAbsentFieldsKept(), "A4's definition and link");
+        assertEquals(before, readAll());
+        assertEquals(new Tm2Concept("SK25", "Fever", "Raised body temperature", "http://id.who.int/icd/entity/25"),
+                conceptRepository.findById("SK25").orElseThrow());
+        assertEquals(new Tm2Concept("SK30", "Cough", null, null), conceptRepository.findById("SK30").orElseThrow());
+    }
+
+    @Test
+    void storedDocumentsKeepOnlyWhatDiffersFromTheConcept() {
+        migration.migrate();
+
+        Document a1 = raw("A1");
+        assertFalse(a1.containsKey("tm2_title"));
+        assertFalse(a1.containsKey("tm2_definition"));
+        assertFalse(a1.containsKey("tm2_link"));
+
+        Document a3 = raw("A3");
+        assertEquals("Fever (local title)", a3.getString("tm2_title"), "diverging values stay on the mapping");
+        assertFalse(a3.containsKey("tm2_definition"));
+
+        Document a4 = raw("A4");
+        assertFalse(a4.containsKey("tm2_title"));
+        assertTrue(a4.containsKey("tm2_definition") && a4.get("tm2_definition") == null, "absent stays absent as an explicit null");
+        assertTrue(a4.containsKey("tm2_link") && a4.get("tm2_link") == null);
+
+        assertFalse(raw("B1").containsKey("tm2_title"));
+        assertFalse(raw("C1").containsKey("tm2_title"));
+    }
+
+    @Test
+    void rerunningChangesNothing() {
+        migration.migrate();
+        List<NamasteCode> afterFirstRun = readAll();
+        List<Document> storedAfterFirstRun = rawAll();
+
+        Tm2ConceptMigration.MigrationResult second = migration.migrate();
+
+        assertEquals(0, second.getConceptsCreated());
+        assertEquals(0, second.getMappingsUpdated());
+        assertEquals(0, second.getAbsentFieldsKept());
+        assertEquals(afterFirstRun, readAll());
+        assertEquals(storedAfterFirstRun, rawAll());
+    }
+
+    @Test
+    void savesAfterTheMigrationRoundTrip() {
+        migration.migrate();
+
+        // A record read back (hydrated) and saved again stores nothing new
+        NamasteCode a1 = mongoTemplate.findById("A1", NamasteCode.class);
+        mongoTemplate.save(a1);
+        assertFalse(raw("A1").containsKey("tm2_title"));
+        assertEquals(a1, mongoTemplate.findById("A1", NamasteCode.class));
+
+        NamasteCode withoutLink = new NamasteCode("N1", "SK25", null, "N1", "Fever", "Raised body temperature",
+                "New", null, 0.7, "siddha");
+        mongoTemplate.save(withoutLink);
+        assertFalse(raw("N1").containsKey("tm2_title"));
+        assertTrue(raw("N1").containsKey("tm2_link"));
+        assertEquals(withoutLink, mongoTemplate.findById("N1", NamasteCode.class));
+
+        NamasteCode newConcept = new NamasteCode("N2", "SK99", "http://id.who.int/icd/entity/99", "N2", "Swelling",
+                null, "New", null, 0.5, "unani");
+        mongoTemplate.save(newConcept);
+        assertEquals(new Tm2Concept("SK99", "Swelling", null, "http://id.who.int/icd/entity/99"),
+                conceptRepository.findById("SK99").orElseThrow());
+        assertFalse(raw("N2").containsKey("tm2_title"));
+        assertEquals(newConcept, mongoTemplate.findById("N2", NamasteCode.class));
+    }
+
+    @Test
+    void symptomSearchStillFindsFieldsOnlyStoredOnTheConcept() {
+        NamasteCodeRepositoryImpl repository = new NamasteCodeRepositoryImpl();
+        ReflectionTestUtils.setField(repository, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(repository, "conceptTable", conceptTable);
+        List<String> before = ids(repository.findBySymptoms("body temp"));
+
+        migration.migrate();
+
+        assertEquals(List.of("A1", "A2", "A3"), before);
+        assertEquals(before, ids(repository.findBySymptoms("body temp")));
+        assertEquals(before, ids(repository.findByAllSymptoms(List.of("raised", "fever"))));
+        assertEquals(List.of("B1"), ids(repository.findBySymptoms("^cou")));
+    }
+
+    private List<NamasteCode> readAll() {
+        List<NamasteCode> records = new ArrayList<>(mongoTemplate.findAll(NamasteCode.class));
+        records.sort(Comparator.comparing(NamasteCode::getId));
+        return records;
+    }
+
+    private Document raw(String id) {
+        return mongoTemplate.getCollection("tm2_mappings").find(new Document("_id", id)).first();
+    }
+
+    private List<Document> rawAll() {
+        return mongoTemplate.getCollection("tm2_mappings").find().sort(new Document("_id", 1)).into(new ArrayList<>());
+    }
+
+    private static List<String> ids(List<NamasteCode> records) {
+        return records.stream().map(NamasteCode::getId).sorted().toList();
+    }
+
+    private static Document mapping(String id, String tm2Code, String title, String definition, String link) {
+        return new Document("_id", id).append("code", id).append("tm2_code", tm2Code).append("tm2_title", title)
+                .append("tm2_definition", definition).append("tm2_link", link).append("confidence_score", 0.8)
+                .append("type", "ayurveda");
+    }
+}
@@ -0,0 +1,99 @@
+package com.namaste.Namaste.to.TM2.Service;
+
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.config.TerminologyIndexConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ValueSetExpansionServiceTest {
+
+    private final TerminologyIndexLoader loader = mock(TerminologyIndexLoader.class);
+    private ValueSetExpansionService service;
+
+    @BeforeEach
+    void setUp() {
+        List<NamasteCode> records = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String code = String.format("SR%02d", i);
+            records.add(new NamasteCode(code, "TM2-" + (i % 5), null, code, "Category " + (i % 5), null,
+                    "Jwara " + (char) ('a' + i), null, 0.9, i % 2 == 0 ? "ayurveda" : "Siddha "));
+        }
+        TerminologyIndexConfig config = new TerminologyIndexConfig();
+        config.setExpandDefaultCount(10);
+        config.setExpandMaxCount(20);
+        service = new ValueSetExpansionService(loader, config);
+        TerminologySnapshot snapshot = TerminologySnapshot.of(7, records);
+        when(loader.getCurrentSnapshot()).thenReturn(snapshot.withIndexes(Map.of(service, service.buildIndex(snapshot))));
+    }
+
+    @Test
+    void pagesAreContiguousSlicesInDisplayOrder() {
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < 25; offset += 7) {
+            ValueSetExpansionService.Expansion page = service.expand("namaste", "jwara", offset, 7);
+            assertEquals(25, page.getTotal());
+            assertEquals(offset, page.getOffset());
+            assertEquals(7L, page.getDatasetVersion());
+            page.getContains().forEach(concept -> paged.add(concept.getDisplay()));
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expected.add("Jwara " + (char) ('a' + i));
+        }
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void countDefaultsAndIsCapped() {
+        assertEquals(10, service.expand("namaste", null, null, null).getContains().size());
+
+        ValueSetExpansionService.Expansion capped = service.expand("namaste", null, 0, 500);
+        assertEquals(20, capped.getCount());
+        assertEquals(20, capped.getContains().size());
+
+        assertEquals(0, service.expand("namaste", null, 0, -3).getContains().size());
+    }
+
+    @Test
+    void offsetPastTheEndReturnsAnEmptyPageWithTheTotal() {
+        ValueSetExpansionService.Expansion page = service.expand("namaste", null, 40, 10);
+
+        assertEquals(25, page.getTotal());
+        assertTrue(page.getContains().isEmpty());
+        assertEquals(0, service.expand("namaste", null, -5, 10).getOffset());
+    }
+
+    @Test
+    void filterAppliesBeforePagingAndPerValueSet() {
+        ValueSetExpansionService.Expansion siddha = service.expand("namaste-siddha", "JWARA", 0, 20);
+        assertEquals(12, siddha.getTotal());
+        assertEquals("jwara", siddha.getFilter());
+        assertTrue(siddha.getContains().stream().allMatch(concept -> Integer.parseInt(concept.getCode().substring(2)) % 2 == 1));
+
+        ValueSetExpansionService.Expansion tm2 = service.expand("tm2", "category", 0, 20);
+        assertEquals(5, tm2.getTotal());
+        assertEquals(ValueSetExpansionService.TM2_SYSTEM, tm2.getContains().get(0).getSystem());
+
+        assertEquals(1, service.expand("namaste", "jwara k", 0, 20).getTotal());
+        assertEquals(0, service.expand("namaste", "vata", 0, 20).getTotal());
+        assertThrows(IllegalArgumentException.class, () -> service.expand("namaste-unani", null, 0, 10));
+    }
+
+    @Test
+    void resolvesIdsAndCanonicalUrls() {
+        assertEquals("namaste-ayurveda", service.resolveValueSetId(ValueSetExpansionService.VALUESET_BASE_URL + "Namaste-Ayurveda"));
+        assertEquals("tm2", service.resolveValueSetId(ValueSetExpansionService.TM2_SYSTEM + "?fhir_vs"));
+        assertEquals("namaste", service.resolveValueSetId(" namaste "));
+        assertNull(service.resolveValueSetId("namaste-unani"));
+        assertNull(service.resolveValueSetId(" "));
+    }
+}
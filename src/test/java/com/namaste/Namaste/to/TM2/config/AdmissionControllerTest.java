@@ -0,0 +1,228 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private static final AdmissionController.EndpointClass AUTOCOMPLETE = AdmissionController.EndpointClass.AUTOCOMPLETE;
+    private static final AdmissionController.EndpointClass LOOKUP = AdmissionController.EndpointClass.LOOKUP;
+    private static final AdmissionController.EndpointClass SEARCH = AdmissionController.EndpointClass.SEARCH;
+    private static final AdmissionController.EndpointClass BULK = AdmissionController.EndpointClass.BULK;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @Test
+    void backsOffAtMostOncePerTargetWindow() throws Exception {
+        AdmissionController controller = controller(40, classLimits(64, 0, 0, 50));
+        Thread.sleep(60);
+
+        for (int i = 0; i < 3; i++) {
+            assertAdmitted(controller.acquire(LOOKUP, 1000));
+        }
+        controller.release(LOOKUP, 500, false);
+        assertEquals(36, controller.getLimit());
+        controller.release(LOOKUP, 500, false);
+        controller.release(LOOKUP, 0, true);
+        assertEquals(36, controller.getLimit(), "slow completions inside one window back off once");
+
+        Thread.sleep(60);
+        assertAdmitted(controller.acquire(LOOKUP, 1000));
+        controller.release(LOOKUP, 500, false);
+        assertEquals(32, controller.getLimit());
+    }
+
+    @Test
+    void backoffStopsAtMinLimit() throws Exception {
+        AdmissionController controller = controller(9, classLimits(64, 0, 0, 1));
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(5);
+            assertAdmitted(controller.acquire(LOOKUP, 1000));
+            controller.release(LOOKUP, 0, true);
+        }
+        assertEquals(8, controller.getLimit());
+    }
+
+    @Test
+    void increasesOnlyWhenAtLeastHalfTheLimitIsInUse() throws Exception {
+        AdmissionController controller = controller(10, classLimits(64, 0, 0, 1000));
+        for (int i = 0; i < 30; i++) {
+            assertAdmitted(controller.acquire(LOOKUP, 1000));
+            controller.release(LOOKUP, 1, false);
+        }
+        assertEquals(10, controller.getLimit(), "a lightly used limit does not grow");
+
+        for (int i = 0; i < 9; i++) {
+            assertAdmitted(controller.acquire(LOOKUP, 1000));
+        }
+        for (int i = 0; i < 30; i++) {
+            assertAdmitted(controller.acquire(LOOKUP, 1000));
+            controller.release(LOOKUP, 1, false);
+        }
+        assertEquals(12, controller.getLimit(), "ten in flight adds 1/limit per fast completion");
+    }
+
+    @Test
+    void classWithoutTargetDoesNotAdaptTheLimit() throws Exception {
+        AdmissionController controller = controller(10, classLimits(64, 0, 0, 0));
+        Thread.sleep(5);
+        assertAdmitted(controller.acquire(LOOKUP, 1000));
+        controller.release(LOOKUP, 60_000, true);
+        assertEquals(10, controller.getLimit());
+    }
+
+    @Test
+    void higherPriorityWaiterIsAdmittedBeforeEarlierLowerPriorityWaiter() throws Exception {
+        AdmissionController controller = controller(1, classLimits(8, 8, 5000, 0));
+        assertAdmitted(controller.acquire(SEARCH, 0));
+
+        Future<Optional<AdmissionController.Rejection>> search = executor.submit(() -> controller.acquire(SEARCH, 5000));
+        awaitTrue(() -> controller.getQueued(SEARCH) == 1);
+        Future<Optional<AdmissionController.Rejection>> autocomplete = executor.submit(() -> controller.acquire(AUTOCOMPLETE, 5000));
+        awaitTrue(() -> controller.getQueued(AUTOCOMPLETE) == 1);
+
+        controller.release(SEARCH, 1, false);
+        assertAdmitted(autocomplete.get(5, TimeUnit.SECONDS));
+        assertFalse(search.isDone());
+        assertEquals(1, controller.getQueued(SEARCH));
+
+        controller.release(AUTOCOMPLETE, 1, false);
+        assertAdmitted(search.get(5, TimeUnit.SECONDS));
+        assertEquals(1, controller.getInFlight());
+    }
+
+    @Test
+    void classAtItsCapDoesNotBlockOtherClasses() throws Exception {
+        AdmissionControlConfig config = config(2, classLimits(8, 8, 5000, 0));
+        config.getClasses().put(AUTOCOMPLETE, classLimits(1, 8, 5000, 0));
+        AdmissionController controller = new AdmissionController(config, new SimpleMeterRegistry());
+
+        assertAdmitted(controller.acquire(AUTOCOMPLETE, 0));
+        assertAdmitted(controller.acquire(SEARCH, 0));
+        Future<Optional<AdmissionController.Rejection>> cappedAutocomplete = executor.submit(() -> controller.acquire(AUTOCOMPLETE, 5000));
+        awaitTrue(() -> controller.getQueued(AUTOCOMPLETE) == 1);
+        Future<Optional<AdmissionController.Rejection>> search = executor.submit(() -> controller.acquire(SEARCH, 5000));
+        awaitTrue(() -> controller.getQueued(SEARCH) == 1);
+
+        // The freed slot skips the queued autocomplete request, which is still at its class cap
+        controller.release(SEARCH, 1, false);
+        assertAdmitted(search.get(5, TimeUnit.SECONDS));
+        assertFalse(cappedAutocomplete.isDone());
+
+        controller.release(AUTOCOMPLETE, 1, false);
+        assertAdmitted(cappedAutocomplete.get(5, TimeUnit.SECONDS));
+        assertEquals(1, controller.getInFlight(AUTOCOMPLETE));
+        assertEquals(1, controller.getInFlight(SEARCH));
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        AdmissionController controller = controller(1, classLimits(8, 1, 5000, 0));
+        assertAdmitted(controller.acquire(LOOKUP, 0));
+
+        Future<Optional<AdmissionController.Rejection>> queued = executor.submit(() -> controller.acquire(LOOKUP, 5000));
+        awaitTrue(() -> controller.getQueued(LOOKUP) == 1);
+        assertEquals(Optional.of(AdmissionController.Rejection.QUEUE_FULL), controller.acquire(LOOKUP, 5000));
+        assertEquals(Optional.of(AdmissionController.Rejection.QUEUE_FULL), controller.acquire(BULK, 5000),
+                "a class with no queue is rejected at once");
+
+        controller.release(LOOKUP, 1, false);
+        assertAdmitted(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsWhenWaitIsExceeded() throws Exception {
+        AdmissionController controller = controller(1, classLimits(8, 8, 50, 0));
+        assertAdmitted(controller.acquire(LOOKUP, 0));
+
+        long start = System.nanoTime();
+        assertEquals(Optional.of(AdmissionController.Rejection.WAIT_EXCEEDED), controller.acquire(LOOKUP, 5000));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertEquals(0, controller.getQueued(LOOKUP));
+
+        // The request's remaining deadline caps the class's wait; none left means no queueing at all
+        assertEquals(Optional.of(AdmissionController.Rejection.QUEUE_FULL), controller.acquire(LOOKUP, 0));
+        assertEquals(1, controller.getInFlight());
+    }
+
+    @Test
+    void interruptedWaiterHoldsNoPermit() throws Exception {
+        AdmissionController controller = controller(1, classLimits(8, 8, 5000, 0));
+        for (int i = 0; i < 200; i++) {
+            assertAdmitted(controller.acquire(LOOKUP, 0));
+            CountDownLatch started = new CountDownLatch(1);
+            Future<Boolean> waiter = executor.submit(() -> {
+                started.countDown();
+                try {
+                    Optional<AdmissionController.Rejection> rejection = controller.acquire(LOOKUP, 5000);
+                    assertAdmitted(rejection);
+                    controller.release(LOOKUP, 1, false);
+                    return true;
+                } catch (InterruptedException e) {
+                    return false;
+                }
+            });
+            started.await();
+            awaitTrue(() -> controller.getQueued(LOOKUP) == 1);
+
+            // Race the interrupt against the hand-over of the permit
+            CountDownLatch go = new CountDownLatch(1);
+            Thread interrupter = new Thread(() -> {
+                go.countDown();
+                waiter.cancel(true);
+            });
+            interrupter.start();
+            go.await();
+            controller.release(LOOKUP, 1, false);
+            interrupter.join();
+            awaitTrue(() -> waiter.isDone());
+            awaitTrue(() -> controller.getInFlight() == 0);
+            assertEquals(0, controller.getQueued(LOOKUP));
+        }
+    }
+
+    private static AdmissionController controller(int initialLimit, AdmissionControlConfig.ClassLimits limits) {
+        return new AdmissionController(config(initialLimit, limits), new SimpleMeterRegistry());
+    }
+
+    private static AdmissionControlConfig config(int initialLimit, AdmissionControlConfig.ClassLimits limits) {
+        AdmissionControlConfig config = new AdmissionControlConfig();
+        config.setInitialLimit(initialLimit);
+        config.setMinLimit(Math.min(8, initialLimit));
+        config.setMaxLimit(200);
+        config.setBackoffRatio(0.9);
+        config.getClasses().put(AUTOCOMPLETE, limits);
+        config.getClasses().put(LOOKUP, limits);
+        config.getClasses().put(SEARCH, limits);
+        config.getClasses().put(BULK, classLimits(1, 0, 0, 0));
+        return config;
+    }
+
+    private static AdmissionControlConfig.ClassLimits classLimits(int maxConcurrency, int queueSize,
+                                                                  long maxWaitMillis, long targetLatencyMillis) {
+        AdmissionControlConfig.ClassLimits limits = new AdmissionControlConfig.ClassLimits();
+        limits.setMaxConcurrency(maxConcurrency);
+        limits.setQueueSize(queueSize);
+        limits.setMaxWaitMillis(maxWaitMillis);
+        limits.setTargetLatencyMillis(targetLatencyMillis);
+        return limits;
+    }
+
+    private static void assertAdmitted(Optional<AdmissionController.Rejection> rejection) {
+        assertEquals(Optional.empty(), rejection);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached within 5 s");
+            Thread.sleep(1);
+        }
+    }
+}
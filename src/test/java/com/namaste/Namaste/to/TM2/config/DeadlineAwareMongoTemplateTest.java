@@ -0,0 +1,65 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * No server is needed: an exhausted deadline must fail before the driver even selects one
+ */
+class DeadlineAwareMongoTemplateTest {
+
+    private final List<String> sentCommands = new CopyOnWriteArrayList<>();
+    private final MongoClient client = MongoClients.create(MongoClientSettings.builder()
+            .applyConnectionString(new ConnectionString("mongodb://127.0.0.1:1/deadline_test"))
+            .applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(200, TimeUnit.MILLISECONDS))
+            .addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    sentCommands.add(event.getCommandName());
+                }
+            })
+            .build());
+    private final DeadlineAwareMongoTemplate template =
+            new DeadlineAwareMongoTemplate(new SimpleMongoClientDatabaseFactory(client, "deadline_test"), null);
+
+    @AfterEach
+    void close() {
+        RequestDeadline.clear();
+        client.close();
+    }
+
+    @Test
+    void exhaustedDeadlineFailsWithoutSendingTheCommand() throws InterruptedException {
+        RequestDeadline.start(1);
+        Thread.sleep(5);
+
+        assertThrows(DeadlineExceededException.class,
+                () -> template.find(Query.query(Criteria.where("code").is("SR11")), Document.class, "tm2_mappings"));
+        assertThrows(DeadlineExceededException.class, () -> template.count(new Query(), "tm2_mappings"));
+        assertThrows(DeadlineExceededException.class, () -> template.executeCommand(new Document("ping", 1)));
+        assertTrue(sentCommands.isEmpty(), "sent " + sentCommands);
+    }
+
+    @Test
+    void withoutDeadlineTheDriverIsReached() {
+        // Fails on server selection instead, after the driver's own timeout
+        RuntimeException e = assertThrows(RuntimeException.class, () -> template.count(new Query(), "tm2_mappings"));
+        assertFalse(e instanceof DeadlineExceededException);
+    }
+}
@@ -0,0 +1,82 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MongoSlowQueryRecorderTest {
+
+    @Test
+    void findKeepsStructureAndRedactsLiterals() {
+        BsonDocument command = BsonDocument.parse("{find: 'tm2_mappings', filter: {code: 'SR11', confidence_score: {$gt: 0.6}},"
+                + " sort: {confidence_score: -1}, projection: {code: 1}, limit: 20, skip: 40, collation: {locale: 'en', strength: 2},"
+                + " $db: 'namaste', lsid: {id: 1}, $clusterTime: {clusterTime: 1}, $readPreference: {mode: 'primary'}}");
+
+        assertShape("{find: 'tm2_mappings', filter: {code: '?', confidence_score: {$gt: '?'}},"
+                + " sort: {confidence_score: -1}, projection: {code: 1}, limit: '?', skip: '?', collation: {locale: 'en', strength: 2}}",
+                MongoSlowQueryRecorder.shapeOf(command, "find"));
+    }
+
+    @Test
+    void commandsDifferingOnlyInLiteralsShareAShape() {
+        BsonDocument first = BsonDocument.parse("{find: 'tm2_mappings', filter: {tm2_code: 'TM2-A1', type: 'ayurveda'}, $db: 'a'}");
+        BsonDocument second = BsonDocument.parse("{find: 'tm2_mappings', filter: {tm2_code: 'SK25', type: 'siddha'}, $db: 'b'}");
+
+        assertEquals(MongoSlowQueryRecorder.shapeOf(first, "find"), MongoSlowQueryRecorder.shapeOf(second, "find"));
+    }
+
+    @Test
+    void inListsCollapseRegardlessOfLength() {
+        BsonDocument one = BsonDocument.parse("{find: 'tm2_mappings', filter: {code: {$in: ['SR11']}}}");
+        BsonDocument three = BsonDocument.parse("{find: 'tm2_mappings', filter: {code: {$in: ['SR11', 'SR12', 'SR13']}}}");
+        BsonDocument documents = BsonDocument.parse("{find: 'tm2_mappings', filter: {code: {$in: [{a: 1}, {b: 2}]}}}");
+
+        assertShape("{find: 'tm2_mappings', filter: {code: {$in: '?'}}}", MongoSlowQueryRecorder.shapeOf(one, "find"));
+        assertEquals(MongoSlowQueryRecorder.shapeOf(one, "find"), MongoSlowQueryRecorder.shapeOf(three, "find"));
+        assertEquals(MongoSlowQueryRecorder.shapeOf(one, "find"), MongoSlowQueryRecorder.shapeOf(documents, "find"));
+    }
+
+    @Test
+    void logicalOperatorsKeepTheirClauses() {
+        BsonDocument command = BsonDocument.parse("{find: 'tm2_mappings', filter: {$or: [{code: 'SR11'},"
+                + " {$and: [{tm2_code: 'SK25'}, {confidence_score: {$gte: 0.9}}]}], $nor: [{type: 'unani'}]}}");
+
+        assertShape("{find: 'tm2_mappings', filter: {$or: [{code: '?'},"
+                + " {$and: [{tm2_code: '?'}, {confidence_score: {$gte: '?'}}]}], $nor: [{type: '?'}]}}",
+                MongoSlowQueryRecorder.shapeOf(command, "find"));
+    }
+
+    @Test
+    void pipelineRedactsOnlyLiteralStages() {
+        BsonDocument command = BsonDocument.parse("{aggregate: 'tm2_mappings', pipeline: ["
+                + " {$match: {confidence_score: {$gt: 0.6}, tm2_code: {$in: ['A', 'B']}}},"
+                + " {$sort: {confidence_score: -1}},"
+                + " {$group: {_id: {tm2_code: '$tm2_code', type: '$type'}, best: {$first: '$$ROOT'}}},"
+                + " {$replaceRoot: {newRoot: '$best'}},"
+                + " {$skip: 10}, {$limit: 5}, {$sample: {size: 3}}],"
+                + " cursor: {batchSize: 101}, $db: 'namaste'}");
+
+        assertShape("{aggregate: 'tm2_mappings', pipeline: ["
+                + " {$match: {confidence_score: {$gt: '?'}, tm2_code: {$in: '?'}}},"
+                + " {$sort: {confidence_score: -1}},"
+                + " {$group: {_id: {tm2_code: '$tm2_code', type: '$type'}, best: {$first: '$$ROOT'}}},"
+                + " {$replaceRoot: {newRoot: '$best'}},"
+                + " {$skip: '?'}, {$limit: '?'}, {$sample: {size: '?'}}],"
+                + " cursor: {batchSize: '?'}}",
+                MongoSlowQueryRecorder.shapeOf(command, "aggregate"));
+    }
+
+    @Test
+    void countAndDistinctKeepTheirKey() {
+        BsonDocument distinct = BsonDocument.parse("{distinct: 'tm2_mappings', key: 'type', query: {tm2_code: 'SK25'}, $db: 'namaste'}");
+        BsonDocument count = BsonDocument.parse("{count: 'tm2_mappings', query: {type: 'siddha'}, hint: {type: 1}}");
+
+        assertShape("{distinct: 'tm2_mappings', key: 'type', query: {tm2_code: '?'}}", MongoSlowQueryRecorder.shapeOf(distinct, "distinct"));
+        assertShape("{count: 'tm2_mappings', query: {type: '?'}, hint: {type: 1}}", MongoSlowQueryRecorder.shapeOf(count, "count"));
+    }
+
+    private static void assertShape(String expected, BsonDocument actual) {
+        assertEquals(BsonDocument.parse(expected), actual);
+    }
+}
@@ -0,0 +1,103 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestDeadlineFilterTest {
+
+    private final RequestDeadlineConfig config = new RequestDeadlineConfig();
+    private final RequestDeadlineFilter filter = new RequestDeadlineFilter(config);
+
+    RequestDeadlineFilterTest() {
+        config.setDefaultMillis(10000);
+        // Declared from least to most specific to check that order does not matter
+        config.getEndpoints().put("/api/**", 20000L);
+        config.getEndpoints().put("/api/fhir/search/**", 5000L);
+        config.getEndpoints().put("/api/fhir/search/symptoms", 2000L);
+        config.getEndpoints().put("/api/fhir/annotate/bulk", 0L);
+    }
+
+    @Test
+    void mostSpecificPatternWins() {
+        assertEquals(2000, filter.budgetFor(request("/api/fhir/search/symptoms")));
+        assertEquals(5000, filter.budgetFor(request("/api/fhir/search/code/SR11")));
+        assertEquals(20000, filter.budgetFor(request("/api/fhir/translate")));
+        assertEquals(10000, filter.budgetFor(request("/actuator/health")));
+    }
+
+    @Test
+    void contextPathIsIgnored() {
+        MockHttpServletRequest request = request("/tm2/api/fhir/search/symptoms");
+        request.setContextPath("/tm2");
+        assertEquals(2000, filter.budgetFor(request));
+    }
+
+    @Test
+    void zeroBudgetMeansNoDeadline() {
+        MockHttpServletRequest request = request("/api/fhir/annotate/bulk");
+        request.addHeader("X-Request-Timeout", "500");
+        assertEquals(0, filter.budgetFor(request));
+    }
+
+    @Test
+    void headerOnlyShortensTheBudget() {
+        MockHttpServletRequest shorter = request("/api/fhir/search/symptoms");
+        shorter.addHeader("X-Request-Timeout", "250");
+        assertEquals(250, filter.budgetFor(shorter));
+
+        MockHttpServletRequest longer = request("/api/fhir/search/symptoms");
+        longer.addHeader("X-Request-Timeout", "60000");
+        assertEquals(2000, filter.budgetFor(longer));
+
+        for (String ignored : new String[]{"0", "-5", "soon"}) {
+            MockHttpServletRequest request = request("/api/fhir/search/symptoms");
+            request.addHeader("X-Request-Timeout", ignored);
+            assertEquals(2000, filter.budgetFor(request), ignored);
+        }
+    }
+
+    @Test
+    void deadlineIsVisibleDownstreamAndClearedAfterwards() throws Exception {
+        AtomicReference<Optional<RequestDeadline>> seen = new AtomicReference<>();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.set(RequestDeadline.current());
+            }
+        });
+
+        filter.doFilter(request("/api/fhir/search/symptoms"), new MockHttpServletResponse(), chain);
+
+        assertEquals(2000, seen.get().orElseThrow().getBudgetMillis());
+        assertTrue(RequestDeadline.current().isEmpty());
+    }
+
+    @Test
+    void unboundedEndpointRunsWithoutDeadline() throws Exception {
+        AtomicReference<Optional<RequestDeadline>> seen = new AtomicReference<>();
+        MockFilterChain chain = new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                seen.set(RequestDeadline.current());
+            }
+        });
+
+        filter.doFilter(request("/api/fhir/annotate/bulk"), new MockHttpServletResponse(), chain);
+
+        assertTrue(seen.get().isEmpty());
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
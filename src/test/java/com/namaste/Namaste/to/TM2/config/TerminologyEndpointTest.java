@@ -0,0 +1,49 @@
+package com.namaste.Namaste.to.TM2.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.namaste.Namaste.to.TM2.Model.NamasteCode;
+import com.namaste.Namaste.to.TM2.Service.NamasteTerminologyService;
+import com.namaste.Namaste.to.TM2.Service.TerminologyIndexLoader;
+import com.namaste.Namaste.to.TM2.Service.TerminologySnapshot;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TerminologyEndpointTest {
+
+    private final TerminologyIndexLoader loader = mock(TerminologyIndexLoader.class);
+    private final NamasteTerminologyService service = mock(NamasteTerminologyService.class);
+    private final TerminologyEndpoint endpoint = new TerminologyEndpoint(loader, service, new ObjectMapper());
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importConvertsTheRecordsAndReportsTheReloadedVersion() {
+        NamasteCode imported = new NamasteCode("7", "SK25", null, "SR11", "Fever", null, "Jwara", null, 0.9, "ayurveda");
+        when(service.importCodes(any(), eq("admin"))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(loader.getCurrentSnapshot()).thenReturn(TerminologySnapshot.of(12, List.of(imported)));
+
+        Map<String, Object> result = endpoint.importCodes("import", List.of(Map.of(
+                "id", "7", "tm2Code", "SK25", "code", "SR11", "tm2Title", "Fever", "codeTitle", "Jwara",
+                "confidenceScore", 0.9, "type", "ayurveda")), "admin");
+
+        ArgumentCaptor<List<NamasteCode>> codes = ArgumentCaptor.forClass(List.class);
+        verify(service).importCodes(codes.capture(), eq("admin"));
+        assertEquals(List.of(imported), codes.getValue());
+        assertEquals(12L, result.get("version"));
+        assertEquals(1, result.get("records"));
+        assertEquals(1, result.get("imported"));
+    }
+
+    @Test
+    void unknownOperationIsRejectedWithoutImporting() {
+        assertThrows(IllegalArgumentException.class, () -> endpoint.importCodes("delete", List.of(), null));
+        verifyNoInteractions(service);
+    }
+}